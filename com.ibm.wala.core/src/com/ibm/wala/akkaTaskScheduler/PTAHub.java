@@ -12,6 +12,7 @@ package com.ibm.wala.akkaTaskScheduler;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 
 import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
@@ -33,7 +34,7 @@ public class PTAHub extends UntypedActor{
 
   private PropagationSystem system;
 
-  private static boolean finished = false;
+  private CompletableFuture<Void> completion;
 
   public PTAHub(final int nrOfWorkers) {
     this.nrOfWorkers = nrOfWorkers;
@@ -63,6 +64,7 @@ public class PTAHub extends UntypedActor{
   private void processSpecial(SchedulerForSpecial work) {
     // initial job distribution
     system = work.getPropagationSystem();
+    completion = work.getCompletion();
     MutableIntSet targets = work.getTargets();
     Iterator<PointsToSetVariable> lhss = work.getLhss().iterator();
     boolean op = work.getIsAddition();
@@ -72,11 +74,16 @@ public class PTAHub extends UntypedActor{
       nrOfWorks++;
       workerRouter.tell(job, getSelf());
     }
+    if(nrOfWorks == 0){
+      // no result will come back to complete the round
+      doWeTerminate();
+    }
   }
 
   private void processResetSetAndRecompute(SchedulerForResetSetAndRecompute work) {
     // initial job distribution
     system = work.getPropagationSystem();
+    completion = work.getCompletion();
     MutableIntSet targets = work.getTargets();
     Iterator<PointsToSetVariable> users = work.getFirstUsers().iterator();
     while(users.hasNext()){
@@ -85,6 +92,10 @@ public class PTAHub extends UntypedActor{
       nrOfWorks++;
       workerRouter.tell(job, getSelf());
     }
+    if(nrOfWorks == 0){
+      // no result will come back to complete the round
+      doWeTerminate();
+    }
   }
 
 
@@ -120,8 +131,12 @@ public class PTAHub extends UntypedActor{
       //clear this round
       nrOfWorks = 0;
       nrOfResults = 0;
-      finished  = true;
       system = null;
+      CompletableFuture<Void> done = completion;
+      completion = null;
+      if(done != null){
+        done.complete(null);
+      }
     }
   }
 
@@ -152,13 +167,4 @@ public class PTAHub extends UntypedActor{
     doWeTerminate();
   }
 
-  public static boolean askstatus(){
-    if(finished){
-      finished = false;
-      return false;
-    }else{
-      return true;
-    }
-  }
-
 }
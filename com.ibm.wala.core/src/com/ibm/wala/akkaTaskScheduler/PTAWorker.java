@@ -3,7 +3,6 @@ package com.ibm.wala.akkaTaskScheduler;
 import java.util.ArrayList;
 import java.util.Iterator;
 
-import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.IVariable;
@@ -74,7 +73,7 @@ public class PTAWorker extends UntypedActor{
       synchronized (user) {
         user.addAll(remaining);
       }
-      AbstractFixedPointSolver.addToChanges(user);
+      system.addToChanges(user);
 //    //copy ??
 //      MutableIntSet copy;
 //      synchronized (user) {//?
@@ -94,7 +93,7 @@ public class PTAWorker extends UntypedActor{
           //sync? pv?
           byte mark = filter.evaluate(pv, (PointsToSetVariable)((UnaryStatement)s).getRightHandSide());
           if(mark == 1){
-            AbstractFixedPointSolver.addToChanges(pv);
+            system.addToChanges(pv);
             next.add(pv);
           }
         }else{// if(s instanceof UnaryStatement && iv == null)
@@ -113,7 +112,7 @@ public class PTAWorker extends UntypedActor{
     final PropagationSystem system = work.getPropagationSystem();
 
     ArrayList<PointsToSetVariable> next = new ArrayList<>();
-    if(AbstractFixedPointSolver.theRoot.contains(user)
+    if(system.theRoot.contains(user)
         || system.getPropagationGraph().getNumberOfStatementsThatDef(user) == 0 //root
         || user.getValue() == null)
       return new ResultFromSpecial(user, next, (MutableSharedBitVectorIntSet) targets, work.getIsAdd());
@@ -157,7 +156,7 @@ public class PTAWorker extends UntypedActor{
         removed = user.removeSome(remaining);//?sync
       }
       if(removed.size() > 0){
-        AbstractFixedPointSolver.addToChanges(user);
+        system.addToChanges(user);
         //copy
         MutableIntSet copy;
         synchronized (user) {//?
@@ -174,13 +173,13 @@ public class PTAWorker extends UntypedActor{
           }else if(op instanceof FilterOperator){
             FilterOperator filter = (FilterOperator) op;
             PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
-            if(AbstractFixedPointSolver.theRoot.contains(pv))
+            if(system.theRoot.contains(pv))
               continue;
             //sync? pv?
             synchronized (pv) {
               byte mark = filter.evaluateDel(pv, (MutableSharedBitVectorIntSet)copy);
               if(mark == 1){
-                AbstractFixedPointSolver.addToChanges(pv);
+                system.addToChanges(pv);
                 inner2CorePointsToDel2Better(pv, copy, next, system);
               }
             }
@@ -204,7 +203,7 @@ public class PTAWorker extends UntypedActor{
     final PropagationSystem system = work.getPropagationSystem();
 
     ArrayList<PointsToSetVariable> next = new ArrayList<>();
-    if(AbstractFixedPointSolver.theRoot.contains(user)
+    if(system.theRoot.contains(user)
         || system.getPropagationGraph().getNumberOfStatementsThatDef(user) == 0 //root
         || user.getValue() == null)
       return new ResultFromRR(user, next, (MutableSharedBitVectorIntSet) targets);
@@ -248,7 +247,7 @@ public class PTAWorker extends UntypedActor{
         removed = user.removeSome(remaining);//?sync
       }
       if(removed.size() > 0){
-        AbstractFixedPointSolver.addToChanges(user);
+        system.addToChanges(user);
         //copy
         MutableIntSet copy;
         synchronized (user) {//?
@@ -265,13 +264,13 @@ public class PTAWorker extends UntypedActor{
           }else if(op instanceof FilterOperator){
             FilterOperator filter = (FilterOperator) op;
             PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
-            if(AbstractFixedPointSolver.theRoot.contains(pv))
+            if(system.theRoot.contains(pv))
               continue;
             //sync? pv?
             synchronized (pv) {
               byte mark = filter.evaluateDel(pv, (MutableSharedBitVectorIntSet)copy);
               if(mark == 1){
-                AbstractFixedPointSolver.addToChanges(pv);
+                system.addToChanges(pv);
                 inner2CorePointsToDel2Better(pv, copy, next, system);
               }
             }
@@ -303,12 +302,12 @@ public class PTAWorker extends UntypedActor{
       }else if(op instanceof FilterOperator){
         FilterOperator filter = (FilterOperator) op;
         PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
-        if(AbstractFixedPointSolver.theRoot.contains(pv))
+        if(system.theRoot.contains(pv))
           continue;
         synchronized (pv) {
           byte mark = filter.evaluateDel(pv, (MutableSharedBitVectorIntSet)targets);
           if(mark == 1){
-            AbstractFixedPointSolver.addToChanges(pv);
+            system.addToChanges(pv);
             inner2CorePointsToDel2Better(pv, targets, next, system);
           }
         }
@@ -11,6 +11,7 @@
 package com.ibm.wala.akkaTaskScheduler;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
@@ -20,6 +21,8 @@ public class SchedulerForResetSetAndRecompute{
   private final MutableIntSet targets;
   private ArrayList<PointsToSetVariable> firstUsers;
   private PropagationSystem system;
+  // done when the hub has collected all results of this round
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
 
   public SchedulerForResetSetAndRecompute(MutableIntSet targets,
       ArrayList<PointsToSetVariable> firstUsers, PropagationSystem propagationSystem){
@@ -40,5 +43,9 @@ public class SchedulerForResetSetAndRecompute{
     return targets;
   }
 
+  public CompletableFuture<Void> getCompletion(){
+    return completion;
+  }
+
 
 }
@@ -11,6 +11,7 @@
 package com.ibm.wala.akkaTaskScheduler;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
@@ -21,6 +22,8 @@ public class SchedulerForSpecial{
   private final boolean isAddition;
   private final MutableIntSet targets;
   private PropagationSystem system;
+  // done when the hub has collected all results of this round
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
 
   public SchedulerForSpecial(final ArrayList<PointsToSetVariable> lhss,
       final MutableIntSet targets, final boolean isAddition, PropagationSystem propagationSystem){
@@ -46,5 +49,9 @@ public class SchedulerForSpecial{
     return isAddition;
   }
 
+  public CompletableFuture<Void> getCompletion(){
+    return completion;
+  }
+
 
 }
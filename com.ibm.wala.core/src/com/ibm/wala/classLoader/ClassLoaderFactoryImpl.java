@@ -38,6 +38,17 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    */
   final private HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /**
+   * Number of threads each {@link ClassLoaderImpl} decodes its class files on; 1 or less means they are decoded one by
+   * one.
+   */
+  private int decodeThreads = Integer.getInteger("com.ibm.wala.classLoader.decodeThreads", 1);
+
+  /**
+   * Whether each {@link ClassLoaderImpl} maps its jar files into memory, see {@link MappedJarFileModule}
+   */
+  private boolean mapJarFiles = Boolean.getBoolean("com.ibm.wala.classLoader.mapJarFiles");
+
   /**
    * @param exclusions
    *          A set of classes that class loaders should pretend don't exist.
@@ -46,6 +57,22 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
     this.exclusions = exclusions;
   }
 
+  public void setDecodeThreads(int nrOfThreads) {
+    decodeThreads = nrOfThreads;
+  }
+
+  public int getDecodeThreads() {
+    return decodeThreads;
+  }
+
+  public void setMapJarFiles(boolean map) {
+    mapJarFiles = map;
+  }
+
+  public boolean isMapJarFiles() {
+    return mapJarFiles;
+  }
+
   /**
    * Return a class loader corresponding to a given class loader identifier.
    * Create one if necessary.
@@ -112,6 +139,10 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
           cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setDecodeThreads(decodeThreads);
+      ((ClassLoaderImpl) cl).setMapJarFiles(mapJarFiles);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
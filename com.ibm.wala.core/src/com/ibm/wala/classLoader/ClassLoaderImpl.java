@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,6 +27,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -56,6 +63,26 @@ public class ClassLoaderImpl implements IClassLoader {
 
   private static final boolean OPTIMIZE_JAR_FILE_IO = true;
 
+  /**
+   * Number of threads decoding the class files of a module; 1 or less means they are decoded one by one.
+   */
+  private int decodeThreads = Integer.getInteger("com.ibm.wala.classLoader.decodeThreads", 1);
+
+  /**
+   * the threads decoding the class files of all modules during {@link #init(List)}, if more than one
+   */
+  private ExecutorService decodePool;
+
+  /**
+   * Whether the jar files of this loader are read through a {@link MappedJarFileModule}
+   */
+  private boolean mapJarFiles = Boolean.getBoolean("com.ibm.wala.classLoader.mapJarFiles");
+
+  /**
+   * the modules this loader mapped, until {@link #close()}
+   */
+  private final List<MappedJarFileModule> mappedModules = new ArrayList<MappedJarFileModule>();
+
   /**
    * classes to ignore
    */
@@ -114,6 +141,49 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  public void setDecodeThreads(int nrOfThreads) {
+    decodeThreads = nrOfThreads;
+  }
+
+  public int getDecodeThreads() {
+    return decodeThreads;
+  }
+
+  /**
+   * Set whether the jar files of the modules this loader is initialized with are mapped into memory; the modules of the
+   * scope stay as they are.
+   */
+  public void setMapJarFiles(boolean map) {
+    mapJarFiles = map;
+  }
+
+  public boolean isMapJarFiles() {
+    return mapJarFiles;
+  }
+
+  /**
+   * Unmap the jar files this loader mapped. The classes of this loader read their class files through the jar files
+   * afterwards, so call this once the loader is no longer used.
+   */
+  public void close() {
+    for (MappedJarFileModule m : mappedModules) {
+      m.close();
+    }
+    mappedModules.clear();
+  }
+
+  /**
+   * @return the module to read a module of the scope through
+   */
+  private Module map(Module archive) {
+    if (mapJarFiles && archive.getClass() == JarFileModule.class) {
+      MappedJarFileModule mapped = new MappedJarFileModule(((JarFileModule) archive).getJarFile());
+      mappedModules.add(mapped);
+      return mapped;
+    }
+    return archive;
+  }
+
   /**
    * Return the Set of (ModuleEntry) source files found in a module.
    * 
@@ -245,8 +315,13 @@ public class ClassLoaderImpl implements IClassLoader {
 
   /**
    * Set up the set of classes loaded by this object.
+   * 
+   * With more than one decode thread, the class files of the module are decoded concurrently, but the classes are still
+   * checked and added in the order of the entries, so the loaded classes are the same as with one.
    */
   private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents) {
+    List<ModuleEntry> entries = new ArrayList<ModuleEntry>();
+    List<TypeName> names = new ArrayList<TypeName>();
     for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
       ModuleEntry entry = it.next();
       if (!entry.isClassFile()) {
@@ -268,33 +343,30 @@ public class ClassLoaderImpl implements IClassLoader {
           continue;
       }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+      entries.add(entry);
+      names.add(TypeName.string2TypeName("L" + className));
+    }
 
-      className = "L" + className;
+    List<Future<ShrikeClass>> decoded = null;
+    if (decodeThreads > 1 && entries.size() > 1) {
+      decoded = decodeAll(entries, names, fileContents);
+    }
+
+    for (int i = 0; i < entries.size(); i++) {
+      TypeName T = names.get(i);
+      String className = T.toString();
       if (DEBUG_LEVEL > 0) {
         System.err.println("Load class " + className);
       }
       try {
-        TypeName T = TypeName.string2TypeName(className);
         if (loadedClasses.get(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else if (parent != null && parent.lookupClass(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
-          }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
+          ShrikeClass klass = decoded == null ? decode(entries.get(i), T, fileContents) : getDecoded(decoded.get(i));
+          if (klass != null) {
+            loadedClasses.put(T, klass);
             if (DEBUG_LEVEL > 1) {
               System.err.println("put " + T + " ");
             }
@@ -311,6 +383,81 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Decode the class defined by a class file.
+   * 
+   * @return the class, or null if the class file does not define T
+   */
+  private ShrikeClass decode(ModuleEntry entry, TypeName T, Map<String, Object> fileContents) throws InvalidClassFileException {
+    ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    // try to read from memory
+    ShrikeClassReaderHandle reader = entryReader;
+    if (fileContents != null) {
+      final Object contents = fileContents.get(entry.getName());
+      if (contents != null) {
+        // reader that uses the in-memory bytes
+        reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+      }
+    }
+    ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+    if (!tmpKlass.getReference().getName().equals(T)) {
+      return null;
+    }
+    // always used the reader based on the entry after this point,
+    // so we can null out and re-read class file contents
+    return reader == entryReader ? tmpKlass : new ShrikeClass(entryReader, this, cha);
+  }
+
+  /**
+   * Decode the class files of a module on decodeThreads threads, which the modules of this loader share.
+   * 
+   * @return the decoded class of each entry, in the order of the entries
+   */
+  private List<Future<ShrikeClass>> decodeAll(List<ModuleEntry> entries, List<TypeName> names,
+      final Map<String, Object> fileContents) {
+    if (decodePool == null) {
+      decodePool = Executors.newFixedThreadPool(decodeThreads, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "class-file-decoding");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    List<Future<ShrikeClass>> result = new ArrayList<Future<ShrikeClass>>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      final ModuleEntry entry = entries.get(i);
+      final TypeName T = names.get(i);
+      result.add(decodePool.submit(new Callable<ShrikeClass>() {
+        @Override
+        public ShrikeClass call() throws InvalidClassFileException {
+          return decode(entry, T, fileContents);
+        }
+      }));
+    }
+    return result;
+  }
+
+  private static ShrikeClass getDecoded(Future<ShrikeClass> f) throws InvalidClassFileException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while decoding class files", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof InvalidClassFileException) {
+        throw (InvalidClassFileException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Object> getAllClassAndSourceFileContents(byte[] jarFileContents, String fileName,
       Map<String, Map<String, Long>> entrySizes) {
@@ -491,16 +638,27 @@ public class ClassLoaderImpl implements IClassLoader {
       throw new IllegalArgumentException("modules is null");
     }
 
+    try {
+      loadModules(modules);
+    } finally {
+      if (decodePool != null) {
+        decodePool.shutdown();
+        decodePool = null;
+      }
+    }
+  }
+
+  private void loadModules(List<Module> modules) throws IOException {
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
     Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
     for (Iterator<Module> it = modules.iterator(); it.hasNext();) {
-      Module archive = it.next();
+      Module archive = map(it.next());
       if (DEBUG_LEVEL > 0) {
         System.err.println("add archive: " + archive);
       }
       // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
+      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule && !(archive instanceof MappedJarFileModule)) {
         // if we have a jar file, we read the whole thing into memory and operate on that; enables more
         // efficient sequential I/O
         // this is work in progress; for now, we read the file into memory and throw away the contents, which
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The decoded contents of jar entries, shared by all {@link MappedJarFileModule}s in the process.
+ *
+ * An entry is keyed by the version of its jar, i.e. its path, last modification time and length, and by its name, so
+ * modules over the same jar share one copy and a rewritten jar gets new ones. Once the contents exceed the capacity,
+ * the least recently used entries are dropped; the capacity is 256MB unless set by the
+ * com.ibm.wala.classLoader.jarCacheBytes property.
+ */
+public final class JarEntryCache {
+
+  private static long capacity = Long.getLong("com.ibm.wala.classLoader.jarCacheBytes", 256L << 20);
+
+  /**
+   * the number of bytes held
+   */
+  private static long size = 0;
+
+  private static long hits = 0;
+
+  private static long misses = 0;
+
+  private static final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(1024, 0.75f, true);
+
+  private JarEntryCache() {
+  }
+
+  /**
+   * @param jar the version of a jar, see {@link #key(String, long, long)}
+   * @return the contents of the entry, or null if they are not cached
+   */
+  static synchronized byte[] get(String jar, String entry) {
+    byte[] result = entries.get(jar + '!' + entry);
+    if (result == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return result;
+  }
+
+  /**
+   * Cache the contents of an entry, unless another thread already did.
+   *
+   * @return the cached contents
+   */
+  static synchronized byte[] put(String jar, String entry, byte[] contents) {
+    String key = jar + '!' + entry;
+    byte[] old = entries.get(key);
+    if (old != null) {
+      return old;
+    }
+    entries.put(key, contents);
+    size += contents.length;
+    evict();
+    return contents;
+  }
+
+  /**
+   * drop the least recently used entries until the contents fit the capacity
+   */
+  private static void evict() {
+    for (Iterator<byte[]> it = entries.values().iterator(); size > capacity && it.hasNext();) {
+      size -= it.next().length;
+      it.remove();
+    }
+  }
+
+  /**
+   * @return the key of a version of a jar
+   */
+  static String key(String path, long lastModified, long length) {
+    return path + '@' + lastModified + ':' + length;
+  }
+
+  public static synchronized void setCapacity(long bytes) {
+    capacity = bytes;
+    evict();
+  }
+
+  public static synchronized long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of bytes held
+   */
+  public static synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of lookups that found the entry
+   */
+  public static synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that had to decode the entry
+   */
+  public static synchronized long getMisses() {
+    return misses;
+  }
+
+  public static synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+}
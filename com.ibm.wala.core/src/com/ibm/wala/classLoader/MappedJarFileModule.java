@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.jar.JarFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.debug.Assertions;
+
+/**
+ * A {@link JarFileModule} that maps the jar file into memory and reads its entries from the mapping rather than through
+ * the {@link JarFile}.
+ *
+ * The central directory is indexed once, on first use, and an entry is inflated only when its contents are asked for.
+ * The decoded contents are kept in the {@link JarEntryCache}, so all modules over the same version of a jar, e.g. in
+ * different analyses in one JVM, share one copy.
+ *
+ * Jars the index does not handle (zip64, encrypted entries, over 2GB) are read through the {@link JarFile}, and so is
+ * every jar after {@link #close()}. A jar must not be rewritten while it is mapped.
+ *
+ * Entries are read from the mapping under the read lock of the module, so several threads may inflate entries at once,
+ * and the mapping is indexed and unmapped under its write lock.
+ */
+public class MappedJarFileModule extends JarFileModule {
+
+  private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+  private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+
+  private static final int LOCAL_FILE_HEADER = 0x04034b50;
+
+  private static final int STORED = 0;
+
+  private static final int DEFLATED = 8;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final File jar;
+
+  /**
+   * the version of the jar in the {@link JarEntryCache}
+   */
+  private final String version;
+
+  /**
+   * guards the mapping and the index: read to read entries from the mapping, written to index or unmap it
+   */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private ByteBuffer mapped;
+
+  /**
+   * the entries of the central directory by name, in its order; null until indexed, if the jar could not be, or after
+   * {@link #close()}
+   */
+  private Map<String, CentralEntry> index;
+
+  private volatile boolean indexed = false;
+
+  public MappedJarFileModule(JarFile f) {
+    super(f);
+    this.jar = new File(f.getName());
+    this.version = JarEntryCache.key(jar.getAbsolutePath(), jar.lastModified(), jar.length());
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFileModule:" + getJarFile().getName();
+  }
+
+  @Override
+  protected ModuleEntry createEntry(ZipEntry z) {
+    return new MappedJarFileEntry(z.getName(), this);
+  }
+
+  @Override
+  public Iterator<ModuleEntry> getEntries() {
+    index();
+    lock.readLock().lock();
+    try {
+      if (index != null) {
+        HashSet<ModuleEntry> result = HashSetFactory.make();
+        for (String name : index.keySet()) {
+          result.add(new MappedJarFileEntry(name, this));
+        }
+        return result.iterator();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return super.getEntries();
+  }
+
+  @Override
+  public byte[] getContents(ZipEntry entry) {
+    byte[] result = getContents(entry.getName());
+    return result == null ? super.getContents(entry) : result;
+  }
+
+  /**
+   * @return the decoded contents of the named entry, or null if there is no such entry
+   */
+  public byte[] getContents(String name) {
+    index();
+    lock.readLock().lock();
+    try {
+      if (index != null) {
+        CentralEntry e = index.get(name);
+        if (e == null) {
+          return null;
+        }
+        byte[] result = JarEntryCache.get(version, name);
+        if (result == null) {
+          result = JarEntryCache.put(version, name, decode(e));
+        }
+        return result;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    ZipEntry z = getJarFile().getEntry(name);
+    return z == null ? null : super.getContents(z);
+  }
+
+  /**
+   * @return the decoded contents of the named entry as a read-only buffer, or null if there is no such entry. The buffer
+   *         is a view of the contents in the {@link JarEntryCache}, not of the mapping, so it stays valid after
+   *         {@link #close()}.
+   */
+  public ByteBuffer getByteBuffer(String name) {
+    byte[] contents = getContents(name);
+    return contents == null ? null : ByteBuffer.wrap(contents).asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the uncompressed size of the named entry, or -1 if unknown
+   */
+  long getSize(String name) {
+    index();
+    lock.readLock().lock();
+    try {
+      if (index != null) {
+        CentralEntry e = index.get(name);
+        return e == null ? -1 : e.size;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    ZipEntry z = getJarFile().getEntry(name);
+    return z == null ? -1 : z.getSize();
+  }
+
+  /**
+   * Unmap the jar, so that its file may be deleted or rewritten. Entries are read through the {@link JarFile} afterwards,
+   * which this does not close. Waits for the entries being read from the mapping.
+   */
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      indexed = true;
+      index = null;
+      if (mapped != null) {
+        unmap(mapped);
+        mapped = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * release the mapping now rather than when the buffer is collected: through Unsafe.invokeCleaner from Java 9 on, and
+   * through the cleaner of the buffer before; otherwise it is left to the garbage collector
+   */
+  private static void unmap(ByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+      return;
+    } catch (Exception e) {
+      // not Java 9 or later
+    }
+    try {
+      Method cleaner = buffer.getClass().getMethod("cleaner");
+      cleaner.setAccessible(true);
+      Object c = cleaner.invoke(buffer);
+      if (c != null) {
+        c.getClass().getMethod("clean").invoke(c);
+      }
+    } catch (Exception e) {
+      // left to the garbage collector
+    }
+  }
+
+  /**
+   * index the mapping on first use
+   */
+  private void index() {
+    if (indexed) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (!indexed) {
+        indexed = true;
+        try {
+          index = readCentralDirectory();
+        } catch (IOException e) {
+          index = null;
+        }
+        if (index == null && mapped != null) {
+          unmap(mapped);
+          mapped = null;
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return the entries of the central directory, or null if the jar is not one the index handles
+   */
+  private Map<String, CentralEntry> readCentralDirectory() throws IOException {
+    long length = jar.length();
+    if (length < 22 || length > Integer.MAX_VALUE) {
+      return null;
+    }
+    RandomAccessFile f = new RandomAccessFile(jar, "r");
+    try {
+      mapped = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+    } finally {
+      f.close();
+    }
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+    // the end of central directory record is followed by a comment of at most 64k
+    int end = -1;
+    for (int i = (int) length - 22; i >= 0 && i >= length - 22 - 0xffff; i--) {
+      if (mapped.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      return null;
+    }
+    int count = u16(end + 10);
+    long offset = u32(end + 16);
+    if (count == 0xffff || offset >= end) {
+      // zip64
+      return null;
+    }
+
+    Map<String, CentralEntry> result = HashMapFactory.make(count);
+    int pos = (int) offset;
+    for (int i = 0; i < count; i++) {
+      if (pos + 46 > end || mapped.getInt(pos) != CENTRAL_DIRECTORY_HEADER) {
+        return null;
+      }
+      int flags = u16(pos + 8);
+      int method = u16(pos + 10);
+      long compressedSize = u32(pos + 20);
+      long size = u32(pos + 24);
+      int nameLength = u16(pos + 28);
+      int extraLength = u16(pos + 30);
+      int commentLength = u16(pos + 32);
+      long localHeader = u32(pos + 42);
+      if ((flags & 1) != 0 || (method != STORED && method != DEFLATED) || compressedSize >= Integer.MAX_VALUE
+          || size >= Integer.MAX_VALUE || localHeader >= offset) {
+        return null;
+      }
+      byte[] name = new byte[nameLength];
+      ByteBuffer b = mapped.duplicate();
+      b.position(pos + 46);
+      b.get(name);
+      result.put(new String(name, UTF8), new CentralEntry(method, (int) localHeader, (int) compressedSize, (int) size));
+      pos += 46 + nameLength + extraLength + commentLength;
+    }
+    return result;
+  }
+
+  /**
+   * @return the compressed contents of an entry, in the mapping
+   */
+  private ByteBuffer data(CentralEntry e) {
+    if (mapped.getInt(e.localHeader) != LOCAL_FILE_HEADER) {
+      Assertions.UNREACHABLE("bad local header in " + jar + " at " + e.localHeader);
+    }
+    int start = e.localHeader + 30 + u16(e.localHeader + 26) + u16(e.localHeader + 28);
+    ByteBuffer b = mapped.duplicate();
+    b.position(start);
+    b.limit(start + e.compressedSize);
+    return b.slice();
+  }
+
+  private byte[] decode(CentralEntry e) {
+    ByteBuffer data = data(e);
+    if (e.method == STORED) {
+      byte[] result = new byte[e.size];
+      data.get(result);
+      return result;
+    }
+    // an inflater without the zlib header may need an extra byte of input
+    byte[] compressed = new byte[e.compressedSize + 1];
+    data.get(compressed, 0, e.compressedSize);
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      byte[] result = new byte[e.size];
+      int n = 0;
+      while (n < result.length && !inflater.finished()) {
+        int k = inflater.inflate(result, n, result.length - n);
+        if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += k;
+      }
+      if (n != result.length) {
+        Assertions.UNREACHABLE("truncated entry in " + jar);
+      }
+      return result;
+    } catch (DataFormatException x) {
+      x.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private int u16(int pos) {
+    return mapped.getShort(pos) & 0xffff;
+  }
+
+  private long u32(int pos) {
+    return mapped.getInt(pos) & 0xffffffffL;
+  }
+
+  /**
+   * An entry of the central directory
+   */
+  private static class CentralEntry {
+
+    private final int method;
+
+    private final int localHeader;
+
+    private final int compressedSize;
+
+    private final int size;
+
+    CentralEntry(int method, int localHeader, int compressedSize, int size) {
+      this.method = method;
+      this.localHeader = localHeader;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+  }
+}
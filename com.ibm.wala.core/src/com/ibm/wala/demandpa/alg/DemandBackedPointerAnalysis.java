@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.demandpa.alg;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.analysis.typeInference.TypeAbstraction;
+import com.ibm.wala.analysis.typeInference.TypeInference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo.PointsToResult;
+import com.ibm.wala.demandpa.alg.refinepolicy.NeverRefineCGPolicy;
+import com.ibm.wala.demandpa.alg.refinepolicy.NeverRefineFieldsPolicy;
+import com.ibm.wala.demandpa.alg.refinepolicy.SinglePassRefinementPolicy;
+import com.ibm.wala.demandpa.alg.statemachine.DummyStateMachine;
+import com.ibm.wala.demandpa.flowgraph.IFlowLabel;
+import com.ibm.wala.demandpa.util.SimpleMemoryAccessMap;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNodeFactory;
+import com.ibm.wala.ipa.callgraph.propagation.DelegatingHeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.DefaultPointerKeyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * A {@link com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis} that computes the points-to set of a local only when
+ * it is asked for, with a {@link DemandRefinementPointsTo} over a given call graph, e.g. from RTA, instead of solving
+ * for every pointer up front.
+ *
+ * Each query runs a single field-based pass with a budget on the number of nodes it traverses. A query that exceeds the
+ * budget is answered by the allocation sites in the call graph whose types are assignable to the inferred type of the
+ * local, so an answer is always an over-approximation. Answers are cached, and the instance keys are numbered as they
+ * are first returned.
+ *
+ * A cached answer is read without locking, and each pointer key is queried at most once. Queries for different keys
+ * take turns on the {@link DemandRefinementPointsTo}, which is not thread-safe. The instance key mapping is
+ * synchronized, since the answers are read through it while other queries number their keys.
+ */
+public class DemandBackedPointerAnalysis extends AbstractPointerAnalysis {
+
+  private final DemandRefinementPointsTo demandPointsTo;
+
+  private final IClassHierarchy cha;
+
+  /**
+   * the answers by their pointer keys; the heap model iterates the keys
+   */
+  private final ConcurrentHashMap<PointerKey, OrdinalSet<InstanceKey>> pointsToSets;
+
+  /**
+   * guarded by the lock on demandPointsTo, as are the fields below
+   */
+  private final Map<CGNode, TypeInference> types = HashMapFactory.make();
+
+  /**
+   * allocation sites in the call graph, by their concrete class; computed for the first query over budget
+   */
+  private Map<IClass, List<InstanceKey>> allocations;
+
+  private int queries = 0;
+
+  private int overBudget = 0;
+
+  private DemandBackedPointerAnalysis(CallGraph cg, DemandRefinementPointsTo demandPointsTo, IClassHierarchy cha,
+      ConcurrentHashMap<PointerKey, OrdinalSet<InstanceKey>> pointsToSets) {
+    super(cg, new SynchronizedMapping<InstanceKey>());
+    this.demandPointsTo = demandPointsTo;
+    this.cha = cha;
+    this.pointsToSets = pointsToSets;
+  }
+
+  /**
+   * @param cg the call graph the queries are resolved over
+   * @param budget the number of nodes a query may traverse
+   */
+  public static DemandBackedPointerAnalysis make(CallGraph cg, IClassHierarchy cha, AnalysisOptions options, int budget) {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (budget <= 0) {
+      throw new IllegalArgumentException("invalid budget: " + budget);
+    }
+    ConcurrentHashMap<PointerKey, OrdinalSet<InstanceKey>> pointsToSets =
+        new ConcurrentHashMap<PointerKey, OrdinalSet<InstanceKey>>();
+    HeapModel heapModel = new DelegatingHeapModel(new AllocationSiteInNodeFactory(options, cha),
+        new DefaultPointerKeyFactory(), cha, pointsToSets.keySet());
+    DemandRefinementPointsTo demandPointsTo = DemandRefinementPointsTo.makeWithDefaultFlowGraph(cg, heapModel,
+        new SimpleMemoryAccessMap(cg, heapModel, false), cha, options, new DummyStateMachine.Factory<IFlowLabel>());
+    demandPointsTo.setRefinementPolicyFactory(new SinglePassRefinementPolicy.Factory(new NeverRefineFieldsPolicy(),
+        new NeverRefineCGPolicy(), budget));
+    return new DemandBackedPointerAnalysis(cg, demandPointsTo, cha, pointsToSets);
+  }
+
+  @Override
+  public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+    return pointsToSets.computeIfAbsent(key, k -> answer(k));
+  }
+
+  private OrdinalSet<InstanceKey> answer(PointerKey key) {
+    Collection<InstanceKey> instances = query(key);
+    MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+    //the keys of one answer are numbered together
+    synchronized (instanceKeys) {
+      for (InstanceKey ik : instances) {
+        s.add(instanceKeys.add(ik));
+      }
+    }
+    return new OrdinalSet<InstanceKey>(s, instanceKeys);
+  }
+
+  private Collection<InstanceKey> query(PointerKey key) {
+    if (!(key instanceof LocalPointerKey)) {
+      return new ArrayList<InstanceKey>(0);
+    }
+    // like an exhaustive analysis, nothing for the locals of nodes it never saw
+    CGNode node = ((LocalPointerKey) key).getNode();
+    if (getCallGraph().getNode(node.getMethod(), node.getContext()) != node) {
+      return new ArrayList<InstanceKey>(0);
+    }
+    synchronized (demandPointsTo) {
+      queries++;
+      Pair<PointsToResult, Collection<InstanceKey>> p = demandPointsTo.getPointsTo(key,
+          Predicate.<InstanceKey> truePred());
+      if (p.fst != PointsToResult.BUDGETEXCEEDED) {
+        return p.snd;
+      }
+      overBudget++;
+      return allocationsOfType((LocalPointerKey) key);
+    }
+  }
+
+  private Collection<InstanceKey> allocationsOfType(LocalPointerKey key) {
+    CGNode node = key.getNode();
+    TypeInference ti = types.get(node);
+    if (ti == null) {
+      types.put(node, ti = TypeInference.make(node.getIR(), false));
+    }
+    TypeAbstraction t = ti.getType(key.getValueNumber());
+    IClass declared = t == null || t.getTypeReference() == null ? null : cha.lookupClass(t.getTypeReference());
+    if (declared == null) {
+      declared = cha.getRootClass();
+    }
+    if (allocations == null) {
+      allocations = HashMapFactory.make();
+      HeapModel heapModel = demandPointsTo.getHeapModel();
+      for (CGNode n : getCallGraph()) {
+        for (Iterator<NewSiteReference> sites = n.iterateNewSites(); sites.hasNext();) {
+          InstanceKey ik = heapModel.getInstanceKeyForAllocation(n, sites.next());
+          if (ik != null) {
+            List<InstanceKey> l = allocations.get(ik.getConcreteType());
+            if (l == null) {
+              allocations.put(ik.getConcreteType(), l = new ArrayList<InstanceKey>());
+            }
+            l.add(ik);
+          }
+        }
+      }
+    }
+    List<InstanceKey> result = new ArrayList<InstanceKey>();
+    for (Map.Entry<IClass, List<InstanceKey>> e : allocations.entrySet()) {
+      if (cha.isAssignableFrom(declared, e.getKey())) {
+        result.addAll(e.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of points-to sets computed so far
+   */
+  public int getNumberOfQueries() {
+    synchronized (demandPointsTo) {
+      return queries;
+    }
+  }
+
+  /**
+   * @return the number of queries that exceeded the budget and were answered by type
+   */
+  public int getNumberOfQueriesOverBudget() {
+    synchronized (demandPointsTo) {
+      return overBudget;
+    }
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return demandPointsTo.getHeapModel();
+  }
+
+  /**
+   * @return the pointer keys queried so far
+   */
+  @Override
+  public Iterable<PointerKey> getPointerKeys() {
+    return new ArrayList<PointerKey>(pointsToSets.keySet());
+  }
+
+  @Override
+  public boolean isFiltered(PointerKey pk) {
+    return false;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  /**
+   * a {@link MutableMapping} whose lookups and additions lock the mapping
+   */
+  private static class SynchronizedMapping<T> extends MutableMapping<T> {
+
+    @Override
+    public synchronized T getMappedObject(int n) {
+      return super.getMappedObject(n);
+    }
+
+    @Override
+    public synchronized int getMappedIndex(Object o) {
+      return super.getMappedIndex(o);
+    }
+
+    @Override
+    public synchronized boolean hasMappedIndex(T o) {
+      return super.hasMappedIndex(o);
+    }
+
+    @Override
+    public synchronized int add(T o) {
+      return super.add(o);
+    }
+
+    @Override
+    public synchronized int getMaximumIndex() {
+      return super.getMaximumIndex();
+    }
+
+    @Override
+    public synchronized int getSize() {
+      return super.getSize();
+    }
+  }
+}
@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
+import com.ibm.wala.fixedpoint.impl.WorklistPolicy;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
@@ -60,6 +61,11 @@ public class AnalysisOptions {
    */
   private int maxEvalBetweenTopo = 1000000000;
 
+  /**
+   * A tuning parameter: the order in which the pointer analysis solver evaluates the statements on its worklist
+   */
+  private WorklistPolicy worklistPolicy = WorklistPolicy.TOPOLOGICAL;
+
   /**
    * options for handling reflection during call graph construction
    */
@@ -292,6 +298,23 @@ public class AnalysisOptions {
     topologicalGrowthFactor = d;
   }
 
+  /**
+   * @return the order in which the pointer analysis solver evaluates the statements on its worklist
+   */
+  public WorklistPolicy getWorklistPolicy() {
+    return worklistPolicy;
+  }
+
+  /**
+   * @param policy the order in which the pointer analysis solver evaluates the statements on its worklist
+   */
+  public void setWorklistPolicy(WorklistPolicy policy) {
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
+    worklistPolicy = policy;
+  }
+
 
   /**
    * @return options governing SSA construction
@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.util.intset.IntSet;
 
 /**
  * Corresponds to: "is a superset of". Used for assignment.
@@ -61,6 +62,14 @@ public class AssignOperator extends UnaryOperator<PointsToSetVariable> implement
     return changed ? CHANGED : NOT_CHANGED;
   }
 
+  /**
+   * difference propagation: add only the bits of rhs that are new since it was last propagated
+   */
+  public byte evaluate(PointsToSetVariable lhs, IntSet delta) {
+    boolean changed = lhs.addAll(delta);
+    return changed ? CHANGED : NOT_CHANGED;
+  }
+
   @Override
   public String toString() {
     return "Assign";
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * A {@link HeapModel} made of an instance key factory and a pointer key factory, for analyses that use a heap
+ * abstraction without a propagation call graph builder. The pointer keys that are modeled are the ones the analysis
+ * owning it has created, e.g. by answering queries, which it shares with the model as a collection it keeps up to date.
+ */
+public class DelegatingHeapModel implements HeapModel {
+  private final InstanceKeyFactory instanceKeys;
+
+  private final PointerKeyFactory pointerKeys;
+
+  private final IClassHierarchy cha;
+
+  private final Collection<PointerKey> modeled;
+
+  /**
+   * @param modeled the pointer keys the owning analysis has created so far
+   */
+  public DelegatingHeapModel(InstanceKeyFactory instanceKeys, PointerKeyFactory pointerKeys, IClassHierarchy cha,
+      Collection<PointerKey> modeled) {
+    if (modeled == null) {
+      throw new IllegalArgumentException("null modeled");
+    }
+    this.instanceKeys = instanceKeys;
+    this.pointerKeys = pointerKeys;
+    this.cha = cha;
+    this.modeled = modeled;
+  }
+
+  /**
+   * @return the pointer keys the owning analysis has created so far; a copy, so the analysis may create more while
+   *         they are iterated
+   */
+  @Override
+  public Iterator<PointerKey> iteratePointerKeys() {
+    return new ArrayList<PointerKey>(modeled).iterator();
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+    return instanceKeys.getInstanceKeyForAllocation(node, allocation);
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForMultiNewArray(CGNode node, NewSiteReference allocation, int dim) {
+    return instanceKeys.getInstanceKeyForMultiNewArray(node, allocation, dim);
+  }
+
+  @Override
+  public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+    return instanceKeys.getInstanceKeyForConstant(type, S);
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+    return instanceKeys.getInstanceKeyForPEI(node, instr, type);
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+    return instanceKeys.getInstanceKeyForMetadataObject(obj, objType);
+  }
+
+  @Override
+  public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+    return pointerKeys.getPointerKeyForLocal(node, valueNumber);
+  }
+
+  @Override
+  public FilteredPointerKey getFilteredPointerKeyForLocal(CGNode node, int valueNumber, FilteredPointerKey.TypeFilter filter) {
+    return pointerKeys.getFilteredPointerKeyForLocal(node, valueNumber, filter);
+  }
+
+  @Override
+  public PointerKey getPointerKeyForReturnValue(CGNode node) {
+    return pointerKeys.getPointerKeyForReturnValue(node);
+  }
+
+  @Override
+  public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+    return pointerKeys.getPointerKeyForExceptionalReturnValue(node);
+  }
+
+  @Override
+  public PointerKey getPointerKeyForStaticField(IField f) {
+    return pointerKeys.getPointerKeyForStaticField(f);
+  }
+
+  @Override
+  public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+    return pointerKeys.getPointerKeyForInstanceField(I, field);
+  }
+
+  @Override
+  public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+    return pointerKeys.getPointerKeyForArrayContents(I);
+  }
+}
@@ -28,6 +28,11 @@ public interface FilteredPointerKey extends PointerKey {
 
     boolean addFiltered(PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R);
 
+    /**
+     * add the bits of set that pass the filter to L; used for difference propagation
+     */
+    boolean addFiltered(PropagationSystem system, PointsToSetVariable L, IntSet set);
+
     boolean addInverseFiltered(PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R);
 
     boolean isRootFilter();
@@ -70,6 +75,12 @@ public interface FilteredPointerKey extends PointerKey {
       return (f == null) ? false : L.addAllInIntersection(R, f);
     }
 
+    @Override
+    public boolean addFiltered(PropagationSystem system, PointsToSetVariable L, IntSet set) {
+      IntSet f = system.getInstanceKeysForClass(concreteType);
+      return (f == null) ? false : L.addAllInIntersection(set, f);
+    }
+
     @Override
     public boolean addInverseFiltered(PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R) {
       IntSet f = system.getInstanceKeysForClass(concreteType);
@@ -184,6 +195,12 @@ public interface FilteredPointerKey extends PointerKey {
       return (f == null) ? false : L.addAllInIntersection(R, f);
     }
 
+    @Override
+    public boolean addFiltered(PropagationSystem system, PointsToSetVariable L, IntSet set) {
+      IntSet f = bits(system);
+      return (f == null) ? false : L.addAllInIntersection(set, f);
+    }
+
     @Override
     public boolean delFiltered(PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R){
       if(L.getValue() == null){
@@ -271,6 +288,16 @@ public interface FilteredPointerKey extends PointerKey {
       return false;
     }
 
+    @Override
+    public boolean addFiltered(PropagationSystem system, PointsToSetVariable L, IntSet set) {
+      int idx = system.findOrCreateIndexForInstanceKey(concreteType);
+      if (set.contains(idx) && !L.contains(idx)) {
+        L.add(idx);
+        return true;
+      }
+      return false;
+    }
+
     @Override
     public boolean delFiltered(PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R){
       int idx = system.findOrCreateIndexForInstanceKey(concreteType);
@@ -402,6 +429,13 @@ public interface FilteredPointerKey extends PointerKey {
       }
     }
 
+    @Override
+    public boolean addFiltered(PropagationSystem system, PointsToSetVariable L, IntSet set) {
+      UpdateAction act = new UpdateAction(system, L, true);
+      set.foreach(act);
+      return act.result;
+    }
+
     @Override
     public boolean delFiltered(PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R){
       if (R.getValue() == null) {
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRDiff;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+
+/**
+ * The change of one method for an incremental update of the pointer analysis: its node, its IR before and after the
+ * change, and the instructions added and deleted between the two, each with its basic block, as an {@link IRDiff}
+ * finds them.
+ *
+ * Only the deleted instructions that affect the pointer analysis through the heap or calls are kept; the constraints
+ * of the added ones are re-derived from the whole new IR.
+ */
+public class MethodChange {
+
+  private final CGNode node;
+
+  private final IR oldIR;
+
+  private final IR newIR;
+
+  private final IRDiff diff;
+
+  private final Map<SSAInstruction, ISSABasicBlock> added = new HashMap<SSAInstruction, ISSABasicBlock>();
+
+  private final Map<SSAInstruction, ISSABasicBlock> deleted = new HashMap<SSAInstruction, ISSABasicBlock>();
+
+  public MethodChange(CGNode node, IR oldIR, IR newIR) {
+    if (node == null) {
+      throw new IllegalArgumentException("null node");
+    }
+    if (oldIR == null || newIR == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    this.node = node;
+    this.oldIR = oldIR;
+    this.newIR = newIR;
+    this.diff = new IRDiff(oldIR, newIR);
+    collect();
+  }
+
+  private void collect() {
+    ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfgOld = oldIR.getControlFlowGraph();
+    ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfgNew = newIR.getControlFlowGraph();
+    for (SSAInstruction inst : diff.getDeleted()) {
+      if (inst instanceof SSAFieldAccessInstruction || inst instanceof SSAAbstractInvokeInstruction
+          || inst instanceof SSAArrayReferenceInstruction) {
+        deleted.put(inst, cfgOld.getBlockForInstruction(inst.iindex));
+      }
+    }
+    for (SSAInstruction inst : diff.getAdded()) {
+      added.put(inst, cfgNew.getBlockForInstruction(inst.iindex));
+    }
+  }
+
+  public CGNode getNode() {
+    return node;
+  }
+
+  public IR getOldIR() {
+    return oldIR;
+  }
+
+  public IR getNewIR() {
+    return newIR;
+  }
+
+  /**
+   * @return the structural diff of the two IRs
+   */
+  public IRDiff getDiff() {
+    return diff;
+  }
+
+  /**
+   * @return the instructions of the new IR that were added, with their basic blocks
+   */
+  public Map<SSAInstruction, ISSABasicBlock> getAdded() {
+    return added;
+  }
+
+  /**
+   * @return the instructions of the old IR that were deleted, with their basic blocks
+   */
+  public Map<SSAInstruction, ISSABasicBlock> getDeleted() {
+    return deleted;
+  }
+
+  @Override
+  public String toString() {
+    return "change of " + node + ": +" + added.size() + " -" + deleted.size() + " (" + diff + ")";
+  }
+}
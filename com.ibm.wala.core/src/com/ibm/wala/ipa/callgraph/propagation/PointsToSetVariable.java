@@ -18,9 +18,13 @@ import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
 /**
@@ -45,6 +49,12 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * the bits added since the last {@link #takeDelta()}, or null if they are not tracked. used for difference propagation,
+   * see {@link PropagationSystem#setDifferencePropagation(boolean)}
+   */
+  private MutableIntSet delta;
+
   public PointsToSetVariable(PointerKey key) {
     super();
     if (key == null) {
@@ -75,6 +85,54 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     }
   }
   
+  /**
+   * Start recording the bits added to this variable. The bits it already has count as new.
+   */
+  public void trackDelta() {
+    if (delta == null) {
+      delta = IntSetUtil.make();
+      if (getValue() != null) {
+        delta.addAll(getValue());
+      }
+    }
+  }
+
+  public void untrackDelta() {
+    delta = null;
+  }
+
+  public boolean isTrackingDelta() {
+    return delta != null;
+  }
+
+  /**
+   * @return the bits added since the last call, or null if there are none or they are not tracked
+   */
+  public IntSet takeDelta() {
+    if (delta == null || delta.isEmpty()) {
+      return null;
+    }
+    IntSet result = delta;
+    delta = IntSetUtil.make();
+    return result;
+  }
+
+  /**
+   * record the bits of B (that pass filter, if any) this variable does not have yet
+   */
+  private void recordDelta(IntSet B, IntSet filter) {
+    MutableIntSet V = getValue();
+    if (V != null && filter == null && B.isSubset(V)) {
+      return;
+    }
+    for (IntIterator it = B.intIterator(); it.hasNext();) {
+      int b = it.next();
+      if ((filter == null || filter.contains(b)) && (V == null || !V.contains(b))) {
+        delta.add(b);
+      }
+    }
+  }
+
   @Override
   public void add(int b) {
     if (PARANOID) {
@@ -82,6 +140,9 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       m.add(b);
       checkTypes(m);
     }
+    if (delta != null && !contains(b)) {
+      delta.add(b);
+    }
     super.add(b);
     cryIfTooBig();
   }
@@ -91,6 +152,9 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(B);
     }
+    if (delta != null) {
+      recordDelta(B, null);
+    }
     boolean v = super.addAll(B);
     cryIfTooBig();
     return v;
@@ -143,12 +207,59 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(other.getValue());
     }
-    // TODO Auto-generated method stub
+    // with a value, super.addAll goes through addAll(IntSet)
+    if (delta != null && getValue() == null && other.getValue() != null) {
+      recordDelta(other.getValue(), null);
+    }
     boolean v = super.addAll(other);
     cryIfTooBig();
     return v;
   }
 
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    // with a value, super.addAllInIntersection goes through addAllInIntersection(IntSet, IntSet)
+    if (delta != null && getValue() == null && other.getValue() != null) {
+      recordDelta(other.getValue(), filter);
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (delta != null) {
+      recordDelta(other, filter);
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public void remove(int i) {
+    if (delta != null) {
+      delta.remove(i);
+    }
+    super.remove(i);
+  }
+
+  @Override
+  public MutableSharedBitVectorIntSet removeSome(IntSet set) {
+    MutableSharedBitVectorIntSet removed = super.removeSome(set);
+    if (delta != null && !delta.isEmpty()) {
+      for (IntIterator it = removed.intIterator(); it.hasNext();) {
+        delta.remove(it.next());
+      }
+    }
+    return removed;
+  }
+
+  @Override
+  public void removeAll() {
+    if (delta != null) {
+      delta = IntSetUtil.make();
+    }
+    super.removeAll();
+  }
+
   /**
    * Use this with extreme care, to add filters to this variable..
    * 
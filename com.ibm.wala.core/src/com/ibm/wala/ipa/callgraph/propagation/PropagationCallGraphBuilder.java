@@ -238,30 +238,29 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
   public void updatePointerAnalaysis(CGNode node, Map added, Map deleted,
       ConstraintVisitor v_old, ConstraintVisitor v_new) {
     system.setChange(true);
-    try {
-      this.setDelete(true);
+    v_old.setDelete(true);
 
 //      System.out.println("**** Update PTA, Delete Inst: ");
-      for(Object key: deleted.keySet()){
-        SSAInstruction diff = (SSAInstruction)key;
+    for(Object key: deleted.keySet()){
+      SSAInstruction diff = (SSAInstruction)key;
 //        System.out.println("        " + diff.toString());
-        ISSABasicBlock bb = (ISSABasicBlock)deleted.get(key);
-        v_old.setBasicBlock(bb);
+      ISSABasicBlock bb = (ISSABasicBlock)deleted.get(key);
+      v_old.setBasicBlock(bb);
 
+      try {
         system.setFirstDel(true);
         diff.visit(v_old);
         system.setFirstDel(false);
         do{
           system.solveAkkaDel(null);
         }while(!system.emptyWorkListAkka());
+      } catch (Exception e) {
+        e.printStackTrace();
+      } finally {
+        system.setFirstDel(false);
         system.clearTheRoot();
         system.makeWorkListAkkaEmpty();
       }
-
-      this.setDelete(false);//add
-
-    } catch (Exception e) {
-      e.printStackTrace();
     }
   }
 
@@ -298,6 +297,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setWorklistPolicy(options.getWorklistPolicy());
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -771,6 +771,17 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       return changed ? CHANGED : NOT_CHANGED;
     }
 
+    //for difference propagation: only the bits of rhs new since it was last propagated
+    public byte evaluate(PointsToSetVariable lhs, IntSet delta) {
+      FilteredPointerKey pk = (FilteredPointerKey) lhs.getPointerKey();
+      if (delta.isEmpty()) {
+        return NOT_CHANGED;
+      }
+      FilteredPointerKey.TypeFilter filter = pk.getTypeFilter();
+      boolean changed = filter.addFiltered(system, lhs, delta);
+      return changed ? CHANGED : NOT_CHANGED;
+    }
+
     //for parallel
     public byte evaluateDel(PointsToSetVariable lhs, MutableSharedBitVectorIntSet set) {
       FilteredPointerKey pk = (FilteredPointerKey) lhs.getPointerKey();
@@ -1995,8 +2006,10 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     return system.pointsToMap;
   }
 
-  public abstract void processDiff(CGNode node, ISSABasicBlock bb, SSAInstruction diff);
-  public abstract void setDelete(boolean delete);
+  /**
+   * Delete or add the constraints of one instruction of node
+   */
+  public abstract void processDiff(CGNode node, ISSABasicBlock bb, SSAInstruction diff, boolean delete);
 
 
 }
@@ -440,7 +440,7 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     if (useImplicitRepresentation(eq)) {
       removeImplicitStatement((UnaryStatement<PointsToSetVariable>) eq);
     } else {
-      delegateStatements.remove(eq);
+      delegateStatements.remove(eq.hashCode(), eq);
       delegateGraph.removeNodeAndEdges(eq);
     }
   }
@@ -888,7 +888,8 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
       UnaryStatement<PointsToSetVariable> ueq = (UnaryStatement<PointsToSetVariable>) eq;
       return containsImplicitStatement(ueq);
     } else {
-      return delegateStatements.containsKey(eq.hashCode());
+      // statements are keyed by hash code, which different statements may share
+      return eq.equals(delegateStatements.get(eq.hashCode()));
     }
   }
 
@@ -15,11 +15,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import com.ibm.wala.akkaTaskScheduler.PTAHub;
 import com.ibm.wala.akkaTaskScheduler.SchedulerForResetSetAndRecompute;
@@ -40,6 +44,9 @@ import com.ibm.wala.ipa.callgraph.threadpool.ThreadHub;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyWarning;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
@@ -49,6 +56,7 @@ import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
@@ -125,7 +133,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   /**
    * Governing call graph;
    */
-  public static CallGraph cg;//bz:should be final
+  public final CallGraph cg;
 
   private int verboseInterval = DEFAULT_VERBOSE_INTERVAL;
 
@@ -141,6 +149,74 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   //thread pool
   public ThreadHub threadHub;
 
+  /**
+   * Number of threads for the whole-program solve; 1 or less means the sequential solve, and so do too few threads for
+   * any round to gain from them; see parallelCutover
+   */
+  private int solverThreads = Integer.getInteger("com.ibm.wala.propagation.solverThreads", 1);
+
+  /**
+   * Measured costs of the parallel solve: an assignment evaluated sequentially, an assignment whose new bits are
+   * collected and then added, which is split over the threads, and handing a round to the pool
+   */
+  private static final double SEQUENTIAL_ASSIGN_NANOS = 790;
+  private static final double PARALLEL_ASSIGN_NANOS = 6000;
+  private static final double DISPATCH_NANOS = 460000;
+
+  /**
+   * A round of the parallel solve with fewer assignments than this evaluates them sequentially. If negative, the cutover
+   * is derived from the measured costs and solverThreads; see parallelCutover
+   */
+  private int minParallelAssigns = Integer.getInteger("com.ibm.wala.propagation.minParallelAssigns", -1);
+
+  /**
+   * Collapse the cycles of assignments found during the solve into one variable; see checkForCycle. A collapsed cycle
+   * cannot be split again when one of its edges is deleted, so the cycles are only collapsed if incremental deletion is
+   * off; see isCollapseCycles
+   */
+  private boolean collapseCycles = Boolean.getBoolean("com.ibm.wala.propagation.collapseCycles");
+
+  /**
+   * The constraints may be deleted by the incremental updates
+   */
+  private boolean incrementalDeletion = !Boolean.getBoolean("com.ibm.wala.propagation.noIncrementalDeletion");
+
+  /**
+   * Assignments that already triggered a cycle search
+   */
+  private final HashSet<AssignEquation> checkedAssigns = HashSetFactory.make();
+
+  /**
+   * Representatives of the collapsed cycles, and the variables unified into them
+   */
+  private final HashSet<PointsToSetVariable> collapsedReps = HashSetFactory.make();
+  private final HashSet<PointsToSetVariable> collapsedAway = HashSetFactory.make();
+
+  private int cycleSearches = 0;
+  private int collapsedCycles = 0;
+  private int collapsedVariables = 0;
+
+  /**
+   * Propagate only the bits added since the last propagation along assignments and filters; see propagateDelta
+   */
+  private boolean differencePropagation = Boolean.getBoolean("com.ibm.wala.propagation.differencePropagation");
+
+  /**
+   * Changed variables whose delta is still to be propagated
+   */
+  private final LinkedHashSet<PointsToSetVariable> pendingDeltas = new LinkedHashSet<PointsToSetVariable>();
+
+  /**
+   * Variables tracking their delta
+   */
+  private final ArrayList<PointsToSetVariable> deltaTracked = new ArrayList<PointsToSetVariable>();
+
+  /**
+   * Bits read by the evaluations of assignments and filters: the whole rhs, or its delta
+   */
+  private long propagatedBits = 0;
+  private long unaryEvaluations = 0;
+
   public PropagationSystem(CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
     if (cg == null) {
       throw new IllegalArgumentException("null cg");
@@ -160,7 +236,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       //initialize sys
       startAkkaSys();
     }else{
-      System.err.println("Thread pool initialized.");
       threadHub = new ThreadHub(nrOfWorkers);
     }
   }
@@ -169,6 +244,563 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     return flowGraph;
   }
 
+  public void setSolverThreads(int nrOfThreads) {
+    solverThreads = nrOfThreads;
+  }
+
+  public int getSolverThreads() {
+    return solverThreads;
+  }
+
+  public void setMinParallelAssigns(int minAssigns) {
+    minParallelAssigns = minAssigns;
+  }
+
+  public int getMinParallelAssigns() {
+    return minParallelAssigns;
+  }
+
+  /**
+   * The smallest round worth handing to the pool: the one whose assignments cost more sequentially than their split
+   * parallel evaluation plus the dispatch. An assignment costs about 7.6 times as much in the parallel path, so with
+   * fewer threads than that no round is, and the solve stays sequential.
+   * 
+   * @return the round size, or Integer.MAX_VALUE if no round is worth it
+   */
+  public int parallelCutover() {
+    if (minParallelAssigns >= 0) {
+      return minParallelAssigns;
+    }
+    double saved = SEQUENTIAL_ASSIGN_NANOS - PARALLEL_ASSIGN_NANOS / solverThreads;
+    if (solverThreads <= 1 || saved <= 0) {
+      return Integer.MAX_VALUE;
+    }
+    return (int) Math.ceil(DISPATCH_NANOS / saved);
+  }
+
+  /**
+   * Collapsing makes the first solve cheaper. It only takes effect once incremental deletion is turned off, see
+   * setIncrementalDeletion.
+   */
+  public void setCollapseCycles(boolean collapse) {
+    collapseCycles = collapse;
+  }
+
+  /**
+   * @return true iff the cycles found are collapsed: collapsing is on and incremental deletion is off
+   */
+  public boolean isCollapseCycles() {
+    return collapseCycles && !incrementalDeletion;
+  }
+
+  /**
+   * Turn off if no constraint will ever be deleted, e.g. for a one-shot analysis, to allow collapsing the cycles. Once a
+   * cycle is collapsed, deleting one of its edges throws an IllegalStateException.
+   */
+  public void setIncrementalDeletion(boolean deletion) {
+    if (deletion && !collapsedReps.isEmpty()) {
+      throw new IllegalStateException("cycles were collapsed, their edges cannot be deleted");
+    }
+    incrementalDeletion = deletion;
+  }
+
+  public boolean isIncrementalDeletion() {
+    return incrementalDeletion;
+  }
+
+  public void setDifferencePropagation(boolean difference) {
+    if (!difference) {
+      flushPendingDeltas();
+    }
+    differencePropagation = difference;
+  }
+
+  public boolean isDifferencePropagation() {
+    return differencePropagation;
+  }
+
+  private boolean isParallelSolve() {
+    return solverThreads > 1 && parallelCutover() < Integer.MAX_VALUE;
+  }
+
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    if (isParallelSolve()) {
+      flushPendingDeltas();
+      return solveParallel(monitor);
+    }
+    return solveSequential(monitor);
+  }
+
+  /**
+   * solve(), also propagating the pending deltas and looking for a cycle after each assignment when these are on
+   */
+  private boolean solveSequential(IProgressMonitor monitor) throws CancelException {
+    boolean globalChange = false;
+    if (isFirstSolve()) {
+      initForFirstSolve();
+    }
+    while (!workList.isEmpty() || !pendingDeltas.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      if (!pendingDeltas.isEmpty()) {
+        Iterator<PointsToSetVariable> it = pendingDeltas.iterator();
+        PointsToSetVariable v = it.next();
+        it.remove();
+        globalChange |= propagateDelta(v);
+        continue;
+      }
+      orderStatements();
+      AbstractStatement<PointsToSetVariable, ?> s = takeStatement();
+      if (isStale(s)) {
+        forgetStatement(s);
+        continue;
+      }
+      if (isImplicit(s)) {
+        propagatedBits += ((PointsToSetVariable) ((UnaryStatement) s).getRightHandSide()).size();
+        unaryEvaluations++;
+      }
+      byte code = s.evaluate();
+      if (verbose) {
+        incNumberOfEvaluations();
+        if (getNumberOfEvaluations() % getVerboseInterval() == 0) {
+          performVerboseAction();
+        }
+        if (getNumberOfEvaluations() % getPeriodicMaintainInterval() == 0) {
+          periodicMaintenance();
+        }
+      }
+      if (isChanged(code)) {
+        globalChange = true;
+        if (s.getLHS() != null) {
+          changedVariable(s.getLHS());
+        }
+      }
+      if (isFixed(code)) {
+        removeStatement(s);
+      }
+      if (isCollapseCycles() && s instanceof AssignEquation) {
+        checkForCycle((AssignEquation) s);
+      }
+    }
+    return globalChange;
+  }
+
+  /**
+   * With difference propagation, the assignments and filters using a changed variable are not put on the worklist: the
+   * variable waits in pendingDeltas, and propagateDelta then passes them only the bits it got since its last
+   * propagation. The other statements using it still read the whole set. Statements added to the worklist directly,
+   * e.g. new assignments, are evaluated on the whole set as before. The incremental updates and the parallel solve
+   * keep the usual worklist.
+   */
+  @Override
+  public void changedVariable(PointsToSetVariable v) {
+    if (!differencePropagation || isChange || isParallelSolve()) {
+      super.changedVariable(v);
+      return;
+    }
+    if (!v.isTrackingDelta()) {
+      v.trackDelta();
+      deltaTracked.add(v);
+    }
+    pendingDeltas.add(v);
+  }
+
+  /**
+   * @return true iff some variable changed
+   */
+  private boolean propagateDelta(PointsToSetVariable v) {
+    if (collapsedAway.contains(v)) {
+      return false;
+    }
+    IntSet delta = v.takeDelta();
+    boolean changed = false;
+    ArrayList<AssignEquation> assigns = null;
+    for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = statementsThatUse(v); it.hasNext();) {
+      AbstractStatement<PointsToSetVariable, ?> s = it.next();
+      if (!isImplicit(s)) {
+        addToWorkList(s);
+        continue;
+      }
+      if (delta == null) {
+        continue;
+      }
+      PointsToSetVariable lhs = s.getLHS();
+      AbstractOperator<PointsToSetVariable> op = s.getOperator();
+      byte code;
+      if (op instanceof AssignOperator) {
+        code = ((AssignOperator) op).evaluate(lhs, delta);
+        if (isCollapseCycles()) {
+          if (assigns == null) {
+            assigns = new ArrayList<AssignEquation>();
+          }
+          assigns.add((AssignEquation) s);
+        }
+      } else {
+        code = ((FilterOperator) op).evaluate(lhs, delta);
+      }
+      propagatedBits += delta.size();
+      unaryEvaluations++;
+      if (isChanged(code)) {
+        changed = true;
+        changedVariable(lhs);
+      }
+    }
+    // collapsing changes the uses of v
+    if (assigns != null) {
+      for (AssignEquation s : assigns) {
+        if (!isStale(s)) {
+          checkForCycle(s);
+        }
+      }
+    }
+    return changed;
+  }
+
+  @Override
+  public boolean emptyWorkList() {
+    return super.emptyWorkList() && pendingDeltas.isEmpty();
+  }
+
+  /**
+   * Put the statements defining each changed variable on the worklist, so the next solve derives again the facts an
+   * incremental deletion removed from it that still flow in along other statements
+   */
+  @SuppressWarnings("rawtypes")
+  public void addChangedDefsToWorkList() {
+    for (Object v : changes) {
+      for (Iterator<AbstractStatement> it = flowGraph.getStatementsThatDef((PointsToSetVariable) v); it.hasNext();) {
+        addToWorkList(it.next());
+      }
+    }
+  }
+
+  /**
+   * Hand the pending deltas back to the usual worklist
+   */
+  private void flushPendingDeltas() {
+    for (PointsToSetVariable v : pendingDeltas) {
+      v.takeDelta();
+      super.changedVariable(v);
+    }
+    pendingDeltas.clear();
+  }
+
+  /**
+   * The incremental updates do their own propagation, so the deltas are no longer needed
+   */
+  @Override
+  public void setChange(boolean p) {
+    if (p) {
+      flushPendingDeltas();
+      for (PointsToSetVariable v : deltaTracked) {
+        v.untrackDelta();
+      }
+      deltaTracked.clear();
+    }
+    super.setChange(p);
+  }
+
+  /**
+   * @return true iff s is an assignment or a filter, which the propagation graph represents implicitly
+   */
+  private static boolean isImplicit(AbstractStatement<?, ?> s) {
+    AbstractOperator<?> op = s.getOperator();
+    return op instanceof AssignOperator || op instanceof FilterOperator;
+  }
+
+  /**
+   * Wavefront version of solve(): each round takes the whole worklist. An assignment only reads its rhs and writes its lhs,
+   * so the assignments of a round are evaluated in two steps: the new bits of each lhs are collected in parallel while no
+   * set changes, then added on this thread. The other statements may create constraints, so they are evaluated one by
+   * one as in solve(). The pool lives for one call, so no threads are left behind between solves.
+   */
+  private boolean solveParallel(IProgressMonitor monitor) throws CancelException {
+    boolean globalChange = false;
+    if (isFirstSolve()) {
+      initForFirstSolve();
+    }
+    int cutover = parallelCutover();
+    ForkJoinPool pool = new ForkJoinPool(solverThreads);
+    try {
+      while (!workList.isEmpty()) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        orderStatements();
+        ArrayList<AssignEquation> assigns = new ArrayList<AssignEquation>();
+        ArrayList<AbstractStatement<PointsToSetVariable, ?>> others = new ArrayList<AbstractStatement<PointsToSetVariable, ?>>();
+        while (!workList.isEmpty()) {
+          AbstractStatement<PointsToSetVariable, ?> s = takeStatement();
+          if (isStale(s)) {
+            continue;
+          }
+          if (s instanceof AssignEquation) {
+            assigns.add((AssignEquation) s);
+          } else {
+            others.add(s);
+          }
+        }
+        if (assigns.size() < cutover) {
+          others.addAll(0, assigns);
+        } else {
+          globalChange |= evaluateAssigns(pool, assigns);
+        }
+        for (AbstractStatement<PointsToSetVariable, ?> s : others) {
+          if (isImplicit(s)) {
+            propagatedBits += ((PointsToSetVariable) ((UnaryStatement<?>) s).getRightHandSide()).size();
+            unaryEvaluations++;
+          }
+          byte code = s.evaluate();
+          if (isChanged(code)) {
+            globalChange = true;
+            if (s.getLHS() != null) {
+              changedVariable(s.getLHS());
+            }
+          }
+          if (isFixed(code)) {
+            removeStatement(s);
+          }
+        }
+        if (isCollapseCycles()) {
+          for (AssignEquation s : assigns) {
+            if (!isStale(s)) {
+              checkForCycle(s);
+            }
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return globalChange;
+  }
+
+  /**
+   * @return the next statement of the worklist, which only holds statements over points-to sets
+   */
+  @SuppressWarnings("unchecked")
+  private AbstractStatement<PointsToSetVariable, ?> takeStatement() {
+    return workList.takeStatement();
+  }
+
+  /**
+   * @return true iff some lhs changed
+   */
+  private boolean evaluateAssigns(ForkJoinPool pool, ArrayList<AssignEquation> assigns) throws CancelException {
+    // the rhss of each lhs
+    final ArrayList<PointsToSetVariable> lhss = new ArrayList<PointsToSetVariable>();
+    final Map<PointsToSetVariable, ArrayList<PointsToSetVariable>> rhss = HashMapFactory.make();
+    for (AssignEquation s : assigns) {
+      PointsToSetVariable lhs = s.getLHS();
+      ArrayList<PointsToSetVariable> rs = rhss.get(lhs);
+      if (rs == null) {
+        rs = new ArrayList<PointsToSetVariable>();
+        rhss.put(lhs, rs);
+        lhss.add(lhs);
+      }
+      rs.add(s.getRightHandSide());
+      propagatedBits += s.getRightHandSide().size();
+      unaryEvaluations++;
+    }
+    // read only: collect the new bits of each lhs
+    final IntSet[] added = new IntSet[lhss.size()];
+    try {
+      pool.submit(() -> IntStream.range(0, lhss.size()).parallel().forEach(i -> {
+        added[i] = collectNewBits(lhss.get(i), rhss.get(lhss.get(i)));
+      })).get();
+    } catch (InterruptedException e) {
+      throw CancelException.make("interrupted in the parallel solve");
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    // write: add them
+    boolean changed = false;
+    for (int i = 0; i < lhss.size(); i++) {
+      if (added[i] != null && lhss.get(i).addAll(added[i])) {
+        changed = true;
+        changedVariable(lhss.get(i));
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Lazy cycle detection: an assignment whose lhs and rhs have the same points-to set may close a cycle of assignments,
+   * whose variables all end up with the same set. Each such assignment triggers one search for the cycle through it,
+   * and the cycle found is unified into a single variable. Filtered variables are left out, since a filter only
+   * applies to the flow into its own variable.
+   */
+  private void checkForCycle(AssignEquation s) {
+    PointsToSetVariable lhs = s.getLHS();
+    PointsToSetVariable rhs = s.getRightHandSide();
+    if (lhs == rhs || !isCollapsible(lhs) || !isCollapsible(rhs)) {
+      return;
+    }
+    MutableIntSet l = lhs.getValue();
+    MutableIntSet r = rhs.getValue();
+    if (l == null || r == null || l.isEmpty() || l.size() != r.size() || !l.sameValue(r)) {
+      return;
+    }
+    if (!checkedAssigns.add(s)) {
+      return;
+    }
+    cycleSearches++;
+    Set<PointsToSetVariable> cycle = findAssignmentCycle(lhs, rhs);
+    if (cycle != null) {
+      collapse(cycle);
+    }
+  }
+
+  private boolean isCollapsible(PointsToSetVariable v) {
+    return !(v.getPointerKey() instanceof FilteredPointerKey) && pointsToMap.getIndex(v.getPointerKey()) != -1;
+  }
+
+  /**
+   * @return the variables on the cycles of assignments through rhs -> lhs, or null if there is none
+   */
+  private Set<PointsToSetVariable> findAssignmentCycle(PointsToSetVariable lhs, PointsToSetVariable rhs) {
+    // forward from lhs
+    HashSet<PointsToSetVariable> reached = HashSetFactory.make();
+    LinkedList<PointsToSetVariable> todo = new LinkedList<PointsToSetVariable>();
+    reached.add(lhs);
+    todo.add(lhs);
+    while (!todo.isEmpty()) {
+      PointsToSetVariable v = todo.removeFirst();
+      for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = statementsThatUse(v); it.hasNext();) {
+        AbstractStatement<PointsToSetVariable, ?> use = it.next();
+        if (use instanceof AssignEquation) {
+          PointsToSetVariable next = ((AssignEquation) use).getLHS();
+          if (isCollapsible(next) && reached.add(next)) {
+            todo.add(next);
+          }
+        }
+      }
+    }
+    if (!reached.contains(rhs)) {
+      return null;
+    }
+    // backward from lhs, inside the forward part
+    HashSet<PointsToSetVariable> cycle = HashSetFactory.make();
+    cycle.add(lhs);
+    todo.add(lhs);
+    while (!todo.isEmpty()) {
+      PointsToSetVariable v = todo.removeFirst();
+      for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = statementsThatDef(v); it.hasNext();) {
+        AbstractStatement<PointsToSetVariable, ?> def = it.next();
+        if (def instanceof AssignEquation) {
+          PointsToSetVariable prev = ((AssignEquation) def).getRightHandSide();
+          if (reached.contains(prev) && cycle.add(prev)) {
+            todo.add(prev);
+          }
+        }
+      }
+    }
+    return cycle;
+  }
+
+  private void collapse(Set<PointsToSetVariable> cycle) {
+    MutableIntSet ids = IntSetUtil.make();
+    for (PointsToSetVariable v : cycle) {
+      ids.add(pointsToMap.getIndex(v.getPointerKey()));
+    }
+    unify(ids);
+    PointsToSetVariable rep = pointsToMap.getPointsToSet(ids.intIterator().next());
+    collapsedReps.add(rep);
+    for (PointsToSetVariable v : cycle) {
+      if (v != rep) {
+        collapsedAway.add(v);
+      }
+    }
+    collapsedCycles++;
+    collapsedVariables += cycle.size() - 1;
+    // the statements moved to rep are not on the worklist, and have not seen all of its bits
+    if (rep.isTrackingDelta()) {
+      rep.untrackDelta();
+    }
+    changedVariable(rep);
+    for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = statementsThatDef(rep); it.hasNext();) {
+      addToWorkList(it.next());
+    }
+  }
+
+  /**
+   * @return the statements of the flow graph using v, which are all over points-to sets
+   */
+  @SuppressWarnings("unchecked")
+  private Iterator<AbstractStatement<PointsToSetVariable, ?>> statementsThatUse(PointsToSetVariable v) {
+    return (Iterator<AbstractStatement<PointsToSetVariable, ?>>) (Iterator<?>) flowGraph.getStatementsThatUse(v);
+  }
+
+  /**
+   * @return the statements of the flow graph defining v, which are all over points-to sets
+   */
+  @SuppressWarnings("unchecked")
+  private Iterator<AbstractStatement<PointsToSetVariable, ?>> statementsThatDef(PointsToSetVariable v) {
+    return (Iterator<AbstractStatement<PointsToSetVariable, ?>>) (Iterator<?>) flowGraph.getStatementsThatDef(v);
+  }
+
+  /**
+   * @return true iff s was replaced when its variables were collapsed
+   */
+  private boolean isStale(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (collapsedAway.isEmpty()) {
+      return false;
+    }
+    if (s.getLHS() != null && collapsedAway.contains(s.getLHS())) {
+      return true;
+    }
+    if (s instanceof UnaryStatement) {
+      return collapsedAway.contains(((UnaryStatement<?>) s).getRightHandSide());
+    }
+    for (PointsToSetVariable v : s.getRHS()) {
+      if (v != null && collapsedAway.contains(v)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A collapsed cycle cannot be split again, and its edges in the graph may stand for several original edges, so an edge
+   * touching it cannot be deleted. The cycles are only collapsed with incremental deletion off.
+   */
+  private void checkNotCollapsed(PointsToSetVariable lhs, PointsToSetVariable rhs) {
+    if (collapsedReps.contains(lhs) || collapsedReps.contains(rhs)) {
+      throw new IllegalStateException("deletion of an edge of a collapsed cycle, incremental deletion is off");
+    }
+  }
+
+  public String getCycleStatistics() {
+    return "cycle searches: " + cycleSearches + ", collapsed cycles: " + collapsedCycles + ", collapsed variables: "
+        + collapsedVariables;
+  }
+
+  public long getPropagatedBits() {
+    return propagatedBits;
+  }
+
+  public String getPropagationStatistics() {
+    return "propagated bits: " + propagatedBits + " in " + unaryEvaluations + " assignments and filters"
+        + (differencePropagation ? " (difference propagation)" : "");
+  }
+
+  /**
+   * @return the union of the rhss that are not subsets of lhs, or null if all are
+   */
+  private static IntSet collectNewBits(PointsToSetVariable lhs, ArrayList<PointsToSetVariable> rhss) {
+    IntSet current = lhs.getValue();
+    BitVectorIntSet result = null;
+    for (PointsToSetVariable rhs : rhss) {
+      IntSet value = rhs.getValue();
+      if (value == null || value.isEmpty() || (current != null && value.isSubset(current))) {
+        continue;
+      }
+      if (result == null) {
+        result = new BitVectorIntSet();
+      }
+      result.addAll(value);
+    }
+    return result;
+  }
+
   /**
    * @return an object which encapsulates the pointer analysis result
    */
@@ -397,7 +1029,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     try{//FIXME: JEFF NPE
       if(lhs instanceof LocalPointerKey){
-        LocalPointerKey LocalPK = (LocalPointerKey)L.getPointerKey();
+        LocalPointerKey LocalPK = (LocalPointerKey)lhs;
         if(LocalPK.getNode().getMethod().isInit() || LocalPK.getNode().getMethod().isClinit())
           return false;
       }}catch(Exception e){return false;}//need to handle invocation
@@ -430,11 +1062,14 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     try{//FIXME: JEFF NPE
       if(lhs instanceof LocalPointerKey){
-        LocalPointerKey LocalPK = (LocalPointerKey)L.getPointerKey();
+        LocalPointerKey LocalPK = (LocalPointerKey)lhs;
         if(LocalPK.getNode().getMethod().isInit() || LocalPK.getNode().getMethod().isClinit())
           return false;
       }}catch(Exception e){return false;}//need to handle invocation
 
+    for (PointsToSetVariable rhs : rhss) {
+      checkNotCollapsed(L, rhs);
+    }
     //remove edges
     for (PointsToSetVariable rhs : rhss) {
       delStatementS(L, op, rhs, true, true);
@@ -465,7 +1100,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     try {//FIXME: JEFF NPE
       if(lhs instanceof LocalPointerKey){
-        LocalPointerKey LocalPK = (LocalPointerKey)L.getPointerKey();
+        LocalPointerKey LocalPK = (LocalPointerKey)lhs;
         if(LocalPK.getNode().getMethod().isInit() || LocalPK.getNode().getMethod().isClinit())
           return false;
       }
@@ -505,8 +1140,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   private void addOrDelASetFromMultiLhs(ArrayList<PointsToSetVariable> lhss, MutableIntSet targets, boolean isAddition){
     if(useAkka){
       System.out.println("Start AkkaSys for multi l: ---- nrOfWorks = " + lhss.size());
-      hub.tell(new SchedulerForSpecial(lhss, targets, isAddition, this), hub);
-      awaitHubComplete();
+      SchedulerForSpecial work = new SchedulerForSpecial(lhss, targets, isAddition, this);
+      hub.tell(work, hub);
+      awaitHubComplete(work.getCompletion());
     }else{
       try {
         threadHub.initialSpecialTasks(lhss, targets, isAddition, this);
@@ -552,6 +1188,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if(rhs == null)
       return false;
     else{
+      for (PointsToSetVariable lhs : lhss) {
+        if(lhs != null)
+          checkNotCollapsed(lhs, rhs);
+      }
       for (PointsToSetVariable lhs : lhss) {
         if(lhs != null)
           delStatementS(lhs, op, rhs, true, true);
@@ -581,6 +1221,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }else{
       if(getFirstDel()){
         getFixedPointSystem().delStatement(s);
+        forgetStatement(s);
         return true;
       }
       return false;
@@ -634,7 +1275,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     try{//FIXME: JEFF NPE
       if(lhs instanceof LocalPointerKey){
-        LocalPointerKey LocalPK = (LocalPointerKey)L.getPointerKey();
+        LocalPointerKey LocalPK = (LocalPointerKey)lhs;
         if(LocalPK.getNode().getMethod().isInit() || LocalPK.getNode().getMethod().isClinit())
           return false;
       }}catch(Exception e){return false;}//need to handle invocation
@@ -643,6 +1284,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       IntSet delSet = R.getValue();
       if(delSet==null)
         return false;//JEFF
+      checkNotCollapsed(L, R);
 
       //remove the statement first
       delStatementS(L, op, R, true, true);
@@ -836,8 +1478,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
           }else{
             if(useAkka){
               System.out.println("Start AkkaSys for Deleting (re & re) set ---- nrOfWorks = " + nrOfWorks);
-              hub.tell(new SchedulerForResetSetAndRecompute(removed, firstUsers, this), hub);
-              awaitHubComplete();
+              SchedulerForResetSetAndRecompute work = new SchedulerForResetSetAndRecompute(removed, firstUsers, this);
+              hub.tell(work, hub);
+              awaitHubComplete(work.getCompletion());
             }else{
               try {
                 threadHub.initialRRTasks(removed, firstUsers, this);
@@ -853,17 +1496,11 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   }
 
 
-  public void awaitHubComplete(){
-    boolean goon = true;
-    while(goon){
-      try {
-        Thread.sleep(10);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-      goon = PTAHub.askstatus();
-    }
-    return;
+  /**
+   * block until the hub has collected the last result of the given round
+   */
+  public void awaitHubComplete(CompletableFuture<Void> completion){
+    completion.join();
   }
 
   HashSet<PointsToSetVariable> store = new HashSet<>();// for isreachable
@@ -944,7 +1581,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("delete constraint D: " + op + " --- to  " + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
+    assert collapseCycles || !pointsToMap.isUnified(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     delStatement(null, op, v1, true, true);
   }
@@ -959,7 +1596,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[ arg0.length ];
     for(int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
+      assert collapseCycles || !pointsToMap.isUnified(arg0[i]);
       vs[i] = findOrCreatePointsToSet(arg0[i]);
     }
     delStatement(null, op, vs, true, true);
@@ -970,8 +1607,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("delete constraint D: " + op + " " + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
-    assert !pointsToMap.isUnified(arg1);
+    assert collapseCycles || !pointsToMap.isUnified(arg0);
+    assert collapseCycles || !pointsToMap.isUnified(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     PointsToSetVariable v2 = findOrCreatePointsToSet(arg1);
     delStatement(null, op, v1, v2, true, true);
@@ -989,8 +1626,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + " " + op + " " + rhs);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs);
+    assert collapseCycles || !pointsToMap.isUnified(lhs);
+    assert collapseCycles || !pointsToMap.isUnified(rhs);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R = findOrCreatePointsToSet(rhs);
     return newStatement(L, op, new PointsToSetVariable[] { R }, true, true);
@@ -1012,9 +1649,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + " " + op + " " + rhs1 + ", " + rhs2);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs1);
-    assert !pointsToMap.isUnified(rhs2);
+    assert collapseCycles || !pointsToMap.isUnified(lhs);
+    assert collapseCycles || !pointsToMap.isUnified(rhs1);
+    assert collapseCycles || !pointsToMap.isUnified(rhs2);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R1 = findOrCreatePointsToSet(rhs1);
     PointsToSetVariable R2 = findOrCreatePointsToSet(rhs2);
@@ -1204,7 +1841,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + " " + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
+    assert collapseCycles || !pointsToMap.isUnified(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     newStatement(null, op, v1, true, true);
   }
@@ -1218,7 +1855,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[ arg0.length ];
     for(int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
+      assert collapseCycles || !pointsToMap.isUnified(arg0[i]);
       vs[i] = findOrCreatePointsToSet(arg0[i]);
     }
     newStatement(null, op, vs, true, true);
@@ -1228,8 +1865,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + " " + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
-    assert !pointsToMap.isUnified(arg1);
+    assert collapseCycles || !pointsToMap.isUnified(arg0);
+    assert collapseCycles || !pointsToMap.isUnified(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     PointsToSetVariable v2 = findOrCreatePointsToSet(arg1);
     newStatement(null, op, v1, v2, true, true);
@@ -1488,6 +2125,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
             int rhsRep = pointsToMap.getRepresentative(pointsToMap.getIndex(rhs.getPointerKey()));
             if (rhsRep == rep) {
               flowGraph.removeStatement(as);
+              forgetStatement(as);
             } else {
               replaceLHS(pRef, p, as);
             }
@@ -1504,6 +2142,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
             int lhsRep = pointsToMap.getRepresentative(pointsToMap.getIndex(lhs.getPointerKey()));
             if (lhsRep == rep) {
               flowGraph.removeStatement(as);
+              forgetStatement(as);
             } else {
               replaceRHS(pRef, p, as);
             }
@@ -1541,6 +2180,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       newStatement(as.getLHS(), as.getOperator(), newRHS, false, false);
     }
     flowGraph.removeStatement(as);
+    forgetStatement(as);
   }
 
   /**
@@ -1558,6 +2198,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       newStatement(pRef, as.getOperator(), as.getRHS(), false, false);
     }
     flowGraph.removeStatement(as);
+    forgetStatement(as);
   }
 
   public boolean isUnified(PointerKey result) {
@@ -18,6 +18,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.ibm.wala.analysis.reflection.CloneInterpreter;
@@ -96,8 +97,6 @@ import com.ibm.wala.util.warnings.Warnings;
  */
 public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGraphBuilder implements HeapModel {
 
-  public static boolean isDelete = false;
-
   private final static boolean DEBUG = false;
   // sz: used to store all ssa instruction and its corresponding CGNode and block(since they would change
   // once new IR is built)
@@ -298,23 +297,77 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     addPhiConstraints(node, cfg, b, v);
   }
 
-  @Override
-  public void setDelete(boolean delete)
-  {
-    this.isDelete = delete;
-  }
-
   //sz: manually delete or add a ssa instruction
   @Override
-  public void processDiff(CGNode node, ISSABasicBlock bb, SSAInstruction diff){
+  public void processDiff(CGNode node, ISSABasicBlock bb, SSAInstruction diff, boolean delete){
 
      ConstraintVisitor v = makeVisitor(node);
-     IR ir = v.ir;
+     v.setDelete(delete);
      v.setBasicBlock(bb);
      diff.visit(v);
 
   }
 
+  /**
+   * Batch update, first half: delete the constraints of the deleted instructions of all the changed methods, then
+   * propagate the deletions in one pass. Unlike
+   * {@link PropagationCallGraphBuilder#updatePointerAnalaysis(CGNode, Map, Map, ConstraintVisitor, ConstraintVisitor)},
+   * which solves and clears the roots after each instruction, the roots of the whole batch are kept until the pass is
+   * done; the deletion results of the two differ, as both depend on the order of the deletions. Visits the old IRs, so
+   * call it before the nodes get their new IRs.
+   *
+   * @throws CancelException if the pass is canceled; the system is then only partly updated
+   */
+  public void deleteConstraints(Collection<MethodChange> changes) throws CancelException {
+    system.setChange(true);
+    try {
+      for (MethodChange change : changes) {
+        if (change.getDeleted().isEmpty()) {
+          continue;
+        }
+        ConstraintVisitor v = makeVisitor(change.getNode());
+        v.setDelete(true);
+        v.setIR(change.getOldIR());
+        v.setDefUse(new DefUse(change.getOldIR()));
+        for (Map.Entry<SSAInstruction, ISSABasicBlock> e : change.getDeleted().entrySet()) {
+          v.setBasicBlock(e.getValue());
+          system.setFirstDel(true);
+          e.getKey().visit(v);
+          system.setFirstDel(false);
+        }
+      }
+      do {
+        system.solveAkkaDel(null);
+      } while (!system.emptyWorkListAkka());
+    } finally {
+      system.clearTheRoot();
+      system.makeWorkListAkkaEmpty();
+    }
+  }
+
+  /**
+   * Batch update, second half: add the constraints of all the changed methods, whose nodes have their new IRs by now,
+   * then solve to a fixed point. The deletion may have removed facts that still flow in along other edges, so the
+   * statements defining the variables it changed are evaluated again too.
+   *
+   * @throws CancelException if the solve is canceled; the system is then only partly updated
+   */
+  public void addConstraints(Collection<MethodChange> changes) throws CancelException {
+    system.setUpdateChange(true);
+    try {
+      for (MethodChange change : changes) {
+        addConstraintsFromChangedNode(change.getNode(), null);
+      }
+      system.addChangedDefsToWorkList();
+      do {
+        system.solve(null);
+        addConstraintsFromNewNodes(null);
+      } while (!system.emptyWorkList());
+    } finally {
+      system.setUpdateChange(false);
+    }
+  }
+
   private void addPhiConstraints(CGNode node, ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg, BasicBlock b,
       ConstraintVisitor v) {
     // visit each phi instruction in each successor block
@@ -569,6 +622,15 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
      * Def-use information
      */
     protected DefUse du;
+
+    /**
+     * Delete the constraints of the visited instructions instead of adding them
+     */
+    private boolean delete = false;
+
+    public void setDelete(boolean delete) {
+      this.delete = delete;
+    }
     public void setIR(IR ir)
     {
       this.ir = ir;
@@ -730,15 +792,15 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         //--- def(result) = arrayRef(arrayRefPtrKey)
         //~~~ meaning of implicit points to set????
         //~~~ arrayRef is already in system
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(result);
       } else {
         if (contentsAreInvariant(symbolTable, du, arrayRef)) {
-          if(!isDelete)
+          if(!delete)
             system.recordImplicitPointsToSet(arrayRefPtrKey);
           InstanceKey[] ik = getInvariantContents(arrayRef);
           ArrayList<PointsToSetVariable> rhss = new ArrayList<>();
-          if(isDelete){
+          if(delete){
 //            MutableIntSet delset = IntSetUtil.getDefaultIntSetFactory().make();
             for (int i = 0; i < ik.length; i++) {
               if (!representsNullType(ik[i])) {
@@ -777,7 +839,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           assert !system.isUnified(arrayRefPtrKey);
           //--- newSideEffect(UnaryOperator<PointsToSetVariable> op, PointerKey arg0)
           //--- newStatement(null, op, findOrCreatePointsToSet(arg0), true, true);
-          if(isDelete)
+          if(delete)
             system.delSideEffect(getBuilder().new ArrayLoadOperator(system.findOrCreatePointsToSet(result)), arrayRefPtrKey);
           else
             system.newSideEffect(getBuilder().new ArrayLoadOperator(system.findOrCreatePointsToSet(result)), arrayRefPtrKey);
@@ -799,7 +861,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       // contentsAreInvariant(instruction.getArrayRef())) {
       if (contentsAreInvariant(symbolTable, du, arrayRef)) {
         //--- record this pointer key in the points-to set map, set it as implicit
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(arrayRefPtrKey);
         //--- Object x = symbolTable.getConstantValue(valueNumber);
         //--- InstanceKey ik = hm.getInstanceKeyForConstant(type, String (x)/x);
@@ -812,10 +874,10 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
             if (p == null) {
             } else {
               if (contentsAreInvariant(symbolTable, du, value)) {
-                if(!isDelete)
+                if(!delete)
                   system.recordImplicitPointsToSet(valuePtrKey);
                 InstanceKey[] vk = getInvariantContents(value);
-                if(isDelete){
+                if(delete){
 //                  MutableIntSet delset = IntSetUtil.getDefaultIntSetFactory().make();
 //                  final ArrayList<PointsToSetVariable> rhss = new ArrayList<>();
                   for (int j = 0; j < vk.length; j++)  {
@@ -842,12 +904,12 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
                 }
               } else {//--- value contents are variant
                 if (isRootType(contents)) {
-                  if(isDelete)
+                  if(delete)
                     system.delConstraint(p, assignOperator, valuePtrKey);
                   else
                     system.newConstraint(p, assignOperator, valuePtrKey);
                 } else {
-                  if(isDelete)
+                  if(delete)
                     system.delConstraint(p, getBuilder().filterOperator, valuePtrKey);
                   else
                     system.newConstraint(p, getBuilder().filterOperator, valuePtrKey);
@@ -858,19 +920,19 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         }
       } else {//arrayRef is  variant
         if (contentsAreInvariant(symbolTable, du, value)) {
-          if(!isDelete)
+          if(!delete)
             system.recordImplicitPointsToSet(valuePtrKey);
           InstanceKey[] ik = getInvariantContents(value);
           for (int i = 0; i < ik.length; i++) {
             system.findOrCreateIndexForInstanceKey(ik[i]);
             assert !system.isUnified(arrayRefPtrKey);
-            if(isDelete)
+            if(delete)
               system.delSideEffect(getBuilder().new InstanceArrayStoreOperator(ik[i]), arrayRefPtrKey);
             else
               system.newSideEffect(getBuilder().new InstanceArrayStoreOperator(ik[i]), arrayRefPtrKey);
           }
         } else {
-          if(isDelete)
+          if(delete)
             system.delSideEffect(getBuilder().new ArrayStoreOperator(system.findOrCreatePointsToSet(valuePtrKey)), arrayRefPtrKey);
           else
             system.newSideEffect(getBuilder().new ArrayStoreOperator(system.findOrCreatePointsToSet(valuePtrKey)), arrayRefPtrKey);
@@ -1050,7 +1112,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
     public void doVisitReturn(SSAReturnInstruction instruction){
       if (DEBUG) {
-        if(isDelete)
+        if(delete)
           System.err.println("delReturn: " + instruction);
         else
           System.err.println("visitReturn: " + instruction);
@@ -1060,11 +1122,11 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       //---instruction.getResult: value number of the result. By convention result == -1 means returns void.
       PointerKey result = getPointerKeyForLocal(instruction.getResult());
       if (contentsAreInvariant(symbolTable, du, instruction.getResult())) {
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(result);
         //---get Invariant Contents: the complete set of instances that the local with vn=valueNumber may point to.
         InstanceKey[] ik = getInvariantContents(instruction.getResult());
-        if(isDelete){
+        if(delete){
           MutableIntSet delset = IntSetUtil.getDefaultIntSetFactory().make();
           for (int i = 0; i < ik.length; i++) {
             if (DEBUG) {
@@ -1085,7 +1147,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           }
         }
       } else {
-        if(isDelete)
+        if(delete)
           system.delConstraint(returnValue, assignOperator, result);
         else
           system.newConstraint(returnValue, assignOperator, result);
@@ -1143,7 +1205,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
     public void visitGetInternal(int lval, int ref, boolean isStatic, FieldReference field){
       if (DEBUG) {
-        if(isDelete)
+        if(delete)
           System.err.println("delGet " + field);
         else
           System.err.println("visitGet " + field);
@@ -1166,10 +1228,10 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         if (klass == null) {
         } else {
           // side effect of getstatic: may call class initializer
-          if (DEBUG && isDelete) {
+          if (DEBUG && delete) {
             System.err.println("getstatic call class init " + klass);
           }
-          if(!isDelete)
+          if(!delete)
             processClassInitializer(klass);
         }
       }
@@ -1180,7 +1242,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       }
 
       if (hasNoInterestingUses(lval)) {
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(def);
         else
         {
@@ -1193,7 +1255,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       } else {
         if (isStatic) {
           PointerKey fKey = getPointerKeyForStaticField(f);
-          if(isDelete)
+          if(delete)
             system.delConstraint(def, assignOperator, fKey);
           else
             system.newConstraint(def, assignOperator, fKey);
@@ -1208,14 +1270,14 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
               if (!representsNullType(ik[i])) {
                 system.findOrCreateIndexForInstanceKey(ik[i]);
                 PointerKey p = getPointerKeyForInstanceField(ik[i], f);
-                if(isDelete)
+                if(delete)
                   system.delConstraint(def, assignOperator, p);
                 else
                   system.newConstraint(def, assignOperator, p);
               }
             }
           } else {//--- ref is variant && ldef has interesting uses
-            if(isDelete)
+            if(delete)
               system.delSideEffect(getBuilder().new GetFieldOperator(f, system.findOrCreatePointsToSet(def)), refKey);
             else
               system.newSideEffect(getBuilder().new GetFieldOperator(f, system.findOrCreatePointsToSet(def)), refKey);
@@ -1305,7 +1367,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     public void visitPutInternal(int rval, int ref, boolean isStatic, FieldReference field) {
 
       if (DEBUG) {
-        if(isDelete)
+        if(delete)
           System.err.println("delPut " + field);
         else
           System.err.println("visitPut " + field);
@@ -1342,15 +1404,15 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       // if (!supportFullPointerFlowGraph &&
       // contentsAreInvariant(rval)) {
       if (contentsAreInvariant(symbolTable, du, rval)) {
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(rvalKey);
         InstanceKey[] ik = getInvariantContents(rval);
         if (contentsAreInvariant(symbolTable, du, ref)) {
-          if(!isDelete)
+          if(!delete)
             system.recordImplicitPointsToSet(refKey);
           InstanceKey[] refk = getInvariantContents(ref);
           int len = refk.length;
-          if(isDelete){
+          if(delete){
             MutableIntSet delset = IntSetUtil.getDefaultIntSetFactory().make();
             for (int i = 0; i < ik.length; i++) {
               int index = system.findOrCreateIndexForInstanceKey(ik[i]);
@@ -1377,7 +1439,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         } else {//--- rval is invariant && ref is variant
           for (int i = 0; i < ik.length; i++) {
             system.findOrCreateIndexForInstanceKey(ik[i]);
-            if(isDelete)
+            if(delete)
               system.delSideEffect(getBuilder().new InstancePutFieldOperator(f, ik[i]), refKey);
             else
               system.newSideEffect(getBuilder().new InstancePutFieldOperator(f, ik[i]), refKey);
@@ -1386,14 +1448,14 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       } else {//---rval is variant
         if (contentsAreInvariant(symbolTable, du, ref)) {
           //--- rval is variant && ref is invaraint
-          if(!isDelete)
+          if(!delete)
             system.recordImplicitPointsToSet(refKey);
           InstanceKey[] refk = getInvariantContents(ref);
           for (int j = 0; j < refk.length; j++) {
             if (!representsNullType(refk[j])) {
               system.findOrCreateIndexForInstanceKey(refk[j]);
               PointerKey p = getPointerKeyForInstanceField(refk[j], f);
-              if(isDelete)
+              if(delete)
                 system.delConstraint(p, assignOperator, rvalKey);
               else
                 system.newConstraint(p, assignOperator, rvalKey);
@@ -1404,7 +1466,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           if (DEBUG) {
             System.err.println("adding side effect " + f);
           }
-          if(isDelete)
+          if(delete)
             system.delSideEffect(getBuilder().new PutFieldOperator(f, system.findOrCreatePointsToSet(rvalKey)), refKey);
           else
             system.newSideEffect(getBuilder().new PutFieldOperator(f, system.findOrCreatePointsToSet(rvalKey)), refKey);
@@ -1421,10 +1483,10 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       // if (!supportFullPointerFlowGraph &&
       // contentsAreInvariant(rval)) {
       if (contentsAreInvariant(symbolTable, du, rval)) {
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(rvalKey);
         InstanceKey[] ik = getInvariantContents(rval);
-        if(isDelete){
+        if(delete){
           MutableIntSet delset = IntSetUtil.getDefaultIntSetFactory().make();
           for (int i = 0; i < ik.length; i++) {
             int index = system.findOrCreateIndexForInstanceKey(ik[i]);
@@ -1437,7 +1499,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           }
         }
       } else {
-        if(isDelete)
+        if(delete)
           system.delConstraint(fKey, assignOperator, rvalKey);
         else
           system.newConstraint(fKey, assignOperator, rvalKey);
@@ -1450,7 +1512,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       if (klass == null) {
         Warnings.add(FieldResolutionFailure.create(field));
       } else {
-        if(!isDelete)
+        if(!delete)
           processClassInitializer(klass);
       }
     }
@@ -1463,7 +1525,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     public void visitInvoke(SSAInvokeInstruction instruction) {
    // sz: please change test to something else, like enable_incremental_pointer_analysis
       // almost all visitXX has its corresponding DelXX() function
-      if(isDelete)
+      if(delete)
         doDelInvokeInternal(instruction, new DefaultInvariantComputer());
       else
         visitInvokeInternal(instruction, new DefaultInvariantComputer());
@@ -1554,7 +1616,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       }}catch(Exception e){}//JEFF
 
       InstanceKey[][] invariantParameters = invs.computeInvariantParameters(instruction);
-      if(isDelete)
+      if(delete)
       {
         if (instruction.getCallSite().isStatic()) {
 
@@ -1698,7 +1760,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
    // sz: all if-phrase with test are new
       if (!contentsAreInvariant(symbolTable, du, instruction.getDef())) {
         //--- if def contents are variant, def <->ikey in pointsToMap
-        if(isDelete)
+        if(delete)
           system.delConstraint(def, iKey);
         else
           system.newConstraint(def, iKey);
@@ -1706,7 +1768,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         //---iKey is before resolving
         system.findOrCreateIndexForInstanceKey(iKey);
         //--- def is invariant, mark it as implicit
-        if(!isDelete)
+        if(!delete)
           system.recordImplicitPointsToSet(def);
       }
 
@@ -1714,7 +1776,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       if (DEBUG) {
         System.err.println("SE: visitNew call clinit: " + klass);
       }
-      if(!isDelete)
+      if(!delete)
         processClassInitializer(klass);
 
 
@@ -1744,7 +1806,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
                 + " is " + ik);
             System.err.println("   klass:" + klass);
           }
-          if(isDelete)
+          if(delete)
             system.delConstraint(pk, ik);
           else
             system.newConstraint(pk, ik);
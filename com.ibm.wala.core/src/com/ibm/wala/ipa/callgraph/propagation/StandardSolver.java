@@ -42,15 +42,13 @@ public class StandardSolver extends AbstractPointsToSolver {
         ISSABasicBlock bb = (ISSABasicBlock)deleted.get(key);
 
         system.setFirstDel(true);
-        builder.setDelete(true);
-        builder.processDiff(node,bb,diff);//only for those affecting data flow facts
+        builder.processDiff(node,bb,diff,true);//only for those affecting data flow facts
         system.setFirstDel(false);
 
         system.solveDel(null);
 
       }
       //added instructions
-      builder.setDelete(false);//add
       builder.addConstraintsFromChangedNode(node, null);
     do{
         system.solve(null);
@@ -129,6 +127,12 @@ public class StandardSolver extends AbstractPointsToSolver {
       // worklist; so,
       System.out.println("Iteration " + i + ": " + (System.currentTimeMillis() - start ));
     } while (!system.emptyWorkList());
+    if (system.isCollapseCycles()) {
+      System.out.println(system.getCycleStatistics());
+    }
+    if (system.isDifferencePropagation()) {
+      System.out.println(system.getPropagationStatistics());
+    }
 
   }
 
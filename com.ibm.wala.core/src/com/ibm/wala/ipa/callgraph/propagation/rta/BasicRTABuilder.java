@@ -239,13 +239,8 @@ public class BasicRTABuilder extends AbstractRTABuilder {
   }
 
   @Override
-  public void processDiff(CGNode node, ISSABasicBlock bb, SSAInstruction diff)
+  public void processDiff(CGNode node, ISSABasicBlock bb, SSAInstruction diff, boolean delete)
   {
   }
-  @Override
-  public void setDelete(boolean delete)
-  {
-
-  }
 
 }
\ No newline at end of file
@@ -12,6 +12,8 @@ package com.ibm.wala.ipa.callgraph.threadpool;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -22,7 +24,6 @@ import com.ibm.wala.akkaTaskScheduler.ResultFromRR;
 import com.ibm.wala.akkaTaskScheduler.ResultFromSpecial;
 import com.ibm.wala.akkaTaskScheduler.WorkContentForCheckChange;
 import com.ibm.wala.akkaTaskScheduler.WorkContentForSpecial;
-import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.IVariable;
@@ -40,9 +41,10 @@ import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 public class ThreadHub {
 
   public ExecutorService threadrouter;
-  private static int nrOfResults = 0;
-  private static int nrOfWorks;
-  private static boolean finished = false;
+  //per hub: each propagation system has its own
+  private int nrOfResults = 0;
+  private int nrOfWorks;
+  private boolean finished = false;
 
   public ThreadHub(int nrOfWorkers) {
 //    threadrouter = Executors.newFixedThreadPool(nrOfWorkers);
@@ -55,49 +57,46 @@ public class ThreadHub {
 
   public void initialRRTasks(MutableIntSet targets, ArrayList<PointsToSetVariable> firstusers,
       PropagationSystem system) throws InterruptedException, ExecutionException{
+    runRRTasks(sameTargets(firstusers, targets), targets, system);
+  }
+
+  /**
+   * with difference propagation, each user is checked against its own targets: the bits its predecessors lost in the
+   * previous round, not the whole deleted set again; otherwise every round checks all the targets
+   */
+  private void runRRTasks(Map<PointsToSetVariable, MutableIntSet> users, MutableIntSet all, PropagationSystem system)
+      throws InterruptedException, ExecutionException {
     System.err.println("RR is called. ");
-    ArrayList<Callable<ResultFromRR>> tasks = distributeRRTasks(targets, firstusers, system);
+    ArrayList<Callable<ResultFromRR>> tasks = distributeRRTasks(users, all, system);
     ArrayList<Future<ResultFromRR>> results = (ArrayList<Future<ResultFromRR>>) threadrouter.invokeAll(tasks);
-    continueRRTasks(results,targets, system);
+    continueRRTasks(results, all, system);
   }
 
-  private void continueRRTasks(ArrayList<Future<ResultFromRR>> results,MutableIntSet targets, PropagationSystem system) throws InterruptedException, ExecutionException {
-    ArrayList<PointsToSetVariable> firstusers = new ArrayList<>();
+  private void continueRRTasks(ArrayList<Future<ResultFromRR>> results, MutableIntSet all, PropagationSystem system) throws InterruptedException, ExecutionException {
+    Map<PointsToSetVariable, MutableIntSet> firstusers = new LinkedHashMap<>();
     for (Future<ResultFromRR> future : results) {
       nrOfResults ++;
       ResultFromRR result = future.get();
-      MutableIntSet newtarget = result.getNewTargets();
-      ArrayList<PointsToSetVariable> nexts = result.getCheckNext();
-      if(nexts != null){
-        if(!nexts.isEmpty() && newtarget.size() > 0){
-          Iterator<PointsToSetVariable> iterator = nexts.iterator();
-          while(iterator.hasNext()){
-            PointsToSetVariable next = iterator.next();
-            if(next.getValue() != null){
-              firstusers.add(next);
-            }
-          }
-        }
-      }
+      addNextTargets(firstusers, result.getCheckNext(), result.getNewTargets());
       doWeTerminate();
     }
     if(firstusers.size() > 0)
-      initialRRTasks(targets, firstusers, system);
+      runRRTasks(firstusers, all, system);
     doWeTerminate();
   }
 
-  private static ArrayList<Callable<ResultFromRR>> distributeRRTasks(final MutableIntSet targets, ArrayList<PointsToSetVariable> firstusers,
-      final PropagationSystem system) {
+  private ArrayList<Callable<ResultFromRR>> distributeRRTasks(Map<PointsToSetVariable, MutableIntSet> firstusers,
+      final MutableIntSet all, final PropagationSystem system) {
     ArrayList<Callable<ResultFromRR>> tasks = new ArrayList<>();
-    Iterator<PointsToSetVariable> users = firstusers.iterator();
-    while(users.hasNext()){
-      final PointsToSetVariable user = users.next();
+    for (Map.Entry<PointsToSetVariable, MutableIntSet> entry : firstusers.entrySet()) {
+      final PointsToSetVariable user = entry.getKey();
+      final MutableIntSet targets = entry.getValue();
       nrOfWorks++;
       tasks.add(new Callable<ResultFromRR>() {
         @Override
         public ResultFromRR call() throws Exception {
           WorkContentForCheckChange taskForRR = new WorkContentForCheckChange(user, targets, system);
-          return processRRTask(taskForRR);
+          return processRRTask(taskForRR, all);
         }
       });
     }
@@ -107,60 +106,84 @@ public class ThreadHub {
 
   public void initialSpecialTasks(ArrayList<PointsToSetVariable> lhss, MutableIntSet targets,  boolean isAddition,
       PropagationSystem system) throws InterruptedException, ExecutionException{
+    runSpecialTasks(sameTargets(lhss, targets), targets, isAddition, system);
+  }
+
+  /**
+   * as runRRTasks: each user only gets the bits its predecessors gained or lost in the previous round
+   */
+  private void runSpecialTasks(Map<PointsToSetVariable, MutableIntSet> users, MutableIntSet all, boolean isAddition,
+      PropagationSystem system) throws InterruptedException, ExecutionException {
     System.err.println("Speical is called. ");
-    ArrayList<Callable<ResultFromSpecial>> tasks = distributeSpecialTasks(targets, lhss, isAddition, system);
+    ArrayList<Callable<ResultFromSpecial>> tasks = distributeSpecialTasks(users, all, isAddition, system);
     ArrayList<Future<ResultFromSpecial>> results = (ArrayList<Future<ResultFromSpecial>>) threadrouter.invokeAll(tasks);
-    continueSpecialTasks(results,targets, isAddition, system);
+    continueSpecialTasks(results, all, isAddition, system);
   }
 
-  private void continueSpecialTasks(ArrayList<Future<ResultFromSpecial>> results, MutableIntSet targets, boolean isAddition,
+  private void continueSpecialTasks(ArrayList<Future<ResultFromSpecial>> results, MutableIntSet all, boolean isAddition,
       PropagationSystem system) throws InterruptedException, ExecutionException {
-    ArrayList<PointsToSetVariable> firstusers = new ArrayList<>();
+    Map<PointsToSetVariable, MutableIntSet> firstusers = new LinkedHashMap<>();
     for (Future<ResultFromSpecial> future : results) {
       nrOfResults++;
       ResultFromSpecial result = future.get();
-      MutableIntSet newtarget = result.getNewTargets();
-      ArrayList<PointsToSetVariable> nexts = result.getCheckNext();
-      if(nexts != null){
-        if(!nexts.isEmpty() && newtarget.size() > 0){
-          Iterator<PointsToSetVariable> iterator = nexts.iterator();
-          while(iterator.hasNext()){
-            PointsToSetVariable next = iterator.next();
-            if(next.getValue() != null){
-              firstusers.add(next);
-            }
-          }
-        }
-      }
+      addNextTargets(firstusers, result.getCheckNext(), result.getNewTargets());
       doWeTerminate();
     }
     if(firstusers.size() > 0)
-      initialSpecialTasks(firstusers, targets, isAddition, system);
+      runSpecialTasks(firstusers, all, isAddition, system);
     doWeTerminate();
   }
 
-  private static ArrayList<Callable<ResultFromSpecial>> distributeSpecialTasks(final MutableIntSet targets, ArrayList<PointsToSetVariable> lhss,
-      final boolean isAddition, final PropagationSystem system) {
+  private static Map<PointsToSetVariable, MutableIntSet> sameTargets(ArrayList<PointsToSetVariable> users, MutableIntSet targets) {
+    Map<PointsToSetVariable, MutableIntSet> result = new LinkedHashMap<>();
+    for (PointsToSetVariable user : users) {
+      result.put(user, targets);
+    }
+    return result;
+  }
+
+  /**
+   * the next users of a task are checked against the bits the task changed; a user reached from several tasks gets
+   * the union of them
+   */
+  private static void addNextTargets(Map<PointsToSetVariable, MutableIntSet> firstusers, ArrayList<PointsToSetVariable> nexts,
+      MutableIntSet newtarget) {
+    if(nexts == null || nexts.isEmpty() || newtarget.size() == 0)
+      return;
+    for (PointsToSetVariable next : nexts) {
+      if(next.getValue() == null)
+        continue;
+      MutableIntSet targets = firstusers.get(next);
+      if(targets == null){
+        firstusers.put(next, new MutableSharedBitVectorIntSetFactory().makeCopy(newtarget));
+      }else{
+        targets.addAll(newtarget);
+      }
+    }
+  }
+
+  private ArrayList<Callable<ResultFromSpecial>> distributeSpecialTasks(Map<PointsToSetVariable, MutableIntSet> lhss,
+      final MutableIntSet all, final boolean isAddition, final PropagationSystem system) {
     ArrayList<Callable<ResultFromSpecial>> tasks = new ArrayList<>();
-    Iterator<PointsToSetVariable> users = lhss.iterator();
-    while(users.hasNext()){
-      final PointsToSetVariable user = users.next();
+    for (Map.Entry<PointsToSetVariable, MutableIntSet> entry : lhss.entrySet()) {
+      final PointsToSetVariable user = entry.getKey();
+      final MutableIntSet targets = entry.getValue();
       nrOfWorks++;
       tasks.add(new Callable<ResultFromSpecial>() {
         @Override
         public ResultFromSpecial call() throws Exception {
           WorkContentForSpecial job = new WorkContentForSpecial(user, targets, isAddition, system);
           if(isAddition)
-            return processSpecialWorkAddition(job);
+            return processSpecialWorkAddition(job, all);
           else
-            return processSpecialWorkDeletion(job);
+            return processSpecialWorkDeletion(job, all);
         }
       });
     }
     return tasks;
   }
 
-  private static void doWeTerminate() {
+  private void doWeTerminate() {
     // if all jobs complete
     if(nrOfResults == nrOfWorks){
       //clear this round
@@ -171,7 +194,7 @@ public class ThreadHub {
     }
   }
 
-  public static boolean askstatus(){
+  public boolean askstatus(){
     if(finished){
       finished = false;
       return false;
@@ -180,12 +203,12 @@ public class ThreadHub {
     }
   }
 
-  private static ResultFromRR processRRTask(WorkContentForCheckChange work) {
+  private static ResultFromRR processRRTask(WorkContentForCheckChange work, MutableIntSet all) {
     final PointsToSetVariable user = work.getUser();
     final MutableIntSet targets = work.getTargets();
     final PropagationSystem system = work.getPropagationSystem();
     ArrayList<PointsToSetVariable> next = new ArrayList<>();
-    if(AbstractFixedPointSolver.theRoot.contains(user)
+    if(system.theRoot.contains(user)
         || system.flowGraph.getNumberOfStatementsThatDef(user) == 0 //root
         || user.getValue() == null)
       return new ResultFromRR(user, next, (MutableSharedBitVectorIntSet) targets);
@@ -221,14 +244,16 @@ public class ThreadHub {
         }
       }
     }
-    //check if changed
+    //check if changed: the next users only need to check what the user lost
+    MutableSharedBitVectorIntSet lost = remaining;
     if(!remaining.isEmpty()){
       MutableSharedBitVectorIntSet removed ;
       synchronized (user) {
         removed = user.removeSome(remaining);//?sync
       }
       if(removed.size() > 0){
-        AbstractFixedPointSolver.addToChanges(user);
+        lost = removed;
+        system.addToChanges(user);
         //copy
         MutableIntSet copy;
         synchronized (user) {
@@ -245,12 +270,14 @@ public class ThreadHub {
           }else if(op instanceof FilterOperator){
             FilterOperator filter = (FilterOperator) op;
             PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
-            if(AbstractFixedPointSolver.theRoot.contains(pv))
+            if(system.theRoot.contains(pv))
               continue;
             synchronized (pv) {
               byte mark = filter.evaluateDel(pv, (MutableSharedBitVectorIntSet)copy);
               if(mark == 1){
-                AbstractFixedPointSolver.addToChanges(pv);
+                //the filtered users may lose more: keep checking all targets
+                lost = (MutableSharedBitVectorIntSet) all;
+                system.addToChanges(pv);
                 classifyPointsToConstraints(pv, copy, next, system);
               }
             }
@@ -265,7 +292,7 @@ public class ThreadHub {
       next = null;
     }
 
-    return new ResultFromRR(user, next, remaining);
+    return new ResultFromRR(user, next, system.isDifferencePropagation() ? lost : (MutableSharedBitVectorIntSet) all);
   }
 
   private static void classifyPointsToConstraints(PointsToSetVariable L, final MutableIntSet targets,
@@ -281,11 +308,11 @@ public class ThreadHub {
       }else if(op instanceof FilterOperator){
         FilterOperator filter = (FilterOperator) op;
         PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
-        if(AbstractFixedPointSolver.theRoot.contains(pv))
+        if(system.theRoot.contains(pv))
           continue;
         byte mark = filter.evaluateDel(pv, (MutableSharedBitVectorIntSet)targets);
         if(mark == 1){
-          AbstractFixedPointSolver.addToChanges(pv);
+          system.addToChanges(pv);
           classifyPointsToConstraints(pv, targets, next, system);
         }
       }else{
@@ -294,7 +321,7 @@ public class ThreadHub {
     }
   }
 
-  private static ResultFromSpecial processSpecialWorkAddition(WorkContentForSpecial work) {
+  private static ResultFromSpecial processSpecialWorkAddition(WorkContentForSpecial work, MutableIntSet all) {
     final PointsToSetVariable user = work.getUser();
     final MutableIntSet targets = work.getTargets();
     final PropagationSystem system = work.getPropagationSystem();
@@ -313,11 +340,13 @@ public class ThreadHub {
     };
     targets.foreach(action);
 
+    //the next users only need to check what the user gained
+    MutableSharedBitVectorIntSet gained = remaining;
     if(!remaining.isEmpty()){
       synchronized (user) {
         user.addAll(remaining);
       }
-      AbstractFixedPointSolver.addToChanges(user);
+      system.addToChanges(user);
 //      further check
       for (Iterator it = system.flowGraph.getStatementsThatUse(user); it.hasNext();) {
         AbstractStatement s = (AbstractStatement) it.next();
@@ -331,7 +360,9 @@ public class ThreadHub {
           PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
           byte mark = filter.evaluate(pv, (PointsToSetVariable)((UnaryStatement)s).getRightHandSide());
           if(mark == 1){
-            AbstractFixedPointSolver.addToChanges(pv);
+            //the filtered user was evaluated on the whole rhs: keep checking all targets
+            gained = (MutableSharedBitVectorIntSet) all;
+            system.addToChanges(pv);
             next.add(pv);
           }
         }else{
@@ -341,15 +372,16 @@ public class ThreadHub {
     }else{
       next = null;
     }
-    return new ResultFromSpecial(user, next, remaining, work.getIsAdd());
+    return new ResultFromSpecial(user, next, system.isDifferencePropagation() ? gained : (MutableSharedBitVectorIntSet) all,
+        work.getIsAdd());
   }
 
-  private static ResultFromSpecial processSpecialWorkDeletion(WorkContentForSpecial work) {
+  private static ResultFromSpecial processSpecialWorkDeletion(WorkContentForSpecial work, MutableIntSet all) {
     final PointsToSetVariable user = work.getUser();
     final MutableIntSet targets = work.getTargets();
     final PropagationSystem system = work.getPropagationSystem();
     ArrayList<PointsToSetVariable> next = new ArrayList<>();
-    if(AbstractFixedPointSolver.theRoot.contains(user)
+    if(system.theRoot.contains(user)
         || system.flowGraph.getNumberOfStatementsThatDef(user) == 0 //root
         || user.getValue() == null)
       return new ResultFromSpecial(user, next, (MutableSharedBitVectorIntSet) targets, work.getIsAdd());
@@ -386,13 +418,16 @@ public class ThreadHub {
       }
     }
 
+    //the next users only need to check what the user lost
+    MutableSharedBitVectorIntSet lost = remaining;
     if(!remaining.isEmpty()){
       MutableSharedBitVectorIntSet removed;
       synchronized (user) {
         removed = user.removeSome(remaining);//?sync
       }
       if(removed.size() > 0){
-        AbstractFixedPointSolver.addToChanges(user);
+        lost = removed;
+        system.addToChanges(user);
         //copy
         MutableIntSet copy;
         synchronized (user) {
@@ -409,12 +444,14 @@ public class ThreadHub {
           }else if(op instanceof FilterOperator){
             FilterOperator filter = (FilterOperator) op;
             PointsToSetVariable pv = (PointsToSetVariable) s.getLHS();
-            if(AbstractFixedPointSolver.theRoot.contains(pv))
+            if(system.theRoot.contains(pv))
               continue;
             synchronized (pv) {
               byte mark = filter.evaluateDel(pv, (MutableSharedBitVectorIntSet)copy);
               if(mark == 1){
-                AbstractFixedPointSolver.addToChanges(pv);
+                //the filtered users may lose more: keep checking all targets
+                lost = (MutableSharedBitVectorIntSet) all;
+                system.addToChanges(pv);
                 classifyPointsToConstraints(pv, copy, next, system);
               }
             }
@@ -428,7 +465,8 @@ public class ThreadHub {
     }else{//all included, early return
       next = null;
     }
-    return new ResultFromSpecial(user, next, remaining, work.getIsAdd());
+    return new ResultFromSpecial(user, next, system.isDifferencePropagation() ? lost : (MutableSharedBitVectorIntSet) all,
+        work.getIsAdd());
   }
 
 
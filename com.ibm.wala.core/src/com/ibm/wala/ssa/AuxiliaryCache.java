@@ -47,6 +47,12 @@ class AuxiliaryCache {
    */
   private int nItems = 0;
 
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long rebuilds = 0;
+
   /**
    * The existence of this is unfortunate.
    */
@@ -96,8 +102,13 @@ class AuxiliaryCache {
     Map methodMap = MapUtil.findOrCreateMap(dictionary, p);
     Object ref = methodMap.get(options);
     if (ref == null || CacheReference.get(ref) == null) {
+      misses++;
+      if (ref != null) {
+        rebuilds++;
+      }
       return null;
     } else {
+      hits++;
       return CacheReference.get(ref);
     }
   }
@@ -121,10 +132,48 @@ class AuxiliaryCache {
     methodMap.put(options, ref);
   }
 
+  /**
+   * cache new auxiliary information for an <m,options> pair, unless another thread already did
+   * 
+   * @param weight the cost of keeping aux, e.g. the number of instructions of its IR
+   * @return the information cached for the pair
+   */
+  public synchronized Object cacheIfAbsent(IMethod m, Context c, SSAOptions options, Object aux, int weight) {
+    Map<SSAOptions, Object> methodMap = dictionary.get(Pair.make(m, c));
+    Object old = methodMap == null ? null : CacheReference.get(methodMap.get(options));
+    if (old != null) {
+      return old;
+    }
+    cache(m, c, options, aux);
+    return aux;
+  }
+
   /**
    * invalidate all cached information about a method
    */
-  public void invalidate(IMethod method, Context c) {
+  public synchronized void invalidate(IMethod method, Context c) {
     dictionary.remove(Pair.make(method, c));
   }
+
+  /**
+   * @return the number of lookups that found the information
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that did not find the information
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of misses for information that was cached before, but since dropped; here, those whose soft
+   *         reference was cleared and not yet purged
+   */
+  public synchronized long getRebuilds() {
+    return rebuilds;
+  }
 }
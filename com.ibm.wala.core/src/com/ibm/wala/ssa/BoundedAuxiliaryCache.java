@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * A cache for auxiliary information based on an SSA representation, with a budget instead of soft references
+ *
+ * The information is held strongly, each with a weight, e.g. the number of instructions of its IR. Once the weights
+ * exceed the budget, the information for the least recently used <method,context> pairs is dropped. The pairs are
+ * spread over stripes, each with its own lock, LRU order and share of the budget, so threads working on different
+ * methods do not contend.
+ */
+class BoundedAuxiliaryCache extends AuxiliaryCache {
+
+  private static final int STRIPES = 16;
+
+  /**
+   * the number of dropped pairs a stripe remembers to count rebuilds
+   */
+  private static final int DROPPED = 1024;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  /**
+   * @param budget the total weight of the information held
+   */
+  BoundedAuxiliaryCache(long budget) {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("invalid budget: " + budget);
+    }
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(Math.max(1, budget / STRIPES));
+    }
+  }
+
+  private Stripe stripe(Pair<IMethod, Context> p) {
+    int h = p.hashCode();
+    return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+  }
+
+  @Override
+  public Object find(IMethod m, Context c, SSAOptions options) {
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    return stripe(p).find(p, options);
+  }
+
+  /**
+   * cache information that was not built on a miss, and so could not be rebuilt; it is not dropped
+   */
+  @Override
+  public void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    stripe(p).put(p, options, aux, 0, true);
+  }
+
+  @Override
+  public Object cacheIfAbsent(IMethod m, Context c, SSAOptions options, Object aux, int weight) {
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    return stripe(p).put(p, options, aux, weight, false);
+  }
+
+  @Override
+  public void invalidate(IMethod method, Context c) {
+    Pair<IMethod, Context> p = Pair.make(method, c);
+    stripe(p).invalidate(p);
+  }
+
+  @Override
+  public void wipe() {
+    for (Stripe s : stripes) {
+      s.wipe();
+    }
+  }
+
+  @Override
+  public long getHits() {
+    long result = 0;
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        result += s.hits;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public long getMisses() {
+    long result = 0;
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        result += s.misses;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of misses for information that was dropped over the budget before, among the last pairs dropped
+   */
+  @Override
+  public long getRebuilds() {
+    long result = 0;
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        result += s.rebuilds;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the total weight of the information held
+   */
+  public long getWeight() {
+    long result = 0;
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        result += s.weight + s.pinnedWeight;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The information for a <method,context> pair
+   */
+  private static class Entry {
+
+    private final Map<SSAOptions, Object> byOptions = HashMapFactory.make(1);
+
+    private long weight = 0;
+  }
+
+  private static class Stripe {
+
+    private final long budget;
+
+    /**
+     * the entries that may be dropped, least recently used first
+     */
+    private final LinkedHashMap<Pair<IMethod, Context>, Entry> entries = new LinkedHashMap<Pair<IMethod, Context>, Entry>(
+        16, 0.75f, true);
+
+    /**
+     * the entries with information that could not be rebuilt; they are never dropped, and their weight does not count
+     * against the budget
+     */
+    private final Map<Pair<IMethod, Context>, Entry> pinned = HashMapFactory.make();
+
+    /**
+     * the last pairs whose information was dropped over the budget, to tell rebuilds from first misses
+     */
+    private final LinkedHashMap<Pair<IMethod, Context>, Boolean> dropped = new LinkedHashMap<Pair<IMethod, Context>, Boolean>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Pair<IMethod, Context>, Boolean> eldest) {
+        return size() > DROPPED;
+      }
+    };
+
+    /**
+     * the weight of the entries that may be dropped
+     */
+    private long weight = 0;
+
+    private long pinnedWeight = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long rebuilds = 0;
+
+    Stripe(long budget) {
+      this.budget = budget;
+    }
+
+    synchronized Object find(Pair<IMethod, Context> p, SSAOptions options) {
+      Entry e = entries.get(p);
+      if (e == null) {
+        e = pinned.get(p);
+      }
+      Object result = e == null ? null : e.byOptions.get(options);
+      if (result == null) {
+        misses++;
+        if (e == null && dropped.remove(p) != null) {
+          rebuilds++;
+        }
+      } else {
+        hits++;
+      }
+      return result;
+    }
+
+    synchronized Object put(Pair<IMethod, Context> p, SSAOptions options, Object aux, int w, boolean pin) {
+      Entry e = pinned.get(p);
+      if (e != null) {
+        if (!pin) {
+          Object old = e.byOptions.get(options);
+          if (old != null) {
+            return old;
+          }
+        }
+        e.byOptions.put(options, aux);
+        e.weight += w;
+        pinnedWeight += w;
+        return aux;
+      }
+      e = entries.get(p);
+      if (e == null) {
+        e = new Entry();
+      } else if (!pin) {
+        Object old = e.byOptions.get(options);
+        if (old != null) {
+          return old;
+        }
+      }
+      e.byOptions.put(options, aux);
+      e.weight += w;
+      if (pin) {
+        if (entries.remove(p) != null) {
+          weight -= e.weight - w;
+        }
+        pinned.put(p, e);
+        pinnedWeight += e.weight;
+      } else {
+        entries.put(p, e);
+        weight += w;
+        evict(p);
+      }
+      return aux;
+    }
+
+    /**
+     * drop the least recently used entries, but not the one for p, until the weight fits the budget
+     */
+    private void evict(Pair<IMethod, Context> p) {
+      for (Iterator<Map.Entry<Pair<IMethod, Context>, Entry>> it = entries.entrySet().iterator(); weight > budget
+          && it.hasNext();) {
+        Map.Entry<Pair<IMethod, Context>, Entry> e = it.next();
+        if (e.getKey().equals(p)) {
+          continue;
+        }
+        weight -= e.getValue().weight;
+        dropped.put(e.getKey(), Boolean.TRUE);
+        it.remove();
+      }
+    }
+
+    synchronized void invalidate(Pair<IMethod, Context> p) {
+      Entry e = entries.remove(p);
+      if (e != null) {
+        weight -= e.weight;
+      }
+      e = pinned.remove(p);
+      if (e != null) {
+        pinnedWeight -= e.weight;
+      }
+    }
+
+    synchronized void wipe() {
+      entries.clear();
+      pinned.clear();
+      dropped.clear();
+      weight = 0;
+      pinnedWeight = 0;
+    }
+  }
+}
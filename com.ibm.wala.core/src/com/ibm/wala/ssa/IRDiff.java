@@ -0,0 +1,483 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * A structural diff of two {@link IR}s of a method, e.g. before and after an edit.
+ *
+ * First the instructions are matched by their exact form: their kind, the field, method or type they refer to, their
+ * value numbers, the constants among them, and the program counter of a call or allocation site. That is all the
+ * pointer analysis keys the constraints of an instruction by, so a pair matched this way is unchanged.
+ *
+ * The rest are aligned in order by their shape, in which a value is described by what it is, i.e. a constant, a
+ * parameter, or the result of some kind of instruction, rather than by its number. The phis, pis and catches are aligned
+ * the same way. The values defined by the matched and aligned instructions give a renumbering from the old value
+ * numbers to the new ones, and an aligned pair whose operands correspond through it is renumbered: the same statement
+ * whose values got other numbers, e.g. because an edit above it introduced new values. Its constraints are keyed by the
+ * old numbers, so both halves of it still count as deleted and added, and the deleted and added instructions are
+ * exactly the ones without an exact match. The alignment thus only serves {@link #getRenumbered()} and
+ * {@link #getNewValueNumber(int)}, and is computed the first time one of them is called.
+ */
+public class IRDiff {
+
+  /**
+   * align the remaining instructions by a longest common subsequence only up to this many pairs of them; beyond that,
+   * match their shapes in order
+   */
+  private static final long MAX_ALIGNMENT = 1 << 20;
+
+  private final IR oldIR;
+
+  private final IR newIR;
+
+  private final Map<SSAInstruction, SSAInstruction> unchanged = new LinkedHashMap<SSAInstruction, SSAInstruction>();
+
+  /**
+   * the instructions of each IR without an exact match
+   */
+  private final List<SSAInstruction> deleted = new ArrayList<SSAInstruction>();
+
+  private final List<SSAInstruction> added = new ArrayList<SSAInstruction>();
+
+  /**
+   * the renumbered pairs, or null until the alignment is computed
+   */
+  private Map<SSAInstruction, SSAInstruction> renumbered;
+
+  /**
+   * the new value number of each old one defined by a matched or aligned instruction, or -1; null until the alignment
+   * is computed
+   */
+  private int[] valueMap;
+
+  public IRDiff(IR oldIR, IR newIR) {
+    if (oldIR == null || newIR == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    this.oldIR = oldIR;
+    this.newIR = newIR;
+
+    // exact matches
+    Map<Key, LinkedList<SSAInstruction>> exact = HashMapFactory.make();
+    for (SSAInstruction s : newIR.getInstructions()) {
+      if (s != null) {
+        Key k = exactKey(newIR.getSymbolTable(), s);
+        LinkedList<SSAInstruction> l = exact.get(k);
+        if (l == null) {
+          exact.put(k, l = new LinkedList<SSAInstruction>());
+        }
+        l.add(s);
+      }
+    }
+    for (SSAInstruction s : oldIR.getInstructions()) {
+      if (s != null) {
+        LinkedList<SSAInstruction> l = exact.get(exactKey(oldIR.getSymbolTable(), s));
+        if (l != null && !l.isEmpty()) {
+          unchanged.put(s, l.removeFirst());
+        } else {
+          deleted.add(s);
+        }
+      }
+    }
+    Set<SSAInstruction> matched = HashSetFactory.make(unchanged.values());
+    for (SSAInstruction s : newIR.getInstructions()) {
+      if (s != null && !matched.contains(s)) {
+        added.add(s);
+      }
+    }
+  }
+
+  /**
+   * align the instructions without an exact match and the phis, pis and catches, and find the renumbered pairs among
+   * the aligned ones
+   */
+  private synchronized void renumber() {
+    if (valueMap != null) {
+      return;
+    }
+    DefUse oldDU = new DefUse(oldIR);
+    DefUse newDU = new DefUse(newIR);
+    Map<SSAInstruction, SSAInstruction> aligned = align(deleted, shapes(oldIR, oldDU, deleted), added,
+        shapes(newIR, newDU, added));
+
+    // the renumbering of the values
+    int[] map = new int[oldIR.getSymbolTable().getMaxValueNumber() + 1];
+    Arrays.fill(map, -1);
+    mapDefs(map, unchanged);
+    mapDefs(map, aligned);
+    List<SSAInstruction> oldOthers = others(oldIR);
+    List<SSAInstruction> newOthers = others(newIR);
+    mapDefs(map, align(oldOthers, shapes(oldIR, oldDU, oldOthers), newOthers, shapes(newIR, newDU, newOthers)));
+
+    Map<SSAInstruction, SSAInstruction> pairs = new LinkedHashMap<SSAInstruction, SSAInstruction>();
+    for (Map.Entry<SSAInstruction, SSAInstruction> e : aligned.entrySet()) {
+      if (sameOperands(map, e.getKey(), e.getValue())) {
+        pairs.put(e.getKey(), e.getValue());
+      }
+    }
+    renumbered = pairs;
+    valueMap = map;
+  }
+
+  /**
+   * pair up the instructions of the same shape: a longest common subsequence keeps them in order, and whatever is left
+   * of a shape, e.g. code that moved, is paired in order
+   */
+  private static Map<SSAInstruction, SSAInstruction> align(List<SSAInstruction> olds, List<Key> oldShapes,
+      List<SSAInstruction> news, List<Key> newShapes) {
+    Map<SSAInstruction, SSAInstruction> result = new LinkedHashMap<SSAInstruction, SSAInstruction>();
+    int n = olds.size();
+    int m = news.size();
+    if (n == 0 || m == 0) {
+      return result;
+    }
+    boolean[] oldDone = new boolean[n];
+    boolean[] newDone = new boolean[m];
+    if ((long) n * m <= MAX_ALIGNMENT) {
+      int[][] lcs = new int[n + 1][m + 1];
+      for (int i = n - 1; i >= 0; i--) {
+        for (int j = m - 1; j >= 0; j--) {
+          lcs[i][j] = oldShapes.get(i).equals(newShapes.get(j)) ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j],
+              lcs[i][j + 1]);
+        }
+      }
+      int i = 0, j = 0;
+      while (i < n && j < m) {
+        if (oldShapes.get(i).equals(newShapes.get(j))) {
+          result.put(olds.get(i), news.get(j));
+          oldDone[i++] = true;
+          newDone[j++] = true;
+        } else if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+          i++;
+        } else {
+          j++;
+        }
+      }
+    }
+    Map<Key, LinkedList<SSAInstruction>> rest = HashMapFactory.make();
+    for (int j = 0; j < m; j++) {
+      if (!newDone[j]) {
+        LinkedList<SSAInstruction> l = rest.get(newShapes.get(j));
+        if (l == null) {
+          rest.put(newShapes.get(j), l = new LinkedList<SSAInstruction>());
+        }
+        l.add(news.get(j));
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      if (!oldDone[i]) {
+        LinkedList<SSAInstruction> l = rest.get(oldShapes.get(i));
+        if (l != null && !l.isEmpty()) {
+          result.put(olds.get(i), l.removeFirst());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the phis, pis and catches of an IR, which define values but are not among its instructions
+   */
+  private static List<SSAInstruction> others(IR ir) {
+    List<SSAInstruction> result = new ArrayList<SSAInstruction>();
+    addAll(result, ir.iteratePhis());
+    addAll(result, ir.iteratePis());
+    addAll(result, ir.iterateCatchInstructions());
+    return result;
+  }
+
+  private static void addAll(List<SSAInstruction> result, Iterator<? extends SSAInstruction> it) {
+    while (it.hasNext()) {
+      SSAInstruction s = it.next();
+      if (s != null) {
+        result.add(s);
+      }
+    }
+  }
+
+  private static void mapDefs(int[] valueMap, Map<SSAInstruction, SSAInstruction> pairs) {
+    for (Map.Entry<SSAInstruction, SSAInstruction> e : pairs.entrySet()) {
+      SSAInstruction s = e.getKey();
+      SSAInstruction t = e.getValue();
+      for (int i = 0; i < s.getNumberOfDefs() && i < t.getNumberOfDefs(); i++) {
+        int v = s.getDef(i);
+        if (v >= 0 && v < valueMap.length) {
+          valueMap[v] = t.getDef(i);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return whether each operand of the new instruction is the corresponding one of the old instruction, renumbered
+   */
+  private boolean sameOperands(int[] valueMap, SSAInstruction s, SSAInstruction t) {
+    if (s.getNumberOfUses() != t.getNumberOfUses()) {
+      return false;
+    }
+    SymbolTable oldSymtab = oldIR.getSymbolTable();
+    SymbolTable newSymtab = newIR.getSymbolTable();
+    for (int i = 0; i < s.getNumberOfUses(); i++) {
+      int v = s.getUse(i);
+      int w = t.getUse(i);
+      if (v < 0 || w < 0) {
+        if (v != w) {
+          return false;
+        }
+      } else if (oldSymtab.isConstant(v) || newSymtab.isConstant(w)) {
+        if (!oldSymtab.isConstant(v) || !newSymtab.isConstant(w)
+            || !new Constant(oldSymtab.getConstantValue(v)).equals(new Constant(newSymtab.getConstantValue(w)))) {
+          return false;
+        }
+      } else if (oldSymtab.isParameter(v) || newSymtab.isParameter(w)) {
+        // the parameters keep their numbers
+        if (v != w) {
+          return false;
+        }
+      } else if (v >= valueMap.length || valueMap[v] != w) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<Key> shapes(IR ir, DefUse du, List<SSAInstruction> insts) {
+    SymbolTable symtab = ir.getSymbolTable();
+    List<Key> result = new ArrayList<Key>(insts.size());
+    for (SSAInstruction s : insts) {
+      Object[] operands = new Object[s.getNumberOfUses()];
+      for (int i = 0; i < operands.length; i++) {
+        int v = s.getUse(i);
+        if (v < 0) {
+          operands[i] = null;
+        } else if (symtab.isConstant(v)) {
+          operands[i] = new Constant(symtab.getConstantValue(v));
+        } else if (symtab.isParameter(v)) {
+          operands[i] = new Parameter(v);
+        } else {
+          SSAInstruction def = du.getDef(v);
+          operands[i] = def == null ? null : new Key(def.getClass(), reference(def), -1, null);
+        }
+      }
+      result.add(new Key(s.getClass(), reference(s), -1, operands));
+    }
+    return result;
+  }
+
+  private static Key exactKey(SymbolTable symtab, SSAInstruction s) {
+    int defs = s.getNumberOfDefs();
+    int values = defs + s.getNumberOfUses();
+    Object[] operands = new Object[2 * values];
+    for (int i = 0; i < values; i++) {
+      int v = i < defs ? s.getDef(i) : s.getUse(i - defs);
+      operands[2 * i] = Integer.valueOf(v);
+      operands[2 * i + 1] = v >= 0 && symtab.isConstant(v) ? new Constant(symtab.getConstantValue(v)) : null;
+    }
+    int pc = -1;
+    if (s instanceof SSAAbstractInvokeInstruction) {
+      pc = ((SSAAbstractInvokeInstruction) s).getCallSite().getProgramCounter();
+    } else if (s instanceof SSANewInstruction) {
+      pc = ((SSANewInstruction) s).getNewSite().getProgramCounter();
+    }
+    return new Key(s.getClass(), reference(s), pc, operands);
+  }
+
+  /**
+   * @return what an instruction refers to besides its values, or its printed form for the kinds of instructions this
+   *         does not know
+   */
+  private static Object reference(SSAInstruction s) {
+    if (s instanceof SSAFieldAccessInstruction) {
+      return ((SSAFieldAccessInstruction) s).getDeclaredField();
+    } else if (s instanceof SSAAbstractInvokeInstruction) {
+      SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+      return Arrays.asList(call.getDeclaredTarget(), call.getCallSite().getInvocationCode());
+    } else if (s instanceof SSANewInstruction) {
+      return ((SSANewInstruction) s).getConcreteType();
+    } else if (s instanceof SSACheckCastInstruction) {
+      return Arrays.asList(((SSACheckCastInstruction) s).getDeclaredResultTypes());
+    } else if (s instanceof SSAArrayReferenceInstruction) {
+      return ((SSAArrayReferenceInstruction) s).getElementType();
+    } else if (s instanceof SSAInstanceofInstruction) {
+      return ((SSAInstanceofInstruction) s).getCheckedType();
+    } else if (s instanceof SSALoadMetadataInstruction) {
+      SSALoadMetadataInstruction load = (SSALoadMetadataInstruction) s;
+      return Arrays.asList(load.getType(), load.getToken());
+    } else if (s instanceof SSABinaryOpInstruction) {
+      return ((SSABinaryOpInstruction) s).getOperator();
+    } else if (s instanceof SSAUnaryOpInstruction) {
+      return ((SSAUnaryOpInstruction) s).getOpcode();
+    } else if (s instanceof SSAComparisonInstruction) {
+      return ((SSAComparisonInstruction) s).getOperator();
+    } else if (s instanceof SSAConditionalBranchInstruction) {
+      SSAConditionalBranchInstruction branch = (SSAConditionalBranchInstruction) s;
+      return Arrays.asList(branch.getOperator(), branch.getType());
+    } else if (s instanceof SSAConversionInstruction) {
+      SSAConversionInstruction conversion = (SSAConversionInstruction) s;
+      return Arrays.asList(conversion.getFromType(), conversion.getToType());
+    } else if (s instanceof SSAMonitorInstruction) {
+      return ((SSAMonitorInstruction) s).isMonitorEnter();
+    } else if (s instanceof SSASwitchInstruction) {
+      return new Constant(((SSASwitchInstruction) s).getCasesAndLabels());
+    } else if (s instanceof SSAGotoInstruction || s instanceof SSAReturnInstruction
+        || s instanceof SSAAbstractThrowInstruction || s instanceof SSAArrayLengthInstruction
+        || s instanceof SSAGetCaughtExceptionInstruction || s instanceof SSAPhiInstruction || s instanceof SSAPiInstruction) {
+      return null;
+    } else {
+      return s.toString();
+    }
+  }
+
+  public IR getOldIR() {
+    return oldIR;
+  }
+
+  public IR getNewIR() {
+    return newIR;
+  }
+
+  /**
+   * @return the instructions of the old IR that are in the new one as they are, with their counterparts
+   */
+  public Map<SSAInstruction, SSAInstruction> getUnchanged() {
+    return unchanged;
+  }
+
+  /**
+   * @return the instructions of the old IR that are in the new one with other value numbers, with their counterparts
+   */
+  public Map<SSAInstruction, SSAInstruction> getRenumbered() {
+    renumber();
+    return renumbered;
+  }
+
+  /**
+   * @return the number in the new IR of an old value defined by a matched or aligned instruction, or -1 if there is
+   *         none
+   */
+  public int getNewValueNumber(int valueNumber) {
+    renumber();
+    return valueNumber >= 0 && valueNumber < valueMap.length ? valueMap[valueNumber] : -1;
+  }
+
+  /**
+   * @return the instructions of the old IR whose constraints are gone: the ones not in the new IR, and the renumbered
+   *         ones
+   */
+  public List<SSAInstruction> getDeleted() {
+    return new ArrayList<SSAInstruction>(deleted);
+  }
+
+  /**
+   * @return the instructions of the new IR whose constraints are new: the ones not in the old IR, and the renumbered
+   *         ones
+   */
+  public List<SSAInstruction> getAdded() {
+    return new ArrayList<SSAInstruction>(added);
+  }
+
+  @Override
+  public String toString() {
+    return "unchanged " + unchanged.size() + ", deleted " + deleted.size() + ", added " + added.size();
+  }
+
+  private static final class Key {
+    private final Object kind;
+
+    private final Object reference;
+
+    private final int pc;
+
+    private final Object[] operands;
+
+    private final int hash;
+
+    Key(Object kind, Object reference, int pc, Object[] operands) {
+      this.kind = kind;
+      this.reference = reference;
+      this.pc = pc;
+      this.operands = operands;
+      this.hash = 31 * (31 * (31 * kind.hashCode() + (reference == null ? 0 : reference.hashCode())) + pc)
+          + Arrays.hashCode(operands);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return hash == k.hash && pc == k.pc && kind.equals(k.kind)
+          && (reference == null ? k.reference == null : reference.equals(k.reference))
+          && Arrays.equals(operands, k.operands);
+    }
+  }
+
+  private static final class Constant {
+    private final Object value;
+
+    Constant(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value == null ? 0 : value instanceof int[] ? Arrays.hashCode((int[]) value) : value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Constant)) {
+        return false;
+      }
+      Object v = ((Constant) o).value;
+      if (value instanceof int[] && v instanceof int[]) {
+        return Arrays.equals((int[]) value, (int[]) v);
+      }
+      return value == null ? v == null : value.equals(v);
+    }
+  }
+
+  private static final class Parameter {
+    private final int vn;
+
+    Parameter(int vn) {
+      this.vn = vn;
+    }
+
+    @Override
+    public int hashCode() {
+      return vn * 7919;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Parameter && ((Parameter) o).vn == vn;
+    }
+  }
+}
@@ -18,6 +18,11 @@ import com.ibm.wala.ipa.callgraph.impl.Everywhere;
  * A mapping from IMethod -> SSAOptions -> SoftReference -> Something
  *
  * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ *
+ * Given a budget, e.g. by the com.ibm.wala.ssa.cacheBudget property, the IRs and DefUse are instead held strongly, each
+ * cache dropping the least recently used once the instructions of what it holds exceed the budget; see
+ * {@link BoundedAuxiliaryCache}. Either way there is no lock around building an IR, so threads asking for different
+ * methods do not wait on each other; threads racing on the same one may each build it, but all get the one cached first.
  */
 public class SSACache {
 
@@ -34,18 +39,29 @@ public class SSACache {
   /**
    * A cache of SSA IRs
    */
-  final private AuxiliaryCache irCache = new AuxiliaryCache();
+  final private AuxiliaryCache irCache;
 
   /**
    * A cache of DefUse information
    */
-  final private AuxiliaryCache duCache = new AuxiliaryCache();
+  final private AuxiliaryCache duCache;
 
   /**
    * @param factory a factory for creating IRs
    */
   public SSACache(IRFactory<IMethod> factory) {
+    this(factory, Long.getLong("com.ibm.wala.ssa.cacheBudget", 0));
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param budget the number of instructions the IRs, and separately the DefUse, cached may hold; 0 or less means they
+   *          are held by soft references, without a bound
+   */
+  public SSACache(IRFactory<IMethod> factory, long budget) {
     this.factory = factory;
+    this.irCache = budget > 0 ? new BoundedAuxiliaryCache(budget) : new AuxiliaryCache();
+    this.duCache = budget > 0 ? new BoundedAuxiliaryCache(budget) : new AuxiliaryCache();
   }
 
   /**
@@ -54,7 +70,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -74,12 +90,14 @@ public class SSACache {
     IR ir = (IR) irCache.find(m, c, options);
     if (ir == null) {
       ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
+      if (ir != null) {
+        ir = (IR) irCache.cacheIfAbsent(m, c, options, ir, weight(ir));
+      }
     }
     return ir;
   }
 
-  public synchronized void updateMethodIR(final IMethod m, Context c, final SSAOptions options, IR ir) {
+  public void updateMethodIR(final IMethod m, Context c, final SSAOptions options, IR ir) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -100,7 +118,7 @@ public class SSACache {
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -114,8 +132,7 @@ public class SSACache {
     DefUse du = (DefUse) duCache.find(m, c, options);
     if (du == null) {
       IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
+      du = (DefUse) duCache.cacheIfAbsent(m, c, options, new DefUse(ir), weight(ir));
     }
     return du;
   }
@@ -124,18 +141,45 @@ public class SSACache {
    * @return {@link DefUse} information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
     DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
     if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
+      du = (DefUse) duCache.cacheIfAbsent(ir.getMethod(), C, ir.getOptions(), new DefUse(ir), weight(ir));
     }
     return du;
   }
 
+  /**
+   * the weight of the IR, or of the DefUse for it, against the budget
+   */
+  private static int weight(IR ir) {
+    return ir.getInstructions().length + 1;
+  }
+
+  /**
+   * @return the number of IR and DefUse lookups that found them cached
+   */
+  public long getHits() {
+    return irCache.getHits() + duCache.getHits();
+  }
+
+  /**
+   * @return the number of IR and DefUse lookups that had to build them
+   */
+  public long getMisses() {
+    return irCache.getMisses() + duCache.getMisses();
+  }
+
+  /**
+   * @return the number of misses for IRs and DefUse that were cached before but dropped since
+   */
+  public long getRebuilds() {
+    return irCache.getRebuilds() + duCache.getRebuilds();
+  }
+
   /**
    * The existence of this is unfortunate.
    */
@@ -14,6 +14,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import com.ibm.wala.classLoader.MappedJarFileEntry;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -68,24 +69,34 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
-      try {
-//        if(entry.toString().contains("Animal"))
-//          System.out.println();//DEBUG JEFF
-
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-        Assertions.UNREACHABLE();
-      }
-      result = new ClassReader(S.toByteArray());
+      result = new ClassReader(getBytes());
       reader = CacheReference.make(result);
     }
     return result;
   }
 
+  /**
+   * @return the contents of the class file; those of an entry of a mapped jar are shared, not copied
+   */
+  private byte[] getBytes() {
+    if (entry instanceof MappedJarFileEntry) {
+      return ((MappedJarFileEntry) entry).getContents();
+    }
+    ByteArrayOutputStream S = new ByteArrayOutputStream();
+    try {
+//      if(entry.toString().contains("Animal"))
+//        System.out.println();//DEBUG JEFF
+
+      InputStream s = entry.getInputStream();
+      readBytes(s, S);
+      s.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+    }
+    return S.toByteArray();
+  }
+
   /**
    * Read is into bytes
    * @throws IOException
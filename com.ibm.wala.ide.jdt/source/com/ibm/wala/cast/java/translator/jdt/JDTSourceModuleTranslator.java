@@ -141,6 +141,9 @@ public class JDTSourceModuleTranslator implements SourceModuleTranslator {
         @Override
         public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
 
+          // translated here, one unit at a time, rather than on other threads: the CAst entities read their JDT
+          // bindings lazily (supertypes, type names through the JDTIdentityMapper) while IR is generated, and the
+          // parser keeps resolving the next units in the same binding environment, which is not thread-safe
           try {
             JDTJava2CAstTranslator jdt2cast = makeCAstTranslator(ast, proj.getValue().get(source).getIFile(), source.getUnderlyingResource().getLocation().toOSString());
             final Java2IRTranslator java2ir = makeIRTranslator();
@@ -126,6 +126,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
   protected abstract T[] makeStmtRHS(int size);
 
+  protected boolean isFirstSolve() {
+    return firstSolve;
+  }
+
   /**
    * Some setup which occurs only before the first solve
    */
@@ -143,7 +147,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
     return workList.isEmpty();
   }
 
-  public static int countforTotalWL = 0;
+  public int countforTotalWL = 0;
   /**
    * Solve the set of dataflow graph.
    * <p>
@@ -348,21 +352,22 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
   }
 
   //for test
-  public static HashMap<IVariable, MutableIntSet> var_pts_map = new HashMap<IVariable, MutableIntSet>();
+  public final HashMap<IVariable, MutableIntSet> var_pts_map = new HashMap<IVariable, MutableIntSet>();
 
-  public static HashSet<IVariable> changes = new HashSet<IVariable>();
+  //per solver, so that independent analyses can run at the same time
+  public final HashSet<IVariable> changes = new HashSet<IVariable>();
   public void clearChanges(){
     changes.clear();
   }
 
-  public static void addToChanges(IVariable tar){
+  public void addToChanges(IVariable tar){
     synchronized(changes){
       if(!changes.contains(tar))
         changes.add(tar);
     }
   }
 
-  public static HashSet<IVariable> theRoot = new HashSet<IVariable>();
+  public final HashSet<IVariable> theRoot = new HashSet<IVariable>();
   public void setTheRoot(IVariable root){
     this.theRoot.add(root);
   }
@@ -502,6 +507,16 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
   public void removeStatement(AbstractStatement<T, ?> s) {
     getFixedPointSystem().removeStatement(s);
+    forgetStatement(s);
+  }
+
+  /**
+   * Drop what the worklists recorded about a statement removed from the system
+   */
+  protected void forgetStatement(AbstractStatement s) {
+    workList.forget(s);
+    workListIR.forget(s);
+    workListAkka.forget(s);
   }
 
   @Override
@@ -854,6 +869,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
     if(isFirstDelete){
       getFixedPointSystem().delStatement(s);
+      forgetStatement(s);
     }
 
     incorporateDelStatement(toWorkList, eager, s);
@@ -935,8 +951,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 //      lhs.setOrderNumber(nextOrderNumber++);
 //    }
     //nCreated++;
-    if(isFirstDelete)
+    if(isFirstDelete){
       getFixedPointSystem().delStatement(s);
+      forgetStatement(s);
+    }
     incorporateDelStatement(toWorkList, eager, s);
     //topologicalCounter++;
     return true;
@@ -992,8 +1010,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
       return false;
     }
     //nCreated++;
-   if(isFirstDelete)
+   if(isFirstDelete){
      getFixedPointSystem().delStatement(s);
+     forgetStatement(s);
+   }
     incorporateDelStatement(toWorkList, eager, s);
     //topologicalCounter++;
     return true;
@@ -1057,8 +1077,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
     }
 
     //nCreated++;
-    if(isFirstDelete)
+    if(isFirstDelete){
       getFixedPointSystem().delStatement(s);
+      forgetStatement(s);
+    }
     incorporateDelStatement(toWorkList, eager, s);
     //topologicalCounter++;
     return true;
@@ -1162,22 +1184,42 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
    * Re-order the step definitions.
    */
   private void reorder() {
-    // drain the worklist
-    LinkedList<AbstractStatement> temp = new LinkedList<AbstractStatement>();
-    while (!workList.isEmpty()) {
-      AbstractStatement eq = workList.takeStatement();
-      temp.add(eq);
-    }
-    workList = new Worklist();
-
     // compute new ordering
     getFixedPointSystem().reorder();
 
     // re-populate worklist
-    for (Iterator<AbstractStatement> it = temp.iterator(); it.hasNext();) {
-      AbstractStatement s = it.next();
-      workList.insertStatement(s);
+    workList.reorder();
+  }
+
+  public WorklistPolicy getWorklistPolicy() {
+    return workList.getPolicy();
+  }
+
+  /**
+   * Choose the order in which the statements on the worklists are evaluated
+   */
+  public void setWorklistPolicy(WorklistPolicy policy) {
+    workList = withPolicy(workList, policy);
+    workListIR = withPolicy(workListIR, policy);
+    workListAkka = withPolicy(workListAkka, policy);
+  }
+
+  private static Worklist withPolicy(Worklist old, WorklistPolicy policy) {
+    if (old.getPolicy() == policy) {
+      return old;
     }
+    Worklist result = new Worklist(policy);
+    while (!old.isEmpty()) {
+      result.insertStatement(old.takeStatement());
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of statements taken from the worklist so far
+   */
+  public int getNumberOfWorklistTakes() {
+    return workList.getNumberOfTakes();
   }
 
   public static boolean isChanged(byte code) {
@@ -10,47 +10,170 @@
  *******************************************************************************/
 package com.ibm.wala.fixedpoint.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 
 import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
 
 /**
- * Worklist for fixed-point solver implementation
+ * Worklist for fixed-point solver implementation. The statements are handed out in the order of its
+ * {@link WorklistPolicy}.
+ *
+ * The statements are recorded by equality in a hash set: the statements a graph represents implicitly are created on
+ * demand and have no node number, so a number would not identify them.
  */
 @SuppressWarnings("rawtypes")
-public class Worklist extends Heap<AbstractStatement> {
+public class Worklist {
+
+  private final WorklistPolicy policy;
+
+  private final Heap<Entry> heap = new Heap<Entry>(100) {
+    @Override
+    protected boolean compareElements(Entry e1, Entry e2) {
+      if (e1.key != e2.key) {
+        return e1.key < e2.key;
+      }
+      return e1.statement.getOrderNumber() < e2.statement.getOrderNumber();
+    }
+  };
 
   private final HashSet<AbstractStatement> contents = HashSetFactory.make();
 
+  /**
+   * FIFO: the number of statements inserted so far
+   */
+  private long inserted = 0;
+
+  /**
+   * LRF: the number of statements taken so far, and when each statement was last taken
+   */
+  private int taken = 0;
+
+  private final HashMap<AbstractStatement, Integer> fired;
+
+  /**
+   * TWO_PHASE: the round being taken
+   */
+  private long phase = 0;
+
   public Worklist() {
-    super(100);
+    this(WorklistPolicy.TOPOLOGICAL);
+  }
+
+  public Worklist(WorklistPolicy policy) {
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
+    this.policy = policy;
+    fired = policy == WorklistPolicy.LRF ? HashMapFactory.<AbstractStatement, Integer> make() : null;
+  }
+
+  public WorklistPolicy getPolicy() {
+    return policy;
   }
+
   public boolean contains(AbstractStatement s){
     return contents.contains(s);
   }
-  @Override
-  protected final boolean compareElements(AbstractStatement eq1, AbstractStatement eq2) {
-    return (eq1.getOrderNumber() < eq2.getOrderNumber());
-  }
 
   public AbstractStatement takeStatement() throws NoSuchElementException {
-    AbstractStatement result = super.take();
+    Entry e = heap.take();
+    AbstractStatement result = e.statement;
     contents.remove(result);
+    switch (policy) {
+    case LRF:
+      fired.put(result, taken);
+      break;
+    case TWO_PHASE:
+      phase = e.key;
+      break;
+    default:
+      break;
+    }
+    taken++;
     return result;
   }
 
   public void insertStatement(AbstractStatement eq) {
-    if (!contents.contains(eq)) {
-      contents.add(eq);
-      super.insert(eq);
+    if (contents.add(eq)) {
+      heap.insert(new Entry(eq, key(eq)));
     }
   }
+
+  /**
+   * Drop what the worklist recorded about s, once s is removed from the system
+   */
+  public void forget(AbstractStatement s) {
+    if (fired != null) {
+      fired.remove(s);
+    }
+  }
+
+  private long key(AbstractStatement eq) {
+    switch (policy) {
+    case FIFO:
+      return inserted++;
+    case LRF:
+      Integer t = fired.get(eq);
+      return t == null ? -1 : t;
+    case TWO_PHASE:
+      return phase + 1;
+    default:
+      return 0;
+    }
+  }
+
+  /**
+   * Restore the order after the order numbers of the statements changed; each statement keeps its place with respect
+   * to the policy.
+   */
+  public void reorder() {
+    ArrayList<Entry> entries = new ArrayList<Entry>(heap.size());
+    while (!heap.isEmpty()) {
+      entries.add(heap.take());
+    }
+    for (Entry e : entries) {
+      heap.insert(e);
+    }
+  }
+
+  public int size() {
+    return heap.size();
+  }
+
+  public boolean isEmpty() {
+    return heap.isEmpty();
+  }
+
+  /**
+   * @return the number of statements taken so far
+   */
+  public int getNumberOfTakes() {
+    return taken;
+  }
+
   public void clear() {
     contents.clear();
-    super.clear();
+    heap.clear();
+    if (fired != null) {
+      fired.clear();
+    }
+  }
+
+  private static final class Entry {
+    private final AbstractStatement statement;
+
+    private final long key;
+
+    Entry(AbstractStatement statement, long key) {
+      this.statement = statement;
+      this.key = key;
+    }
   }
 
-}
\ No newline at end of file
+}
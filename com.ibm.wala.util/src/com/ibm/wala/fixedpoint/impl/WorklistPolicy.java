@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+/**
+ * The order in which a {@link Worklist} hands out its statements. Ties are always broken by the order number of the
+ * statement, i.e. the topological order of its lhs.
+ */
+public enum WorklistPolicy {
+  /**
+   * by the order number of the statement: the solver numbers the variables in a topological order over the strongly
+   * connected components of the system, see {@link AbstractFixedPointSolver#orderStatements()}
+   */
+  TOPOLOGICAL,
+  /**
+   * first in, first out
+   */
+  FIFO,
+  /**
+   * least recently fired: the statement that was taken longest ago, or never, comes first
+   */
+  LRF,
+  /**
+   * rounds in topological order: the statements inserted while a round is taken wait for the next round
+   */
+  TWO_PHASE
+}
@@ -1,28 +1,25 @@
 package edu.tamu.aser.tide.akkasys;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import com.ibm.wala.util.intset.IntIterator;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
 import akka.routing.BalancingPool;
 import akka.routing.RandomPool;
-import edu.tamu.aser.tide.engine.TIDECGModel;
+import edu.tamu.aser.tide.engine.LockOrderGraph.Component;
 import edu.tamu.aser.tide.engine.TIDEEngine;
-import edu.tamu.aser.tide.nodes.DLPair;
 import edu.tamu.aser.tide.nodes.ReadNode;
 import edu.tamu.aser.tide.nodes.WriteNode;
 import edu.tamu.aser.tide.shb.Trace;
-import edu.tamu.aser.tide.tests.Test;
 
 public class BugHub extends UntypedActor{
 
-	private final static boolean DEBUG = false;
-
-	private static boolean finished = false;
+	private CompletableFuture<Void> phase;
 	private int nrOfWorks;
 	private int nrOfResults;
 
@@ -36,25 +33,11 @@ public class BugHub extends UntypedActor{
 
 	@Override
 	public void onReceive(Object message) throws Throwable {
-		//parallel build shb
-		if(message instanceof FindSharedVariable){
-			//find shared variables
-			FindSharedVariable work = (FindSharedVariable) message;
-			HashMap<String, HashMap<Integer, Integer>> variableWriteMap = work.getVWriteMap();
-			HashMap<String, HashMap<Integer, Integer>> variableReadMap = work.getVReadMap();
-			for(String sig: variableWriteMap.keySet()){
-				workerRouter.tell(new FindSharedVarJob(sig, variableWriteMap.get(sig),
-						variableReadMap.get(sig)), getSelf());
-			}
-			nrOfWorks = variableWriteMap.keySet().size();
-
-		}else if(message instanceof RemoveLocalVar){//trace, remove local nodes
-			TIDEEngine engine;
-			if(DEBUG){
-				engine = Test.engine;
-			}else{
-				engine = TIDECGModel.bugEngine;
-			}
+		if(message instanceof HubPhase){
+			phase = ((HubPhase) message).getCompletion();
+		}
+		if(message instanceof RemoveLocalVar){//trace, remove local nodes
+			TIDEEngine engine = ((HubPhase) message).getEngine();
 			//constract w/rnodes
 			ArrayList<Trace> alltrace = engine.shb.getAllTraces();
 			int total = alltrace.size();
@@ -66,29 +49,28 @@ public class BugHub extends UntypedActor{
 					if(team.size() == num_in_team){
 						ArrayList<Trace> team1 = new ArrayList<Trace>();
 						team1.addAll(team);
-						workerRouter.tell(new RemoveLocalJob(team1), getSelf());
+						workerRouter.tell(new RemoveLocalJob(engine, team1), getSelf());
 						team.clear();
 						nrOfWorks++;
 					}
 			}
 			if(team.size() > 0){
-				workerRouter.tell(new RemoveLocalJob(team), getSelf());
+				workerRouter.tell(new RemoveLocalJob(engine, team), getSelf());
 				nrOfWorks++;
 			}
+			if(nrOfWorks == 0){
+				doWeTerminate();
+			}
 
 		}else if(message instanceof DistributeDatarace){//parallel check bugs
-			TIDEEngine engine;
-			if(DEBUG){
-				engine = Test.engine;
-			}else{
-				engine = TIDECGModel.bugEngine;
-			}
-			for(String sig: engine.sharedFields){
+			TIDEEngine engine = ((HubPhase) message).getEngine();
+			for(IntIterator it = engine.sharedFields.intIterator(); it.hasNext();){
+				int sig = it.next();
 //				System.err.println("-----checking: " + sig);
 				HashSet<WriteNode> writes = engine.sigWriteNodes.get(sig);
 				if(writes != null){
 					HashSet<ReadNode> reads = engine.sigReadNodes.get(sig);
-					workerRouter.tell(new CheckDatarace(sig, writes, reads), getSelf());
+					workerRouter.tell(new CheckDatarace(engine, sig, writes, reads), getSelf());
 					nrOfWorks++;
 				}
 			}
@@ -97,16 +79,10 @@ public class BugHub extends UntypedActor{
 			}
 
 		}else if(message instanceof DistributeDeadlock){//parallel check bugs
-			TIDEEngine engine;
-			if(DEBUG){
-				engine = Test.engine;
-			}else{
-				engine = TIDECGModel.bugEngine;
-			}
-			Set<Integer> tids = engine.threadDLLockPairs.keySet();
-			for(Integer tid1: tids){
-				ArrayList<DLPair> dLLockPairs = engine.threadDLLockPairs.get(tid1);
-				workerRouter.tell(new CheckDeadlock(tid1, tids, dLLockPairs), getSelf());
+			TIDEEngine engine = ((HubPhase) message).getEngine();
+			//only the lock pairs on a cycle of the lock-order graph
+			for(Component component: engine.lockOrder.getCyclicComponents()){
+				workerRouter.tell(new CheckDeadlock(engine, component), getSelf());
 				nrOfWorks++;
 			}
 			if(nrOfWorks == 0){
@@ -125,22 +101,17 @@ public class BugHub extends UntypedActor{
 		}
 	}
 
-	public static boolean askstatus(){
-		if(finished){
-			finished = false;
-			return false;
-		}else{
-			return true;
-		}
-	}
-
 	private void doWeTerminate() {
 	    // if all jobs complete
 	    if(nrOfResults == nrOfWorks){
 	      //clear
 	      nrOfWorks = 0;
 	      nrOfResults = 0;
-	      finished = true;
+	      CompletableFuture<Void> done = phase;
+	      phase = null;
+	      if(done != null){
+	        done.complete(null);
+	      }
 	    }
 	}
 
@@ -3,48 +3,42 @@ package edu.tamu.aser.tide.akkasys;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
 
-import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.SimpleVector;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 
 import akka.actor.UntypedActor;
-import edu.tamu.aser.tide.engine.AstCGNodeEcho;
 import edu.tamu.aser.tide.engine.ITIDEBug;
-import edu.tamu.aser.tide.engine.TIDECGModel;
+import edu.tamu.aser.tide.engine.LockOrderGraph.Component;
+import edu.tamu.aser.tide.engine.LockOrderGraph.LockEdge;
+import edu.tamu.aser.tide.engine.RaceCheckStats;
 import edu.tamu.aser.tide.engine.TIDEDeadlock;
+import edu.tamu.aser.tide.engine.TIDEDeadlockCycle;
 import edu.tamu.aser.tide.engine.TIDEEngine;
 import edu.tamu.aser.tide.engine.TIDERace;
 import edu.tamu.aser.tide.nodes.DLPair;
-import edu.tamu.aser.tide.nodes.DLockNode;
-import edu.tamu.aser.tide.nodes.DUnlockNode;
 import edu.tamu.aser.tide.nodes.INode;
-import edu.tamu.aser.tide.nodes.JoinNode;
-import edu.tamu.aser.tide.nodes.LockPair;
 import edu.tamu.aser.tide.nodes.MemNode;
 import edu.tamu.aser.tide.nodes.ReadNode;
-import edu.tamu.aser.tide.nodes.StartNode;
 import edu.tamu.aser.tide.nodes.WriteNode;
-import edu.tamu.aser.tide.shb.SHBEdge;
+import edu.tamu.aser.tide.shb.HBIndex;
 import edu.tamu.aser.tide.shb.SHBGraph;
 import edu.tamu.aser.tide.shb.Trace;
-import edu.tamu.aser.tide.tests.Test;
 
 public class BugWorker extends UntypedActor{
 
-	private final static boolean DEBUG = false;
+	//the longest lock cycle looked for
+	private final static int MAX_DEADLOCK_THREADS = 4;
 
 	@Override
 	public void onReceive(Object message) throws Throwable {
 		// dispatch task
-		if(message instanceof FindSharedVarJob){
-			FindSharedVarJob job = (FindSharedVarJob) message;
-			processFindSharedVarJob(job);
-		}else if(message instanceof RemoveLocalJob){
+		if(message instanceof RemoveLocalJob){
 			RemoveLocalJob job = (RemoveLocalJob) message;
 			processRemoveLocalJob(job);
 		}else if(message instanceof CheckDatarace){
@@ -59,18 +53,18 @@ public class BugWorker extends UntypedActor{
 		}
 	}
 
-	private TIDEDeadlock checkDeadlock(DLPair dllp1, DLPair dllp2, int tid1, int tid2) {
-		HashSet<String> l11sig = dllp1.lock1.getLockSig();
-		HashSet<String> l12sig = dllp1.lock2.getLockSig();
-		HashSet<String> l21sig = dllp2.lock1.getLockSig();
-		HashSet<String> l22sig = dllp2.lock2.getLockSig();
-		if(containAny(l11sig, l22sig) && containAny(l21sig, l12sig)){
+	private TIDEDeadlock checkDeadlock(TIDEEngine engine, DLPair dllp1, DLPair dllp2, int tid1, int tid2) {
+		IntSet l11sig = dllp1.lock1.getLockSig();
+		IntSet l12sig = dllp1.lock2.getLockSig();
+		IntSet l21sig = dllp2.lock1.getLockSig();
+		IntSet l22sig = dllp2.lock2.getLockSig();
+		if(l11sig.containsAny(l22sig) && l21sig.containsAny(l12sig)){
 			//check reachability
-			boolean reached = !hasHBRelation(tid1, dllp1.lock1, tid2, dllp2.lock1);
+			boolean reached = !hasHBRelation(engine, tid1, dllp1.lock1, tid2, dllp2.lock1);
 			if(reached){
 				TIDEDeadlock dl = new TIDEDeadlock(tid1,dllp1, tid2,dllp2);
 				boolean isReentrant = false;
-				if((l11sig.equals(l12sig)) || (l21sig.equals(l22sig))){
+				if((l11sig.sameValue(l12sig)) || (l21sig.sameValue(l22sig))){
 					//maybe reentrant lock, check pointer again
 					PointerKey l11key = dllp1.lock1.getPointer();
 					PointerKey l12key = dllp1.lock2.getPointer();
@@ -89,31 +83,30 @@ public class BugWorker extends UntypedActor{
 	}
 
 	private void processCheckDeadlock(CheckDeadlock job) {
-		TIDEEngine engine;
-		if(DEBUG){
-			engine = Test.engine;
-		}else{
-			engine = TIDECGModel.bugEngine;
-		}
+		TIDEEngine engine = job.getEngine();
 		HashSet<ITIDEBug> bugs = new HashSet<ITIDEBug>();
-		ArrayList<DLPair> dLLockPairs = job.getPairs();
-		Set<Integer> tids = job.getTids();
-		int tid1 = job.getTid();
-		for(int i=0;i<dLLockPairs.size();i++){
-			DLPair dllp1 = dLLockPairs.get(i);
-			for(Integer tid2: tids){
-				if(tid2!=tid1){
-					ArrayList<DLPair> dLLockPairs2 = engine.threadDLLockPairs.get(tid2);
-					for(int j=0;j<dLLockPairs2.size();j++){
-						DLPair dllp2 = dLLockPairs2.get(j);
-						TIDEDeadlock dl = checkDeadlock(dllp1, dllp2, tid1, tid2);
-						if (dl != null) {
-							bugs.add(dl);
-						}
+		Component component = job.getComponent();
+		ArrayList<LockEdge> edges = component.getEdges();
+		//two threads
+		for(int i=0;i<edges.size();i++){
+			LockEdge edge1 = edges.get(i);
+			for(int j=0;j<edges.size();j++){
+				LockEdge edge2 = edges.get(j);
+				if(edge1.tid != edge2.tid){
+					TIDEDeadlock dl = checkDeadlock(engine, edge1.pair, edge2.pair, edge1.tid, edge2.tid);
+					if (dl != null) {
+						bugs.add(dl);
 					}
 				}
 			}
 		}
+		//more threads
+		HashMap<Integer, HashMap<Integer, ArrayList<LockEdge>>> successors = component.getSuccessors();
+		for (Integer start : successors.keySet()) {
+			ArrayList<Integer> locks = new ArrayList<>();
+			locks.add(start);
+			findLockCycles(engine, start, locks, successors, bugs);
+		}
 		if(bugs.size() > 0){
 			engine.addBugsBack(bugs);
 		}
@@ -121,10 +114,59 @@ public class BugWorker extends UntypedActor{
 
 	}
 
-	private boolean containAny(HashSet<String> sigs1, HashSet<String> sigs2) {
-		for (String sig2 : sigs2) {
-			if(sigs1.contains(sig2)){
-				return true;
+	/**
+	 * extend the path of distinct locks, starting from its smallest lock, to cycles of
+	 * at least 3 and at most MAX_DEADLOCK_THREADS locks
+	 */
+	private void findLockCycles(TIDEEngine engine, int start, ArrayList<Integer> locks,
+			HashMap<Integer, HashMap<Integer, ArrayList<LockEdge>>> successors, HashSet<ITIDEBug> bugs) {
+		int last = locks.get(locks.size() - 1);
+		HashMap<Integer, ArrayList<LockEdge>> succs = successors.get(last);
+		if(succs == null)
+			return;
+		for (Integer next : succs.keySet()) {
+			if(next == start && locks.size() >= 3){
+				locks.add(start);
+				ArrayList<LockEdge> cycle = new ArrayList<>();
+				if(assignThreads(engine, locks, 0, cycle, successors)){
+					ArrayList<Integer> tids = new ArrayList<>();
+					ArrayList<DLPair> pairs = new ArrayList<>();
+					for (LockEdge edge : cycle) {
+						tids.add(edge.tid);
+						pairs.add(edge.pair);
+					}
+					bugs.add(new TIDEDeadlockCycle(tids, pairs));
+				}
+				locks.remove(locks.size() - 1);
+			}else if(next > start && !locks.contains(next) && locks.size() < MAX_DEADLOCK_THREADS){
+				locks.add(next);
+				findLockCycles(engine, start, locks, successors, bugs);
+				locks.remove(locks.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * pick a lock pair for each step of the lock cycle, from distinct threads whose
+	 * outer locks have no hb relation
+	 */
+	private boolean assignThreads(TIDEEngine engine, ArrayList<Integer> locks, int step, ArrayList<LockEdge> cycle,
+			HashMap<Integer, HashMap<Integer, ArrayList<LockEdge>>> successors) {
+		if(step == locks.size() - 1)
+			return true;
+		for (LockEdge edge : successors.get(locks.get(step)).get(locks.get(step + 1))) {
+			boolean fits = true;
+			for (LockEdge other : cycle) {
+				if(other.tid == edge.tid || hasHBRelation(engine, other.tid, other.pair.lock1, edge.tid, edge.pair.lock1)){
+					fits = false;
+					break;
+				}
+			}
+			if(fits){
+				cycle.add(edge);
+				if(assignThreads(engine, locks, step + 1, cycle, successors))
+					return true;
+				cycle.remove(cycle.size() - 1);
 			}
 		}
 		return false;
@@ -134,94 +176,199 @@ public class BugWorker extends UntypedActor{
 		HashSet<WriteNode> writes = job.getWrites();
 		HashSet<ReadNode> reads = job.getReads();
 		HashSet<ITIDEBug> bugs = new HashSet<ITIDEBug>();
-		String sig = job.getSig();
-		TIDEEngine engine;
-		if(DEBUG){
-			engine = Test.engine;
-		}else{
-			engine = TIDECGModel.bugEngine;
+		int sig = job.getSig();
+		TIDEEngine engine = job.getEngine();
+		String fieldSig = engine.locations.getName(sig);
+		RaceCheckStats stats = engine.raceStats;
+		MutableIntSet unrolledThreads = IntSetUtil.make();
+		for (Integer tid : engine.unrolledThreads) {
+			unrolledThreads.add(tid);
 		}
-//		System.out.println("all writes: " + writes + "[" + self().path().name() + "]");
-//		System.out.println("all reads: " + reads + "[" + self().path().name() + "]");
-		SHBGraph shb = engine.shb;
-		List<Integer>  unrolledThreads = engine.unrolledThreads;
-	    	// check read & write
-		WriteNode[] writes_array = writes.toArray(new WriteNode[writes.size()]);
-		for (int i = 0; i < writes_array.length; i++ ) {
-			WriteNode wnode = writes_array[i];
-	    		Trace wTrace = shb.getTrace(wnode.getBelonging());
-			if (wTrace == null) continue;
-
-			ArrayList<Integer> wtids = wTrace.getTraceTids();
-	    		if(reads!=null){
-				// write->read
-	    			for(ReadNode read : reads){
-	    				MemNode xnode = read;
-//					System.err.println("---pair: " + xnode + "|" + wnode + "[" +self().path().name() + "]");
-
-	    				Trace xTrace = shb.getTrace(xnode.getBelonging());
-	    				if (xTrace == null) continue;
+		// bucket the accesses by thread and lockset
+		HashMap<Integer, HashMap<BitVector, ArrayList<Access>>> wBuckets = bucketAccesses(writes, engine);
+		HashMap<Integer, HashMap<BitVector, ArrayList<Access>>> rBuckets = bucketAccesses(reads, engine);
+		for (Integer wtid : wBuckets.keySet()) {
+			HashMap<BitVector, ArrayList<Access>> wLocksets = wBuckets.get(wtid);
+			// write->read
+			for (Integer xtid : rBuckets.keySet()) {
+				checkBuckets(wtid, wLocksets, xtid, rBuckets.get(xtid), false, unrolledThreads.contains(wtid),
+						sig, fieldSig, bugs, engine, stats);
+			}
+			// write->write
+			for (Integer xtid : wBuckets.keySet()) {
+				checkBuckets(wtid, wLocksets, xtid, wBuckets.get(xtid), true, unrolledThreads.contains(wtid),
+						sig, fieldSig, bugs, engine, stats);
+			}
+		}
+		stats.races.add(bugs.size());
 
-					ArrayList<Integer> xtids = xTrace.getTraceTids();
-					for (int wtid : wtids) {
-						if (unrolledThreads.contains(wtid)) continue;
-						for (int xtid : xtids) {
-							// memory access in same thread don't need to be checked
-							if (wtid == xtid) continue;
+		if(bugs.size() > 0){
+			engine.addBugsBack(bugs);
+		}
+		getSender().tell(new ReturnResult(), getSelf());
+	}
 
-//							System.err.println("---pair: " + xnode + "." + xtid + "||" + wnode + "." + wtid + "[" +self().path().name() + "]");
-							// have no common locks nor HB relation
-							if(!checkCommonLockAndHappensBeforeRelation(wtid, wnode, xtid, xnode)){
-//								System.out.println("[" +self().path().name() + "]" + "race detected: " + xnode +"." + xtid + "||" + wnode + "." + wtid);
-								TIDERace race = new TIDERace(sig,xnode,xtid,wnode, wtid);
-								bugs.add(race);
-//								System.out.println("bugs: " + bugs);
-							}
+	/**
+	 * check the pairs of a bucket of writes in wtid and a bucket of reads/writes in xtid.
+	 * buckets sharing a lock, or in threads ordered whatever the nodes, are skipped as a whole.
+	 * otherwise the hb relation only depends on the access of one side (see
+	 * HBIndex.decidedByComper): each access of that side is checked once against a
+	 * representative of the other bucket, and only the unordered ones are paired up.
+	 * @param xWrites the x accesses are writes: only pairs with x.index >= w.index are checked, x is the comper
+	 */
+	private void checkBuckets(int wtid, HashMap<BitVector, ArrayList<Access>> wLocksets, int xtid,
+			HashMap<BitVector, ArrayList<Access>> xLocksets, boolean xWrites, boolean unrolled,
+			int sig, String fieldSig, HashSet<ITIDEBug> bugs, TIDEEngine engine, RaceCheckStats stats) {
+		long pairs = 0;
+		for (ArrayList<Access> ws : wLocksets.values()) {
+			for (ArrayList<Access> xs : xLocksets.values()) {
+				pairs += countPairs(ws, xs, xWrites);
+			}
+		}
+		stats.pairs.add(pairs);
+		// memory access in same thread don't need to be checked
+		if(wtid == xtid){
+			stats.sameThread.add(pairs);
+			return;
+		}
+		if(unrolled){
+			stats.unrolled.add(pairs);
+			return;
+		}
+		int relation = xWrites ? engine.hbIndex.threadRelation(xtid, wtid) : engine.hbIndex.threadRelation(wtid, xtid);
+		if(relation == HBIndex.ORDERED){
+			stats.orderedThreads.add(pairs);
+			return;
+		}
+		boolean wDecides = false;
+		if(relation == HBIndex.NODE_DEPENDENT){
+			wDecides = xWrites ? !engine.hbIndex.decidedByComper(xtid, wtid) : engine.hbIndex.decidedByComper(wtid, xtid);
+		}
+		// access of the deciding side -> has hb relation with the other thread
+		HashMap<Access, Boolean> ordered = new HashMap<>();
+		for (BitVector wLockset : wLocksets.keySet()) {
+			ArrayList<Access> ws = wLocksets.get(wLockset);
+			for (BitVector xLockset : xLocksets.keySet()) {
+				ArrayList<Access> xs = xLocksets.get(xLockset);
+				if(!wLockset.intersectionEmpty(xLockset)){
+					stats.commonLock.add(countPairs(ws, xs, xWrites));
+					continue;
+				}
+				ArrayList<Access> uws = ws;
+				ArrayList<Access> uxs = xs;
+				if(relation == HBIndex.NODE_DEPENDENT){
+					if(wDecides){
+						uws = unordered(ws, wtid, xs.get(0), xtid, !xWrites, ordered, engine, stats);
+					}else{
+						uxs = unordered(xs, xtid, ws.get(0), wtid, xWrites, ordered, engine, stats);
+					}
+					stats.orderedAccesses.add(countPairs(ws, xs, xWrites) - countPairs(uws, uxs, xWrites));
+				}
+				for (Access w : uws) {
+					for (Access x : uxs) {
+						if(xWrites && x.index < w.index)
+							continue;
+						WriteNode wnode = (WriteNode) w.node;
+						TIDERace race = new TIDERace(sig, fieldSig, x.node, xtid, wnode, wtid);
+						if(!bugs.add(race)){
+							stats.duplicates.increment();
 						}
 					}
-	    			}
-	    		}
-	    		// write->write
-	    		for (int j = i; j < writes_array.length; j++) {
-	    			WriteNode xnode = writes_array[j];
-//				System.err.println("---pair: " + xnode + "|" + wnode + "[" +self().path().name() + "]");
+				}
+			}
+		}
+	}
 
-	    			Trace xTrace = shb.getTrace(xnode.getBelonging());
-	    			if (xTrace == null) continue;
+	/**
+	 * the accesses of the deciding side with no hb relation to the other thread, each
+	 * checked once against a representative access of the other thread
+	 * @param comper the deciding side is the comper of hasHBRelation
+	 */
+	private ArrayList<Access> unordered(ArrayList<Access> deciders, int tid, Access other, int otherTID,
+			boolean comper, HashMap<Access, Boolean> ordered, TIDEEngine engine, RaceCheckStats stats) {
+		ArrayList<Access> result = new ArrayList<>();
+		for (Access a : deciders) {
+			Boolean HBRelation = ordered.get(a);
+			if(HBRelation == null){
+				stats.checked.increment();
+				HBRelation = comper ? hasHBRelation(engine, tid, a.node, otherTID, other.node)
+						: hasHBRelation(engine, otherTID, other.node, tid, a.node);
+				ordered.put(a, HBRelation);
+			}
+			if(!HBRelation)
+				result.add(a);
+		}
+		return result;
+	}
 
-				ArrayList<Integer> xtids = xTrace.getTraceTids();
-				for (int wtid : wtids) {
-					if (unrolledThreads.contains(wtid)) continue;
-					for (int xtid : xtids) {
-						// memory access in same thread don't need to be checked
-						if (wtid == xtid) continue;
-//						System.err.println("---pair: " + xnode + "." + xtid + "||" + wnode + "." + wtid + "[" +self().path().name() + "]");
-						if(!checkCommonLockAndHappensBeforeRelation(xtid, xnode, wtid, wnode)){
-//							System.out.println("[" +self().path().name() + "]" + "race detected: " + xnode +"." + xtid + "||" + wnode + "." + wtid);
-							TIDERace race = new TIDERace(sig,xnode, xtid, wnode, wtid);
-							bugs.add(race);
-//							System.out.println("bugs: " + bugs);
-						}
-					}
+	private long countPairs(ArrayList<Access> ws, ArrayList<Access> xs, boolean xWrites) {
+		if(!xWrites)
+			return (long) ws.size() * xs.size();
+		long pairs = 0;
+		for (Access w : ws) {
+			for (Access x : xs) {
+				if(x.index >= w.index)
+					pairs++;
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * tid -> lockset -> the accesses in the thread holding the lockset
+	 */
+	private HashMap<Integer, HashMap<BitVector, ArrayList<Access>>> bucketAccesses(HashSet<? extends MemNode> nodes, TIDEEngine engine) {
+		HashMap<Integer, HashMap<BitVector, ArrayList<Access>>> buckets = new HashMap<>();
+		if(nodes == null)
+			return buckets;
+		SHBGraph shb = engine.shb;
+		int index = 0;
+		for (MemNode node : nodes) {
+			Access access = new Access(node, index++);
+			Trace trace = shb.getTrace(node.getBelonging());
+			if (trace == null) continue;
+			for (Integer tid : trace.getTraceTids()) {
+				//TODO: because of 1-objectsensitive, in bubblesort/OneBubble/SwapConsecutives:
+				//this check will consider the sync on _threadCounterLock as a common lock => TN
+				BitVector lockset = engine.locksets.getLockset(tid, node).getBitVector();
+				HashMap<BitVector, ArrayList<Access>> locksets = buckets.get(tid);
+				if(locksets == null){
+					locksets = new HashMap<>();
+					buckets.put(tid, locksets);
+				}
+				ArrayList<Access> accesses = locksets.get(lockset);
+				if(accesses == null){
+					accesses = new ArrayList<>();
+					locksets.put(lockset, accesses);
 				}
-	    		}
-	    }
+				accesses.add(access);
+			}
+		}
+		return buckets;
+	}
 
-	    if(bugs.size() > 0){
-			engine.addBugsBack(bugs);
+	/**
+	 * a read/write node, with its index among the accesses of the same kind
+	 */
+	private static class Access {
+		final MemNode node;
+		final int index;
+
+		Access(MemNode node, int index) {
+			this.node = node;
+			this.index = index;
 		}
-		getSender().tell(new ReturnResult(), getSelf());
 	}
 
-	private void filterRWNodesBySig(HashSet<String> sigs, String sig, INode node,
-			HashMap<String, HashSet<ReadNode>> sigReadNodes, HashMap<String, HashSet<WriteNode>> sigWriteNodes) {
+	private void filterRWNodesBySig(IntSet sigs, int sig, INode node,
+			SimpleVector<HashSet<ReadNode>> sigReadNodes, SimpleVector<HashSet<WriteNode>> sigWriteNodes) {
 		if(sigs.contains(sig)){
 			if (node instanceof ReadNode) {
 				HashSet<ReadNode> reads = sigReadNodes.get(sig);
 				if(reads==null){
 					reads = new HashSet<ReadNode> ();
 					reads.add((ReadNode) node);
-					sigReadNodes.put(sig, reads);
+					sigReadNodes.set(sig, reads);
 				}else{
 					reads.add((ReadNode)node);
 				}
@@ -230,7 +377,7 @@ public class BugWorker extends UntypedActor{
 				if(writes==null){
 					writes = new HashSet<WriteNode> ();
 					writes.add((WriteNode)node);
-					sigWriteNodes.put(sig, writes);
+					sigWriteNodes.set(sig, writes);
 				}else{
 					writes.add((WriteNode)node);
 				}
@@ -240,24 +387,19 @@ public class BugWorker extends UntypedActor{
 
 	private void processRemoveLocalJob(RemoveLocalJob job) {
 		ArrayList<Trace> team = job.getTeam();
-		TIDEEngine engine;
-		if(DEBUG){
-			engine = Test.engine;
-		}else{
-			engine = TIDECGModel.bugEngine;
-		}
-		HashSet<String> sharedFields = engine.sharedFields;
-		HashMap<String, HashSet<ReadNode>> sigReadNodes = new HashMap<String, HashSet<ReadNode>>();
-		HashMap<String, HashSet<WriteNode>> sigWriteNodes = new HashMap<String, HashSet<WriteNode>>();
+		TIDEEngine engine = job.getEngine();
+		IntSet sharedFields = engine.sharedFields;
+		SimpleVector<HashSet<ReadNode>> sigReadNodes = new SimpleVector<HashSet<ReadNode>>();
+		SimpleVector<HashSet<WriteNode>> sigWriteNodes = new SimpleVector<HashSet<WriteNode>>();
 
 		for(int i=0; i<team.size(); i++){
 			Trace trace = team.get(i);
 			ArrayList<INode> nodes = trace.getContent();
 			for (INode node : nodes) {
 				if(node instanceof MemNode){
-					HashSet<String> sigs = ((MemNode)node).getObjSig();
-					for (String sig : sigs) {
-						filterRWNodesBySig(sharedFields, sig, node, sigReadNodes, sigWriteNodes);
+					IntSet sigs = ((MemNode)node).getObjSig();
+					for (IntIterator it = sigs.intIterator(); it.hasNext();) {
+						filterRWNodesBySig(sharedFields, it.next(), node, sigReadNodes, sigWriteNodes);
 					}
 				}
 			}
@@ -267,246 +409,9 @@ public class BugWorker extends UntypedActor{
 		getSender().tell(new ReturnResult(), getSelf());
 	}
 
-	private void processFindSharedVarJob(FindSharedVarJob job) {
-		HashSet<String> sharedFields = new HashSet<>();
-		String sig = job.getSig();
-		HashMap<Integer, Integer> readMap = job.getReadMap();
-		HashMap<Integer, Integer> writeMap = job.getWriteMap();
-		int writeTids = writeMap.size();
-		if(writeTids > 1){
-			sharedFields.add(sig);
-		}else if(readMap != null){
-			int readTids = readMap.size();
-			if (readTids + writeTids > 1) {
-				sharedFields.add(sig);
-			}
-		}
-		if (DEBUG) {
-			Test.engine.addSharedVars(sharedFields);
-		}else{
-			TIDECGModel.bugEngine.addSharedVars(sharedFields);
-		}
-		getSender().tell(new ReturnResult(), getSelf());
-	}
-
-	//ReachabilityEngine reachEngine,
-	private boolean checkCommonLockAndHappensBeforeRelation(Integer wtid, WriteNode wnode, Integer xtid, MemNode xnode) {
-		if(!haveCommonLock(xtid, xnode, wtid, wnode)){
-			return hasHBRelation(wtid, wnode, xtid, xnode);
-		}
-		return true;
-	}
-
-	private boolean haveCommonLock(int xtid, INode xnode, int wtid, INode wnode) {
-		//inode location
-		HashMap<LockPair, INode> xpair_edge_locations = new HashMap<>();
-		HashMap<LockPair, INode> wpair_edge_locations = new HashMap<>();
-		//get all the lockpair on the path
-		HashMap<String, ArrayList<LockPair>> xAllPairs = collectAllLockPairsFor(xtid, xnode, xpair_edge_locations);
-		HashMap<String, ArrayList<LockPair>> wAllPairs = collectAllLockPairsFor(wtid, wnode, wpair_edge_locations);
-		//check common lock
-		for (String sig : xAllPairs.keySet()) {
-			ArrayList<LockPair> xPairs = xAllPairs.get(sig);
-			ArrayList<LockPair> wPairs = wAllPairs.get(sig);
-			if (xPairs!= null && wPairs != null) {
-				//TODO: because of 1-objectsensitive, in bubblesort/OneBubble/SwapConsecutives:
-				//this check will consider the sync on _threadCounterLock as a common lock => TN
-				boolean xhas = doesHaveLockBetween(xnode, xPairs, xpair_edge_locations);
-				boolean whas = doesHaveLockBetween(wnode, wPairs, wpair_edge_locations);
-				if(xhas && whas){
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-
-	private HashMap<String, ArrayList<LockPair>> collectAllLockPairsFor(int tid, INode node,
-			HashMap<LockPair, INode> pair_edge_locations) {
-		HashMap<String, ArrayList<LockPair>> allPairs = new HashMap<>();
-		SHBGraph shb;
-		if(DEBUG){
-			shb = Test.engine.shb;
-		}else{
-			shb = TIDECGModel.bugEngine.shb;
-		}
-		//current; recursive
-		int round = 5;//can be changed
-		while(round >= 0){
-			CGNode cgNode = node.getBelonging();
-			Trace trace = shb.getTrace(cgNode);
-			if(trace == null){
-				if (cgNode instanceof AstCGNodeEcho) {
-					cgNode = ((AstCGNodeEcho) cgNode).getCGNode();
-					trace = shb.getTrace(cgNode);
-				}
-			}
-			ArrayList<LockPair> pairs = trace.getLockPair();
-			for (LockPair pair : pairs) {
-				pair_edge_locations.put(pair, node);
-				HashSet<String> sigs = ((DLockNode) pair.lock).getLockSig();
-				for (String sig : sigs) {
-					ArrayList<LockPair> exists = allPairs.get(sig);
-					if(exists == null){
-						exists = new ArrayList<>();
-						exists.add(pair);
-						allPairs.put(sig, exists);
-					}else{
-						exists.add(pair);
-					}
-				}
-			}
-			SHBEdge edge = shb.getIncomingEdgeWithTidForShowTrace(cgNode, tid);//using dfs, since usually is single tid shbedge
-			if (edge == null) {
-				break;
-			}else{
-				node = edge.getSource();
-				round--;
-			}
-		}
-
-		return allPairs;
-	}
-
-
-
-	private boolean doesHaveLockBetween(INode check, ArrayList<LockPair> pairs,
-			HashMap<LockPair, INode> pair_edge_locations) {
-		SHBGraph shb;
-		if(DEBUG){
-			shb = Test.engine.shb;
-		}else{
-			shb = TIDECGModel.bugEngine.shb;
-		}
-		for (LockPair pair : pairs) {
-			INode node = pair_edge_locations.get(pair);
-			DLockNode lock = (DLockNode) pair.lock;
-			DUnlockNode unlock = (DUnlockNode) pair.unlock;
-			Trace trace = shb.getTrace(node.getBelonging());
-			int idxL = trace.indexOf(lock);
-			int idxN = trace.indexOf(node);
-			int idxU = trace.indexOf(unlock);
-			if (idxL < idxN && idxN < idxU) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private StartNode sameParent(int tid1, int tid2) {
-		HashMap<Integer, StartNode> mapOfStartNode;
-		if(DEBUG){
-			mapOfStartNode = Test.engine.mapOfStartNode;
-		}else{
-			mapOfStartNode = TIDECGModel.bugEngine.mapOfStartNode;
-		}
-		Iterator<Integer> iter_thread = mapOfStartNode.keySet().iterator();
-		while(iter_thread.hasNext()){
-			int t = iter_thread.next();
-			if(t != tid1 && t != tid2){
-				MutableIntSet kids = mapOfStartNode.get(t).getTID_Child();
-				if(kids.contains(tid1) && kids.contains(tid2)){
-					return mapOfStartNode.get(t);
-				}
-			}
-		}
-		return null;
-	}
-
 	// determine if two nodes have Happens-Before relation or not
-	private boolean hasHBRelation(int comperTID, INode comper, int compeeTID, INode compee){
-		boolean HBRelation = true;
-		TIDEEngine engine;
-		if(DEBUG){
-			engine = Test.engine;
-		}else{
-			engine = TIDECGModel.bugEngine;
-		}
-		SHBGraph shb = engine.shb;
-		CallGraph cg = engine.callGraph;
-		StartNode comperStartNode = engine.mapOfStartNode.get(comperTID);
-		StartNode compeeStartNode = engine.mapOfStartNode.get(compeeTID);
-		JoinNode comperJoinNode = engine.mapOfJoinNode.get(comperTID);
-		JoinNode compeeJoinNode = engine.mapOfJoinNode.get(compeeTID);
-
-		// should not happen
-		if (comperStartNode == null || compeeStartNode == null)
-			return HBRelation;
-
-		MutableIntSet comperKidThreads = comperStartNode.getTID_Child();
-		MutableIntSet compeeKidThreads = compeeStartNode.getTID_Child();
-		if(comperKidThreads.contains(compeeTID)){
-			// comper's thread is the parent of compee's
-			if(shb.compareParent(compeeStartNode, comper, compeeTID, comperTID) < 0){//trace.indexOf(xStartNode) < trace.indexOf(comper)
-				if (compeeJoinNode != null) {
-					if (shb.compareParent(compeeJoinNode, comper, compeeTID, comperTID) > 0) {//trace.indexof(xjoinnode) > trace.indexof(comper)
-						HBRelation = false; //for multipaths: what if the paths compared above are different?
-					}
-				}else{
-					// compee's thread started after comper node
-					// no race
-					HBRelation = false;
-				}
-			}
-		}else if(compeeKidThreads.contains(comperTID)){
-			// compee's thread is the parent of comper's
-			if(shb.compareParent(comperStartNode, compee, compeeTID, comperTID) < 0){//trace.indexOf(wStartNode) < trace.indexOf(compee)
-				if (comperJoinNode != null) {
-					if(shb.compareParent(comperJoinNode, compee, compeeTID, comperTID) > 0){////trace.indexof(wjoinnode) > trace.indexof(compee)
-						HBRelation = false;
-					}
-				}else {
-					HBRelation = false;
-				}
-			}
-		}else{
-			StartNode sNode = sameParent(comperTID, compeeTID);
-			if(sNode != null){
-				CGNode parent;
-				if (sNode.getParentTID() == -1) {
-					parent = sNode.getTarget();//main
-				}else{
-					parent = sNode.getBelonging();
-				}
-				//same parent
-				if(comperJoinNode == null && compeeJoinNode == null){
-					//should check the distance
-					Trace ptTrace = shb.getTrace(parent);//maybe mark the relation??
-					int erS = ptTrace.indexOf(comperStartNode);
-					int eeS = ptTrace.indexOf(compeeStartNode);
-					if (Math.abs(erS - eeS) <= 1000) {//adjust??
-						HBRelation = false;
-					}
-				}else if(comperJoinNode == null){//-1: start -> join; 1: join -> start;
-					if(shb.compareStartJoin(comperStartNode, compeeJoinNode, parent, cg) < 0){//trace.indexOf(xJoinNode) > trace.indexOf(wStartNode)
-						HBRelation = false;
-					}
-				}else if(compeeJoinNode == null){
-					if(shb.compareStartJoin(compeeStartNode, comperJoinNode, parent, cg) < 0){//trace.indexOf(wJoinNode) > trace.indexOf(xStartNode)
-						HBRelation = false;
-					}
-				}else{
-					if(shb.compareStartJoin(comperStartNode, compeeJoinNode, parent, cg) < 0
-							&& shb.compareStartJoin(compeeStartNode, comperJoinNode, parent, cg) < 0){//(trace.indexOf(xJoinNode) > trace.indexOf(wStartNode)) && (trace.indexOf(wJoinNode) > trace.indexOf(xStartNode))
-						HBRelation = false;
-					}
-				}
-			}else{
-				//other conditions??wtid = comper; xtid = compee
-				if(shb.whoHappensFirst(comperStartNode, compeeStartNode, compeeTID, comperTID) < 0){//trace.indexOf(wStartNode) < trace.indexOf(xStartNode)
-					//wtid starts early
-					if(shb.whoHappensFirst(comperStartNode, comper, compeeTID, comperTID) < 0){
-						HBRelation = false;
-					}
-				}else{
-					//xtid starts early
-					if(shb.whoHappensFirst(compeeStartNode, compee, compeeTID, comperTID) < 0){
-						HBRelation = false;
-					}
-				}
-			}
-		}
-		return HBRelation;
+	private boolean hasHBRelation(TIDEEngine engine, int comperTID, INode comper, int compeeTID, INode compee){
+		return engine.hbIndex.hasHBRelation(comperTID, comper, compeeTID, compee);
 	}
 
 }
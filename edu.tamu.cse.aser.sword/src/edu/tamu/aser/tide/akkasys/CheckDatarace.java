@@ -2,22 +2,29 @@ package edu.tamu.aser.tide.akkasys;
 
 import java.util.HashSet;
 
+import edu.tamu.aser.tide.engine.TIDEEngine;
 import edu.tamu.aser.tide.nodes.ReadNode;
 import edu.tamu.aser.tide.nodes.WriteNode;
 
 
 public class CheckDatarace{
 
+	TIDEEngine engine;
 	HashSet<WriteNode> writes;
 	HashSet<ReadNode> reads;
-	String sig;
+	int sig;
 
-	public CheckDatarace(String sig, HashSet<WriteNode> writes2, HashSet<ReadNode> reads2) {
+	public CheckDatarace(TIDEEngine engine, int sig, HashSet<WriteNode> writes2, HashSet<ReadNode> reads2) {
+		this.engine = engine;
 		this.sig = sig;
 		this.reads = reads2;
 		this.writes = writes2;
 	}
 
+	public TIDEEngine getEngine(){
+		return engine;
+	}
+
 	public HashSet<WriteNode> getWrites(){
 		return writes;
 	}
@@ -26,7 +33,7 @@ public class CheckDatarace{
 		return reads;
 	}
 
-	public String getSig(){
+	public int getSig(){
 		return sig;
 	}
 
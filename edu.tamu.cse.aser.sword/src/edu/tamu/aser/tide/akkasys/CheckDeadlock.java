@@ -1,33 +1,24 @@
 package edu.tamu.aser.tide.akkasys;
 
-import java.util.ArrayList;
-import java.util.Set;
-
-import edu.tamu.aser.tide.nodes.DLPair;
+import edu.tamu.aser.tide.engine.LockOrderGraph.Component;
+import edu.tamu.aser.tide.engine.TIDEEngine;
 
 public class CheckDeadlock{
 
-	private ArrayList<DLPair> dLLockPairs;
-	private int tid;
-	private Set<Integer> tids;
-
-	public CheckDeadlock(Integer tid1, Set<Integer> tids, ArrayList<DLPair> dLLockPairs2) {
-		// TODO Auto-generated constructor stub
-		this.tid = tid1;
-		this.dLLockPairs = dLLockPairs2;
-		this.tids = tids;
-	}
+	private TIDEEngine engine;
+	private Component component;
 
-	public ArrayList<DLPair> getPairs(){
-		return dLLockPairs;
+	public CheckDeadlock(TIDEEngine engine, Component component) {
+		this.engine = engine;
+		this.component = component;
 	}
 
-	public int getTid(){
-		return tid;
+	public TIDEEngine getEngine(){
+		return engine;
 	}
 
-	public Set<Integer> getTids(){
-		return tids;
+	public Component getComponent(){
+		return component;
 	}
 
 }
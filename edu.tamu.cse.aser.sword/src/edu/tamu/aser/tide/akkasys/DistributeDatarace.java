@@ -1,5 +1,11 @@
 package edu.tamu.aser.tide.akkasys;
 
-public class DistributeDatarace {
+import edu.tamu.aser.tide.engine.TIDEEngine;
+
+public class DistributeDatarace extends HubPhase {
+
+	public DistributeDatarace(TIDEEngine engine) {
+		super(engine);
+	}
 
 }
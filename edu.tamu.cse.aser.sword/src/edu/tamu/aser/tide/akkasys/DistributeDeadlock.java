@@ -1,5 +1,11 @@
 package edu.tamu.aser.tide.akkasys;
 
-public class DistributeDeadlock {
+import edu.tamu.aser.tide.engine.TIDEEngine;
+
+public class DistributeDeadlock extends HubPhase {
+
+	public DistributeDeadlock(TIDEEngine engine) {
+		super(engine);
+	}
 
 }
@@ -0,0 +1,29 @@
+package edu.tamu.aser.tide.akkasys;
+
+import java.util.concurrent.CompletableFuture;
+
+import edu.tamu.aser.tide.engine.TIDEEngine;
+
+/**
+ * a phase distributed by the bughub for an engine; the completion is done
+ * when the last worker result of this phase comes back.
+ */
+public abstract class HubPhase {
+
+	//the engine whose bugs are checked, passed on to the workers with each job
+	private final TIDEEngine engine;
+	private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+	public HubPhase(TIDEEngine engine) {
+		this.engine = engine;
+	}
+
+	public TIDEEngine getEngine() {
+		return engine;
+	}
+
+	public CompletableFuture<Void> getCompletion() {
+		return completion;
+	}
+
+}
@@ -2,16 +2,23 @@ package edu.tamu.aser.tide.akkasys;
 
 import java.util.ArrayList;
 
+import edu.tamu.aser.tide.engine.TIDEEngine;
 import edu.tamu.aser.tide.shb.Trace;
 
 public class RemoveLocalJob {
 
+	TIDEEngine engine;
 	ArrayList<Trace> node;
 
-	public RemoveLocalJob(ArrayList<Trace> team1) {
+	public RemoveLocalJob(TIDEEngine engine, ArrayList<Trace> team1) {
+		this.engine = engine;
 		this.node = team1;
 	}
 
+	public TIDEEngine getEngine(){
+		return engine;
+	}
+
 	public ArrayList<Trace> getTeam(){
 		return node;
 	}
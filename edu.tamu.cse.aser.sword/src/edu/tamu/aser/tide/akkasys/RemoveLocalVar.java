@@ -1,8 +1,11 @@
 package edu.tamu.aser.tide.akkasys;
 
-public class RemoveLocalVar {
+import edu.tamu.aser.tide.engine.TIDEEngine;
 
-	public RemoveLocalVar() {
+public class RemoveLocalVar extends HubPhase {
+
+	public RemoveLocalVar(TIDEEngine engine) {
+		super(engine);
 	}
 
 }
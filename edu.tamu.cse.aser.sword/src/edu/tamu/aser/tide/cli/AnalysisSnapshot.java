@@ -0,0 +1,888 @@
+package edu.tamu.aser.tide.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.DirectoryTreeModule;
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.impl.BasicCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNodeFactory;
+import com.ibm.wala.ipa.callgraph.propagation.ConcreteTypeKey;
+import com.ibm.wala.ipa.callgraph.propagation.ConstantKey;
+import com.ibm.wala.ipa.callgraph.propagation.DelegatingHeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.NormalAllocationInNode;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.DefaultPointerKeyFactory;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.DefaultSSAInterpreter;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * the results of one analysis run saved to disk, so that the next run on the
+ * same input can skip building the call graph and pointer analysis.
+ *
+ * a snapshot holds the inputs with their timestamps, a fingerprint of the
+ * application classes and the library modules, the call graph nodes (by method, with one fingerprint
+ * of the ir per method), edges and entrypoints, the instance keys and the
+ * points-to sets of the locals, i.e. what the TIDEEngine queries. classes and
+ * methods are stored by name and resolved again against the class hierarchy
+ * of the next run, which is still built from the scope. the file is memory
+ * mapped when it is read, and its tables are read from the mapping as they
+ * are used; only the positions of the records of variable size are indexed.
+ *
+ * a snapshot may be reused if its inputs are unchanged, or if they were touched
+ * but no application class and no ir of a method in the call graph changed,
+ * and only if all its nodes can be restored. nodes of synthetic methods other
+ * than the fake root and the fake world clinit, e.g. the bypass summaries of
+ * natives such as System.arraycopy, are marked as such but cannot be restored:
+ * a summary is declared in the class of the method it stands for, which would
+ * resolve to that method instead. a call graph that has them is rebuilt.
+ * otherwise the analysis has to be rebuilt.
+ */
+public class AnalysisSnapshot {
+
+	private static final int MAGIC = 0x53574f53;//SWOS
+	private static final int VERSION = 3;
+
+	private static final byte NODE_METHOD = 0;
+	private static final byte NODE_FAKE_ROOT = 1;
+	private static final byte NODE_FAKE_WORLD_CLINIT = 2;
+	private static final byte NODE_SYNTHETIC = 3;
+
+	private static final byte KEY_ALLOCATION = 0;
+	private static final byte KEY_TYPE = 1;
+	private static final byte KEY_STRING = 2;
+
+	//bytes of a node: kind, loader, class, selector and ir fingerprint
+	private static final int NODE_SIZE = 1 + 4 + 4 + 4 + 8;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final String configuration;
+	private final String[] inputs;
+	private final long[] lastModified;
+	private final long[] length;
+	private final long chaFingerprint;
+
+	//the mapped file
+	private final ByteBuffer data;
+
+	//strings, decoded when first used
+	private final int[] stringAt;
+	private final String[] strings;
+
+	//nodes: kind, loader, class, selector and ir fingerprint
+	private final int nodesAt;
+	private final int nodeCount;
+
+	private final int entrypointsAt;
+
+	//edges: caller, pc, invocation code, callee
+	private final int edgesAt;
+
+	//instance keys: kind, then node, loader, type, and pc or string
+	private final int[] keyAt;
+
+	//points-to sets of locals: node, value number, keys
+	private final int[] setAt;
+
+	//the nodes of the restored call graph, by node of the snapshot
+	private CGNode[] restored;
+
+	private AnalysisSnapshot(ByteBuffer in) throws IOException {
+		if (in.getInt() != MAGIC) {
+			throw new IOException("not an analysis snapshot");
+		}
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported snapshot version " + version);
+		}
+		configuration = readString(in);
+		int n = in.getInt();
+		inputs = new String[n];
+		lastModified = new long[n];
+		length = new long[n];
+		for (int i = 0; i < n; i++) {
+			inputs[i] = readString(in);
+			lastModified[i] = in.getLong();
+			length[i] = in.getLong();
+		}
+		chaFingerprint = in.getLong();
+		data = in;
+		n = in.getInt();
+		stringAt = new int[n];
+		strings = new String[n];
+		for (int i = 0; i < n; i++) {
+			stringAt[i] = in.position();
+			skip(in, in.getInt());
+		}
+		nodeCount = in.getInt();
+		nodesAt = in.position();
+		skip(in, (long) nodeCount * NODE_SIZE);
+		entrypointsAt = skipInts(in);
+		edgesAt = skipInts(in);
+		n = in.getInt();
+		keyAt = new int[n];
+		for (int i = 0; i < n; i++) {
+			keyAt[i] = in.position();
+			in.get();
+			skipInts(in);
+		}
+		n = in.getInt();
+		setAt = new int[n];
+		for (int i = 0; i < n; i++) {
+			setAt[i] = in.position();
+			in.getInt();
+			in.getInt();
+			skipInts(in);
+		}
+	}
+
+	/**
+	 * maps the snapshot file and indexes its tables.
+	 */
+	public static AnalysisSnapshot read(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			try {
+				return new AnalysisSnapshot(in);
+			} catch (RuntimeException e) {
+				//truncated or corrupt
+				throw new IOException("corrupt snapshot " + file + ": " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * @return what else the results depend on, e.g. the main class and the sensitivity
+	 */
+	public String getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @return true if the inputs are the ones of the snapshot, with the same timestamps and sizes
+	 */
+	public boolean isUpToDate(List<File> files) {
+		if (files.size() != inputs.length) {
+			return false;
+		}
+		for (int i = 0; i < inputs.length; i++) {
+			File f = files.get(i);
+			if (!f.getAbsolutePath().equals(inputs[i]) || f.lastModified() != lastModified[i]
+					|| f.length() != length[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if every node of the snapshot can be restored over the
+	 * given class hierarchy, i.e. the snapshot has no node of a synthetic
+	 * method other than the fake root and the fake world clinit, and no node
+	 * of a method that is not declared any more. a snapshot that cannot be
+	 * restored completely would drop those nodes with their edges.
+	 */
+	public boolean isRestorable(IClassHierarchy cha) {
+		for (int i = 0; i < nodeCount; i++) {
+			byte kind = nodeKind(i);
+			if (kind == NODE_SYNTHETIC || (kind == NODE_METHOD && lookupMethod(cha, i) == null)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * compares the application classes and the ir of every method in the call
+	 * graph with the snapshot, for inputs that were touched since.
+	 * @return true if nothing the analysis depends on changed and every node
+	 * of a method that is not synthetic can be restored
+	 */
+	public boolean matches(IClassHierarchy cha, AnalysisOptions options, AnalysisCache cache) {
+		if (fingerprint(cha) != chaFingerprint) {
+			return false;
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			if (nodeKind(i) != NODE_METHOD) {
+				continue;
+			}
+			IMethod m = lookupMethod(cha, i);
+			if (m == null || fingerprint(m, options, cache) != irFingerprint(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * rebuilds the call graph of the snapshot over the given class hierarchy.
+	 * each node gets a context of its own, so nodes of one method in different
+	 * contexts stay apart as they were. only call it for a snapshot that
+	 * {@link #isRestorable(IClassHierarchy) is restorable}; a node that cannot
+	 * be restored would be dropped with its edges.
+	 */
+	public CallGraph restoreCallGraph(IClassHierarchy cha, AnalysisOptions options, AnalysisCache cache) throws CancelException {
+		ExplicitCallGraph cg = new ExplicitCallGraph(cha, options, cache);
+		cg.setInterpreter(new DefaultSSAInterpreter(options, cache));
+		cg.init();
+		restored = new CGNode[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			switch (nodeKind(i)) {
+			case NODE_FAKE_ROOT:
+				restored[i] = cg.getFakeRootNode();
+				break;
+			case NODE_FAKE_WORLD_CLINIT:
+				restored[i] = cg.getFakeWorldClinitNode();
+				break;
+			case NODE_METHOD:
+				IMethod m = lookupMethod(cha, i);
+				if (m != null) {
+					restored[i] = cg.findOrCreateNode(m, new SnapshotContext(i));
+				}
+				break;
+			default:
+				//synthetic, not restored
+			}
+		}
+		for (int i = 0, n = intCount(entrypointsAt); i < n; i++) {
+			CGNode e = restored[intAt(entrypointsAt, i)];
+			if (e != null) {
+				cg.registerEntrypoint(e);
+			}
+		}
+		for (int i = 0, n = intCount(edgesAt); i < n; i += 4) {
+			CGNode caller = restored[intAt(edgesAt, i)];
+			CGNode callee = restored[intAt(edgesAt, i + 3)];
+			if (caller != null && callee != null) {
+				int pc = intAt(edgesAt, i + 1);
+				int code = intAt(edgesAt, i + 2);
+				CallSiteReference site = findCallSite(caller, pc, code);
+				if (site == null && code >= 0) {
+					//e.g. the calls of the fake root to the entrypoints, which the restored root does not have
+					site = CallSiteReference.make(pc, callee.getMethod().getReference(), IInvokeInstruction.Dispatch.values()[code]);
+				}
+				if (site != null) {
+					((ExplicitCallGraph.ExplicitNode) caller).addTarget(site, callee);
+				}
+			}
+		}
+		return cg;
+	}
+
+	/**
+	 * @return the call site of the restored node at the given pc with the given
+	 * invocation code, or null if its method has no such site any more
+	 */
+	private static CallSiteReference findCallSite(CGNode caller, int pc, int code) {
+		for (Iterator<CallSiteReference> it = caller.iterateCallSites(); it.hasNext();) {
+			CallSiteReference site = it.next();
+			if (site.getProgramCounter() == pc && invocationCode(site) == code) {
+				return site;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the ordinal of the dispatch of a call site, or -1 for one that is
+	 * not a java dispatch
+	 */
+	private static int invocationCode(CallSiteReference site) {
+		IInvokeInstruction.IDispatch code = site.getInvocationCode();
+		return code instanceof IInvokeInstruction.Dispatch ? ((IInvokeInstruction.Dispatch) code).ordinal() : -1;
+	}
+
+	/**
+	 * the points-to sets of the snapshot over the nodes of the restored call
+	 * graph; only the locals are kept.
+	 */
+	public PointerAnalysis<InstanceKey> restorePointerAnalysis(CallGraph cg, IClassHierarchy cha, AnalysisOptions options) {
+		if (restored == null) {
+			throw new IllegalStateException("restore the call graph first");
+		}
+		SnapshotPointerAnalysis pta = new SnapshotPointerAnalysis(cg, cha, options);
+		InstanceKey[] instances = new InstanceKey[keyAt.length];
+		for (int i = 0; i < keyAt.length; i++) {
+			instances[i] = restoreInstanceKey(cha, i);
+		}
+		for (int i = 0; i < setAt.length; i++) {
+			CGNode node = restored[data.getInt(setAt[i])];
+			if (node == null) {
+				continue;
+			}
+			//node, value number, then the keys
+			int at = setAt[i] + 8;
+			MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+			for (int j = 0, n = intCount(at); j < n; j++) {
+				InstanceKey ik = instances[intAt(at, j)];
+				if (ik != null) {
+					s.add(pta.add(ik));
+				}
+			}
+			pta.put(pta.getHeapModel().getPointerKeyForLocal(node, data.getInt(setAt[i] + 4)), s);
+		}
+		return pta;
+	}
+
+	private InstanceKey restoreInstanceKey(IClassHierarchy cha, int i) {
+		//the kind, then the fields
+		int at = keyAt[i] + 1;
+		IClass type = lookupClass(cha, intAt(at, 1), intAt(at, 2));
+		if (type == null) {
+			return null;
+		}
+		switch (data.get(keyAt[i])) {
+		case KEY_ALLOCATION:
+			int pc = intAt(at, 3);
+			CGNode node = restored[intAt(at, 0)];
+			if (node == null) {
+				return new ConcreteTypeKey(type);
+			}
+			NewSiteReference site = null;
+			for (Iterator<NewSiteReference> it = node.iterateNewSites(); it.hasNext();) {
+				NewSiteReference s = it.next();
+				if (s.getProgramCounter() == pc) {
+					site = s;
+					break;
+				}
+			}
+			if (site == null) {
+				site = NewSiteReference.make(pc, type.getReference());
+			}
+			return new NormalAllocationInNode(node, site, type);
+		case KEY_STRING:
+			return new ConstantKey<String>(string(intAt(at, 3)), type);
+		default:
+			return new ConcreteTypeKey(type);
+		}
+	}
+
+	/**
+	 * writes the call graph and the points-to sets of the locals of its nodes.
+	 * instance keys other than allocation sites and string constants are kept
+	 * by their type.
+	 * @param configuration what else the results depend on, e.g. the main class and the sensitivity
+	 * @param inputs the files the class hierarchy was built from
+	 */
+	public static void write(File file, String configuration, List<File> inputs, CallGraph cg,
+			PointerAnalysis<InstanceKey> pta, AnalysisOptions options, AnalysisCache cache) throws IOException {
+		Writer w = new Writer(cg);
+		HeapModel heapModel = pta.getHeapModel();
+		for (CGNode n : cg) {
+			IR ir = n.getIR();
+			if (ir == null) {
+				continue;
+			}
+			int node = w.node(n);
+			for (int vn = 1; vn <= ir.getSymbolTable().getMaxValueNumber(); vn++) {
+				OrdinalSet<InstanceKey> pts = pta.getPointsToSet(heapModel.getPointerKeyForLocal(n, vn));
+				if (pts.isEmpty()) {
+					continue;
+				}
+				LinkedHashSet<Integer> set = new LinkedHashSet<>();
+				for (InstanceKey ik : pts) {
+					int k = w.key(ik);
+					if (k >= 0) {
+						set.add(k);
+					}
+				}
+				w.sets.add(new int[] { node, vn });
+				w.setKeys.add(toArray(set));
+			}
+		}
+		for (CGNode n : cg) {
+			for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+				CallSiteReference site = sites.next();
+				for (CGNode t : cg.getPossibleTargets(n, site)) {
+					w.edges.add(w.node(n));
+					w.edges.add(site.getProgramCounter());
+					w.edges.add(invocationCode(site));
+					w.edges.add(w.node(t));
+				}
+			}
+		}
+		List<Integer> entries = new ArrayList<>();
+		for (CGNode n : cg.getEntrypointNodes()) {
+			entries.add(w.node(n));
+		}
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, configuration);
+			out.writeInt(inputs.size());
+			for (File f : inputs) {
+				writeString(out, f.getAbsolutePath());
+				out.writeLong(f.lastModified());
+				out.writeLong(f.length());
+			}
+			out.writeLong(fingerprint(cg.getClassHierarchy()));
+			//the strings of the nodes and keys, numbered as they were met
+			List<Object[]> nodes = new ArrayList<>();
+			for (CGNode n : w.nodes) {
+				nodes.add(w.describe(n, options, cache));
+			}
+			out.writeInt(w.strings.size());
+			for (String s : w.strings.keySet()) {
+				writeString(out, s);
+			}
+			out.writeInt(nodes.size());
+			for (Object[] d : nodes) {
+				out.writeByte((Byte) d[0]);
+				out.writeInt((Integer) d[1]);
+				out.writeInt((Integer) d[2]);
+				out.writeInt((Integer) d[3]);
+				out.writeLong((Long) d[4]);
+			}
+			writeInts(out, toArray(entries));
+			writeInts(out, toArray(w.edges));
+			out.writeInt(w.keyKinds.size());
+			for (int i = 0; i < w.keyKinds.size(); i++) {
+				out.writeByte(w.keyKinds.get(i));
+				writeInts(out, w.keyFields.get(i));
+			}
+			out.writeInt(w.sets.size());
+			for (int i = 0; i < w.sets.size(); i++) {
+				out.writeInt(w.sets.get(i)[0]);
+				out.writeInt(w.sets.get(i)[1]);
+				writeInts(out, w.setKeys.get(i));
+			}
+		}
+		if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+			throw new IOException("cannot write snapshot " + file);
+		}
+	}
+
+	/**
+	 * numbers the nodes, instance keys and strings of a snapshot as they are written
+	 */
+	private static class Writer {
+		final CallGraph cg;
+		final Map<CGNode, Integer> nodeIds = new HashMap<>();
+		final List<CGNode> nodes = new ArrayList<>();
+		final Map<InstanceKey, Integer> keyIds = new HashMap<>();
+		final List<Byte> keyKinds = new ArrayList<>();
+		final List<int[]> keyFields = new ArrayList<>();
+		final Map<String, Integer> strings = new LinkedHashMap<>();
+		final List<Integer> edges = new ArrayList<>();
+		final List<int[]> sets = new ArrayList<>();
+		final List<int[]> setKeys = new ArrayList<>();
+
+		Writer(CallGraph cg) {
+			this.cg = cg;
+			for (CGNode n : cg) {
+				node(n);
+			}
+		}
+
+		int node(CGNode n) {
+			Integer id = nodeIds.get(n);
+			if (id == null) {
+				nodeIds.put(n, id = nodes.size());
+				nodes.add(n);
+			}
+			return id;
+		}
+
+		int string(String s) {
+			Integer id = strings.get(s);
+			if (id == null) {
+				strings.put(s, id = strings.size());
+			}
+			return id;
+		}
+
+		/**
+		 * @return the id of the key, or -1 for a key whose type cannot be named
+		 */
+		int key(InstanceKey ik) {
+			Integer id = keyIds.get(ik);
+			if (id != null) {
+				return id;
+			}
+			IClass type = ik.getConcreteType();
+			if (type == null) {
+				return -1;
+			}
+			int loader = string(type.getClassLoader().getReference().getName().toString());
+			int name = string(type.getName().toString());
+			if (ik instanceof AllocationSiteInNode && nodeIds.containsKey(((AllocationSiteInNode) ik).getNode())) {
+				AllocationSiteInNode a = (AllocationSiteInNode) ik;
+				keyKinds.add(KEY_ALLOCATION);
+				keyFields.add(new int[] { node(a.getNode()), loader, name, a.getSite().getProgramCounter() });
+			} else if (ik instanceof ConstantKey && ((ConstantKey<?>) ik).getValue() instanceof String) {
+				keyKinds.add(KEY_STRING);
+				keyFields.add(new int[] { -1, loader, name, string((String) ((ConstantKey<?>) ik).getValue()) });
+			} else {
+				keyKinds.add(KEY_TYPE);
+				keyFields.add(new int[] { -1, loader, name });
+			}
+			keyIds.put(ik, id = keyIds.size());
+			return id;
+		}
+
+		/**
+		 * @return kind, loader, class, selector and ir fingerprint of a node
+		 */
+		Object[] describe(CGNode n, AnalysisOptions options, AnalysisCache cache) {
+			IMethod m = n.getMethod();
+			CGNode fakeWorldClinit = cg instanceof BasicCallGraph ? ((BasicCallGraph<?>) cg).getFakeWorldClinitNode() : null;
+			byte kind = n.equals(cg.getFakeRootNode()) ? NODE_FAKE_ROOT
+					: n.equals(fakeWorldClinit) ? NODE_FAKE_WORLD_CLINIT
+					: m.isSynthetic() ? NODE_SYNTHETIC : NODE_METHOD;
+			long ir = kind == NODE_METHOD ? fingerprint(m, options, cache) : 0;
+			return new Object[] { kind, string(m.getDeclaringClass().getClassLoader().getReference().getName().toString()),
+					string(m.getDeclaringClass().getName().toString()), string(m.getSelector().toString()), ir };
+		}
+	}
+
+	/**
+	 * a context that only tells apart the nodes of one method in a snapshot
+	 */
+	private static class SnapshotContext implements Context {
+		private final int node;
+
+		SnapshotContext(int node) {
+			this.node = node;
+		}
+
+		@Override
+		public ContextItem get(ContextKey name) {
+			return null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SnapshotContext && ((SnapshotContext) obj).node == node;
+		}
+
+		@Override
+		public int hashCode() {
+			return 7919 * node;
+		}
+
+		@Override
+		public String toString() {
+			return "SnapshotContext(" + node + ")";
+		}
+	}
+
+	/**
+	 * the restored points-to sets of the locals
+	 */
+	private static class SnapshotPointerAnalysis extends AbstractPointerAnalysis {
+		private final IClassHierarchy cha;
+		private final HeapModel heapModel;
+		private final Map<PointerKey, OrdinalSet<InstanceKey>> pointsToSets = HashMapFactory.make();
+
+		SnapshotPointerAnalysis(CallGraph cg, IClassHierarchy cha, AnalysisOptions options) {
+			super(cg, MutableMapping.<InstanceKey> make());
+			this.cha = cha;
+			this.heapModel = new DelegatingHeapModel(new AllocationSiteInNodeFactory(options, cha),
+					new DefaultPointerKeyFactory(), cha, pointsToSets.keySet());
+		}
+
+		int add(InstanceKey ik) {
+			return instanceKeys.add(ik);
+		}
+
+		void put(PointerKey key, MutableSparseIntSet s) {
+			pointsToSets.put(key, new OrdinalSet<InstanceKey>(s, instanceKeys));
+		}
+
+		@Override
+		public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+			OrdinalSet<InstanceKey> result = pointsToSets.get(key);
+			return result == null ? OrdinalSet.<InstanceKey> empty() : result;
+		}
+
+		@Override
+		public HeapModel getHeapModel() {
+			return heapModel;
+		}
+
+		@Override
+		public Iterable<PointerKey> getPointerKeys() {
+			return pointsToSets.keySet();
+		}
+
+		@Override
+		public boolean isFiltered(PointerKey pk) {
+			return false;
+		}
+
+		@Override
+		public IClassHierarchy getClassHierarchy() {
+			return cha;
+		}
+	}
+
+	private IClass lookupClass(IClassHierarchy cha, int loader, int name) {
+		ClassLoaderReference ref = cha.getScope().getLoader(Atom.findOrCreateUnicodeAtom(string(loader)));
+		return ref == null ? null : cha.lookupClass(TypeReference.findOrCreate(ref, string(name)));
+	}
+
+	/**
+	 * @return the method of a node, or null if it is not declared in the class hierarchy, or synthetic
+	 */
+	private IMethod lookupMethod(IClassHierarchy cha, int node) {
+		int at = nodesAt + node * NODE_SIZE;
+		IClass klass = lookupClass(cha, data.getInt(at + 1), data.getInt(at + 5));
+		if (klass == null) {
+			return null;
+		}
+		IMethod m = klass.getMethod(Selector.make(string(data.getInt(at + 9))));
+		if (m == null || !m.getDeclaringClass().equals(klass) || m.isSynthetic()) {
+			return null;
+		}
+		return m;
+	}
+
+	/**
+	 * FNV-1a over the names, supertypes, methods and fields of the application
+	 * classes, and the path, size and timestamp of each file of the extension
+	 * and primordial modules
+	 */
+	static long fingerprint(IClassHierarchy cha) {
+		List<String> classes = new ArrayList<>();
+		for (IClass c : cha) {
+			if (!c.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+				continue;
+			}
+			StringBuilder sb = new StringBuilder(c.getName().toString());
+			sb.append(':').append(c.getSuperclass() == null ? "" : c.getSuperclass().getName().toString());
+			for (IClass i : c.getDirectInterfaces()) {
+				sb.append(',').append(i.getName());
+			}
+			List<String> members = new ArrayList<>();
+			for (IMethod m : c.getDeclaredMethods()) {
+				members.add(m.getSelector().toString());
+			}
+			for (IField f : c.getDeclaredInstanceFields()) {
+				members.add(f.getName() + " " + f.getFieldTypeReference().getName());
+			}
+			for (IField f : c.getDeclaredStaticFields()) {
+				members.add("static " + f.getName() + " " + f.getFieldTypeReference().getName());
+			}
+			Collections.sort(members);
+			for (String s : members) {
+				sb.append(';').append(s);
+			}
+			classes.add(sb.toString());
+		}
+		Collections.sort(classes);
+		long h = FNV_OFFSET;
+		for (String s : classes) {
+			h = fnv(h, s);
+		}
+		for (ClassLoaderReference loader : new ClassLoaderReference[]{ClassLoaderReference.Extension, ClassLoaderReference.Primordial}) {
+			for (Module m : cha.getScope().getModules(loader)) {
+				h = fingerprint(h, m);
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * the identity of a library module: its files with their sizes and
+	 * timestamps, or what it prints as if it has no file
+	 */
+	private static long fingerprint(long h, Module m) {
+		File file = null;
+		if (m instanceof JarFileModule) {
+			file = new File(((JarFileModule) m).getAbsolutePath());
+		} else if (m instanceof FileModule) {
+			file = ((FileModule) m).getFile();
+		} else if (m instanceof DirectoryTreeModule) {
+			file = new File(((DirectoryTreeModule) m).getPath());
+		}
+		if (file == null) {
+			return fnv(h, m.toString());
+		}
+		return fingerprint(h, file);
+	}
+
+	private static long fingerprint(long h, File file) {
+		File[] children = file.listFiles();
+		if (children == null) {
+			return fnv(h, file.getAbsolutePath() + " " + file.length() + " " + file.lastModified());
+		}
+		Arrays.sort(children);
+		for (File child : children) {
+			h = fingerprint(h, child);
+		}
+		return h;
+	}
+
+	/**
+	 * FNV-1a over the instructions of the ir of a method, never 0
+	 */
+	static long fingerprint(IMethod m, AnalysisOptions options, AnalysisCache cache) {
+		if (m.isAbstract() || m.isNative()) {
+			return 1;
+		}
+		IR ir = cache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options.getSSAOptions());
+		long h = FNV_OFFSET;
+		if (ir != null) {
+			SymbolTable symtab = ir.getSymbolTable();
+			for (SSAInstruction inst : ir.getInstructions()) {
+				h = fnv(h, inst == null ? "" : inst.toString());
+				if (inst == null) {
+					continue;
+				}
+				//the printed instruction has the value numbers of its constants, not their values
+				for (int i = 0; i < inst.getNumberOfUses(); i++) {
+					int v = inst.getUse(i);
+					if (v >= 0 && symtab.isConstant(v)) {
+						h = fnv(h, constant(symtab.getConstantValue(v)));
+					}
+				}
+			}
+		}
+		return h == 0 ? 1 : h;
+	}
+
+	/**
+	 * @return a constant with its type, so that 1 and 1L differ
+	 */
+	private static String constant(Object value) {
+		if (value == null) {
+			return "null";
+		}
+		return value.getClass().getName() + " " + value;
+	}
+
+	private static long fnv(long h, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= FNV_PRIME;
+		}
+		h ^= '\n';
+		return h * FNV_PRIME;
+	}
+
+	private static int[] toArray(Collection<Integer> c) {
+		int[] result = new int[c.size()];
+		int i = 0;
+		for (int x : c) {
+			result[i++] = x;
+		}
+		return result;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] b = new byte[in.getInt()];
+		in.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private static void writeInts(DataOutputStream out, int[] a) throws IOException {
+		out.writeInt(a.length);
+		for (int x : a) {
+			out.writeInt(x);
+		}
+	}
+
+	/**
+	 * @return the position of an int array written by writeInts, skipped
+	 */
+	private static int skipInts(ByteBuffer in) {
+		int at = in.position();
+		skip(in, 4L * in.getInt());
+		return at;
+	}
+
+	private static void skip(ByteBuffer in, long bytes) {
+		if (bytes < 0 || bytes > in.remaining()) {
+			throw new IndexOutOfBoundsException("truncated at " + in.position());
+		}
+		in.position(in.position() + (int) bytes);
+	}
+
+	private int intCount(int at) {
+		return data.getInt(at);
+	}
+
+	private int intAt(int at, int i) {
+		return data.getInt(at + 4 + 4 * i);
+	}
+
+	private byte nodeKind(int node) {
+		return data.get(nodesAt + node * NODE_SIZE);
+	}
+
+	private long irFingerprint(int node) {
+		return data.getLong(nodesAt + node * NODE_SIZE + 13);
+	}
+
+	private String string(int i) {
+		String s = strings[i];
+		if (s == null) {
+			ByteBuffer in = data.duplicate();
+			in.position(stringAt[i]);
+			strings[i] = s = readString(in);
+		}
+		return s;
+	}
+}
@@ -0,0 +1,149 @@
+package edu.tamu.aser.tide.cli;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.ipa.callgraph.CGNode;
+
+import edu.tamu.aser.tide.engine.ITIDEBug;
+import edu.tamu.aser.tide.engine.TIDEDeadlock;
+import edu.tamu.aser.tide.engine.TIDERace;
+import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.MemNode;
+import edu.tamu.aser.tide.nodes.WriteNode;
+
+/**
+ * writes the detected bugs of one input to disk.
+ */
+public abstract class BugReportWriter {
+
+	protected final File file;
+	protected final Writer out;
+
+	protected BugReportWriter(File file) throws IOException {
+		this.file = file;
+		this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param format jsonl or sarif
+	 * @param base output path without extension
+	 */
+	public static BugReportWriter make(String format, File base) throws IOException {
+		switch (format.toLowerCase()) {
+		case "jsonl":
+			return new JsonLinesWriter(new File(base.getPath() + ".jsonl"), new File(base.getPath() + ".timing.json"));
+		case "sarif":
+			return new SarifWriter(new File(base.getPath() + ".sarif"));
+		default:
+			throw new IllegalArgumentException("unknown output format: " + format);
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public void writeBugs(Collection<ITIDEBug> bugs) throws IOException {
+		for (ITIDEBug bug : bugs) {
+			if (bug instanceof TIDERace) {
+				writeRace((TIDERace) bug);
+			} else if (bug instanceof TIDEDeadlock) {
+				writeDeadlock((TIDEDeadlock) bug);
+			}
+		}
+	}
+
+	protected abstract void writeRace(TIDERace race) throws IOException;
+
+	protected abstract void writeDeadlock(TIDEDeadlock deadlock) throws IOException;
+
+	/**
+	 * finish the report; timing maps phase name -> milliseconds
+	 */
+	public abstract void close(Map<String, Long> timing) throws IOException;
+
+	//json helpers
+
+	protected static String quote(String s) {
+		if (s == null)
+			return "null";
+		StringBuilder sb = new StringBuilder(s.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+	protected static String timingObject(Map<String, Long> timing) {
+		StringBuilder sb = new StringBuilder("{");
+		for (Map.Entry<String, Long> entry : timing.entrySet()) {
+			if (sb.length() > 1)
+				sb.append(',');
+			sb.append(quote(entry.getKey())).append(':').append(entry.getValue());
+		}
+		return sb.append('}').toString();
+	}
+
+	//bug helpers
+
+	protected static String accessKind(MemNode node) {
+		return node instanceof WriteNode ? "write" : "read";
+	}
+
+	protected static String methodOf(CGNode node) {
+		return node == null ? null : node.getMethod().getSignature();
+	}
+
+	/**
+	 * source path of the declaring class, e.g. org/foo/Bar.java
+	 */
+	protected static String sourceOf(CGNode node) {
+		if (node == null)
+			return null;
+		IClass klass = node.getMethod().getDeclaringClass();
+		String pkg = klass.getName().getPackage() == null ? "" : klass.getName().getPackage().toString() + "/";
+		String source = null;
+		try {
+			source = klass.getSourceFileName();
+		} catch (Exception e) {
+			//no debug info
+		}
+		if (source == null) {
+			source = klass.getName().getClassName().toString();
+			int inner = source.indexOf('$');
+			if (inner > 0)
+				source = source.substring(0, inner);
+			source = source + ".java";
+		}
+		return pkg + source;
+	}
+
+	protected static String lockOf(DLockNode lock) {
+		return lock.getPointer() == null ? null : lock.getPointer().toString();
+	}
+
+}
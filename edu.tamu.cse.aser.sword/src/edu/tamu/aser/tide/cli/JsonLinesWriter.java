@@ -0,0 +1,88 @@
+package edu.tamu.aser.tide.cli;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import edu.tamu.aser.tide.engine.TIDEDeadlock;
+import edu.tamu.aser.tide.engine.TIDEDeadlockCycle;
+import edu.tamu.aser.tide.engine.TIDERace;
+import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.MemNode;
+
+/**
+ * one json object per bug and line; the timing goes to a separate file.
+ */
+public class JsonLinesWriter extends BugReportWriter {
+
+	private final File timingFile;
+
+	public JsonLinesWriter(File file, File timingFile) throws IOException {
+		super(file);
+		this.timingFile = timingFile;
+	}
+
+	@Override
+	protected void writeRace(TIDERace race) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"type\":\"race\",\"field\":").append(quote(race.sig))
+		.append(",\"tid1\":").append(race.tid1).append(",\"tid2\":").append(race.tid2)
+		.append(",\"access1\":").append(access(race.node1))
+		.append(",\"access2\":").append(access(race.node2))
+		.append("}\n");
+		out.write(sb.toString());
+		out.flush();
+	}
+
+	@Override
+	protected void writeDeadlock(TIDEDeadlock deadlock) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"type\":\"deadlock\",\"tid1\":").append(deadlock.tid1).append(",\"tid2\":").append(deadlock.tid2)
+		.append(",\"locks1\":[").append(lock(deadlock.lp1.lock1)).append(',').append(lock(deadlock.lp1.lock2)).append(']')
+		.append(",\"locks2\":[").append(lock(deadlock.lp2.lock1)).append(',').append(lock(deadlock.lp2.lock2)).append(']');
+		if (deadlock instanceof TIDEDeadlockCycle) {
+			//all the threads of the cycle, in order
+			TIDEDeadlockCycle cycle = (TIDEDeadlockCycle) deadlock;
+			sb.append(",\"cycle\":[");
+			for (int i = 0; i < cycle.pairs.size(); i++) {
+				if (i > 0)
+					sb.append(',');
+				sb.append("{\"tid\":").append(cycle.tids.get(i))
+				.append(",\"locks\":[").append(lock(cycle.pairs.get(i).lock1)).append(',').append(lock(cycle.pairs.get(i).lock2)).append("]}");
+			}
+			sb.append(']');
+		}
+		sb.append("}\n");
+		out.write(sb.toString());
+		out.flush();
+	}
+
+	private static String access(MemNode node) {
+		return "{\"kind\":" + quote(accessKind(node))
+				+ ",\"method\":" + quote(methodOf(node.getBelonging()))
+				+ ",\"source\":" + quote(sourceOf(node.getBelonging()))
+				+ ",\"line\":" + node.getLine() + "}";
+	}
+
+	private static String lock(DLockNode lock) {
+		return "{\"lock\":" + quote(lockOf(lock))
+				+ ",\"method\":" + quote(methodOf(lock.getBelonging()))
+				+ ",\"source\":" + quote(sourceOf(lock.getBelonging()))
+				+ ",\"line\":" + lock.getLine() + "}";
+	}
+
+	@Override
+	public void close(Map<String, Long> timing) throws IOException {
+		out.close();
+		try (Writer tw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(timingFile), StandardCharsets.UTF_8))) {
+			tw.write(timingObject(timing));
+			tw.write("\n");
+		}
+	}
+
+}
@@ -1,50 +1,329 @@
 package edu.tamu.aser.tide.cli;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.demandpa.alg.DemandBackedPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationGraph;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import edu.tamu.aser.tide.akkasys.BugHub;
+import edu.tamu.aser.tide.engine.ITIDEBug;
+import edu.tamu.aser.tide.engine.TIDEEngine;
+import edu.tamu.aser.tide.plugin.handlers.ConvertHandler;
+
+/**
+ * headless batch driver: builds the scope from a jar, computes the call graph
+ * and pointer analysis with the requested sensitivity, runs race and deadlock
+ * detection and writes the bugs to the output directory.
+ *
+ * the optional config file (-c) is a java properties file, keys:
+ *   main        - main class of the application (e.g. org.foo.Main)
+ *   output      - output directory, defaults to the working directory
+ *   sensitivity - pointer analysis sensitivity, see -s
+ *   exclusions  - path of the class hierarchy exclusion file, defaults to
+ *                 EclipseDefaultExclusions.txt on the classpath
+ *   format      - jsonl or sarif
+ *   workers     - number of bug workers
+ *   budget      - nodes a points-to query may traverse with -s demand
+ *   snapshot    - file to resume the call graph and pointer analysis from,
+ *                 and to save them to after a run
+ * command line options override the config file.
+ */
 public class Main {
 
+	private static final String DEFAULT_EXCLUSIONS = "EclipseDefaultExclusions.txt";
+	private static final String DEFAULT_SENSITIVITY = "0-1-container-cfa";
+	private static final String DEFAULT_FORMAT = "jsonl";
+	private static final String DEMAND = "demand";
+	private static final int DEFAULT_BUDGET = 100000;
+
 	public static void main(String[] args) {
 		// -i, --input, input jar
 		// -c, --config, config file
 		// -o, --output, output dir
 		// -s, --sensitive, sensitivity level
+		// -m, --main, main class
+		// -f, --format, output format
+		// -p, --snapshot, snapshot file
 		Options options = new Options();
 		options.addOption("i", "input", true, "path of the input jar file");
 		options.addOption("c", "config", true, "path of the configuration file");
 		options.addOption("o", "output", true, "output directory");
-		options.addOption("s", "sensitive", true, "pointer analysis sensitivity");
-		
-		CommandLineParser parser = new DefaultParser();
+		options.addOption("s", "sensitive", true, "pointer analysis sensitivity: 0-cfa, 0-1-cfa, vanilla-0-1-cfa, "
+				+ "0-container-cfa, 0-1-container-cfa (default), n-cfa (e.g. 2-cfa), or demand "
+				+ "(an rta call graph, points-to sets computed per query)");
+		options.addOption("m", "main", true, "main class of the application");
+		options.addOption("f", "format", true, "output format: jsonl (default) or sarif");
+		options.addOption("p", "snapshot", true, "file the call graph and pointer analysis are restored from if "
+				+ "the input did not change, and saved to otherwise (not with -s demand)");
 
+		CommandLineParser parser = new DefaultParser();
+		CommandLine cmd;
 		try {
-			CommandLine cmd = parser.parse(options, args);
-			
-			if (cmd.hasOption("i")) {
-				System.out.println(cmd.getOptionValue("i"));
-			}
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			new HelpFormatter().printHelp("sword", options);
+			System.exit(2);
+			return;
+		}
 
-			if (cmd.hasOption("c")) {
-				System.out.println(cmd.getOptionValue("c"));
+		Properties config = new Properties();
+		if (cmd.hasOption("c")) {
+			try (InputStream in = new FileInputStream(cmd.getOptionValue("c"))) {
+				config.load(in);
+			} catch (IOException e) {
+				System.err.println("cannot read config file: " + e.getMessage());
+				System.exit(2);
 			}
+		}
 
-			if (cmd.hasOption("o")) {
-				System.out.println(cmd.getOptionValue("o"));
-			}
+		String input = cmd.getOptionValue("i");
+		String mainClass = cmd.getOptionValue("m", config.getProperty("main"));
+		if (input == null || mainClass == null) {
+			System.err.println("both an input jar (-i) and a main class (-m or main= in the config) are required");
+			new HelpFormatter().printHelp("sword", options);
+			System.exit(2);
+		}
+		String output = cmd.getOptionValue("o", config.getProperty("output", "."));
+		String sensitivity = cmd.getOptionValue("s", config.getProperty("sensitivity", DEFAULT_SENSITIVITY));
+		String format = cmd.getOptionValue("f", config.getProperty("format", DEFAULT_FORMAT));
+		String exclusions = config.getProperty("exclusions");
+		int nrOfWorkers = intProperty(config, "workers", 8);
+		int budget = intProperty(config, "budget", DEFAULT_BUDGET);
+		String snapshot = cmd.getOptionValue("p", config.getProperty("snapshot"));
+
+		try {
+			run(input, mainClass, output, sensitivity, format, exclusions, nrOfWorkers, budget, snapshot);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * the positive integer value of key in the config, or def if it is not set;
+	 * exits with a message naming the key if the value is not a positive integer
+	 */
+	private static int intProperty(Properties config, String key, int def) {
+		String value = config.getProperty(key);
+		if (value == null)
+			return def;
+		try {
+			int result = Integer.parseInt(value.trim());
+			if (result > 0)
+				return result;
+		} catch (NumberFormatException e) {
+			//reported below
+		}
+		System.err.println("invalid value for " + key + " in the config file, expected a positive integer: " + value);
+		System.exit(2);
+		return def;
+	}
+
+	public static void run(String input, String mainClass, String output, String sensitivity, String format,
+			String exclusions, int nrOfWorkers, int budget, String snapshot) throws Exception {
+		if (!new File(input).isFile()) {
+			throw new IllegalArgumentException("input jar does not exist: " + input);
+		}
+		File outDir = new File(output);
+		if (!outDir.isDirectory() && !outDir.mkdirs()) {
+			throw new IOException("cannot create output directory: " + output);
+		}
+		String name = new File(input).getName();
+		if (name.endsWith(".jar")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		LinkedHashMap<String, Long> timing = new LinkedHashMap<>();
+
+		//scope
+		long start = System.currentTimeMillis();
+		File exclusionsFile = exclusions != null ? new File(exclusions) : (new FileProvider()).getFile(DEFAULT_EXCLUSIONS);
+		AnalysisScope scope = AnalysisScopeReader.makeJavaBinaryAnalysisScope(input, exclusionsFile);
+		timing.put("scope", System.currentTimeMillis() - start);
 
-			if (cmd.hasOption("s")) {
-				System.out.println(cmd.getOptionValue("s"));
+		//class hierarchy
+		start = System.currentTimeMillis();
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		timing.put("classHierarchy", System.currentTimeMillis() - start);
+
+		//call graph and pointer analysis
+		start = System.currentTimeMillis();
+		Iterable<Entrypoint> entrypoints = findMainEntrypoint(cha, mainClass);
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		AnalysisCache cache = new AnalysisCache();
+		CallGraph cg = null;
+		PointerAnalysis<InstanceKey> pta = null;
+		PropagationGraph flowgraph = null;
+		File snapshotFile = snapshot != null && !DEMAND.equalsIgnoreCase(sensitivity) ? new File(snapshot) : null;
+		List<File> inputs = new ArrayList<>();
+		inputs.add(new File(input));
+		inputs.add(exclusionsFile);
+		String configuration = mainClass + " " + sensitivity.toLowerCase();
+		if (snapshotFile != null && snapshotFile.isFile()) {
+			try {
+				AnalysisSnapshot saved = AnalysisSnapshot.read(snapshotFile);
+				if (!configuration.equals(saved.getConfiguration())) {
+					System.err.println("snapshot " + snapshotFile + " is for " + saved.getConfiguration() + ", rebuilding");
+				} else if (!saved.isRestorable(cha)) {
+					System.err.println("snapshot " + snapshotFile + " has nodes it cannot restore, rebuilding");
+				} else if (saved.isUpToDate(inputs) || saved.matches(cha, options, cache)) {
+					cg = saved.restoreCallGraph(cha, options, cache);
+					pta = saved.restorePointerAnalysis(cg, cha, options);
+					System.err.println("restored the call graph and pointer analysis from " + snapshotFile);
+				} else {
+					System.err.println("snapshot " + snapshotFile + " is out of date, rebuilding");
+				}
+			} catch (IOException e) {
+				System.err.println("cannot read snapshot, rebuilding: " + e.getMessage());
 			}
+		}
+		//neither a restored nor a demand analysis has a flowgraph, the engine does not need it for a batch run
+		boolean restored = cg != null;
+		if (!restored && DEMAND.equalsIgnoreCase(sensitivity)) {
+			cg = Util.makeRTABuilder(options, cache, cha, scope).makeCallGraph(options, null);
+			pta = DemandBackedPointerAnalysis.make(cg, cha, options, budget);
+		} else if (!restored) {
+			SSAPropagationCallGraphBuilder builder = makeBuilder(sensitivity, options, cache, cha, scope);
+			cg = builder.makeCallGraph(options, null);
+			pta = builder.getPointerAnalysis();
+			flowgraph = builder.getPropagationSystem().getPropagationGraph();
+		}
+		timing.put(restored ? "restore" : "callGraph", System.currentTimeMillis() - start);
 
-		} catch (ParseException e) {
-			//System.out.println(e.getMessage());
+		//bug detection
+		start = System.currentTimeMillis();
+		ActorSystem akkasys = ActorSystem.create();
+		HashSet<ITIDEBug> bugs;
+		TIDEEngine engine;
+		try {
+			ActorRef bughub = akkasys.actorOf(Props.create(BugHub.class, nrOfWorkers), "bughub");
+			String mainSignature = mainClass + ".main" + ConvertHandler.DESC_MAIN;
+			engine = new TIDEEngine(mainSignature, cg, flowgraph, pta, bughub);
+			//stdout is left to the caller, the engine's progress goes to stderr
+			PrintStream ps = System.err;
+			bugs = engine.detectBothBugs(ps);
+		} finally {
+			Await.result(akkasys.terminate(), Duration.create(10, TimeUnit.SECONDS));
+		}
+		timing.put("detection", System.currentTimeMillis() - start);
+		timing.put("raceDetection", engine.timeForDetectingRaces);
+		timing.put("deadlockDetection", engine.timeForDetectingDL);
+		if (pta instanceof DemandBackedPointerAnalysis) {
+			DemandBackedPointerAnalysis demand = (DemandBackedPointerAnalysis) pta;
+			System.err.println("points-to queries: " + demand.getNumberOfQueries() + ", over budget: "
+					+ demand.getNumberOfQueriesOverBudget());
+		}
+		System.err.println("ir cache hits: " + cache.getSSACache().getHits() + ", misses: " + cache.getSSACache().getMisses()
+				+ ", rebuilds: " + cache.getSSACache().getRebuilds());
+
+		if (snapshotFile != null && !restored) {
+			start = System.currentTimeMillis();
+			AnalysisSnapshot.write(snapshotFile, configuration, inputs, cg, pta, options, cache);
+			timing.put("snapshot", System.currentTimeMillis() - start);
+		}
+
+		BugReportWriter writer = BugReportWriter.make(format, new File(outDir, name));
+		try {
+			writer.writeBugs(bugs);
+		} finally {
+			writer.close(timing);
+		}
+		System.err.println("SWORD finished " + input + ": " + bugs.size() + " bugs, timing (ms) " + timing
+				+ " -> " + writer.getFile());
+	}
+
+	/**
+	 * the public static main method of exactly the given application class
+	 * @throws IllegalArgumentException if there is no such class or method
+	 */
+	static Iterable<Entrypoint> findMainEntrypoint(IClassHierarchy cha, String mainClass) {
+		TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application,
+				"L" + mainClass.replace('.', '/'));
+		IClass klass = cha.lookupClass(type);
+		if (klass == null) {
+			throw new IllegalArgumentException("main class not found in the input: " + mainClass);
+		}
+		IMethod main = klass.getMethod(Selector.make("main" + ConvertHandler.DESC_MAIN));
+		if (main == null || !main.isStatic() || !main.isPublic() || !main.getDeclaringClass().equals(klass)) {
+			throw new IllegalArgumentException("main class has no public static void main(String[]): " + mainClass);
+		}
+		return Collections.<Entrypoint>singleton(new DefaultEntrypoint(main, cha));
+	}
+
+	/**
+	 * the builder for the given sensitivity level
+	 */
+	static SSAPropagationCallGraphBuilder makeBuilder(String sensitivity, AnalysisOptions options, AnalysisCache cache,
+			ClassHierarchy cha, AnalysisScope scope) {
+		String level = sensitivity.toLowerCase();
+		switch (level) {
+		case "0-cfa":
+			return Util.makeZeroCFABuilder(options, cache, cha, scope);
+		case "0-1-cfa":
+			return Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+		case "vanilla-0-1-cfa":
+			return Util.makeVanillaZeroOneCFABuilder(options, cache, cha, scope);
+		case "0-container-cfa":
+			return Util.makeZeroContainerCFABuilder(options, cache, cha, scope);
+		case "0-1-container-cfa":
+			return Util.makeZeroOneContainerCFABuilder(options, cache, cha, scope);
+		default:
+			if (level.endsWith("-cfa")) {
+				try {
+					int n = Integer.parseInt(level.substring(0, level.length() - 4));
+					return Util.makeNCFABuilder(n, options, cache, cha, scope);
+				} catch (NumberFormatException e) {
+					//fall through
+				}
+			}
+			throw new IllegalArgumentException("unknown sensitivity level: " + sensitivity);
 		}
-		
-		
 	}
 
 }
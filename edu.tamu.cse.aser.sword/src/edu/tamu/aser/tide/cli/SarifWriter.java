@@ -0,0 +1,117 @@
+package edu.tamu.aser.tide.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+
+import edu.tamu.aser.tide.engine.TIDEDeadlock;
+import edu.tamu.aser.tide.engine.TIDEDeadlockCycle;
+import edu.tamu.aser.tide.engine.TIDERace;
+import edu.tamu.aser.tide.nodes.DLPair;
+import edu.tamu.aser.tide.nodes.DLockNode;
+
+/**
+ * sarif 2.1.0 log with one run; results are collected and written on close,
+ * the timing is attached to the invocation properties.
+ */
+public class SarifWriter extends BugReportWriter {
+
+	private static final String RACE_RULE = "data-race";
+	private static final String DEADLOCK_RULE = "deadlock";
+
+	private final ArrayList<String> results = new ArrayList<>();
+
+	public SarifWriter(File file) throws IOException {
+		super(file);
+	}
+
+	@Override
+	protected void writeRace(TIDERace race) throws IOException {
+		String msg = "Race on " + race.sig + " between a " + accessKind(race.node1) + " (line " + race.node1.getLine()
+				+ ") and a " + accessKind(race.node2) + " (line " + race.node2.getLine() + ")";
+		results.add(result(RACE_RULE, msg,
+				location(race.node1.getBelonging(), race.node1.getLine()),
+				location(race.node2.getBelonging(), race.node2.getLine())));
+	}
+
+	@Override
+	protected void writeDeadlock(TIDEDeadlock deadlock) throws IOException {
+		if (deadlock instanceof TIDEDeadlockCycle) {
+			writeDeadlockCycle((TIDEDeadlockCycle) deadlock);
+			return;
+		}
+		DLockNode l11 = deadlock.lp1.lock1, l12 = deadlock.lp1.lock2;
+		DLockNode l21 = deadlock.lp2.lock1, l22 = deadlock.lp2.lock2;
+		String msg = "Deadlock: lines " + l11.getLine() + " -> " + l12.getLine() + " and lines "
+				+ l21.getLine() + " -> " + l22.getLine() + " acquire the same locks in opposite order";
+		results.add(result(DEADLOCK_RULE, msg,
+				location(l11.getBelonging(), l11.getLine()),
+				location(l12.getBelonging(), l12.getLine()),
+				location(l21.getBelonging(), l21.getLine()),
+				location(l22.getBelonging(), l22.getLine())));
+	}
+
+	private void writeDeadlockCycle(TIDEDeadlockCycle cycle) {
+		StringBuilder msg = new StringBuilder("Deadlock: lines ");
+		String[] related = new String[2 * cycle.pairs.size() - 1];
+		for (int i = 0; i < cycle.pairs.size(); i++) {
+			DLPair pair = cycle.pairs.get(i);
+			if (i > 0) {
+				msg.append(", ");
+				related[2 * i - 1] = location(pair.lock1.getBelonging(), pair.lock1.getLine());
+			}
+			msg.append(pair.lock1.getLine()).append(" -> ").append(pair.lock2.getLine());
+			related[2 * i] = location(pair.lock2.getBelonging(), pair.lock2.getLine());
+		}
+		msg.append(" acquire ").append(cycle.pairs.size()).append(" locks in a cycle");
+		DLockNode first = cycle.pairs.get(0).lock1;
+		results.add(result(DEADLOCK_RULE, msg.toString(), location(first.getBelonging(), first.getLine()), related));
+	}
+
+	private static String result(String rule, String msg, String primary, String... related) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"ruleId\":").append(quote(rule))
+		.append(",\"level\":\"warning\"")
+		.append(",\"message\":{\"text\":").append(quote(msg)).append('}')
+		.append(",\"locations\":[").append(primary).append(']')
+		.append(",\"relatedLocations\":[");
+		for (int i = 0; i < related.length; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(related[i]);
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static String location(CGNode node, int line) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"physicalLocation\":{\"artifactLocation\":{\"uri\":").append(quote(sourceOf(node))).append('}');
+		if (line > 0)
+			sb.append(",\"region\":{\"startLine\":").append(line).append('}');
+		sb.append("},\"logicalLocations\":[{\"fullyQualifiedName\":").append(quote(methodOf(node))).append("}]}");
+		return sb.toString();
+	}
+
+	@Override
+	public void close(Map<String, Long> timing) throws IOException {
+		try {
+			out.write("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[{");
+			out.write("\"tool\":{\"driver\":{\"name\":\"SWORD\",\"rules\":[");
+			out.write("{\"id\":" + quote(RACE_RULE) + ",\"shortDescription\":{\"text\":\"Data race\"}},");
+			out.write("{\"id\":" + quote(DEADLOCK_RULE) + ",\"shortDescription\":{\"text\":\"Deadlock\"}}");
+			out.write("]}},\n\"invocations\":[{\"executionSuccessful\":true,\"properties\":{\"timing\":" + timingObject(timing) + "}}],");
+			out.write("\n\"results\":[");
+			for (int i = 0; i < results.size(); i++) {
+				out.write(i == 0 ? "\n" : ",\n");
+				out.write(results.get(i));
+			}
+			out.write("\n]}]}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.ibm.wala.util.intset.SimpleIntVector;
+
+/**
+ * interns memory locations and locks as dense ints.
+ * a location is a base (a field, all array elements, or a lock class) times
+ * the index of an instance key in the pointer analysis; static fields and
+ * class locks have no instance.
+ */
+public class LocationTable {
+
+	public static final int NO_INSTANCE = -1;
+	//base for all array element accesses
+	public static final Object ARRAY = "array";
+	//base for all locks on objects
+	public static final Object LOCK = "lock";
+
+	private final HashMap<Object, Integer> baseIds = new HashMap<>();
+	private final ArrayList<String> baseNames = new ArrayList<>();
+
+	//location -> base, instance
+	private final SimpleIntVector locationBase = new SimpleIntVector(-1);
+	private final SimpleIntVector locationInstance = new SimpleIntVector(NO_INSTANCE);
+	private int size = 0;
+
+	//open addressing (base, instance) -> location
+	private long[] keys = new long[1024];
+	private int[] values = new int[1024];
+
+	public LocationTable() {
+		Arrays.fill(keys, -1L);
+	}
+
+	/**
+	 * @param base a canonical object: FieldReference, TypeName, ARRAY or LOCK
+	 * @param name printable name of the base, e.g. demo/Main.data
+	 * @return the id of the base
+	 */
+	public synchronized int getBase(Object base, String name) {
+		Integer id = baseIds.get(base);
+		if(id == null){
+			id = baseNames.size();
+			baseIds.put(base, id);
+			baseNames.add(name);
+		}
+		return id;
+	}
+
+	/**
+	 * @param instance index of the instance key, or NO_INSTANCE
+	 * @return the dense id of the location
+	 */
+	public synchronized int getLocation(int base, int instance) {
+		long key = ((long) base << 32) | ((instance + 1) & 0xffffffffL);
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while(keys[slot] != -1L){
+			if(keys[slot] == key){
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		int location = size++;
+		keys[slot] = key;
+		values[slot] = location;
+		locationBase.set(location, base);
+		locationInstance.set(location, instance);
+		if(size * 2 > keys.length){
+			rehash();
+		}
+		return location;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		Arrays.fill(keys, -1L);
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] != -1L){
+				int slot = hash(oldKeys[i]) & mask;
+				while(keys[slot] != -1L){
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * @return printable name of the base of the location, without instance
+	 */
+	public synchronized String getName(int location) {
+		return baseNames.get(locationBase.get(location));
+	}
+
+	public synchronized int getInstance(int location) {
+		return locationInstance.get(location);
+	}
+
+	/**
+	 * number of interned locations; ids are 0 .. size()-1
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized String toString(int location) {
+		int instance = locationInstance.get(location);
+		if(instance == NO_INSTANCE)
+			return getName(location);
+		return getName(location) + "." + instance;
+	}
+
+}
@@ -0,0 +1,145 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import com.ibm.wala.scc.Digraph;
+import com.ibm.wala.scc.TarjanSCC;
+import com.ibm.wala.util.intset.IntIterator;
+
+import edu.tamu.aser.tide.nodes.DLPair;
+
+/**
+ * lock-order graph over the interned lock locations: an edge l1 -> l2 for
+ * each nested lock pair (of any thread) whose outer lock may be l1 and inner
+ * lock may be l2. a deadlock needs its lock pairs on a cycle, so only the
+ * pairs with an edge inside a cyclic strongly connected component (more than
+ * one lock, or a self loop) need to be checked, and only against each other.
+ */
+public class LockOrderGraph {
+
+	//the cyclic components, each with the lock pairs having an edge inside it
+	private final ArrayList<Component> components = new ArrayList<>();
+
+	public LockOrderGraph(HashMap<Integer, ArrayList<DLPair>> threadDLLockPairs) {
+		//dense vertex of each lock sig
+		HashMap<Integer, Integer> vertices = new HashMap<>();
+		ArrayList<LockEdge> edges = new ArrayList<>();
+		for (Integer tid : threadDLLockPairs.keySet()) {
+			for (DLPair pair : threadDLLockPairs.get(tid)) {
+				edges.add(new LockEdge(tid, pair));
+				addVertices(pair.lock1.getLockSig().intIterator(), vertices);
+				addVertices(pair.lock2.getLockSig().intIterator(), vertices);
+			}
+		}
+		Digraph graph = new Digraph(vertices.size());
+		boolean[] selfLoop = new boolean[vertices.size()];
+		for (LockEdge edge : edges) {
+			for (IntIterator it1 = edge.pair.lock1.getLockSig().intIterator(); it1.hasNext();) {
+				int v1 = vertices.get(it1.next());
+				for (IntIterator it2 = edge.pair.lock2.getLockSig().intIterator(); it2.hasNext();) {
+					int v2 = vertices.get(it2.next());
+					graph.addEdge(v1, v2);
+					if(v1 == v2)
+						selfLoop[v1] = true;
+				}
+			}
+		}
+		TarjanSCC scc = new TarjanSCC(graph);
+		//cyclic components
+		int[] sizes = new int[scc.count()];
+		for (int v = 0; v < vertices.size(); v++) {
+			sizes[scc.id(v)]++;
+		}
+		Component[] byId = new Component[scc.count()];
+		for (int v = 0; v < vertices.size(); v++) {
+			int id = scc.id(v);
+			if(byId[id] == null && (sizes[id] > 1 || selfLoop[v])){
+				byId[id] = new Component();
+				components.add(byId[id]);
+			}
+		}
+		//the lock pairs inside them
+		for (LockEdge edge : edges) {
+			for (IntIterator it1 = edge.pair.lock1.getLockSig().intIterator(); it1.hasNext();) {
+				int l1 = it1.next();
+				int id = scc.id(vertices.get(l1));
+				if(byId[id] == null)
+					continue;
+				for (IntIterator it2 = edge.pair.lock2.getLockSig().intIterator(); it2.hasNext();) {
+					int l2 = it2.next();
+					if(scc.id(vertices.get(l2)) == id){
+						byId[id].add(l1, l2, edge);
+					}
+				}
+			}
+		}
+	}
+
+	private void addVertices(IntIterator sigs, HashMap<Integer, Integer> vertices) {
+		while(sigs.hasNext()){
+			int sig = sigs.next();
+			if(!vertices.containsKey(sig)){
+				vertices.put(sig, vertices.size());
+			}
+		}
+	}
+
+	public ArrayList<Component> getCyclicComponents() {
+		return components;
+	}
+
+	/**
+	 * a nested lock pair of a thread
+	 */
+	public static class LockEdge {
+		public final int tid;
+		public final DLPair pair;
+
+		LockEdge(int tid, DLPair pair) {
+			this.tid = tid;
+			this.pair = pair;
+		}
+	}
+
+	/**
+	 * a cyclic strongly connected component of the lock-order graph
+	 */
+	public static class Component {
+		//the lock pairs with an edge in the component, each once
+		private final ArrayList<LockEdge> edges = new ArrayList<>();
+		private final IdentityHashMap<LockEdge, Boolean> added = new IdentityHashMap<>();
+		//lock sig -> lock sig -> the lock pairs ordering them
+		private final HashMap<Integer, HashMap<Integer, ArrayList<LockEdge>>> successors = new HashMap<>();
+
+		private void add(int l1, int l2, LockEdge edge) {
+			if(added.put(edge, Boolean.TRUE) == null){
+				edges.add(edge);
+			}
+			HashMap<Integer, ArrayList<LockEdge>> succs = successors.get(l1);
+			if(succs == null){
+				succs = new HashMap<>();
+				successors.put(l1, succs);
+			}
+			ArrayList<LockEdge> between = succs.get(l2);
+			if(between == null){
+				between = new ArrayList<>();
+				succs.put(l2, between);
+			}
+			between.add(edge);
+		}
+
+		public ArrayList<LockEdge> getEdges() {
+			return edges;
+		}
+
+		/**
+		 * lock sig -> the lock pairs from the lock to each lock of the component
+		 */
+		public HashMap<Integer, HashMap<Integer, ArrayList<LockEdge>>> getSuccessors() {
+			return successors;
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.util.collections.SparseVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.DUnlockNode;
+import edu.tamu.aser.tide.nodes.INode;
+import edu.tamu.aser.tide.nodes.LockPair;
+import edu.tamu.aser.tide.shb.SHBEdge;
+import edu.tamu.aser.tide.shb.SHBGraph;
+import edu.tamu.aser.tide.shb.Trace;
+
+/**
+ * the locks held at a node in a thread, as a bitset of interned lock
+ * locations, computed once per (node, tid) for the current shb graph.
+ */
+public class LocksetCache {
+
+	//the number of callers to walk up from the node
+	private static final int ROUNDS = 5;
+
+	private final SHBGraph shb;
+	private final ConcurrentHashMap<NodeInThread, BitVectorIntSet> locksets = new ConcurrentHashMap<>();
+
+	public LocksetCache(SHBGraph shb) {
+		this.shb = shb;
+	}
+
+	public boolean haveCommonLock(int xtid, INode xnode, int wtid, INode wnode) {
+		return getLockset(xtid, xnode).containsAny(getLockset(wtid, wnode));
+	}
+
+	public BitVectorIntSet getLockset(int tid, INode node) {
+		NodeInThread key = new NodeInThread(node, tid);
+		BitVectorIntSet lockset = locksets.get(key);
+		if(lockset == null){
+			lockset = computeLockset(tid, node);
+			locksets.put(key, lockset);
+		}
+		return lockset;
+	}
+
+	/**
+	 * the sigs of the lock pairs on the path of the node that enclose the
+	 * node (or the call to its method)
+	 */
+	private BitVectorIntSet computeLockset(int tid, INode node) {
+		//inode location
+		HashMap<LockPair, INode> pair_edge_locations = new HashMap<>();
+		SparseVector<ArrayList<LockPair>> allPairs = collectAllLockPairsFor(tid, node, pair_edge_locations);
+		BitVectorIntSet lockset = new BitVectorIntSet();
+		for (IntIterator it = allPairs.iterateIndices(); it.hasNext();) {
+			int sig = it.next();
+			if(doesHaveLockBetween(allPairs.get(sig), pair_edge_locations)){
+				lockset.add(sig);
+			}
+		}
+		return lockset;
+	}
+
+	private SparseVector<ArrayList<LockPair>> collectAllLockPairsFor(int tid, INode node,
+			HashMap<LockPair, INode> pair_edge_locations) {
+		SparseVector<ArrayList<LockPair>> allPairs = new SparseVector<>();
+		//current; recursive
+		int round = ROUNDS;
+		while(round >= 0){
+			CGNode cgNode = node.getBelonging();
+			Trace trace = shb.getTrace(cgNode);
+			if(trace == null){
+				if (cgNode instanceof AstCGNodeEcho) {
+					cgNode = ((AstCGNodeEcho) cgNode).getCGNode();
+					trace = shb.getTrace(cgNode);
+				}
+			}
+			ArrayList<LockPair> pairs = trace.getLockPair();
+			for (LockPair pair : pairs) {
+				pair_edge_locations.put(pair, node);
+				IntSet sigs = pair.lock.getLockSig();
+				for (IntIterator it = sigs.intIterator(); it.hasNext();) {
+					int sig = it.next();
+					ArrayList<LockPair> exists = allPairs.get(sig);
+					if(exists == null){
+						exists = new ArrayList<>();
+						allPairs.set(sig, exists);
+					}
+					exists.add(pair);
+				}
+			}
+			SHBEdge edge = shb.getIncomingEdgeWithTidForShowTrace(cgNode, tid);//using dfs, since usually is single tid shbedge
+			if (edge == null) {
+				break;
+			}else{
+				node = edge.getSource();
+				round--;
+			}
+		}
+		return allPairs;
+	}
+
+	private boolean doesHaveLockBetween(ArrayList<LockPair> pairs, HashMap<LockPair, INode> pair_edge_locations) {
+		for (LockPair pair : pairs) {
+			INode node = pair_edge_locations.get(pair);
+			DLockNode lock = pair.lock;
+			DUnlockNode unlock = pair.unlock;
+			Trace trace = shb.getTrace(node.getBelonging());
+			int idxL = trace.indexOf(lock);
+			int idxN = trace.indexOf(node);
+			int idxU = trace.indexOf(unlock);
+			if (idxL < idxN && idxN < idxU) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * a node (by identity) in a thread
+	 */
+	private static class NodeInThread {
+		private final INode node;
+		private final int tid;
+
+		NodeInThread(INode node, int tid) {
+			this.node = node;
+			this.tid = tid;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(node) * 31 + tid;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(obj instanceof NodeInThread){
+				NodeInThread that = (NodeInThread) obj;
+				return this.node == that.node && this.tid == that.tid;
+			}
+			return false;
+		}
+	}
+
+}
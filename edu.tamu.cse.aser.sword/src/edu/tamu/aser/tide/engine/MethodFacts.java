@@ -0,0 +1,110 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IMethod.SourcePosition;
+import com.ibm.wala.ide.util.JdtPosition;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.ssa.SSACFG.BasicBlock;
+import com.ibm.wala.ssa.SSAInstruction;
+
+/**
+ * the facts of a method that the shb traversal needs and that do not depend
+ * on the traversal state: the instructions inside catch blocks, and the source
+ * line and file of each instruction. indexed by the position of the
+ * instruction in ir.getInstructions(). immutable, so they can be computed for
+ * all the methods in parallel before the traversal.
+ */
+public class MethodFacts {
+
+	//the line of an instruction could not be read
+	public static final int NO_LINE = Integer.MIN_VALUE;
+
+	private final boolean[] inCatch;
+	private final int[] lines;
+	//only for source (jdt) methods
+	private IFile[] files;
+
+	public MethodFacts(CGNode n, IR ir) {
+		SSAInstruction[] insts = ir.getInstructions();
+		inCatch = new boolean[insts.length];
+		lines = new int[insts.length];
+		findInstsInsideCatchBlock(ir.getControlFlowGraph(), insts);
+		for (int i = 0; i < insts.length; i++) {
+			SSAInstruction inst = insts[i];
+			if(inst == null)
+				continue;
+			lines[i] = NO_LINE;
+			try{//get source code line number of this inst
+				if(ir.getMethod() instanceof IBytecodeMethod){
+					int bytecodeindex = ((IBytecodeMethod) ir.getMethod()).getBytecodeIndex(inst.iindex);
+					lines[i] = (int) ir.getMethod().getLineNumber(bytecodeindex);
+				}else{
+					SourcePosition position = n.getMethod().getSourcePosition(inst.iindex);
+					lines[i] = position.getFirstLine();//.getLastLine();
+					if(position instanceof JdtPosition){
+						if(files == null){
+							files = new IFile[insts.length];
+						}
+						files[i] = ((JdtPosition) position).getEclipseFile();
+					}
+				}
+			}catch(Exception e){
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * won't consider rw, lock related to catch blocks
+	 */
+	private void findInstsInsideCatchBlock(SSACFG cfg, SSAInstruction[] insts) {
+		for(int i=0; i<=cfg.getMaxNumber(); i++){
+			BasicBlock block = cfg.getBasicBlock(i);
+			if(block.isCatchBlock()){
+				mark(block.getAllInstructions(), insts, false);
+				Iterator<ISSABasicBlock> succss = cfg.getSuccNodes(block);
+				while(succss.hasNext()){
+					BasicBlock succ = (BasicBlock) succss.next();
+					mark(succ.getAllInstructions(), insts, true);
+				}
+			}
+		}
+	}
+
+	private void mark(List<SSAInstruction> catchinsts, SSAInstruction[] insts, boolean skipStartJoin) {
+		for (SSAInstruction inst : catchinsts) {
+			if(skipStartJoin && (inst.toString().contains("start()V")
+					|| inst.toString().contains("join()V"))){
+				continue;
+			}
+			//phis and caught exceptions are not in insts
+			if(inst.iindex >= 0 && inst.iindex < insts.length && insts[inst.iindex] == inst){
+				inCatch[inst.iindex] = true;
+			}
+		}
+	}
+
+	public boolean isInCatchBlock(int i) {
+		return inCatch[i];
+	}
+
+	/**
+	 * @return the source line of the i-th instruction, or NO_LINE
+	 */
+	public int getLine(int i) {
+		return lines[i];
+	}
+
+	public IFile getFile(int i) {
+		return files == null ? null : files[i];
+	}
+
+}
@@ -0,0 +1,163 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.ssa.SSACFG.BasicBlock;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.util.graph.dominators.NumberedDominators;
+import com.ibm.wala.util.intset.BitVector;
+
+/**
+ * the natural loops of an ir, with the indices of the instructions inside
+ * any of them as a bitset. computed once per ir: the dominators are not
+ * rebuilt for each thread start/join of the method.
+ */
+public class MethodLoops {
+
+	private final IR ir;
+	private final Collection<Loop> loops;
+	//instruction index -> inside a loop
+	private final BitVector inLoop = new BitVector();
+
+	public MethodLoops(IR ir) {
+		this.ir = ir;
+		this.loops = findLoops(ir);
+		SSAInstruction[] insts = ir.getInstructions();
+		for (Loop loop : loops) {
+			for (SSAInstruction inst : loop.getLoopInstructions()) {
+				if(isNormal(inst, insts)){
+					inLoop.set(inst.iindex);
+				}
+			}
+		}
+	}
+
+	private static boolean isNormal(SSAInstruction inst, SSAInstruction[] insts) {
+		return inst.iindex >= 0 && inst.iindex < insts.length && insts[inst.iindex] == inst;
+	}
+
+	/**
+	 * the ir the loops are computed from
+	 */
+	public IR getIR() {
+		return ir;
+	}
+
+	public Collection<Loop> getLoops() {
+		return loops;
+	}
+
+	public boolean contains(SSAInstruction inst) {
+		if(isNormal(inst, ir.getInstructions())){
+			return inLoop.get(inst.iindex);
+		}
+		//phis, pis, caught exceptions
+		for (Loop loop : loops) {
+			if(loop.getLoopInstructions().contains(inst))
+				return true;
+		}
+		return false;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Collection<Loop> findLoops(IR ir){
+		SSACFG cfg =  ir.getControlFlowGraph();
+		BasicBlock root = cfg.entry();
+		NumberedDominators dominator = new NumberedDominators(cfg,root);
+
+		Iterator<ISSABasicBlock> bbs = cfg.iterator();
+		HashSet domSet = new HashSet();
+		HashMap<BasicBlock, List<BasicBlock>> loops = new HashMap<BasicBlock, List<BasicBlock>>();
+
+		while(bbs.hasNext()){
+			ISSABasicBlock bb = bbs.next();
+			Iterator<ISSABasicBlock> succs = cfg.getSuccNodes(bb);
+			Iterator<ISSABasicBlock> dominators = dominator.dominators(bb);
+
+
+			while(dominators.hasNext())
+				domSet.add(dominators.next());
+
+			ArrayList<ISSABasicBlock> headers=null;
+			while(succs.hasNext()){
+				ISSABasicBlock succ = succs.next();
+
+				if (domSet.contains(succ)){
+					//header succeeds and dominates s, we have a loop
+					if(headers==null)
+						headers = new ArrayList<ISSABasicBlock>();
+					headers.add(succ);
+				}
+			}
+			domSet.clear();
+			if(headers!=null){
+				Iterator<ISSABasicBlock> headersIt = headers.iterator();
+				while (headersIt.hasNext()){
+					BasicBlock header = (BasicBlock) headersIt.next();
+					List<BasicBlock> loopBody = getLoopBodyFor(cfg, header, bb);
+					if (loops.containsKey(header)){
+						// merge bodies
+						List<BasicBlock> lb1 = loops.get(header);
+						loops.put(header, union(lb1, loopBody));
+					}else {
+						loops.put(header, loopBody);
+					}
+				}
+			}
+		}
+
+		Collection<Loop> result = new HashSet<Loop>();
+		for (Map.Entry<BasicBlock,List<BasicBlock>> entry : loops.entrySet()) {
+			result.add(new Loop(entry.getKey(),entry.getValue(),cfg));
+		}
+		return result;
+	}
+
+	private static List<BasicBlock> getLoopBodyFor(SSACFG cfg, BasicBlock header, ISSABasicBlock node){
+		ArrayList<BasicBlock> loopBody = new ArrayList<BasicBlock>();
+		Stack<ISSABasicBlock> stack = new Stack<ISSABasicBlock>();
+
+		loopBody.add(header);
+		stack.push(node);
+
+		while (!stack.isEmpty()){
+			BasicBlock next = (BasicBlock)stack.pop();
+			if (!loopBody.contains(next)){
+				// add next to loop body
+				loopBody.add(0, next);
+				// put all preds of next on stack
+				Iterator<ISSABasicBlock> it = cfg.getPredNodes(next);
+				while (it.hasNext()){
+					stack.push(it.next());
+				}
+			}
+		}
+
+		assert (node==header && loopBody.size()==1) || loopBody.get(loopBody.size()-2)==node;
+		assert loopBody.get(loopBody.size()-1)==header;
+
+		return loopBody;
+	}
+
+	private static List<BasicBlock> union(List<BasicBlock> l1, List<BasicBlock> l2){
+		Iterator<BasicBlock> it = l2.iterator();
+		while (it.hasNext()){
+			BasicBlock next = it.next();
+			if (!l1.contains(next)){
+				l1.add(next);
+			}
+		}
+		return l1;
+	}
+
+}
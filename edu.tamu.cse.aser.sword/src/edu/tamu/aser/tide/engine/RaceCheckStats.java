@@ -0,0 +1,49 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counts of the (node, tid) access pairs seen by the race checkers of one
+ * detection, and how they were decided. updated by the bug workers concurrently.
+ */
+public class RaceCheckStats {
+
+	//all pairs of a write and a read/write of the same location
+	public final LongAdder pairs = new LongAdder();
+	//pruned: both accesses in the same thread, or the write in an unrolled thread
+	public final LongAdder sameThread = new LongAdder();
+	public final LongAdder unrolled = new LongAdder();
+	//pruned with their buckets: the two locksets share a lock
+	public final LongAdder commonLock = new LongAdder();
+	//pruned with their buckets: the two threads are ordered whatever the nodes
+	public final LongAdder orderedThreads = new LongAdder();
+	//pruned: the access of the side deciding the hb relation is ordered with the other thread
+	public final LongAdder orderedAccesses = new LongAdder();
+	//skipped: an equal race was already reported
+	public final LongAdder duplicates = new LongAdder();
+	//hb checks, one per access of the deciding side and other thread
+	public final LongAdder checked = new LongAdder();
+	public final LongAdder races = new LongAdder();
+
+	public void reset() {
+		pairs.reset();
+		sameThread.reset();
+		unrolled.reset();
+		commonLock.reset();
+		orderedThreads.reset();
+		orderedAccesses.reset();
+		duplicates.reset();
+		checked.reset();
+		races.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "races: " + races + ", pairs: " + pairs
+				+ " (same thread: " + sameThread + ", unrolled: " + unrolled
+				+ ", common lock: " + commonLock + ", ordered threads: " + orderedThreads
+				+ ", ordered accesses: " + orderedAccesses + ", duplicates: " + duplicates + ")"
+				+ ", hb checks: " + checked;
+	}
+
+}
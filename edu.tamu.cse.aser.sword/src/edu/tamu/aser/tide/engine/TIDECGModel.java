@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,7 +26,6 @@ import org.eclipse.ui.PlatformUI;
 
 import com.ibm.wala.cast.ipa.callgraph.AstCallGraph;
 import com.ibm.wala.cast.ipa.callgraph.AstCallGraph.AstCGNode;
-import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.eclipse.cg.model.WalaProjectCGModel;
@@ -38,17 +38,13 @@ import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.MethodChange;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.IR;
-import com.ibm.wala.ssa.ISSABasicBlock;
-import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
-import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
-import com.ibm.wala.ssa.SSAFieldAccessInstruction;
-import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.WalaException;
 import com.ibm.wala.util.collections.HashSetFactory;
@@ -59,6 +55,7 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import edu.tamu.aser.tide.akkasys.BugHub;
 import edu.tamu.aser.tide.marker.BugMarker;
+import edu.tamu.aser.tide.nodes.DLPair;
 import edu.tamu.aser.tide.nodes.DLockNode;
 import edu.tamu.aser.tide.nodes.INode;
 import edu.tamu.aser.tide.nodes.MemNode;
@@ -90,7 +87,7 @@ public class TIDECGModel extends WalaProjectCGModel {
 	int nrOfWorkers = 8;
 	public ActorSystem akkasys;
 	public ActorRef bughub;
-	public static TIDEEngine bugEngine;
+	public TIDEEngine bugEngine;
 	private static ClassLoader akkaClassLoader = ActorSystem.class.getClassLoader();
 	private final static boolean DEBUG = false;
 	//Eclipse views
@@ -226,64 +223,36 @@ public class TIDECGModel extends WalaProjectCGModel {
 	}
 
 	private void showDeadlock(IPath fullPath, TIDEDeadlock bug) throws CoreException {
-		DLockNode l11 = bug.lp1.lock1;
-		DLockNode l12 = bug.lp1.lock2;
-		DLockNode l21 = bug.lp2.lock1;
-		DLockNode l22 = bug.lp2.lock2;
-
-		String sig11 = l11.getInstSig();
-		String sig12 = l12.getInstSig();
-		String sig21 = l21.getInstSig();
-		String sig22 = l22.getInstSig();
-
-		int line11 = l11.getLine();
-		int line12 = l12.getLine();
-		int line21 = l21.getLine();
-		int line22 = l22.getLine();
-
-		String deadlockMsg = "Deadlock: ("+sig11  +" => "+sig12+ ";  "+sig21+ " => "+sig22+ ")";
+		List<DLPair> pairs = bug.getPairs();
+		StringBuilder msg = new StringBuilder("Deadlock: (");
+		for (int i = 0; i < pairs.size(); i++) {
+			if(i > 0)
+				msg.append(";  ");
+			msg.append(pairs.get(i).lock1.getInstSig()).append(" => ").append(pairs.get(i).lock2.getInstSig());
+		}
+		String deadlockMsg = msg.append(")").toString();
 //		System.err.println(deadlockMsg);
 		ArrayList<LinkedList<String>> traceMsg = obtainTraceOfDeadlock(bug);
 		bug.setBugInfo(deadlockMsg, traceMsg, null);
 
-		IMarker marker1 = null;
-		IMarker marker2 = null;
-		IMarker marker3 = null;
-		IMarker marker4 = null;
-		IFile file11 = l11.getFile();
-		if(file11 == null){
-			marker1 = getFileFromSigDL(fullPath,sig11,traceMsg.get(0), line11, deadlockMsg);
-		}else{
-			marker1 = createMarkerDL(file11,line11,deadlockMsg);
-		}
-		IFile file12 = l12.getFile();
-		if(file12 == null){
-			marker2 = getFileFromSigDL(fullPath,sig12,traceMsg.get(1), line12, deadlockMsg);
-		}else{
-			marker2 = createMarkerDL(file12,line12,deadlockMsg);
-		}
-		IFile file21 = l21.getFile();
-		if(file21 == null){
-			marker3 = getFileFromSigDL(fullPath,sig21,traceMsg.get(2), line21, deadlockMsg);
-		}else{
-			marker3 = createMarkerDL(file21,line21,deadlockMsg);
-		}
-		IFile file22 = l22.getFile();
-		if(file22 == null){
-			marker4 = getFileFromSigDL(fullPath,sig22,traceMsg.get(3), line22, deadlockMsg);
-		}else{
-			marker4 = createMarkerDL(file22,line22,deadlockMsg);
+		//a marker on both locks of each pair, found along the trace of its thread
+		HashSet<IMarker> newMarkers = new HashSet<>();
+		for (int i = 0; i < pairs.size(); i++) {
+			newMarkers.add(createMarkerDL(fullPath, pairs.get(i).lock1, traceMsg.get(i), deadlockMsg));
+			newMarkers.add(createMarkerDL(fullPath, pairs.get(i).lock2, traceMsg.get(i), deadlockMsg));
 		}
-
 		//store bug -> markers
-		HashSet<IMarker> newMarkers = new HashSet<>();
-		newMarkers.add(marker1);
-		newMarkers.add(marker2);
-		newMarkers.add(marker3);
-		newMarkers.add(marker4);
 		bug_marker_map.put(deadlockMsg, newMarkers);
 	}
 
+	private IMarker createMarkerDL(IPath fullPath, DLockNode lock, LinkedList<String> trace, String deadlockMsg) throws CoreException {
+		IFile file = lock.getFile();
+		if(file == null){
+			return getFileFromSigDL(fullPath, lock.getInstSig(), trace, lock.getLine(), deadlockMsg);
+		}
+		return createMarkerDL(file, lock.getLine(), deadlockMsg);
+	}
+
 	private void showRace(IPath fullPath, TIDERace race) throws CoreException {
 		String sig = race.sig;
 		MemNode rnode = race.node1;
@@ -335,37 +304,20 @@ public class TIDECGModel extends WalaProjectCGModel {
 	}
 
 	private ArrayList<LinkedList<String>> obtainTraceOfDeadlock(TIDEDeadlock bug) {
-		DLockNode l11 = bug.lp1.lock1;//1
-		DLockNode l12 = bug.lp1.lock2;
-		DLockNode l21 = bug.lp2.lock1;//1
-		DLockNode l22 = bug.lp2.lock2;
-		int tid1 = bug.tid1;
-		int tid2 = bug.tid2;
+		List<DLPair> pairs = bug.getPairs();
+		List<Integer> tids = bug.getTids();
 		ArrayList<LinkedList<String>> traces = new ArrayList<>();
-		LinkedList<String> trace1 = obtainTraceOfINode(tid1, l11, bug, 1);
-		trace1.add("   =>");
-//		trace1.add(l12.toString());
-		//writeDownMyInfo(trace1, l12, bug);
-		String sub12 = l12.toString();
-		IFile file12 = l12.getFile();
-		int line12 = l12.getLine();
-		trace1.addLast(sub12);
-		bug.addEventIFileToMap(sub12, file12);
-		bug.addEventLineToMap(sub12, line12);
-
-		LinkedList<String> trace2 = obtainTraceOfINode(tid2, l21, bug, 2);
-		trace2.add("   =>");
-//		trace2.add(l22.toString());
-		//writeDownMyInfo(trace2, l22, bug);
-		String sub22 = l22.toString();
-		IFile file22 = l22.getFile();
-		int line22 = l22.getLine();
-		trace2.addLast(sub22);
-		bug.addEventIFileToMap(sub22, file22);
-		bug.addEventLineToMap(sub22, line22);
-
-		traces.add(trace1);
-		traces.add(trace2);
+		for (int i = 0; i < pairs.size(); i++) {
+			//the trace to the outer lock, then the inner one
+			LinkedList<String> trace = obtainTraceOfINode(tids.get(i), pairs.get(i).lock1, bug, i + 1);
+			trace.add("   =>");
+			DLockNode inner = pairs.get(i).lock2;
+			String sub = inner.toString();
+			trace.addLast(sub);
+			bug.addEventIFileToMap(sub, inner.getFile());
+			bug.addEventLineToMap(sub, inner.getLine());
+			traces.add(trace);
+		}
 		return traces;
 	}
 
@@ -377,7 +329,7 @@ public class TIDECGModel extends WalaProjectCGModel {
 		if(DEBUG){
 			engine = Test.engine;
 		}else{
-			engine = TIDECGModel.bugEngine;
+			engine = bugEngine;
 		}
 		SHBGraph shb = engine.shb;
 		writeDownMyInfo(trace, rw1, bug);
@@ -618,7 +570,7 @@ public class TIDECGModel extends WalaProjectCGModel {
 		return engine.getClassHierarchy();
 	}
 
-	public CGNode getOldCGNode(com.ibm.wala.classLoader.IMethod m_old){
+	public CGNode getOldCGNode(IMethod m_old){
 		CGNode node = null;
 		AstCallGraph cg = (AstCallGraph)callGraph;
 		try {
@@ -628,23 +580,18 @@ public class TIDECGModel extends WalaProjectCGModel {
 		return node;
 	}
 
-	public CGNode updateCallGraph(com.ibm.wala.classLoader.IMethod m_old, com.ibm.wala.classLoader.IMethod m, IR ir) {
+	public CGNode updateCallGraph(IMethod m_old, IMethod m, IR ir) {
 		CGNode node = null;
 		try{
 			AstCallGraph cg = (AstCallGraph)callGraph;
 			CGNode oldNode = cg.findOrCreateNode(m_old, Everywhere.EVERYWHERE);
 			if(oldNode instanceof AstCGNode){
-				AstCGNode astnode = (AstCGNode) oldNode;
-				astnode.updateMethod(m, ir);
-				//update call graph key
-				cg.updateNode(m_old, m, Everywhere.EVERYWHERE, astnode);
-				//update call site?
-				astnode.clearAllTargets();//clear old targets
+				replaceMethod((AstCGNode) oldNode, m_old, m, ir);
 				if(engine.builder_echo!=null &&
 						engine.builder_echo instanceof SSAPropagationCallGraphBuilder){
 					SSAPropagationCallGraphBuilder builder = (SSAPropagationCallGraphBuilder) engine.builder_echo;
 					builder.system.setUpdateChange(true);
-					builder.addConstraintsFromChangedNode(astnode, null);
+					builder.addConstraintsFromChangedNode(oldNode, null);
 					PropagationSystem system = builder.system;
 					do{
 						system.solve(null);
@@ -661,63 +608,83 @@ public class TIDECGModel extends WalaProjectCGModel {
 		return node;
 	}
 
-
+	private void replaceMethod(AstCGNode astnode, IMethod m_old, IMethod m, IR ir) {
+		AstCallGraph cg = (AstCallGraph)callGraph;
+		astnode.updateMethod(m, ir);
+		//update call graph key
+		cg.updateNode(m_old, m, Everywhere.EVERYWHERE, astnode);
+		//update call site?
+		astnode.clearAllTargets();//clear old targets
+	}
 
 	public void updatePointerAnalysis(CGNode node, IR ir_old, IR ir) {
-    	//compute diff
-    	SSAInstruction[] insts_old = ir_old.getInstructions();
-    	SSAInstruction[] insts = ir.getInstructions();
-
-    	HashMap<String,SSAInstruction> mapOld = new HashMap<String,SSAInstruction>();
-    	HashMap<String,SSAInstruction> mapNew = new HashMap<String,SSAInstruction>();
-
-        ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg_old = ir_old.getControlFlowGraph();
-        ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg_new = ir.getControlFlowGraph();
-
-    	for(int i=0;i<insts_old.length;i++){
-    		SSAInstruction inst = insts_old[i];
-    		if(inst!=null){
-    			String str = inst.toString();
-    			//TODO: JEFF  -- program counter may change, call graph
-//    			if(str.indexOf('@')>0)
-//    				str = str.substring(0,str.indexOf('@')-1);
-    			mapOld.put(str, inst);
-    		}
-    	}
-    	for(int i=0;i<insts.length;i++) {
-    		SSAInstruction inst = insts[i];
-    		if(inst!=null){
-    			String str = inst.toString();
-    			//TODO: JEFF
-//    			if(str.indexOf('@')>0)
-//    				str = str.substring(0,str.indexOf('@')-1);
-    			mapNew.put(str, inst);
-    		}
-    	}
-
-    	HashMap<SSAInstruction,ISSABasicBlock> deleted = new HashMap<SSAInstruction,ISSABasicBlock>();
-    	HashMap<SSAInstruction,ISSABasicBlock> added = new HashMap<SSAInstruction,ISSABasicBlock>();
-
-    	for(String s:mapOld.keySet()){
-    		if(!mapNew.keySet().contains(s)){//removed from new
-    			SSAInstruction inst = mapOld.get(s);
-    			if(inst instanceof SSAFieldAccessInstruction
-    					|| inst instanceof SSAAbstractInvokeInstruction
-    					|| inst instanceof SSAArrayReferenceInstruction){
-        			ISSABasicBlock bb = cfg_old.getBlockForInstruction(inst.iindex);
-        			deleted.put(inst,bb);
-    			}
-    		}
-    	}
-    	for(String s:mapNew.keySet()){
-    		if(!mapOld.keySet().contains(s)){//removed from new
-    			SSAInstruction inst = mapNew.get(s);
-    			ISSABasicBlock bb = cfg_new.getBlockForInstruction(inst.iindex);
-    			added.put(inst,bb);
-    		}
-    	}
-
-		engine.updatePointerAnalaysis(node, added,deleted,ir_old, ir);
+		//compute diff
+		MethodChange change = new MethodChange(node, ir_old, ir);
+		engine.updatePointerAnalaysis(node, change.getAdded(), change.getDeleted(), ir_old, ir);
+	}
+
+	/**
+	 * a changed method of a batch update
+	 */
+	public static class MethodUpdate {
+		public final IMethod oldMethod;
+		public final IMethod newMethod;
+		public final IR oldIR;
+		public final IR newIR;
+
+		public MethodUpdate(IMethod oldMethod, IMethod newMethod, IR oldIR, IR newIR) {
+			this.oldMethod = oldMethod;
+			this.newMethod = newMethod;
+			this.oldIR = oldIR;
+			this.newIR = newIR;
+		}
+	}
+
+	/**
+	 * updates the call graph and the pointer analysis for many changed methods
+	 * at once, e.g. after a 'save all' or a checkout, instead of one
+	 * updatePointerAnalysis/updateCallGraph round per method: see
+	 * updatePointerAnalysis(SSAPropagationCallGraphBuilder, Collection, Runnable),
+	 * then the bugs are detected once. a canceled update is thrown, and no
+	 * bugs are detected on the partly updated analysis.
+	 */
+	public HashSet<ITIDEBug> updateMethods(Collection<MethodUpdate> updates) throws CancelException {
+		if(!(engine.builder_echo instanceof SSAPropagationCallGraphBuilder))
+			return null;
+		SSAPropagationCallGraphBuilder builder = (SSAPropagationCallGraphBuilder) engine.builder_echo;
+		AstCallGraph cg = (AstCallGraph)callGraph;
+		ArrayList<MethodChange> changes = new ArrayList<>();
+		ArrayList<MethodUpdate> changed = new ArrayList<>();
+		for (MethodUpdate update : updates) {
+			CGNode node = cg.findOrCreateNode(update.oldMethod, Everywhere.EVERYWHERE);
+			if(node instanceof AstCGNode){
+				changes.add(new MethodChange(node, update.oldIR, update.newIR));
+				changed.add(update);
+			}
+		}
+		updatePointerAnalysis(builder, changes, () -> {
+			for (int i = 0; i < changes.size(); i++) {
+				MethodUpdate update = changed.get(i);
+				replaceMethod((AstCGNode) changes.get(i).getNode(), update.oldMethod, update.newMethod, update.newIR);
+			}
+		});
+		if(bugEngine == null)
+			return detectBug();
+		return bugEngine.detectBothBugs(null);
+	}
+
+	/**
+	 * the pointer analysis part of updateMethods: deletes the constraints of
+	 * the deleted instructions of all the changes in one pass on the old irs,
+	 * runs replaceMethods to give the nodes their new irs, then adds the
+	 * constraints of the nodes back and solves to a fixed point, deriving again
+	 * what the deletion removed but still flows in.
+	 */
+	public static void updatePointerAnalysis(SSAPropagationCallGraphBuilder builder, Collection<MethodChange> changes,
+			Runnable replaceMethods) throws CancelException {
+		builder.deleteConstraints(changes);
+		replaceMethods.run();
+		builder.addConstraints(changes);
 	}
 
 	public void clearChanges() {
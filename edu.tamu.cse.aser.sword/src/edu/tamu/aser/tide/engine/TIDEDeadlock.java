@@ -1,12 +1,17 @@
 package edu.tamu.aser.tide.engine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+
 import edu.tamu.aser.tide.nodes.DLPair;
 
 public class TIDEDeadlock implements ITIDEBug {
@@ -32,10 +37,21 @@ public class TIDEDeadlock implements ITIDEBug {
 		this.tid2 = tid2;
 	}
 
-	public HashSet<String> getInvolvedSig(){
-		HashSet<String> result = new HashSet<>();
-		HashSet<String> sig1 = lp1.lock1.getLockSig();
-		HashSet<String> sig2 = lp1.lock2.getLockSig();
+	/**
+	 * the lock pairs of the deadlock, each held by the thread of getTids at the same index
+	 */
+	public List<DLPair> getPairs(){
+		return Arrays.asList(lp1, lp2);
+	}
+
+	public List<Integer> getTids(){
+		return Arrays.asList(tid1, tid2);
+	}
+
+	public IntSet getInvolvedSig(){
+		MutableIntSet result = IntSetUtil.make();
+		IntSet sig1 = lp1.lock1.getLockSig();
+		IntSet sig2 = lp1.lock2.getLockSig();
 		result.addAll(sig1);
 		result.addAll(sig2);
 		return result;
@@ -65,7 +81,7 @@ public class TIDEDeadlock implements ITIDEBug {
 
 	@Override
 	public boolean equals(Object obj) {
-		if(obj instanceof TIDEDeadlock){
+		if(obj instanceof TIDEDeadlock && obj.getClass() == getClass()){
 			TIDEDeadlock that = (TIDEDeadlock) obj;
 			if((this.lp1.equals(that.lp1) && this.lp2.equals(that.lp2))
 					|| (this.lp1.equals(that.lp2) && this.lp2.equals(that.lp1))){
@@ -74,4 +90,10 @@ public class TIDEDeadlock implements ITIDEBug {
 		}
 		return false;
 	}
+
+	@Override
+	public int hashCode() {
+		//either order of the pairs
+		return lp1.hashCode() + lp2.hashCode();
+	}
 }
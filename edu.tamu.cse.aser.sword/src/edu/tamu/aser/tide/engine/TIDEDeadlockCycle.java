@@ -0,0 +1,69 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+import edu.tamu.aser.tide.nodes.DLPair;
+
+/**
+ * a deadlock of more than two threads: the i-th thread holds the outer lock
+ * of its pair and waits for the inner one, which the next thread holds.
+ * lp1/tid1 and lp2/tid2 are the first two pairs of the cycle; getPairs and
+ * getTids give all of them.
+ */
+public class TIDEDeadlockCycle extends TIDEDeadlock {
+
+	public final ArrayList<Integer> tids;
+	public final ArrayList<DLPair> pairs;
+
+	public TIDEDeadlockCycle(ArrayList<Integer> tids, ArrayList<DLPair> pairs) {
+		super(tids.get(0), pairs.get(0), tids.get(1), pairs.get(1));
+		this.tids = tids;
+		this.pairs = pairs;
+	}
+
+	@Override
+	public List<DLPair> getPairs(){
+		return pairs;
+	}
+
+	@Override
+	public List<Integer> getTids(){
+		return tids;
+	}
+
+	@Override
+	public IntSet getInvolvedSig(){
+		MutableIntSet result = IntSetUtil.make();
+		for (DLPair pair : pairs) {
+			result.addAll(pair.lock1.getLockSig());
+			result.addAll(pair.lock2.getLockSig());
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(obj instanceof TIDEDeadlockCycle){
+			//the same pairs, from any of them
+			TIDEDeadlockCycle that = (TIDEDeadlockCycle) obj;
+			return this.pairs.size() == that.pairs.size()
+					&& this.pairs.containsAll(that.pairs) && that.pairs.containsAll(this.pairs);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		//any rotation of the pairs
+		int h = 0;
+		for (DLPair pair : pairs) {
+			h += pair.hashCode();
+		}
+		return h;
+	}
+}
@@ -9,9 +9,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IFile;
 import org.w3c.dom.css.ElementCSSInlineStyle;
@@ -35,13 +35,10 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationGraph;
 import com.ibm.wala.ssa.IR;
-import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.ssa.SSAArrayLoadInstruction;
 import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
 import com.ibm.wala.ssa.SSAArrayStoreInstruction;
-import com.ibm.wala.ssa.SSACFG;
-import com.ibm.wala.ssa.SSACFG.BasicBlock;
 import com.ibm.wala.ssa.SSACheckCastInstruction;
 import com.ibm.wala.ssa.SSAFieldAccessInstruction;
 import com.ibm.wala.ssa.SSAGetInstruction;
@@ -53,16 +50,17 @@ import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.util.collections.HashSetFactory;
-import com.ibm.wala.util.graph.dominators.NumberedDominators;
+import com.ibm.wala.util.collections.SimpleVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 
 import akka.actor.ActorRef;
-import edu.tamu.aser.tide.akkasys.BugHub;
 import edu.tamu.aser.tide.akkasys.DistributeDatarace;
 import edu.tamu.aser.tide.akkasys.DistributeDeadlock;
-import edu.tamu.aser.tide.akkasys.FindSharedVariable;
+import edu.tamu.aser.tide.akkasys.HubPhase;
 import edu.tamu.aser.tide.akkasys.RemoveLocalVar;
 import edu.tamu.aser.tide.nodes.DLPair;
 import edu.tamu.aser.tide.nodes.DLockNode;
@@ -75,21 +73,24 @@ import edu.tamu.aser.tide.nodes.ReadNode;
 import edu.tamu.aser.tide.nodes.StartNode;
 import edu.tamu.aser.tide.nodes.SyncNode;
 import edu.tamu.aser.tide.nodes.WriteNode;
+import edu.tamu.aser.tide.shb.HBIndex;
 import edu.tamu.aser.tide.shb.SHBGraph;
 import edu.tamu.aser.tide.shb.Trace;
 
 public class TIDEEngine{
 
-	//count the number of sigs from different traces: only for shared fields
-	private HashMap<String, HashMap<Integer, Integer>> rsig_tid_num_map = new HashMap<>();
-	private HashMap<String, HashMap<Integer, Integer>> wsig_tid_num_map = new HashMap<>();
+	//interned memory locations and locks: sigs below are ids in this table
+	public final LocationTable locations;
+	private final int arrayBase;
+	private final int lockBase;
 	//record shared sigs and nodes
-	public HashMap<String, HashSet<ReadNode>> sigReadNodes = new HashMap<String, HashSet<ReadNode>>();
-	public HashMap<String, HashSet<WriteNode>> sigWriteNodes = new HashMap<String, HashSet<WriteNode>>();
+	public SimpleVector<HashSet<ReadNode>> sigReadNodes = new SimpleVector<HashSet<ReadNode>>();
+	public SimpleVector<HashSet<WriteNode>> sigWriteNodes = new SimpleVector<HashSet<WriteNode>>();
 
-	private LinkedList<CGNode> alreadyProcessedNodes = new LinkedList<CGNode>();
-	private LinkedList<CGNode> twiceProcessedNodes = new LinkedList<CGNode>();
-	private LinkedList<CGNode> thirdProcessedNodes = new LinkedList<CGNode>();
+	//graph node id -> visits: 1 = already processed, 2 = also processed twice as a thread
+	private byte[] processedNodes = new byte[0];
+	//graph node id of the real node of an echo -> processed
+	private boolean[] echoProcessedNodes = new boolean[0];
 	private HashSet<CGNode> scheduledAstNodes = new HashSet<CGNode>();
 
 	private LinkedList<CGNode> mainEntryNodes = new LinkedList<CGNode>();
@@ -110,7 +111,8 @@ public class TIDEEngine{
 	//node <-> since it's in a loop and we create an astnode
 	public HashMap<CGNode, AstCGNodeEcho> n_loopn_map = new HashMap<>();
 
-	private static HashMap<CGNode,Collection<Loop>> nodeLoops = new HashMap<CGNode,Collection<Loop>>();
+	//cgnode -> loops of its ir
+	private HashMap<CGNode, MethodLoops> nodeLoops = new HashMap<CGNode, MethodLoops>();
 
 	public CallGraph callGraph;
 	public PointerAnalysis<InstanceKey> pointerAnalysis;
@@ -120,7 +122,7 @@ public class TIDEEngine{
 	public long timeForDetectingRaces = 0;
 	public long timeForDetectingDL = 0;
 
-	public HashSet<String> sharedFields = new HashSet<String>();
+	public MutableIntSet sharedFields = new BitVectorIntSet();
 	public HashSet<ITIDEBug> bugs = new HashSet<ITIDEBug>();
 	public HashSet<ITIDEBug> removedbugs = new HashSet<ITIDEBug>();
 	public HashSet<ITIDEBug> addedbugs = new HashSet<ITIDEBug>();
@@ -131,14 +133,32 @@ public class TIDEEngine{
 	//akka system
 	public ActorRef bughub;
 	public SHBGraph shb;
+	//happens-before queries of the bug workers
+	public HBIndex hbIndex;
+	//locksets of the nodes checked by the bug workers
+	public LocksetCache locksets;
+	//nested lock pairs on cycles, for the deadlock checkers
+	public LockOrderGraph lockOrder;
+	//pairs pruned and checked by the race checkers
+	public final RaceCheckStats raceStats = new RaceCheckStats();
 	public int curTID;
 	public HashMap<CGNode, Integer> astCGNode_ntid_map = new HashMap<>();
 
 	public boolean useMayAlias = true;//false => lockObject.size == 1;
+	public boolean parallelMethodFacts = true;//the method facts are computed in parallel before the traversal; false => compute them during the traversal
+	public boolean parallelThreads = true;//the queued threads are traversed in parallel and merged in queue order, see speculate; false => one by one
+	public int mergedThreads;//threads whose parallel traversal was merged, in the last detection
+	//cgnode -> its catch blocks and source lines, for the current detection
+	private final ConcurrentHashMap<CGNode, MethodFacts> methodFacts;
+
+	//only set in the copies that traverse one thread in parallel (see speculate): the engine they are merged into,
+	//and the nodes they visited
+	private TIDEEngine speculation;
+	private ArrayList<CGNode> visitedNodes;
 
 	//hard write
-	private static Set<String> consideredJDKCollectionClass = HashSetFactory.make();
-	public static Set<Object> traversedClass = HashSetFactory.make();
+	private final Set<String> consideredJDKCollectionClass = HashSetFactory.make();
+	public Set<Object> traversedClass = HashSetFactory.make();
 	//currently considered jdk class
 	private static String ARRAYLIST = "<Primordial,Ljava/util/ArrayList>";
 	private static String LINKEDLIST = "<Primordial,Ljava/util/LinkedList>";
@@ -156,6 +176,10 @@ public class TIDEEngine{
 		this.maxGraphNodeID = callGraph.getNumberOfNodes() + 1000;
 		this.propagationGraph = flowgraph;
 		this.bughub = bughub;
+		this.locations = new LocationTable();
+		this.arrayBase = locations.getBase(LocationTable.ARRAY, "array");
+		this.lockBase = locations.getBase(LocationTable.LOCK, "lock");
+		this.methodFacts = new ConcurrentHashMap<>();
 
 		consideredJDKCollectionClass.add(ARRAYLIST);
 		consideredJDKCollectionClass.add(LINKEDLIST);
@@ -180,25 +204,53 @@ public class TIDEEngine{
 	}
 
 
+	/**
+	 * a copy that traverses one thread of the engine on its own shb graph and lock records, sharing the
+	 * location table and the method facts
+	 */
+	private TIDEEngine(TIDEEngine engine){
+		this.callGraph = engine.callGraph;
+		this.pointerAnalysis = engine.pointerAnalysis;
+		this.maxGraphNodeID = engine.maxGraphNodeID;
+		this.propagationGraph = engine.propagationGraph;
+		this.bughub = engine.bughub;
+		this.locations = engine.locations;
+		this.arrayBase = engine.arrayBase;
+		this.lockBase = engine.lockBase;
+		this.methodFacts = engine.methodFacts;
+		this.mainEntryNodes = engine.mainEntryNodes;
+		this.threadSigNodeMap = engine.threadSigNodeMap;
+		this.processedNodes = new byte[engine.processedNodes.length];
+		this.shb = new SHBGraph();
+		this.speculation = engine;
+		this.visitedNodes = new ArrayList<>();
+	}
+
+
 	public HashSet<ITIDEBug> detectBothBugs(PrintStream ps) {
 		long start = System.currentTimeMillis();
 
 		if(mainEntryNodes.size() >1 )
 			System.err.println("MORE THAN 1 MAIN ENTRY!");
 
+		raceStats.reset();
+		mergedThreads = 0;
+		//the irs may have changed since the last detection
+		methodFacts.clear();
+		if(parallelMethodFacts){
+			computeMethodFacts();
+		}
+
 		for(CGNode main: mainEntryNodes){
-			twiceProcessedNodes.clear();
-			alreadyProcessedNodes.clear();//a new tid
-			thirdProcessedNodes.clear();
+			processedNodes = new byte[maxGraphNodeID + 1];//a new tid
+			echoProcessedNodes = new boolean[maxGraphNodeID + 1];
 			mapOfStartNode.clear();
 			mapOfJoinNode.clear();
 			stidpool.clear();
 			threadDLLockPairs.clear();
-			rsig_tid_num_map.clear();
-			wsig_tid_num_map.clear();
 			sharedFields.clear();
-			sigReadNodes.clear();
-			sigWriteNodes.clear();
+			sigReadNodes = new SimpleVector<>();
+			sigWriteNodes = new SimpleVector<>();
 			syncMethods.clear();
 			bugs.clear();
 			addedbugs.clear();
@@ -246,26 +298,7 @@ public class TIDEEngine{
 			shb.addEdge(mainstart, main);
 
 			while(!threadNodes.isEmpty()){
-				CGNode n = threadNodes.removeFirst();
-				curTID = n.getGraphNodeId();
-
-				if(n instanceof AstCGNodeEcho){
-					CGNode real = ((AstCGNodeEcho)n).getCGNode();
-					if(thirdProcessedNodes.contains(real))//already processed once
-						continue;
-					else
-						thirdProcessedNodes.add(real);
-				}else{
-					//only twice at most for a node
-					if(alreadyProcessedNodes.contains(n))
-						if (twiceProcessedNodes.contains(n))
-							continue;
-						else
-							twiceProcessedNodes.add(n);
-				}
-
-				hasSyncBetween = false;
-				traverseNode(n);//path insensitive traversal
+				traverseQueued();
 			}
 
 			//extended happens-before relation
@@ -287,57 +320,38 @@ public class TIDEEngine{
 				System.out.println();
 			}
 
+			hbIndex = new HBIndex(shb, callGraph, mapOfStartNode, mapOfJoinNode);
+			locksets = new LocksetCache(shb);
+
 			//race detection
 			//organize variable read/write map
 			System.out.println("-----race detection start");
-			organizeRWMaps();
+			ThreadAccessBits rwThreads = organizeRWMaps();
 			System.out.println("-----find shared variables");
 			//1. find shared variables
-			if(wsig_tid_num_map.size() >= 10){
-				//use hub to speed up
-				bughub.tell(new FindSharedVariable(rsig_tid_num_map, wsig_tid_num_map), bughub);
-				awaitBugHubComplete();
-			}else{
-				//seq
-				for(String sig: wsig_tid_num_map.keySet()){
-					HashMap<Integer, Integer> writeTids = wsig_tid_num_map.get(sig);
-					if(writeTids.size()>1){
-						sharedFields.add(sig);
-					}else{
-						if(rsig_tid_num_map.containsKey(sig)){
-							HashMap<Integer, Integer> readTids = rsig_tid_num_map.get(sig);
-							if(readTids!=null){
-								if(readTids.size() + writeTids.size() > 1){
-									sharedFields.add(sig);
-								}
-							}
-						}
-					}
-				}
-			}
+			rwThreads.collectShared(sharedFields);
 
 			//2. remove local nodes
 			System.out.println("-----remove local nodes");
-			bughub.tell(new RemoveLocalVar(), bughub);
-			awaitBugHubComplete();
+			runBugHubPhase(new RemoveLocalVar(this));
 
 			//3. performance race detection with Fork-Join
 			System.out.println("-----perform race detection with Fork-Join");
-			bughub.tell(new DistributeDatarace(), bughub);
-			awaitBugHubComplete();
+			runBugHubPhase(new DistributeDatarace(this));
 
 			timeForDetectingRaces = timeForDetectingRaces + (System.currentTimeMillis() - start);
 			start = System.currentTimeMillis();
 
 			//detect deadlocks
 			System.out.println("-----deadlocks detection start");
-			bughub.tell(new DistributeDeadlock(), bughub);
-			awaitBugHubComplete();
+			lockOrder = new LockOrderGraph(threadDLLockPairs);
+			runBugHubPhase(new DistributeDeadlock(this));
 
 			timeForDetectingDL = timeForDetectingDL + (System.currentTimeMillis() -start);
 		}
 
 		System.err.println("Total Race Detection Time: " + timeForDetectingRaces);
+		System.err.println("Race Checks: " + raceStats);
 		System.err.println("Total Deadlock Detection Time: " + timeForDetectingDL);
 
 		bugs.removeAll(removedbugs);
@@ -346,75 +360,18 @@ public class TIDEEngine{
 
 
 	/**
-	 * collect the rwnode sig from all trace, and count the number : //parallel?
+	 * collect the reader/writer threads of each rwnode sig from all traces, in parallel
 	 */
-	private void organizeRWMaps() {
-		ArrayList<Trace> alltraces = shb.getAllTraces();
-		for (Trace trace : alltraces) {
-			singleOrganizeRWMaps(trace);
-		}
+	private ThreadAccessBits organizeRWMaps() {
+		return ThreadAccessBits.make(shb.getAllTraces(), locations.size());
 	}
 
 	/**
-	 * sig-tid-num map
-	 * @param trace
+	 * send the phase to the bughub and block until its last result is back
 	 */
-	private void singleOrganizeRWMaps(Trace trace) {
-		HashMap<String, ArrayList<ReadNode>> rsigMapping = trace.getRsigMapping();
-		HashMap<String, ArrayList<WriteNode>> wsigMapping = trace.getWsigMapping();
-		ArrayList<Integer> tids = trace.getTraceTids();
-		//read
-		for (String rsig : rsigMapping.keySet()) {
-			HashMap<Integer, Integer> tidnummap = rsig_tid_num_map.get(rsig);
-			if(tidnummap == null){
-				tidnummap = new HashMap<>();
-				for (Integer tid : tids) {
-					tidnummap.put(tid, 1);
-				}
-				rsig_tid_num_map.put(rsig, tidnummap);
-			}else{
-				for (Integer tid : tids) {
-					if(tidnummap.keySet().contains(tid)){
-						int num = tidnummap.get(tid);
-						tidnummap.replace(tid, ++num);
-					}else{
-						tidnummap.put(tid, 1);
-					}
-				}
-			}
-		}
-		//write
-		for (String wsig : wsigMapping.keySet()) {
-			HashMap<Integer, Integer> tidnummap = wsig_tid_num_map.get(wsig);
-			if(tidnummap == null){
-				tidnummap = new HashMap<>();
-				for (Integer tid : tids) {
-					tidnummap.put(tid, 1);
-				}
-				wsig_tid_num_map.put(wsig, tidnummap);
-			}else{
-				for (Integer tid : tids) {
-					if(tidnummap.keySet().contains(tid)){
-						int num = tidnummap.get(tid);
-						tidnummap.replace(tid, ++num);
-					}else{
-						tidnummap.put(tid, 1);
-					}
-				}
-			}
-		}
-	}
-
-	private void awaitBugHubComplete() {
-		boolean goon = true;
-		while(goon){
-			try {
-				Thread.sleep(10);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			goon = BugHub.askstatus();
-		}
+	private void runBugHubPhase(HubPhase phase) {
+		bughub.tell(phase, bughub);
+		phase.getCompletion().join();
 	}
 
 
@@ -463,6 +420,205 @@ public class TIDEEngine{
 	}
 
 
+	/**
+	 * build the irs and the method facts of all the methods the traversal may reach on the fork/join pool
+	 */
+	private void computeMethodFacts() {
+		ArrayList<CGNode> nodes = new ArrayList<>();
+		for (CGNode n : callGraph) {
+			if(mainEntryNodes.contains(n) || include(n.getMethod().getDeclaringClass())){
+				nodes.add(n);
+			}
+		}
+		nodes.parallelStream().forEach(n -> {
+			IR ir = n.getIR();
+			if(ir != null){
+				methodFacts.put(n, new MethodFacts(n, ir));
+			}
+		});
+	}
+
+	/**
+	 * traverse the threads queued so far, in queue order; the threads they start are queued behind them.
+	 * the threads are traversed in parallel by copies of the engine and merged in queue order. a thread
+	 * whose copy depends on the threads merged before it is traversed again, and the threads behind it
+	 * are copied again, while there were fewer copies than twice the threads.
+	 */
+	private void traverseQueued() {
+		int queued = threadNodes.size();
+		int copies = 2 * queued;
+		while(queued > 0){
+			List<TIDEEngine> speculations = speculate(threadNodes.subList(0, queued), copies >= queued);
+			copies -= queued;
+			for (TIDEEngine copy : speculations) {
+				CGNode n = threadNodes.removeFirst();
+				queued--;
+				curTID = n.getGraphNodeId();
+
+				if(n instanceof AstCGNodeEcho){
+					CGNode real = ((AstCGNodeEcho)n).getCGNode();
+					int id = real.getGraphNodeId();
+					if(id >= echoProcessedNodes.length)
+						echoProcessedNodes = Arrays.copyOf(echoProcessedNodes, Math.max(id + 1, 2 * echoProcessedNodes.length));
+					if(echoProcessedNodes[id])//already processed once
+						continue;
+					else
+						echoProcessedNodes[id] = true;
+				}else{
+					//only twice at most for a node
+					int visits = getVisits(n);
+					if(visits >= 1)
+						if (visits >= 2)
+							continue;
+						else
+							setVisits(n, 2);
+				}
+
+				hasSyncBetween = false;
+				if(copy != null && merge(copy))
+					continue;
+				traverseNode(n);//path insensitive traversal
+				if(copy != null)//the copies behind it may depend on it too
+					break;
+			}
+		}
+	}
+
+	/**
+	 * traverse each of the queued threads on a copy of the engine, in parallel. a copy reads the shb graph
+	 * and visits of the engine, which do not change meanwhile, and gives up on a thread that starts or joins
+	 * threads, since the thread pool and the start/join maps depend on the queue order, or that calls into
+	 * methods the engine has traces for or visited: how the traversal continues such a call depends on the
+	 * locks and syncs it passed before (hasSyncBetween), which only the traversal in queue order has.
+	 * @return the copy of each thread in queue order, null for the threads to traverse one by one
+	 */
+	private List<TIDEEngine> speculate(List<CGNode> queued, boolean parallel) {
+		if(!parallel || !parallelThreads || queued.size() < 2){
+			return Arrays.asList(new TIDEEngine[queued.size()]);
+		}
+		return new ArrayList<>(queued).parallelStream().map(n -> {
+			if(shb.getTrace(n) != null || getVisits(n) != 0)//a second visit
+				return null;
+			TIDEEngine copy = new TIDEEngine(this);
+			copy.curTID = n.getGraphNodeId();
+			try{
+				copy.traverseNode(n);
+			}catch(RuntimeException e){//DependentTraversal, or an error the traversal by the merge reports
+				return null;
+			}
+			return copy;
+		}).collect(Collectors.toList());
+	}
+
+	/**
+	 * merge the traversal of the current thread by its copy, unless it depends on the threads merged
+	 * before: a method it traced or a node it visited is traced or visited by now, or the thread holds locks.
+	 * a copy that is merged only traversed methods new to the engine, so it gives the same traces as the
+	 * traversal of the thread in queue order.
+	 * @return false if the thread has to be traversed again
+	 */
+	private boolean merge(TIDEEngine copy) {
+		HashSet<DLockNode> locks = threadLockNodes.get(curTID);
+		if(locks != null && !locks.isEmpty())
+			return false;
+		for (CGNode n : copy.visitedNodes) {
+			if(getVisits(n) != 0)
+				return false;
+		}
+		for (CGNode n : copy.shb.getId2CGNode().values()) {
+			if(shb.getTrace(n) != null)
+				return false;
+		}
+
+		shb.merge(copy.shb);
+		for (CGNode n : copy.visitedNodes) {
+			setVisits(n, copy.getVisits(n));
+		}
+		threadLockNodes.putAll(copy.threadLockNodes);
+		for (Integer tid : copy.threadDLLockPairs.keySet()) {
+			ArrayList<DLPair> dLLockPairs = threadDLLockPairs.get(tid);
+			if(dLLockPairs == null){
+				threadDLLockPairs.put(tid, copy.threadDLLockPairs.get(tid));
+			}else{
+				dLLockPairs.addAll(copy.threadDLLockPairs.get(tid));
+			}
+		}
+		syncMethods.addAll(copy.syncMethods);
+		traversedClass.addAll(copy.traversedClass);
+		mergedThreads++;
+		return true;
+	}
+
+	/**
+	 * the calls the traversal handles as thread starts and joins, or records for them
+	 */
+	private static boolean startsOrJoins(String sig) {
+		return sig.equals("java.lang.Thread.start()V") || sig.equals("java.lang.Thread.join()V")
+				|| sig.equals("java.lang.Thread.<init>(Ljava/lang/Runnable;)V")
+				|| (sig.contains("java.util.concurrent") && (sig.contains(".submit(Ljava/lang/Runnable;)Ljava/util/concurrent/Future")
+						|| sig.contains("execute") || sig.contains("Future.get()Ljava/lang/Object") || sig.contains("shutdown()V")));
+	}
+
+	/**
+	 * the pointer analysis, its heap model and instance key mapping, and the class hierarchy fill some
+	 * caches lazily, e.g. a demand analysis numbers the instance keys as it answers, so the copies
+	 * traversing in parallel query them one at a time
+	 */
+	private OrdinalSet<InstanceKey> pointsTo(PointerKey key) {
+		synchronized (pointerAnalysis) {
+			return pointerAnalysis.getPointsToSet(key);
+		}
+	}
+
+	private PointerKey pointerKeyForLocal(CGNode n, int valueNumber) {
+		synchronized (pointerAnalysis) {
+			return pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, valueNumber);
+		}
+	}
+
+	private IMethod resolveMethod(MethodReference mr) {
+		synchronized (pointerAnalysis) {
+			return callGraph.getClassHierarchy().resolveMethod(mr);
+		}
+	}
+
+	//thrown out of the traversal of a copy that reaches a thread start or join, or a method the engine traversed
+	private static final class DependentTraversal extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		static final DependentTraversal INSTANCE = new DependentTraversal();
+
+		private DependentTraversal() {
+			super("the traversal depends on the thread queue", null, false, false);
+		}
+	}
+
+	private int getVisits(CGNode n) {
+		int id = n.getGraphNodeId();
+		return id < processedNodes.length ? processedNodes[id] : 0;
+	}
+
+	private void setVisits(CGNode n, int visits) {
+		if(speculation != null && getVisits(n) == 0)
+			visitedNodes.add(n);
+		int id = n.getGraphNodeId();
+		if(id >= processedNodes.length){//new echo nodes
+			processedNodes = Arrays.copyOf(processedNodes, Math.max(id + 1, 2 * processedNodes.length));
+		}
+		processedNodes[id] = (byte) visits;
+	}
+
+	private MethodFacts getMethodFacts(CGNode n) {
+		while(n instanceof AstCGNodeEcho){
+			n = ((AstCGNodeEcho) n).getCGNode();
+		}
+		MethodFacts facts = methodFacts.get(n);
+		if(facts == null){
+			facts = new MethodFacts(n, n.getIR());
+			methodFacts.put(n, facts);
+		}
+		return facts;
+	}
+
 	private Trace traverseNode(CGNode n) {
 		Trace curTrace = shb.getTrace(n);
 		
@@ -470,8 +626,12 @@ public class TIDEEngine{
 //		System.out.println(n);
 //		System.out.println(n.getMethod().getDeclaringClass());
 		traversedClass.add(n.getMethod().getDeclaringClass());
+
+		if(speculation != null && curTrace == null
+				&& (speculation.shb.getTrace(n) != null || speculation.getVisits(n) != 0))
+			throw DependentTraversal.INSTANCE;
 		
-		if(alreadyProcessedNodes.contains(n)){
+		if(getVisits(n) >= 1){
 			//allow multiple entries of a method if there exist sync in between
 			if(!hasSyncBetween){
 				if(curTrace == null){
@@ -483,7 +643,8 @@ public class TIDEEngine{
 				hasSyncBetween = false;
 			}
 		}
-		alreadyProcessedNodes.add(n);
+		if(getVisits(n) == 0)
+			setVisits(n, 1);
 
 		//create new trace if not in shbgraph
 		if(curTrace != null){
@@ -505,35 +666,22 @@ public class TIDEEngine{
 		if(n.getIR() == null)
 			return null;
 
-		SSACFG cfg = n.getIR().getControlFlowGraph();
-		HashSet<SSAInstruction> catchinsts = InstInsideCatchBlock(cfg);//won't consider rw,lock related to catch blocks
+		MethodFacts facts = getMethodFacts(n);//won't consider rw,lock related to catch blocks
 		SSAInstruction[] insts = n.getIR().getInstructions();
 
 
 		for(int i=0; i<insts.length; i++){
 			SSAInstruction inst = insts[i];
 			if(inst!=null){
-				if(catchinsts.contains(inst)){
+				if(facts.isInCatchBlock(i)){
 					continue;
 				}
 				IMethod method = n.getMethod();
 				IFile file = null;
 				int sourceLineNum = -1;
-				if(!method.isSynthetic()){
-					try{//get source code line number of this inst
-						if(n.getIR().getMethod() instanceof IBytecodeMethod){
-							int bytecodeindex = ((IBytecodeMethod) n.getIR().getMethod()).getBytecodeIndex(inst.iindex);
-							sourceLineNum = (int)n.getIR().getMethod().getLineNumber(bytecodeindex);
-						}else{
-							SourcePosition position = n.getMethod().getSourcePosition(inst.iindex);
-							sourceLineNum = position.getFirstLine();//.getLastLine();
-							if(position instanceof JdtPosition){
-								file = ((JdtPosition) position).getEclipseFile();
-							}
-						}
-					}catch(Exception e){
-						e.printStackTrace();
-					}
+				if(!method.isSynthetic() && facts.getLine(i) != MethodFacts.NO_LINE){
+					sourceLineNum = facts.getLine(i);
+					file = facts.getFile(i);
 				}
 
 				if(inst instanceof SSAFieldAccessInstruction){
@@ -543,13 +691,15 @@ public class TIDEEngine{
 				}else if (inst instanceof SSAAbstractInvokeInstruction){
 					CallSiteReference csr = ((SSAAbstractInvokeInstruction)inst).getCallSite();
 					MethodReference mr = csr.getDeclaredTarget();
-					IMethod imethod = callGraph.getClassHierarchy().resolveMethod(mr);
+					IMethod imethod = resolveMethod(mr);
 					if(imethod != null){
 						String sig = imethod.getSignature();
+						if(speculation != null && startsOrJoins(sig))
+							throw DependentTraversal.INSTANCE;
 						if(sig.contains("java.util.concurrent") && sig.contains(".submit(Ljava/lang/Runnable;)Ljava/util/concurrent/Future")){
 							//Future runnable
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -570,8 +720,8 @@ public class TIDEEngine{
 						}else if(sig.equals("java.lang.Thread.start()V")
 								|| (sig.contains("java.util.concurrent") && sig.contains("execute"))){
 							//Thread, Executors and ThreadPoolExecutor
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -594,8 +744,8 @@ public class TIDEEngine{
 							hasSyncBetween = true;
 						}else if(sig.contains("java.util.concurrent.Future.get()Ljava/lang/Object")){
 							//Future join
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -621,8 +771,8 @@ public class TIDEEngine{
 						else if(sig.equals("java.lang.Thread.join()V")
 								|| (sig.contains("java.util.concurrent") && sig.contains("shutdown()V"))){
 							//Executors and ThreadPoolExecutor
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances) {
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -638,7 +788,7 @@ public class TIDEEngine{
 												SSAAbstractInvokeInstruction invoke = (SSAAbstractInvokeInstruction) use;
 												CallSiteReference ucsr = ((SSAAbstractInvokeInstruction)invoke).getCallSite();
 												MethodReference umr = ucsr.getDeclaredTarget();
-												IMethod uimethod = callGraph.getClassHierarchy().resolveMethod(umr);
+												IMethod uimethod = resolveMethod(umr);
 												String usig = uimethod.getSignature();
 												if(usig.contains("java.util.concurrent") &&usig.contains("execute")){
 													param = ((SSAAbstractInvokeInstruction)invoke).getUse(1);
@@ -697,7 +847,8 @@ public class TIDEEngine{
 					//omit the pointer-lock map, use classname as lock obj
 					String typeclassname =  n.getMethod().getDeclaringClass().getName().toString();
 					String instSig =typeclassname.substring(1)+":"+sourceLineNum;
-					String lock = node.getMethod().getDeclaringClass().getName().toString();
+					TypeName lockType = node.getMethod().getDeclaringClass().getName();
+					int lock = locations.getLocation(locations.getBase(lockType, lockType.toString()), LocationTable.NO_INSTANCE);
 					//take out records
 					HashSet<DLockNode> currentNodes = threadLockNodes.get(curTID);
 					if(currentNodes==null){
@@ -741,8 +892,8 @@ public class TIDEEngine{
 				}else{
 					//instance
 					int objectValueNumber = inst.getUse(0);
-					PointerKey objectPointer = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, objectValueNumber);
-					OrdinalSet<InstanceKey> lockedObjects = pointerAnalysis.getPointsToSet(objectPointer);
+					PointerKey objectPointer = pointerKeyForLocal(n, objectValueNumber);
+					OrdinalSet<InstanceKey> lockedObjects = pointsTo(objectPointer);
 					DLockNode will = null;
 					if(lockedObjects.size()>0){//must be larger than 0
 						//take out records
@@ -762,8 +913,7 @@ public class TIDEEngine{
 							String instSig = typeclassname.substring(1)+":"+sourceLineNum;
 							will = new DLockNode(curTID,instSig, sourceLineNum, objectPointer, lockedObjects, n, inst, file);
 							for (InstanceKey key : lockedObjects) {
-								String lock = key.getConcreteType().getName()+"."+key.hashCode();
-								will.addLockSig(lock);
+								will.addLockSig(lockSig(key));
 							}
 							// for deadlock
 							for (DLockNode exist : currentNodes) {
@@ -786,8 +936,7 @@ public class TIDEEngine{
 							LockPair lockPair = new LockPair(will, unlock);
 							curTrace.addLockPair(lockPair);
 							for (InstanceKey instanceKey : lockedObjects) {
-								String lock = instanceKey.getConcreteType().getName()+"."+instanceKey.hashCode();
-								unlock.addLockSig(lock);
+								unlock.addLockSig(lockSig(instanceKey));
 							}
 							curTrace.add(unlock);
 							threadLockNodes.get(curTID).remove(will);
@@ -804,8 +953,8 @@ public class TIDEEngine{
 		SSAMonitorInstruction monitorInstruction = ((SSAMonitorInstruction) inst);
 		int lockValueNumber = monitorInstruction.getRef();
 
-		PointerKey lockPointer = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, lockValueNumber);
-		OrdinalSet<InstanceKey> lockObjects = pointerAnalysis.getPointsToSet(lockPointer);
+		PointerKey lockPointer = pointerKeyForLocal(n, lockValueNumber);
+		OrdinalSet<InstanceKey> lockObjects = pointsTo(lockPointer);
 		// for deadlock
 		String typeclassname =  n.getMethod().getDeclaringClass().getName().toString();
 		String instSig =typeclassname.substring(1)+":"+sourceLineNum;
@@ -823,7 +972,7 @@ public class TIDEEngine{
 			threadDLLockPairs.put(curTID, dlpairs);
 		}
 		for (InstanceKey instanceKey : lockObjects) {
-			String lock = instanceKey.getConcreteType().getName()+"."+instanceKey.hashCode();
+			int lock = lockSig(instanceKey);
 			if(((SSAMonitorInstruction) inst).isMonitorEnter()){
 				will = new DLockNode(curTID, instSig, sourceLineNum, lockPointer, lockObjects, n, inst, file);
 				will.addLockSig(lock);
@@ -970,8 +1119,8 @@ public class TIDEEngine{
 		int	arrayRef = arrayRefInst.getArrayRef();
 		String typeclassname =  method.getDeclaringClass().getName().toString();
 		String instSig =typeclassname.substring(1)+":"+sourceLineNum;
-		PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, arrayRef);
-		OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+		PointerKey key = pointerKeyForLocal(n, arrayRef);
+		OrdinalSet<InstanceKey> instances = pointsTo(key);
 		//		String field = handleArrayTypes(arrayRefInst, n, instances); //currently, won't consider
 		String field = "";
 		logArrayAccess(inst, sourceLineNum, instSig, curTrace, n, key, instances, file, field);
@@ -1012,16 +1161,17 @@ public class TIDEEngine{
 		String classname = ((SSAFieldAccessInstruction)inst).getDeclaredField().getDeclaringClass().getName().toString();
 		String fieldname = ((SSAFieldAccessInstruction)inst).getDeclaredField().getName().toString();
 		String sig = classname.substring(1)+"."+fieldname;
+		int fieldBase = locations.getBase(((SSAFieldAccessInstruction)inst).getDeclaredField(), sig);
 		String typeclassname =  method.getDeclaringClass().getName().toString();
 		String instSig =typeclassname.substring(1)+":"+sourceLineNum;
 
 		if(((SSAFieldAccessInstruction)inst).isStatic()){
-			logFieldAccess(inst, sourceLineNum, instSig, curTrace, n, null, null, sig, file);
+			logFieldAccess(inst, sourceLineNum, instSig, curTrace, n, null, null, sig, fieldBase, file);
 		}else{
 			int baseValueNumber = ((SSAFieldAccessInstruction)inst).getUse(0);
-			PointerKey basePointer = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, baseValueNumber);//+
-			OrdinalSet<InstanceKey> baseObjects = pointerAnalysis.getPointsToSet(basePointer);//+
-			logFieldAccess(inst, sourceLineNum, instSig, curTrace, n, basePointer, baseObjects, sig, file);
+			PointerKey basePointer = pointerKeyForLocal(n, baseValueNumber);//+
+			OrdinalSet<InstanceKey> baseObjects = pointsTo(basePointer);//+
+			logFieldAccess(inst, sourceLineNum, instSig, curTrace, n, basePointer, baseObjects, sig, fieldBase, file);
 		}
 	}
 
@@ -1052,43 +1202,32 @@ public class TIDEEngine{
 		//let curtrace edges include new tids
 		boolean includeCurtid = !shb.includeTidForKidTraces(n, curTID);
 		//start traverse inst
-		SSACFG cfg = n.getIR().getControlFlowGraph();
-		HashSet<SSAInstruction> catchinsts = InstInsideCatchBlock(cfg);
+		MethodFacts facts = getMethodFacts(n);
 
 		SSAInstruction[] insts = n.getIR().getInstructions();
 		for(int i=0; i<insts.length; i++){
 			SSAInstruction inst = insts[i];
 			if(inst!=null){
-				if(catchinsts.contains(inst)){
+				if(facts.isInCatchBlock(i)){
 					continue;
 				}
 				int sourceLineNum = 0;
 				IFile file = null;
-				try{//get source code line number of this inst
-					if(n.getIR().getMethod() instanceof IBytecodeMethod){
-						int bytecodeindex = ((IBytecodeMethod) n.getIR().getMethod()).getBytecodeIndex(inst.iindex);
-						sourceLineNum = (int)n.getIR().getMethod().getLineNumber(bytecodeindex);
-					}else{
-						SourcePosition position = n.getMethod().getSourcePosition(inst.iindex);
-						sourceLineNum = position.getFirstLine();//.getLastLine();
-						if(position instanceof JdtPosition){
-							file = ((JdtPosition) position).getEclipseFile();
-						}
-					}
-				}catch(Exception e){
-					e.printStackTrace();
+				if(facts.getLine(i) != MethodFacts.NO_LINE){
+					sourceLineNum = facts.getLine(i);
+					file = facts.getFile(i);
 				}
 
 				if (inst instanceof SSAAbstractInvokeInstruction){
 					CallSiteReference csr = ((SSAAbstractInvokeInstruction)inst).getCallSite();
 					MethodReference mr = csr.getDeclaredTarget();
-					com.ibm.wala.classLoader.IMethod imethod = callGraph.getClassHierarchy().resolveMethod(mr);
+					com.ibm.wala.classLoader.IMethod imethod = resolveMethod(mr);
 					if(imethod!=null){
 						String sig = imethod.getSignature();
 						if(sig.contains("java.util.concurrent") && sig.contains(".submit(Ljava/lang/Runnable;)Ljava/util/concurrent/Future")){
 							//Future runnable
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -1108,8 +1247,8 @@ public class TIDEEngine{
 							hasSyncBetween = true;
 						}else if(sig.equals("java.lang.Thread.start()V")
 								|| (sig.contains("java.util.concurrent") && sig.contains("execute"))){
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -1132,8 +1271,8 @@ public class TIDEEngine{
 							hasSyncBetween = true;
 						} else if(sig.contains("java.util.concurrent.Future.get()Ljava/lang/Object")){
 							//Future join
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -1158,8 +1297,8 @@ public class TIDEEngine{
 						}
 						else if(sig.equals("java.lang.Thread.join()V")
 								|| (sig.contains("java.util.concurrent") && sig.contains("shutdown()V"))){
-							PointerKey key = pointerAnalysis.getHeapModel().getPointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
-							OrdinalSet<InstanceKey> instances = pointerAnalysis.getPointsToSet(key);
+							PointerKey key = pointerKeyForLocal(n, ((SSAAbstractInvokeInstruction) inst).getReceiver());
+							OrdinalSet<InstanceKey> instances = pointsTo(key);
 							for(InstanceKey ins: instances){
 								TypeName name = ins.getConcreteType().getName();
 								CGNode node = threadSigNodeMap.get(name);
@@ -1175,7 +1314,7 @@ public class TIDEEngine{
 												SSAAbstractInvokeInstruction invoke = (SSAAbstractInvokeInstruction) use;
 												CallSiteReference ucsr = ((SSAAbstractInvokeInstruction)invoke).getCallSite();
 												MethodReference umr = ucsr.getDeclaredTarget();
-												IMethod uimethod = callGraph.getClassHierarchy().resolveMethod(umr);
+												IMethod uimethod = resolveMethod(umr);
 												String usig = uimethod.getSignature();
 												if(usig.contains("java.util.concurrent") &&usig.contains("execute")){
 													param = ((SSAAbstractInvokeInstruction)invoke).getUse(1);
@@ -1231,112 +1370,15 @@ public class TIDEEngine{
 
 
 	private boolean isInLoop(CGNode n, SSAInstruction inst) {
-		Collection<Loop> loops = nodeLoops.get(n);
-		if(loops==null){
-			IR ir = n.getIR();
-			if(ir!=null)
-				loops = findLoops(ir);
-			else
-				return false;
-		}
-
-		for(Loop loop: loops){
-			List insts = loop.getLoopInstructions();
-			if(insts.contains(inst))
-				return true;
-		}
-		return false;
-	}
-
-	@SuppressWarnings("rawtypes")
-	private static Collection<Loop> findLoops(IR ir){
-		SSACFG cfg =  ir.getControlFlowGraph();
-		BasicBlock root = cfg.entry();
-		NumberedDominators dominator = new NumberedDominators(cfg,root);
-
-		Iterator<ISSABasicBlock> bbs = cfg.iterator();
-		HashSet domSet = new HashSet();
-		HashMap<BasicBlock, List<BasicBlock>> loops = new HashMap<BasicBlock, List<BasicBlock>>();
-
-		while(bbs.hasNext()){
-			ISSABasicBlock bb = bbs.next();
-			Iterator<ISSABasicBlock> succs = cfg.getSuccNodes(bb);
-			Iterator<ISSABasicBlock> dominators = dominator.dominators(bb);
-
-
-			while(dominators.hasNext())
-				domSet.add(dominators.next());
-
-			ArrayList<ISSABasicBlock> headers=null;
-			while(succs.hasNext()){
-				ISSABasicBlock succ = succs.next();
-
-				if (domSet.contains(succ)){
-					//header succeeds and dominates s, we have a loop
-					if(headers==null)
-						headers = new ArrayList<ISSABasicBlock>();
-					headers.add(succ);
-				}
-			}
-			domSet.clear();
-			if(headers!=null){
-				Iterator<ISSABasicBlock> headersIt = headers.iterator();
-				while (headersIt.hasNext()){
-					BasicBlock header = (BasicBlock) headersIt.next();
-					List<BasicBlock> loopBody = getLoopBodyFor(cfg, header, bb);
-					if (loops.containsKey(header)){
-						// merge bodies
-						List<BasicBlock> lb1 = loops.get(header);
-						loops.put(header, union(lb1, loopBody));
-					}else {
-						loops.put(header, loopBody);
-					}
-				}
-			}
-		}
-
-		Collection<Loop> result = new HashSet<Loop>();
-		for (Map.Entry<BasicBlock,List<BasicBlock>> entry : loops.entrySet()) {
-			result.add(new Loop(entry.getKey(),entry.getValue(),cfg));
-		}
-		return result;
-	}
-
-	private static List<BasicBlock> getLoopBodyFor(SSACFG cfg, BasicBlock header, ISSABasicBlock node){
-		ArrayList<BasicBlock> loopBody = new ArrayList<BasicBlock>();
-		Stack<ISSABasicBlock> stack = new Stack<ISSABasicBlock>();
-
-		loopBody.add(header);
-		stack.push(node);
-
-		while (!stack.isEmpty()){
-			BasicBlock next = (BasicBlock)stack.pop();
-			if (!loopBody.contains(next)){
-				// add next to loop body
-				loopBody.add(0, next);
-				// put all preds of next on stack
-				Iterator<ISSABasicBlock> it = cfg.getPredNodes(next);
-				while (it.hasNext()){
-					stack.push(it.next());
-				}
-			}
+		IR ir = n.getIR();
+		if(ir == null)
+			return false;
+		MethodLoops loops = nodeLoops.get(n);
+		if(loops == null || loops.getIR() != ir){//new or updated ir
+			loops = new MethodLoops(ir);
+			nodeLoops.put(n, loops);
 		}
-
-		assert (node==header && loopBody.size()==1) || loopBody.get(loopBody.size()-2)==node;
-		assert loopBody.get(loopBody.size()-1)==header;
-
-		return loopBody;
-	}
-
-	private static List<BasicBlock> union(List<BasicBlock> l1, List<BasicBlock> l2){
-		Iterator<BasicBlock> it = l2.iterator();
-		while (it.hasNext()){
-			BasicBlock next = it.next();
-			if (!l1.contains(next)){
-				l1.add(next);
-			}
-		}
-		return l1;
+		return loops.contains(inst);
 	}
 
 	/**
@@ -1390,8 +1432,8 @@ public class TIDEEngine{
 		}else if(creation instanceof SSAArrayReferenceInstruction ){
 			SSAArrayReferenceInstruction arrayRefInst = (SSAArrayReferenceInstruction) creation;
 			int def0 = arrayRefInst.getArrayRef();
-			PointerKey key0 = pointerAnalysis.getHeapModel().getPointerKeyForLocal(who, def0);
-			OrdinalSet<InstanceKey> instances0 = pointerAnalysis.getPointsToSet(key0);
+			PointerKey key0 = pointerKeyForLocal(who, def0);
+			OrdinalSet<InstanceKey> instances0 = pointsTo(key0);
 			return handleArrayTypes(arrayRefInst, who, instances0);
 		}else if(creation instanceof SSAAbstractInvokeInstruction){
 			String classname = ((SSAAbstractInvokeInstruction) creation).getCallSite().getDeclaredTarget().getReturnType().getName().getClassName().toString();
@@ -1545,7 +1587,7 @@ public class TIDEEngine{
 		if(inst instanceof SSAArrayLoadInstruction){//read
 			ReadNode readNode = new ReadNode(curTID,instSig,sourceLineNum,key, sig, n, inst, file);
 			for (InstanceKey instanceKey : instances) {
-				String sig2 = sig + instanceKey.hashCode();
+				int sig2 = locations.getLocation(arrayBase, instanceIndex(instanceKey));
 				readNode.addObjSig(sig2);
 				curTrace.addRsigMapping(sig2, readNode);
 			}
@@ -1555,7 +1597,7 @@ public class TIDEEngine{
 		}else {//write
 			WriteNode writeNode = new WriteNode(curTID,instSig,sourceLineNum, key, sig, n, inst, file);
 			for (InstanceKey instanceKey : instances) {
-				String sig2 = sig+ instanceKey.hashCode();
+				int sig2 = locations.getLocation(arrayBase, instanceIndex(instanceKey));
 				writeNode.addObjSig(sig2);
 				curTrace.addWsigMapping(sig2, writeNode);
 			}
@@ -1568,8 +1610,8 @@ public class TIDEEngine{
 
 
 	private void logFieldAccess(SSAInstruction inst, int sourceLineNum, String instSig, Trace curTrace, CGNode n,
-			PointerKey key, OrdinalSet<InstanceKey> instances, String sig, IFile file) {
-		HashSet<String> sigs = new HashSet<>();
+			PointerKey key, OrdinalSet<InstanceKey> instances, String sig, int fieldBase, IFile file) {
+		MutableIntSet sigs = IntSetUtil.make();
 		if(inst instanceof SSAGetInstruction){//read
 			ReadNode readNode;
 			if(key != null){
@@ -1578,27 +1620,26 @@ public class TIDEEngine{
 					if (instanceKey instanceof AbstractTypeInNode) {
 						String rootSig = ((AbstractTypeInNode) instanceKey).getNode().getMethod().getSignature();
 						if (!rootSig.equals("com.ibm.wala.FakeRootClass.fakeRootMethod()V")) {
-							String sig2 = sig+"."+String.valueOf(instanceKey.hashCode());
-							sigs.add(sig2);
+							sigs.add(locations.getLocation(fieldBase, instanceIndex(instanceKey)));
 						}
 					} else {
-						String sig2 = sig+"."+String.valueOf(instanceKey.hashCode());
-						sigs.add(sig2);
+						sigs.add(locations.getLocation(fieldBase, instanceIndex(instanceKey)));
 					}
 				}
 				readNode = new ReadNode(curTID,instSig,sourceLineNum,key, sig, n, inst, file);
 				readNode.setObjSigs(sigs);
-				for (String sig2 : sigs) {
-					curTrace.addRsigMapping(sig2, readNode);
+				for (IntIterator it = sigs.intIterator(); it.hasNext();) {
+					curTrace.addRsigMapping(it.next(), readNode);
 				}
 				//add node to trace
 				curTrace.add(readNode);
 			}else{//static
 				readNode = new ReadNode(curTID,instSig,sourceLineNum,key, sig, n, inst,file);
-				readNode.addObjSig(sig);
+				int sig2 = locations.getLocation(fieldBase, LocationTable.NO_INSTANCE);
+				readNode.addObjSig(sig2);
 				//add node to trace
 				curTrace.add(readNode);
-				curTrace.addRsigMapping(sig, readNode);
+				curTrace.addRsigMapping(sig2, readNode);
 			}
 		}else{//write
 			WriteNode writeNode;
@@ -1611,54 +1652,68 @@ public class TIDEEngine{
 					if (instanceKey instanceof AbstractTypeInNode) {
 						String rootSig = ((AbstractTypeInNode) instanceKey).getNode().getMethod().getSignature();
 						if (!rootSig.equals("com.ibm.wala.FakeRootClass.fakeRootMethod()V")) {
-							String sig2 = sig+"."+String.valueOf(instanceKey.hashCode());
-							sigs.add(sig2);
+							sigs.add(locations.getLocation(fieldBase, instanceIndex(instanceKey)));
 						}
 					} else {
-						String sig2 = sig+"."+String.valueOf(instanceKey.hashCode());
-						sigs.add(sig2);
+						sigs.add(locations.getLocation(fieldBase, instanceIndex(instanceKey)));
 					}
 				}
 				writeNode = new WriteNode(curTID,instSig,sourceLineNum,key, sig, n, inst, file);
 				writeNode.setObjSigs(sigs);
-				for (String sig2 : sigs) {
-					curTrace.addWsigMapping(sig2, writeNode);
+				for (IntIterator it = sigs.intIterator(); it.hasNext();) {
+					curTrace.addWsigMapping(it.next(), writeNode);
 				}
 				//add node to trace
 				curTrace.add(writeNode);
 			}else{//static
 				writeNode = new WriteNode(curTID,instSig,sourceLineNum,key, sig, n, inst, file);
-				writeNode.addObjSig(sig);
+				int sig2 = locations.getLocation(fieldBase, LocationTable.NO_INSTANCE);
+				writeNode.addObjSig(sig2);
 				//add node to trace
 				curTrace.add(writeNode);
-				curTrace.addWsigMapping(sig, writeNode);
+				curTrace.addWsigMapping(sig2, writeNode);
 			}
 		}
 	}
 
 
-	public synchronized void addSharedVars(HashSet<String> sf) {
-		sharedFields.addAll(sf);
+	/**
+	 * index of the instance key in the pointer analysis, part of an interned location
+	 */
+	private int instanceIndex(InstanceKey instanceKey) {
+		synchronized (pointerAnalysis) {
+			return pointerAnalysis.getInstanceKeyMapping().getMappedIndex(instanceKey);
+		}
 	}
 
-	public synchronized void addSigReadNodes(HashMap<String, HashSet<ReadNode>> sigReadNodes2) {
-		for(String key : sigReadNodes2.keySet()){
+	private int lockSig(InstanceKey instanceKey) {
+		return locations.getLocation(lockBase, instanceIndex(instanceKey));
+	}
+
+	public synchronized void addSigReadNodes(SimpleVector<HashSet<ReadNode>> sigReadNodes2) {
+		for(int key = 0; key <= sigReadNodes2.getMaxIndex(); key++){
 			HashSet<ReadNode> readNodes = sigReadNodes2.get(key);
-			if(sigReadNodes.containsKey(key)){
-				sigReadNodes.get(key).addAll(readNodes);
+			if(readNodes == null)
+				continue;
+			HashSet<ReadNode> exists = sigReadNodes.get(key);
+			if(exists != null){
+				exists.addAll(readNodes);
 			}else{
-				sigReadNodes.put(key, readNodes);
+				sigReadNodes.set(key, readNodes);
 			}
 		}
 	}
 
-	public synchronized void addSigWriteNodes(HashMap<String, HashSet<WriteNode>> sigWriteNodes2) {
-		for(String key : sigWriteNodes2.keySet()){
+	public synchronized void addSigWriteNodes(SimpleVector<HashSet<WriteNode>> sigWriteNodes2) {
+		for(int key = 0; key <= sigWriteNodes2.getMaxIndex(); key++){
 			HashSet<WriteNode> writeNodes = sigWriteNodes2.get(key);
-			if(sigWriteNodes.containsKey(key)){
-				sigWriteNodes.get(key).addAll(writeNodes);
+			if(writeNodes == null)
+				continue;
+			HashSet<WriteNode> exists = sigWriteNodes.get(key);
+			if(exists != null){
+				exists.addAll(writeNodes);
 			}else{
-				sigWriteNodes.put(key, writeNodes);
+				sigWriteNodes.set(key, writeNodes);
 			}
 		}
 	}
@@ -1722,30 +1777,4 @@ public class TIDEEngine{
 
 
 
-	private HashSet<SSAInstruction> InstInsideCatchBlock(SSACFG cfg) {
-		HashSet<SSAInstruction> catchinsts = new HashSet<>();
-		for(int i=0; i<=cfg.getMaxNumber(); i++){
-			BasicBlock block = cfg.getBasicBlock(i);
-			if(block.isCatchBlock()){
-				List<SSAInstruction> insts = block.getAllInstructions();
-				catchinsts.addAll(insts);
-				Iterator<ISSABasicBlock> succss = cfg.getSuccNodes(block);
-				while(succss.hasNext()){
-					BasicBlock succ = (BasicBlock) succss.next();
-					List<SSAInstruction> insts2 = succ.getAllInstructions();
-					for (SSAInstruction inst2 : insts2) {
-						if(inst2.toString().contains("start()V")
-								||inst2.toString().contains("join()V")){
-							continue;
-						}
-						catchinsts.add(inst2);
-					}
-				}
-			}
-		}
-		return catchinsts;
-	}
-
-
-
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ public class TIDERace implements ITIDEBug{
 	public final MemNode node2;
 	public String sig;
 	public String initsig;
+	public int location = -1;
 	public int tid1;
 	public int tid2;
 	public String raceMsg, fixMsg;
@@ -36,32 +37,21 @@ public class TIDERace implements ITIDEBug{
 
 	/**
 	 * constructor
-	 * @param sig
+	 * @param location interned location, see LocationTable
+	 * @param sig printable field signature of the location
 	 * @param xnode
 	 * @param xtid
 	 * @param wnode
 	 * @param wtid
 	 */
-	public TIDERace(String sig, MemNode xnode, int xtid, WriteNode wnode, int wtid) {
-		setUpSig(sig);
+	public TIDERace(int location, String sig, MemNode xnode, int xtid, WriteNode wnode, int wtid) {
+		this.location = location;
+		this.sig = sig;
 		this.node1 = xnode;
 		this.node2 = wnode;
 		this.tid1 = xtid;
 		this.tid2 = wtid;
-		this.initsig = sig;
-	}
-
-	public void setUpSig(String sig){
-		int index1 = sig.indexOf(".");
-		if(sig.substring(0,index1).contains("array"))
-			this.sig = sig.substring(0,index1);
-		else{
-			int index2 = sig.substring(index1+1).indexOf(".");
-			if(index2>0)//must be suffixed with .'hashcode'
-				this.sig = sig.substring(0,index1+index2+1);
-			else
-				this.sig = sig;
-		}
+		this.initsig = sig + "." + location;
 	}
 
 	public HashMap<String, Integer> getEventLineMap(){
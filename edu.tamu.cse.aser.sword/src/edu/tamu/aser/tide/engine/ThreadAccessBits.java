@@ -0,0 +1,101 @@
+package edu.tamu.aser.tide.engine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+import edu.tamu.aser.tide.shb.Trace;
+
+/**
+ * for each interned location, the bitset of threads reading it and the bitset
+ * of threads writing it. thread ids are renumbered densely, so each location
+ * takes words longs in readers/writers, starting at location * words.
+ */
+public class ThreadAccessBits {
+
+	private final HashMap<Integer, Integer> denseTids;
+	private final int nrOfLocations;
+	private final int words;
+	private final AtomicLongArray readers;
+	private final AtomicLongArray writers;
+
+	private ThreadAccessBits(int nrOfLocations, HashMap<Integer, Integer> denseTids) {
+		this.denseTids = denseTids;
+		this.nrOfLocations = nrOfLocations;
+		this.words = Math.max(1, (denseTids.size() + 63) >>> 6);
+		long size = Math.multiplyExact((long) nrOfLocations, (long) words);
+		if(size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("too many locations for the thread bitsets: " + nrOfLocations
+					+ " locations x " + denseTids.size() + " threads needs " + size + " words");
+		this.readers = new AtomicLongArray((int) size);
+		this.writers = new AtomicLongArray((int) size);
+	}
+
+	/**
+	 * collect the reader/writer threads of all the locations accessed in traces, in parallel
+	 * @param nrOfLocations all sigs in the traces are below this
+	 */
+	public static ThreadAccessBits make(Collection<Trace> traces, int nrOfLocations) {
+		HashMap<Integer, Integer> denseTids = new HashMap<>();
+		for (Trace trace : traces) {
+			for (Integer tid : trace.getTraceTids()) {
+				if(!denseTids.containsKey(tid)){
+					denseTids.put(tid, denseTids.size());
+				}
+			}
+		}
+		ThreadAccessBits bits = new ThreadAccessBits(nrOfLocations, denseTids);
+		traces.parallelStream().forEach(bits::add);
+		return bits;
+	}
+
+	private void add(Trace trace) {
+		//threads of the trace, as words of a bitset
+		long[] mask = new long[words];
+		for (Integer tid : trace.getTraceTids()) {
+			int dense = denseTids.get(tid);
+			mask[dense >>> 6] |= 1L << dense;
+		}
+		for (IntIterator it = trace.getRsigMapping().iterateIndices(); it.hasNext();) {
+			or(readers, it.next(), mask);
+		}
+		for (IntIterator it = trace.getWsigMapping().iterateIndices(); it.hasNext();) {
+			or(writers, it.next(), mask);
+		}
+	}
+
+	private void or(AtomicLongArray bits, int location, long[] mask) {
+		int base = location * words;
+		for (int i = 0; i < words; i++) {
+			if(mask[i] == 0)
+				continue;
+			long old = bits.get(base + i);
+			while((old | mask[i]) != old && !bits.compareAndSet(base + i, old, old | mask[i])){
+				old = bits.get(base + i);
+			}
+		}
+	}
+
+	/**
+	 * a location is shared if more than one thread writes it, or one thread
+	 * writes it and any thread reads it (a thread can be unrolled).
+	 */
+	public void collectShared(MutableIntSet shared) {
+		for (int location = 0; location < nrOfLocations; location++) {
+			int base = location * words;
+			int nrOfWriters = 0;
+			int nrOfReaders = 0;
+			for (int i = 0; i < words; i++) {
+				nrOfWriters += Long.bitCount(writers.get(base + i));
+				nrOfReaders += Long.bitCount(readers.get(base + i));
+			}
+			if(nrOfWriters > 1 || (nrOfWriters == 1 && nrOfReaders > 0)){
+				shared.add(location);
+			}
+		}
+	}
+
+}
@@ -25,4 +25,14 @@ public class DLPair {
 		}
 		return false;
 	}
+
+	@Override
+	public int hashCode() {
+		//what DLockNode.equals compares, its lock sigs can change
+		return 31 * lockHash(lock1) + lockHash(lock2);
+	}
+
+	private static int lockHash(DLockNode lock) {
+		return 31 * (31 * lock.getBelonging().hashCode() + lock.instSig.hashCode()) + lock.line;
+	}
 }
@@ -1,13 +1,15 @@
 package edu.tamu.aser.tide.nodes;
 
-import java.util.HashSet;
-
 import org.eclipse.core.resources.IFile;
 
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 
 public class DLockNode extends SyncNode{
@@ -20,7 +22,8 @@ public class DLockNode extends SyncNode{
 	public SSAInstruction inst;
 	PointerKey key;
 	OrdinalSet<InstanceKey> instances;
-	private HashSet<String> locksigs = new HashSet<>();
+	//interned locks, see LocationTable
+	private MutableIntSet locksigs = IntSetUtil.make();
 	private String prefix;
 	private CGNode node;
 	public IFile file;
@@ -54,17 +57,16 @@ public class DLockNode extends SyncNode{
 		return prefix;
 	}
 
-	public void addLockSig(String sig){
+	public void addLockSig(int sig){
 		locksigs.add(sig);
 	}
 
-	public HashSet<String> getLockSig(){
+	public MutableIntSet getLockSig(){
 		return locksigs;
 	}
 
-	public void replaceLockSig(HashSet<String> new_sigs) {
-		this.locksigs.clear();
-		this.locksigs.addAll(new_sigs);
+	public void replaceLockSig(IntSet new_sigs) {
+		this.locksigs = IntSetUtil.makeMutableCopy(new_sigs);
 	}
 
 	public String getInstSig(){
@@ -106,12 +108,20 @@ public class DLockNode extends SyncNode{
 //		return "Lock in " + instSig.substring(0, instSig.indexOf(':')) +"." + methodname + " (line " + line + ")";
 	}
 
+	private int lockSigHash(){
+		int h = 0;
+		for (IntIterator it = locksigs.intIterator(); it.hasNext();) {
+			h += it.next();
+		}
+		return h;
+	}
+
 	public int hashCode(){
 //		return locksigs.hashCode();
 		if(key == null)
-			return locksigs.hashCode();
+			return lockSigHash();
 		else
-			return locksigs.hashCode() + key.hashCode();
+			return lockSigHash() + key.hashCode();
 	}
 
 	@Override
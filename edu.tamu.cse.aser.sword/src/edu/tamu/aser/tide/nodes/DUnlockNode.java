@@ -1,12 +1,13 @@
 package edu.tamu.aser.tide.nodes;
 
-import java.util.HashSet;
-
 import org.eclipse.core.resources.IFile;
 
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 
 public class DUnlockNode extends SyncNode{
@@ -16,7 +17,8 @@ public class DUnlockNode extends SyncNode{
 	String lock, instSig;
 	PointerKey key;
 	OrdinalSet<InstanceKey> instances;
-	private HashSet<String> locksigs = new HashSet<>();
+	//interned locks, see LocationTable
+	private MutableIntSet locksigs = IntSetUtil.make();
 	private String prefix;
 	private CGNode node;
 
@@ -44,25 +46,26 @@ public class DUnlockNode extends SyncNode{
 		return prefix;
 	}
 
-	public void addLockSig(String sig){
+	public void addLockSig(int sig){
 		locksigs.add(sig);
 	}
 
-	public HashSet<String> getLockSig(){
+	public MutableIntSet getLockSig(){
 		return locksigs;
 	}
 
+	/**
+	 * the lock sigs are still added once the node is in a trace, so only the
+	 * inst sig is hashed
+	 */
 	public int hashCode(){
 //		return locksigs.hashCode();
-		if(key == null)
-			return locksigs.hashCode();
-		else
-			return locksigs.hashCode() + key.hashCode();
+		return instSig.hashCode();
 	}
 
 	public boolean equals(Object o){
 		if(o instanceof DUnlockNode){
-			if(((DUnlockNode) o).getLockSig().equals(locksigs) && ((DUnlockNode) o).instSig.equals(instSig))
+			if(((DUnlockNode) o).getLockSig().sameValue(locksigs) && ((DUnlockNode) o).instSig.equals(instSig))
 				return true;
 		}
 		return false;
@@ -1,19 +1,21 @@
 package edu.tamu.aser.tide.nodes;
 
-import java.util.HashSet;
-
 import org.eclipse.core.resources.IFile;
 
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 
 public abstract class MemNode implements INode {
 	final int TID;
 	String addr, sig;
 	int line;
 	PointerKey pointerKey;
-	private HashSet<String> objsigs = new HashSet<>();
+	//interned locations, see LocationTable
+	private MutableIntSet objsigs = IntSetUtil.make();
 	private String prefix;
 	protected CGNode node;
 	public SSAInstruction inst;
@@ -56,7 +58,7 @@ public abstract class MemNode implements INode {
 			MemNode thatnode = (MemNode) that;
 			if((this instanceof ReadNode && that instanceof ReadNode)
 					|| (this instanceof WriteNode && that instanceof WriteNode)){
-				if(this.objsigs.equals(thatnode.objsigs)
+				if(this.objsigs.sameValue(thatnode.objsigs)
 						&& this.prefix.equals(thatnode.prefix)
 						&& this.localSig.equals(((MemNode) that).localSig)
 						&& this.line == ((MemNode) that).line
@@ -73,9 +75,8 @@ public abstract class MemNode implements INode {
 		return false;
 	}
 
-	public void replaceObjSig(HashSet<String> new_sigs){
-		objsigs.clear();
-		objsigs.addAll(new_sigs);
+	public void replaceObjSig(IntSet new_sigs){
+		objsigs = IntSetUtil.makeMutableCopy(new_sigs);
 	}
 
 	public CGNode getBelonging(){
@@ -94,15 +95,15 @@ public abstract class MemNode implements INode {
 		this.prefix = prefix;
 	}
 
-	public void addObjSig(String sig){
+	public void addObjSig(int sig){
 		objsigs.add(sig);
 	}
 
-	public void setObjSigs(HashSet<String> sigs){
+	public void setObjSigs(IntSet sigs){
 		objsigs.addAll(sigs);
 	}
 
-	public HashSet<String> getObjSig(){
+	public MutableIntSet getObjSig(){
 		return objsigs;
 	}
 
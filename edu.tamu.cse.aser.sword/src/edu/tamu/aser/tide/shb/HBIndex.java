@@ -0,0 +1,516 @@
+package edu.tamu.aser.tide.shb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+import edu.tamu.aser.tide.nodes.INode;
+import edu.tamu.aser.tide.nodes.JoinNode;
+import edu.tamu.aser.tide.nodes.MethodNode;
+import edu.tamu.aser.tide.nodes.StartNode;
+import edu.tamu.aser.tide.nodes.SyncNode;
+
+/**
+ * happens-before index over the shb graph, built once after the thread relations
+ * are organized. gives the same answers as walking the shb graph
+ * (compareParent, compareStartJoin, whoHappensFirst), but from precomputed
+ * labels: the parent threads of each thread, the positions of start/join nodes
+ * in each trace, the top nodes of each method per thread, and the relation of
+ * each pair of sibling threads.
+ * the shb graph must not change while the index is in use.
+ */
+public class HBIndex {
+
+	private final SHBGraph shb;
+	private final CallGraph cg;
+	private final HashMap<Integer, StartNode> mapOfStartNode;
+	private final HashMap<Integer, JoinNode> mapOfJoinNode;
+
+	//tid -> the threads having it as a kid, in the order of mapOfStartNode
+	private final HashMap<Integer, ArrayList<Integer>> parents = new HashMap<>();
+	//start/join node -> trace -> first index in the trace
+	private final HashMap<SyncNode, HashMap<Trace, Integer>> syncPositions = new HashMap<>();
+	//steps to main of a node in main and of others, see whoHappensFirst
+	private final int stepsInMain;
+	private final int stepsOutOfMain;
+	//cgnode -> tid -> top nodes, not for nodes in main
+	private final ConcurrentHashMap<CGNode, ConcurrentHashMap<Integer, HashSet<INode>>> topNodes = new ConcurrentHashMap<>();
+	//(comper tid, compee tid) -> relation of threads with the same parent
+	private final ConcurrentHashMap<Long, Integer> siblings = new ConcurrentHashMap<>();
+	private static final int NO_SAME_PARENT = 0;
+	//see threadRelation
+	public static final int ORDERED = 1;
+	public static final int NOT_ORDERED = 2;
+	public static final int NODE_DEPENDENT = 3;
+
+	public HBIndex(SHBGraph shb, CallGraph cg, HashMap<Integer, StartNode> mapOfStartNode,
+			HashMap<Integer, JoinNode> mapOfJoinNode) {
+		this.shb = shb;
+		this.cg = cg;
+		this.mapOfStartNode = mapOfStartNode;
+		this.mapOfJoinNode = mapOfJoinNode;
+		//parents
+		for (Integer tid : mapOfStartNode.keySet()) {
+			MutableIntSet kids = mapOfStartNode.get(tid).getTID_Child();
+			for (IntIterator it = kids.intIterator(); it.hasNext();) {
+				int kid = it.next();
+				ArrayList<Integer> ps = parents.get(kid);
+				if(ps == null){
+					ps = new ArrayList<>();
+					parents.put(kid, ps);
+				}
+				ps.add(tid);
+			}
+		}
+		//positions of start/join nodes
+		HashSet<SyncNode> syncs = new HashSet<>();
+		syncs.addAll(mapOfStartNode.values());
+		syncs.addAll(mapOfJoinNode.values());
+		for (Trace trace : shb.getAllTraces()) {
+			ArrayList<INode> content = trace.getContent();
+			for (int i = 0; i < content.size(); i++) {
+				INode node = content.get(i);
+				if(node instanceof SyncNode && syncs.contains(node)){
+					HashMap<Trace, Integer> positions = syncPositions.get(node);
+					if(positions == null){
+						positions = new HashMap<>();
+						syncPositions.put((SyncNode) node, positions);
+					}
+					if(!positions.containsKey(trace)){
+						positions.put(trace, i);
+					}
+				}
+			}
+		}
+		//steps to main
+		stepsOutOfMain = shb.edgeManager.getNumOfEdgesToMain("");
+		CGNode main = shb.getNode(shb.main);
+		stepsInMain = main == null ? stepsOutOfMain : shb.edgeManager.getNumOfEdgesToMain(main.getMethod().toString());
+	}
+
+	/**
+	 * determine if two nodes have happens-before relation or not
+	 */
+	public boolean hasHBRelation(int comperTID, INode comper, int compeeTID, INode compee){
+		boolean HBRelation = true;
+		StartNode comperStartNode = mapOfStartNode.get(comperTID);
+		StartNode compeeStartNode = mapOfStartNode.get(compeeTID);
+		JoinNode comperJoinNode = mapOfJoinNode.get(comperTID);
+		JoinNode compeeJoinNode = mapOfJoinNode.get(compeeTID);
+
+		// should not happen
+		if (comperStartNode == null || compeeStartNode == null)
+			return HBRelation;
+
+		MutableIntSet comperKidThreads = comperStartNode.getTID_Child();
+		MutableIntSet compeeKidThreads = compeeStartNode.getTID_Child();
+		if(comperKidThreads.contains(compeeTID)){
+			// comper's thread is the parent of compee's
+			if(compareParent(compeeStartNode, comper, compeeTID, comperTID) < 0){
+				if (compeeJoinNode != null) {
+					if (compareParent(compeeJoinNode, comper, compeeTID, comperTID) > 0) {
+						HBRelation = false;
+					}
+				}else{
+					// compee's thread started after comper node
+					HBRelation = false;
+				}
+			}
+		}else if(compeeKidThreads.contains(comperTID)){
+			// compee's thread is the parent of comper's
+			if(compareParent(comperStartNode, compee, compeeTID, comperTID) < 0){
+				if (comperJoinNode != null) {
+					if(compareParent(comperJoinNode, compee, compeeTID, comperTID) > 0){
+						HBRelation = false;
+					}
+				}else {
+					HBRelation = false;
+				}
+			}
+		}else{
+			int sibling = siblingRelation(comperTID, compeeTID);
+			if(sibling != NO_SAME_PARENT){
+				HBRelation = sibling == ORDERED;
+			}else{
+				//other conditions: wtid = comper; xtid = compee
+				if(whoHappensFirst(comperStartNode, compeeStartNode) < 0){
+					//wtid starts early
+					if(whoHappensFirst(comperStartNode, comper) < 0){
+						HBRelation = false;
+					}
+				}else{
+					//xtid starts early
+					if(whoHappensFirst(compeeStartNode, compee) < 0){
+						HBRelation = false;
+					}
+				}
+			}
+		}
+		return HBRelation;
+	}
+
+	/**
+	 * the same as hasHBRelation, by walking the shb graph instead of reading the
+	 * index. slow; the reference the index is checked against
+	 */
+	public boolean hasHBRelationOnSHB(int comperTID, INode comper, int compeeTID, INode compee){
+		boolean HBRelation = true;
+		StartNode comperStartNode = mapOfStartNode.get(comperTID);
+		StartNode compeeStartNode = mapOfStartNode.get(compeeTID);
+		JoinNode comperJoinNode = mapOfJoinNode.get(comperTID);
+		JoinNode compeeJoinNode = mapOfJoinNode.get(compeeTID);
+
+		// should not happen
+		if (comperStartNode == null || compeeStartNode == null)
+			return HBRelation;
+
+		MutableIntSet comperKidThreads = comperStartNode.getTID_Child();
+		MutableIntSet compeeKidThreads = compeeStartNode.getTID_Child();
+		if(comperKidThreads.contains(compeeTID)){
+			// comper's thread is the parent of compee's
+			if(shb.compareParent(compeeStartNode, comper, compeeTID, comperTID) < 0){//trace.indexOf(xStartNode) < trace.indexOf(comper)
+				if (compeeJoinNode != null) {
+					if (shb.compareParent(compeeJoinNode, comper, compeeTID, comperTID) > 0) {//trace.indexof(xjoinnode) > trace.indexof(comper)
+						HBRelation = false; //for multipaths: what if the paths compared above are different?
+					}
+				}else{
+					// compee's thread started after comper node
+					// no race
+					HBRelation = false;
+				}
+			}
+		}else if(compeeKidThreads.contains(comperTID)){
+			// compee's thread is the parent of comper's
+			if(shb.compareParent(comperStartNode, compee, compeeTID, comperTID) < 0){//trace.indexOf(wStartNode) < trace.indexOf(compee)
+				if (comperJoinNode != null) {
+					if(shb.compareParent(comperJoinNode, compee, compeeTID, comperTID) > 0){////trace.indexof(wjoinnode) > trace.indexof(compee)
+						HBRelation = false;
+					}
+				}else {
+					HBRelation = false;
+				}
+			}
+		}else{
+			StartNode sNode = sameParentOnSHB(comperTID, compeeTID);
+			if(sNode != null){
+				CGNode parent;
+				if (sNode.getParentTID() == -1) {
+					parent = sNode.getTarget();//main
+				}else{
+					parent = sNode.getBelonging();
+				}
+				//same parent
+				if(comperJoinNode == null && compeeJoinNode == null){
+					//should check the distance
+					Trace ptTrace = shb.getTrace(parent);//maybe mark the relation??
+					int erS = ptTrace.indexOf(comperStartNode);
+					int eeS = ptTrace.indexOf(compeeStartNode);
+					if (Math.abs(erS - eeS) <= 1000) {//adjust??
+						HBRelation = false;
+					}
+				}else if(comperJoinNode == null){//-1: start -> join; 1: join -> start;
+					if(shb.compareStartJoin(comperStartNode, compeeJoinNode, parent, cg) < 0){//trace.indexOf(xJoinNode) > trace.indexOf(wStartNode)
+						HBRelation = false;
+					}
+				}else if(compeeJoinNode == null){
+					if(shb.compareStartJoin(compeeStartNode, comperJoinNode, parent, cg) < 0){//trace.indexOf(wJoinNode) > trace.indexOf(xStartNode)
+						HBRelation = false;
+					}
+				}else{
+					if(shb.compareStartJoin(comperStartNode, compeeJoinNode, parent, cg) < 0
+							&& shb.compareStartJoin(compeeStartNode, comperJoinNode, parent, cg) < 0){//(trace.indexOf(xJoinNode) > trace.indexOf(wStartNode)) && (trace.indexOf(wJoinNode) > trace.indexOf(xStartNode))
+						HBRelation = false;
+					}
+				}
+			}else{
+				//other conditions??wtid = comper; xtid = compee
+				if(shb.whoHappensFirst(comperStartNode, compeeStartNode, compeeTID, comperTID) < 0){//trace.indexOf(wStartNode) < trace.indexOf(xStartNode)
+					//wtid starts early
+					if(shb.whoHappensFirst(comperStartNode, comper, compeeTID, comperTID) < 0){
+						HBRelation = false;
+					}
+				}else{
+					//xtid starts early
+					if(shb.whoHappensFirst(compeeStartNode, compee, compeeTID, comperTID) < 0){
+						HBRelation = false;
+					}
+				}
+			}
+		}
+		return HBRelation;
+	}
+
+	/**
+	 * the answer of hasHBRelation for any nodes of the two threads, if it does
+	 * not depend on the nodes: ORDERED (true), NOT_ORDERED (false), otherwise NODE_DEPENDENT
+	 */
+	public int threadRelation(int comperTID, int compeeTID){
+		StartNode comperStartNode = mapOfStartNode.get(comperTID);
+		StartNode compeeStartNode = mapOfStartNode.get(compeeTID);
+		if (comperStartNode == null || compeeStartNode == null)
+			return ORDERED;
+		if(comperStartNode.getTID_Child().contains(compeeTID)
+				|| compeeStartNode.getTID_Child().contains(comperTID))
+			return NODE_DEPENDENT;
+		int sibling = siblingRelation(comperTID, compeeTID);
+		if(sibling != NO_SAME_PARENT)
+			return sibling;
+		return NODE_DEPENDENT;
+	}
+
+	/**
+	 * for threads whose relation is NODE_DEPENDENT, hasHBRelation only reads the
+	 * node of one of them: the one in the parent thread, or else the one whose
+	 * thread starts first. the answer is then the same for every node of the
+	 * other thread.
+	 * @return true iff it reads the comper
+	 */
+	public boolean decidedByComper(int comperTID, int compeeTID){
+		StartNode comperStartNode = mapOfStartNode.get(comperTID);
+		StartNode compeeStartNode = mapOfStartNode.get(compeeTID);
+		if(comperStartNode.getTID_Child().contains(compeeTID))
+			return true;
+		if(compeeStartNode.getTID_Child().contains(comperTID))
+			return false;
+		return whoHappensFirst(comperStartNode, compeeStartNode) < 0;
+	}
+
+	/**
+	 * @return NO_SAME_PARENT, or whether the threads with the same parent are ordered
+	 */
+	private int siblingRelation(int comperTID, int compeeTID) {
+		long key = ((long) comperTID << 32) | (compeeTID & 0xffffffffL);
+		Integer result = siblings.get(key);
+		if(result == null){
+			result = computeSiblingRelation(comperTID, compeeTID);
+			siblings.put(key, result);
+		}
+		return result;
+	}
+
+	private int computeSiblingRelation(int comperTID, int compeeTID) {
+		StartNode sNode = sameParent(comperTID, compeeTID);
+		if(sNode == null)
+			return NO_SAME_PARENT;
+		StartNode comperStartNode = mapOfStartNode.get(comperTID);
+		StartNode compeeStartNode = mapOfStartNode.get(compeeTID);
+		JoinNode comperJoinNode = mapOfJoinNode.get(comperTID);
+		JoinNode compeeJoinNode = mapOfJoinNode.get(compeeTID);
+		CGNode parent;
+		if (sNode.getParentTID() == -1) {
+			parent = sNode.getTarget();//main
+		}else{
+			parent = sNode.getBelonging();
+		}
+		Trace ptTrace = shb.getTrace(parent);
+		if(comperJoinNode == null && compeeJoinNode == null){
+			//should check the distance
+			int erS = ptTrace.indexOf(comperStartNode);
+			int eeS = ptTrace.indexOf(compeeStartNode);
+			if (Math.abs(erS - eeS) <= 1000) {
+				return NOT_ORDERED;
+			}
+		}else if(comperJoinNode == null){
+			if(compareStartJoin(comperStartNode, compeeJoinNode, ptTrace) < 0){
+				return NOT_ORDERED;
+			}
+		}else if(compeeJoinNode == null){
+			if(compareStartJoin(compeeStartNode, comperJoinNode, ptTrace) < 0){
+				return NOT_ORDERED;
+			}
+		}else{
+			if(compareStartJoin(comperStartNode, compeeJoinNode, ptTrace) < 0
+					&& compareStartJoin(compeeStartNode, comperJoinNode, ptTrace) < 0){
+				return NOT_ORDERED;
+			}
+		}
+		return ORDERED;
+	}
+
+	/**
+	 * the first thread other than tid1 and tid2 having both as kids
+	 */
+	private StartNode sameParent(int tid1, int tid2) {
+		ArrayList<Integer> ps1 = parents.get(tid1);
+		ArrayList<Integer> ps2 = parents.get(tid2);
+		if(ps1 == null || ps2 == null)
+			return null;
+		for (Integer t : ps1) {
+			if(t != tid1 && t != tid2 && ps2.contains(t)){
+				return mapOfStartNode.get(t);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the same as sameParent, without the parents of the index
+	 */
+	private StartNode sameParentOnSHB(int tid1, int tid2) {
+		Iterator<Integer> iter_thread = mapOfStartNode.keySet().iterator();
+		while(iter_thread.hasNext()){
+			int t = iter_thread.next();
+			if(t != tid1 && t != tid2){
+				MutableIntSet kids = mapOfStartNode.get(t).getTID_Child();
+				if(kids.contains(tid1) && kids.contains(tid2)){
+					return mapOfStartNode.get(t);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * first index of a start/join node in trace, -1 if absent
+	 */
+	private int position(SyncNode sync, Trace trace) {
+		HashMap<Trace, Integer> positions = syncPositions.get(sync);
+		if(positions == null)
+			return -1;
+		Integer idx = positions.get(trace);
+		return idx == null ? -1 : idx;
+	}
+
+	private int position(INode node, Trace trace) {
+		if(node instanceof SyncNode && syncPositions.containsKey(node))
+			return position((SyncNode) node, trace);
+		return trace.positionOf(node);
+	}
+
+	/**
+	 * same as SHBGraph.compareParent
+	 */
+	private int compareParent(SyncNode syncNode, INode inode, int sTID, int iTID) {//inode stays in parent thread
+		// -1: sync -> comper; 1: comper -> sync
+		Trace trace = shb.getTrace(inode.getBelonging());
+		int idxS = position(syncNode, trace);
+		if(idxS == -1){
+			return furtherCompareParent(syncNode, inode, sTID, iTID);
+		}else{
+			if(idxS < position(inode, trace))
+				return -1;
+			else
+				return 1;
+		}
+	}
+
+	private int furtherCompareParent(SyncNode sync, INode inode, int stid, int itid){
+		//start : < ; join: >
+		boolean start = !(sync instanceof JoinNode);
+		// -1: sync -> comper; 1: comper -> sync
+		HashSet<INode> stops = findTheTopNode(sync, stid);
+		HashSet<INode> itops = findTheTopNode(inode, itid);
+		if(stops.size() == 0 || itops.size() == 0)
+			return 1;
+		if(stops.containsAll(itops) && itops.containsAll(stops)){
+			//same origins
+			CGNode origin = ((MethodNode) stops.iterator().next()).getBelonging();
+			Trace oTrace = shb.getTrace(origin);
+			if(position(sync, oTrace) != -1){
+				return -1;
+			}
+			if(position(inode, oTrace) != -1){
+				return 1;
+			}
+		}else{//different origins
+			Trace mTrace = shb.getTrace(shb.main);
+			for (INode stop : stops) {
+				for (INode itop : itops) {
+					int idxS = position(stop, mTrace);
+					int idxI = position(itop, mTrace);
+					if((idxS < idxI) && start)
+						return -1;
+					if((idxS > idxI) && !start)
+						return 1;
+				}
+			}
+		}
+		if(start)
+			return 1;
+		else
+			return -1;
+	}
+
+	private HashSet<INode> findTheTopNode(INode node, int tid) {
+		CGNode cgnode = node.getBelonging();
+		if(cgnode == null || cgnode.getMethod().toString().equals(shb.main)){
+			//the node itself is a top
+			return shb.findTheTopNode(node, tid);
+		}
+		if(node instanceof StartNode){
+			tid = ((StartNode) node).getParentTID();
+		}
+		ConcurrentHashMap<Integer, HashSet<INode>> tops = topNodes.get(cgnode);
+		if(tops == null){
+			tops = new ConcurrentHashMap<>();
+			ConcurrentHashMap<Integer, HashSet<INode>> exist = topNodes.putIfAbsent(cgnode, tops);
+			if(exist != null)
+				tops = exist;
+		}
+		HashSet<INode> result = tops.get(tid);
+		if(result == null){
+			result = shb.findTheTopNode(node, tid);
+			tops.put(tid, result);
+		}
+		return result;
+	}
+
+	/**
+	 * same as SHBGraph.compareStartJoin, with the trace of the parent
+	 */
+	private int compareStartJoin(StartNode start, JoinNode join, Trace parent) {
+		// -1: start -> join; 1: join -> start; 0: ?
+		int idxS = position(start, parent);
+		int idxJ = position(join, parent);
+		if(idxJ == -1 || idxS == -1){
+			CGNode sNode = start.getBelonging();
+			CGNode jNode = join.getBelonging();
+			CGNode cgParent = null;
+			if(sNode.equals(jNode)){
+				cgParent = sNode;
+			}else{
+				for (Iterator<CGNode> iters = cg.getPredNodes(sNode); iters.hasNext();) {
+					CGNode sNode2 = iters.next();
+					for (Iterator<CGNode> iterj = cg.getPredNodes(jNode); iterj.hasNext();) {
+						if(iterj.next().equals(sNode2))
+							cgParent = sNode2;
+					}
+				}
+			}
+			if(cgParent == null){
+				return 0;
+			}
+			Trace trace = shb.getTrace(cgParent);
+			idxS = position(start, trace);
+			idxJ = position(join, trace);
+			if(idxJ == -1 || idxS == -1){
+				return 0;
+			}
+		}
+		if(idxS < idxJ)
+			return -1;
+		else
+			return 1;
+	}
+
+	/**
+	 * same as SHBGraph.whoHappensFirst: only depends on whether the nodes are in main
+	 */
+	private int whoHappensFirst(SyncNode sync, INode node) {
+		// -1: start1 -> start2; 1: start2 -> start1
+		int step1 = sync.getBelonging() == null ? stepsInMain : stepsOutOfMain;
+		int step2 = node.getBelonging() == null ? stepsInMain : stepsOutOfMain;
+		if(step1 < step2)
+			return -1;
+		else
+			return 1;
+	}
+
+}
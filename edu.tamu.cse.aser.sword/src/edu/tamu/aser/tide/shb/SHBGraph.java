@@ -8,6 +8,9 @@ import java.util.Iterator;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 
 import edu.tamu.aser.tide.nodes.INode;
 import edu.tamu.aser.tide.nodes.JoinNode;
@@ -69,6 +72,15 @@ public class SHBGraph{
         }
 
 
+        /**
+         * add the traces and edges of a graph built separately, whose traces are all new to this graph
+         */
+        public void merge(SHBGraph other){
+                id2CGNode.putAll(other.id2CGNode);
+                traceMapping.putAll(other.traceMapping);
+                edgeManager.merge(other.edgeManager);
+        }
+
         public boolean delTrace(CGNode cgnode, int tid){
                 String node = cgnode.getMethod().toString();
                 if(traceMapping.containsKey(node)){
@@ -137,9 +149,9 @@ public class SHBGraph{
         public int compareParent(SyncNode syncNode, INode inode, int sTID, int iTID) {//inode stays in parent thread
                 // -1: sync -> comper; 1: comper -> sync; 0: ?
                 CGNode iCgNode = inode.getBelonging();
-                ArrayList<INode> list = getTrace(iCgNode).getContent();
-                int idxI = list.indexOf(inode);
-                int idxS = list.indexOf(syncNode);
+                Trace trace = getTrace(iCgNode);
+                int idxI = trace.positionOf(inode);
+                int idxS = trace.positionOf(syncNode);
                 if(idxS == -1){
 //                        return -1;
                       return furtherCompareParent(syncNode, inode, sTID, iTID);
@@ -167,19 +179,18 @@ public class SHBGraph{
                         Object[] origins = stops.toArray();
                         CGNode origin = (CGNode) ((MethodNode)origins[0]).getBelonging();
                         Trace oTrace = getTrace(origin);
-                        ArrayList<INode> content = oTrace.getContent();
-                        if(content.contains(sync)){
+                        if(oTrace.positionOf(sync) != -1){
                                 return -1;
                         }
-                        if(content.contains(inode)){
+                        if(oTrace.positionOf(inode) != -1){
                                 return 1;
                         }
                 }else{//different origins
-                        ArrayList<INode> list = getTrace(main).getContent();
+                        Trace trace = getTrace(main);
                         for (INode stop : stops) {
                                 for (INode itop : itops) {
-                                        int idxS = list.indexOf(stop);
-                                        int idxI = list.indexOf(itop);
+                                        int idxS = trace.positionOf(stop);
+                                        int idxI = trace.positionOf(itop);
                                         if((idxS < idxI) && start)
                                                 return -1;
                                         if((idxS > idxI) && !start)
@@ -193,16 +204,16 @@ public class SHBGraph{
                         return -1;
         }
 
-        private int limit;
         public HashSet<INode> findTheTopNode(INode node, Integer tid){
-        			limit = 0;
+                //the number of visited nodes, local since bug workers call this concurrently
+                int[] limit = new int[1];
                 HashSet<INode> tops = new HashSet<>();
                 HashSet<CGNode> traversed = new HashSet<>();
-                findTheTopNodeOnSinglePath(node, traversed, tid, tops);
+                findTheTopNodeOnSinglePath(node, traversed, tid, tops, limit);
                 return tops;
         }
 
-        private void findTheTopNodeOnSinglePath(INode iNode, HashSet<CGNode> traversed, Integer tid, HashSet<INode> tops) {
+        private void findTheTopNodeOnSinglePath(INode iNode, HashSet<CGNode> traversed, Integer tid, HashSet<INode> tops, int[] limit) {
                 CGNode inCgNode = iNode.getBelonging();
                 if(iNode instanceof StartNode){
                         tid = ((StartNode)iNode).getParentTID();
@@ -213,8 +224,8 @@ public class SHBGraph{
                         //recursive call chain, not useful
                         return;
                 }
-                limit++;
-                if(limit > 1000)
+                limit[0]++;
+                if(limit[0] > 1000)
                         return;
                 if(inCgNode.getMethod().toString().equals(main)){
                         tops.add(iNode);
@@ -225,7 +236,7 @@ public class SHBGraph{
                                 INode iNode0 = inEdge.getSource();
                                 HashSet<CGNode> traversed0 = new HashSet<>();
                                 traversed0.addAll(traversed);
-                                findTheTopNodeOnSinglePath(iNode0, traversed0, tid, tops);
+                                findTheTopNodeOnSinglePath(iNode0, traversed0, tid, tops, limit);
                         }
                 }else
                         return;
@@ -233,9 +244,9 @@ public class SHBGraph{
 
         public int compareStartJoin(StartNode start, JoinNode join, CGNode parent, CallGraph cg) {
                 // -1: start -> join; 1: join -> start; 0: ?
-                ArrayList<INode> list = getTrace(parent).getContent();
-                int idxS = list.indexOf(start);
-                int idxJ = list.indexOf(join);
+                Trace trace = getTrace(parent);
+                int idxS = trace.positionOf(start);
+                int idxJ = trace.positionOf(join);
                 if(idxJ == -1 || idxS == -1){
                         CGNode sNode = start.getBelonging();
                         CGNode jNode = join.getBelonging();
@@ -256,9 +267,9 @@ public class SHBGraph{
                         if(cgParent == null){
                                 return 0;
                         }else{
-                                list = getTrace(cgParent).getContent();
-                                idxS = list.indexOf(start);
-                                idxJ = list.indexOf(join);
+                                trace = getTrace(cgParent);
+                                idxS = trace.positionOf(start);
+                                idxJ = trace.positionOf(join);
                                 if(idxJ == -1 || idxS == -1){
                                         return 0;
                                 }else{
@@ -427,10 +438,10 @@ public class SHBGraph{
 
         /**
          * assume only one removed; ignore run/main
-         * @param HashSet<String> removed_rw
+         * @param MutableIntSet removed_rw
          * @return CGNode
          */
-        public CGNode removeNotUsedTrace(HashSet<String> removed_rw) {//should be a set
+        public CGNode removeNotUsedTrace(MutableIntSet removed_rw) {//should be a set
                 //assume only one removed
                 for (String node : traceMapping.keySet()) {
                         if(node.contains("run()V")){
@@ -457,7 +468,7 @@ public class SHBGraph{
          * @param HashSet<CGNode> mayIsolates
          * @return HashSet<CGNode>
          */
-        public HashSet<CGNode> removeNotUsedTrace(HashSet<String> removed_rw, CGNode ignore, HashSet<CGNode> mayIsolates) {
+        public HashSet<CGNode> removeNotUsedTrace(MutableIntSet removed_rw, CGNode ignore, HashSet<CGNode> mayIsolates) {
                 HashSet<CGNode> removes = new HashSet<>();
                 HashSet<CGNode> nextIsolates = new HashSet<>();
                 while(!mayIsolates.isEmpty()){
@@ -482,11 +493,11 @@ public class SHBGraph{
                 return removes;
         }
 
-        private HashSet<String> getInvolvedRWinTrace(String node){
-                HashSet<String> removed_rw = new HashSet<>();
+        private IntSet getInvolvedRWinTrace(String node){
+                MutableIntSet removed_rw = IntSetUtil.make();
                 Trace trace = traceMapping.get(node);
-                removed_rw.addAll(trace.getRsigMapping().keySet());
-                removed_rw.addAll(trace.getWsigMapping().keySet());
+                removed_rw.addAll(trace.getRsigs());
+                removed_rw.addAll(trace.getWsigs());
                 return removed_rw;
         }
 
@@ -593,6 +604,19 @@ class EdgeManager {
                 return edgeMapping;
         }
 
+        public void merge(EdgeManager other) {
+                edgeMapping.putAll(other.edgeMapping);
+                for (String node : other.re_edgeMapping.keySet()) {
+                        HashSet<SHBEdge> contains = re_edgeMapping.get(node);
+                        if(contains == null){
+                                re_edgeMapping.put(node, other.re_edgeMapping.get(node));
+                        }else{
+                                contains.addAll(other.re_edgeMapping.get(node));
+                        }
+                }
+                backeddges.putAll(other.backeddges);
+        }
+
         public void addBackEdge(String node, JoinNode jNode) {
                 //only for join node
                 backeddges.put(node, jNode);
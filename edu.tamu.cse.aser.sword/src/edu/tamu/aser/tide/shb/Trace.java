@@ -1,18 +1,26 @@
 package edu.tamu.aser.tide.shb;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 
 import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.util.collections.SparseVector;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 
 import edu.tamu.aser.tide.nodes.DLockNode;
 import edu.tamu.aser.tide.nodes.DUnlockNode;
 import edu.tamu.aser.tide.nodes.INode;
 import edu.tamu.aser.tide.nodes.JoinNode;
 import edu.tamu.aser.tide.nodes.LockPair;
+import edu.tamu.aser.tide.nodes.MemNode;
 import edu.tamu.aser.tide.nodes.ReadNode;
 import edu.tamu.aser.tide.nodes.StartNode;
 import edu.tamu.aser.tide.nodes.WriteNode;
@@ -20,6 +28,13 @@ import edu.tamu.aser.tide.nodes.WriteNode;
 public class Trace {
 
 	private ArrayList<INode> trace = new ArrayList<INode>();
+	//the positions of the nodes, chained by hash (see hashOf) in ascending order: hash -> bucket,
+	//the first and last index of each bucket, and the next index with the same hash of each index, or -1.
+	//the indices are shifted when nodes are inserted or removed in the middle
+	private HashMap<Integer, Integer> buckets = new HashMap<>();
+	private int[] heads = new int[16];
+	private int[] tails = new int[16];
+	private int[] next = new int[16];
 	private ArrayList<Integer> tids = new ArrayList<>();
 	private HashMap<Integer, HashSet<Integer>> pidkidMapping = new HashMap<>();//should update; tid <-> kid tids mapping
 	private ArrayList<Integer> kids = new ArrayList<>();// kid tids
@@ -27,9 +42,9 @@ public class Trace {
 	private ArrayList<Integer> oldkids = new ArrayList<>();// kid tids
 	private HashMap<Integer, Integer> oldkid_line_map = new HashMap<>();
 
-	//should be set
-	private HashMap<String, ArrayList<ReadNode>> rsigMapping = new HashMap<>();
-	private HashMap<String, ArrayList<WriteNode>> wsigMapping = new HashMap<>();
+	//should be set; keyed by interned location
+	private SparseVector<ArrayList<ReadNode>> rsigMapping = new SparseVector<>();
+	private SparseVector<ArrayList<WriteNode>> wsigMapping = new SparseVector<>();
 	private ArrayList<LockPair> lockPairs = new ArrayList<>();
 	private int hasStart = 0; //num of startnodes for an inst
 	private int hasJoin = 0;
@@ -106,25 +121,25 @@ public class Trace {
 		return hasJoin != 0;
 	}
 
-	public void addRsigMapping(String rsig, ReadNode node){
+	public void addRsigMapping(int rsig, ReadNode node){
 		ArrayList<ReadNode> map = rsigMapping.get(rsig);
 		if(map == null){
 			map = new ArrayList<>();
 			map.add(node);
-			rsigMapping.put(rsig, map);
+			rsigMapping.set(rsig, map);
 		}else{
-			rsigMapping.get(rsig).add(node);
+			map.add(node);
 		}
 	}
 
-	public void addWsigMapping(String wsig, WriteNode node){
+	public void addWsigMapping(int wsig, WriteNode node){
 		ArrayList<WriteNode> map = wsigMapping.get(wsig);
 		if(map == null){
 			map = new ArrayList<>();
 			map.add(node);
-			wsigMapping.put(wsig, map);
+			wsigMapping.set(wsig, map);
 		}else
-			wsigMapping.get(wsig).add(node);
+			map.add(node);
 	}
 
 	public void addLockPair(LockPair lp){
@@ -136,14 +151,36 @@ public class Trace {
 		lockPairs.remove(pair);
 	}
 
-	public HashMap<String, ArrayList<ReadNode>> getRsigMapping(){
+	public SparseVector<ArrayList<ReadNode>> getRsigMapping(){
 		return rsigMapping;
 	}
 
-	public HashMap<String, ArrayList<WriteNode>> getWsigMapping(){
+	public SparseVector<ArrayList<WriteNode>> getWsigMapping(){
 		return wsigMapping;
 	}
 
+	/**
+	 * @return the locations read in this trace
+	 */
+	public IntSet getRsigs(){
+		return keysOf(rsigMapping);
+	}
+
+	/**
+	 * @return the locations written in this trace
+	 */
+	public IntSet getWsigs(){
+		return keysOf(wsigMapping);
+	}
+
+	private static IntSet keysOf(SparseVector<?> mapping){
+		MutableIntSet keys = IntSetUtil.make();
+		for (IntIterator it = mapping.iterateIndices(); it.hasNext();) {
+			keys.add(it.next());
+		}
+		return keys;
+	}
+
 	public ArrayList<LockPair> getLockPair(){
 		return lockPairs;
 	}
@@ -179,7 +216,7 @@ public class Trace {
 	}
 
 	public int indexOf(INode node){
-		int idx = trace.indexOf(node);
+		int idx = positionOf(node);
 		if(idx == -1){//should not use this
 			for (INode exist : trace) {
 				if(node.toString().equals(exist.toString()))
@@ -189,12 +226,143 @@ public class Trace {
 		return idx;
 	}
 
+	/**
+	 * the same as indexOf, without matching nodes by toString: the index of
+	 * the first node in this trace equal to node, as ArrayList.indexOf, or -1.
+	 * only compares node to the nodes with its hash
+	 */
+	public int positionOf(INode node){
+		if(node == null)
+			return -1;
+		Integer b = buckets.get(hashOf(node));
+		if(b != null){
+			for (int idx = heads[b]; idx != -1; idx = next[idx]) {
+				if(node.equals(trace.get(idx)))
+					return idx;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * a hash consistent with the equals of the nodes. memnodes have no
+	 * hashCode and lock nodes hash their pointer and lock sigs, so their
+	 * hash is taken from the fields equals compares and that do not change
+	 * once the node is in a trace.
+	 */
+	private static int hashOf(INode node){
+		if(node instanceof MemNode){
+			MemNode m = (MemNode) node;
+			return (Objects.hashCode(m.getPrefix()) * 31 + Objects.hashCode(m.getLocalSig())) * 31 + m.getLine();
+		}else if(node instanceof DLockNode){
+			DLockNode l = (DLockNode) node;
+			return (Objects.hashCode(l.getBelonging()) * 31 + Objects.hashCode(l.getInstSig())) * 31 + l.getLine();
+		}
+		return node.hashCode();
+	}
+
+	private int bucketOf(INode node){
+		Integer b = buckets.get(hashOf(node));
+		if(b == null){
+			b = buckets.size();
+			buckets.put(hashOf(node), b);
+			if(b == heads.length){
+				heads = Arrays.copyOf(heads, 2 * b);
+				tails = Arrays.copyOf(tails, 2 * b);
+			}
+			heads[b] = -1;
+			tails[b] = -1;
+		}
+		return b;
+	}
+
+	private void append(INode node){
+		trace.add(node);
+		int idx = trace.size() - 1;
+		if(idx == next.length){
+			next = Arrays.copyOf(next, 2 * idx);
+		}
+		int b = bucketOf(node);
+		next[idx] = -1;
+		if(heads[b] == -1){
+			heads[b] = idx;
+		}else{
+			next[tails[b]] = idx;
+		}
+		tails[b] = idx;
+	}
+
+	private void insertAt(int idx, INode node){
+		if(idx == trace.size()){
+			append(node);
+			return;
+		}
+		trace.add(idx, node);
+		if(trace.size() > next.length){
+			next = Arrays.copyOf(next, 2 * next.length);
+		}
+		System.arraycopy(next, idx, next, idx + 1, trace.size() - 1 - idx);
+		shift(idx, 1);
+		//the last node with the same hash before idx
+		int b = bucketOf(node);
+		int prev = -1;
+		for (int i = heads[b]; i != -1 && i < idx; i = next[i]) {
+			prev = i;
+		}
+		if(prev == -1){
+			next[idx] = heads[b];
+			heads[b] = idx;
+		}else{
+			next[idx] = next[prev];
+			next[prev] = idx;
+		}
+		if(next[idx] == -1){
+			tails[b] = idx;
+		}
+	}
+
+	private INode removeAt(int idx){
+		INode node = trace.remove(idx);
+		int b = buckets.get(hashOf(node));
+		int prev = -1;
+		for (int i = heads[b]; i != idx; i = next[i]) {
+			prev = i;
+		}
+		if(prev == -1){
+			heads[b] = next[idx];
+		}else{
+			next[prev] = next[idx];
+		}
+		if(tails[b] == idx){
+			tails[b] = prev;
+		}
+		System.arraycopy(next, idx + 1, next, idx, trace.size() - idx);
+		shift(idx + 1, -1);
+		return node;
+	}
+
+	/**
+	 * add delta to the stored indices from idx on
+	 */
+	private void shift(int idx, int delta){
+		for (int b = 0; b < buckets.size(); b++) {
+			if(heads[b] >= idx)
+				heads[b] += delta;
+			if(tails[b] >= idx)
+				tails[b] += delta;
+		}
+		for (int i = 0; i < trace.size(); i++) {
+			if(next[i] >= idx)
+				next[i] += delta;
+		}
+	}
+
 	public INode getLast(){
 		return trace.get(trace.size() - 1);
 	}
 
 	public void add(INode node){
-		trace.add(node);
+		append(node);
 	}
 
 	/**
@@ -202,8 +370,8 @@ public class Trace {
 	 * @param node
 	 */
 	public void insert(DLockNode lnode, DUnlockNode unode, int idx){
-		trace.add(idx, lnode);
-		trace.add(idx + 2, unode);
+		insertAt(idx, lnode);
+		insertAt(idx + 2, unode);
 	}
 
 	public void remove(INode node){
@@ -219,10 +387,10 @@ public class Trace {
 			if(key != null){
 				inst_start_mapping.remove(key);
 				//further startnodes added from loops or threads with same instructions
-				int idx = trace.indexOf(node);
+				int idx = positionOf(node);
 				while(hasStart > 0){
 					hasStart --;
-					trace.remove(idx + hasStart);
+					removeAt(idx + hasStart);
 				}
 			}
 		}else if(node instanceof JoinNode){
@@ -236,10 +404,10 @@ public class Trace {
 			if(key != null){
 				inst_join_mapping.remove(key);
 				//further joinnodes added from loops or threads with same instructions
-				int idx = trace.indexOf(node) + 1;
+				int idx = positionOf(node) + 1;
 				while(hasJoin > 0){
 					hasJoin --;
-					trace.remove(idx + hasJoin);
+					removeAt(idx + hasJoin);
 				}
 			}
 		}
@@ -247,11 +415,11 @@ public class Trace {
 	}
 
 	public void removeLastNode() {
-		trace.remove(trace.size() - 1);
+		removeAt(trace.size() - 1);
 	}
 
 	public void addS(StartNode node, SSAInstruction inst, int tid_child){//only add start
-		trace.add(node);
+		append(node);
 		inst_start_mapping.put(inst, node);
 		if(hasStart == 0){
 			hasStart ++;
@@ -265,7 +433,7 @@ public class Trace {
 	//loop or threads with same instructions(2nd traversal)
 	public void add2S(StartNode node, SSAInstruction inst, int tid_child) {//add 2nd insert
 		StartNode origin = inst_start_mapping.get(inst);
-		trace.add(trace.indexOf(origin) + 1, node);
+		insertAt(positionOf(origin) + 1, node);
 		addCurKidTidMapping(node.getParentTID(), tid_child);
 		kids.add(tid_child);//target kid
 		kid_line_map.put(tid_child, node.line);
@@ -274,7 +442,7 @@ public class Trace {
 
 
 	public void addJ(JoinNode node, SSAInstruction inst){//only add start
-		trace.add(node);
+		append(node);
 		inst_join_mapping.put(inst, node);
 		if(hasJoin == 0){
 			hasJoin ++;
@@ -283,7 +451,7 @@ public class Trace {
 
 	public void add2J(JoinNode node, SSAInstruction inst, int tid_child) {//add 2nd insert
 		JoinNode origin = inst_join_mapping.get(inst);
-		trace.add(trace.indexOf(origin) + 1, node);
+		insertAt(positionOf(origin) + 1, node);
 		hasJoin ++;
 	}
 
@@ -324,6 +492,7 @@ public class Trace {
 
 	public void clear(){
 		trace.clear();
+		buckets.clear();
 		tids.clear();
 		rsigMapping.clear();
 		wsigMapping.clear();
@@ -339,6 +508,7 @@ public class Trace {
 
 	public void clearContent(){//no tids, sjlater
 		trace.clear();
+		buckets.clear();
 		rsigMapping.clear();
 		wsigMapping.clear();
 		lockPairs.clear();
@@ -353,9 +523,10 @@ public class Trace {
 		kid_line_map.clear();
 	}
 
-	public HashSet<String> replaceRSigMap(HashSet<String> old_sigs, HashSet<String> new_sigs, ReadNode node) {
-		HashSet<String> newAddedSigs = new HashSet<String>();
-		for (String old : old_sigs) {
+	public IntSet replaceRSigMap(IntSet old_sigs, IntSet new_sigs, ReadNode node) {
+		MutableIntSet newAddedSigs = IntSetUtil.make();
+		for (IntIterator it = old_sigs.intIterator(); it.hasNext();) {
+			int old = it.next();
 			ArrayList<ReadNode> exists = rsigMapping.get(old);
 			if(exists != null){//should not be null
 				exists.remove(node);
@@ -364,11 +535,12 @@ public class Trace {
 				}
 			}
 		}
-		for (String new_sig : new_sigs) {
+		for (IntIterator it = new_sigs.intIterator(); it.hasNext();) {
+			int new_sig = it.next();
 			ArrayList<ReadNode> exists = rsigMapping.get(new_sig);
 			if(exists == null){
 				exists = new ArrayList<>();
-				rsigMapping.put(new_sig, exists);
+				rsigMapping.set(new_sig, exists);
 				newAddedSigs.add(new_sig);
 			}
 			exists.add(node);
@@ -376,9 +548,10 @@ public class Trace {
 		return newAddedSigs;
 	}
 
-	public HashSet<String> replaceWSigMap(HashSet<String> old_sigs, HashSet<String> new_sigs, WriteNode node) {
-		HashSet<String> newAddedSigs = new HashSet<String>();
-		for (String old : old_sigs) {
+	public IntSet replaceWSigMap(IntSet old_sigs, IntSet new_sigs, WriteNode node) {
+		MutableIntSet newAddedSigs = IntSetUtil.make();
+		for (IntIterator it = old_sigs.intIterator(); it.hasNext();) {
+			int old = it.next();
 			ArrayList<WriteNode> exists = wsigMapping.get(old);
 			if(exists != null){//should not be null
 				exists.remove(node);
@@ -387,11 +560,12 @@ public class Trace {
 				}
 			}
 		}
-		for (String new_sig : new_sigs) {
+		for (IntIterator it = new_sigs.intIterator(); it.hasNext();) {
+			int new_sig = it.next();
 			ArrayList<WriteNode> exists = wsigMapping.get(new_sig);
 			if(exists == null){
 				exists = new ArrayList<>();
-				wsigMapping.put(new_sig, exists);
+				wsigMapping.set(new_sig, exists);
 				newAddedSigs.add(new_sig);
 			}
 			exists.add(node);
@@ -412,8 +586,4 @@ public class Trace {
 		return oldkid_line_map;
 	}
 
-
-
-
-
 }
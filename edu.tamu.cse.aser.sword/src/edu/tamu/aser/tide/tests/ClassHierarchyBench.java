@@ -0,0 +1,75 @@
+package edu.tamu.aser.tide.tests;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.ClassLoaderImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.JarEntryCache;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * builds the class hierarchy of a scope with each number of class file
+ * decoding threads, with the jar files read as they are and mapped into
+ * memory, and reports the classes loaded per second. the entries the mapped
+ * jars share are dropped before each build, so it reads them from the jars
+ * too. the classes, in the order they are iterated, must depend on neither.
+ * args: [scope file] [numbers of threads, e.g. 1,2,4] [rounds per number]
+ */
+public class ClassHierarchyBench {
+
+	public static void main(String[] args) {
+		try{
+			String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+			String[] threads = (args.length > 1 ? args[1] : "1," + Runtime.getRuntime().availableProcessors()).split(",");
+			int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+			AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), ClassHierarchyBench.class.getClassLoader());
+
+			//warm up the jvm, not reported
+			ClassHierarchy.make(scope);
+
+			System.out.println("threads\tmapped\tclasses\tbest(ms)\tclasses/sec\tdigest");
+			for (String t : threads) {
+				for (boolean map : new boolean[]{false, true}) {
+					long best = Long.MAX_VALUE;
+					ClassHierarchy cha = null;
+					for (int i = 0; i < rounds; i++) {
+						if(cha != null)
+							close(cha);
+						ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+						factory.setDecodeThreads(Integer.parseInt(t.trim()));
+						factory.setMapJarFiles(map);
+						JarEntryCache.clear();
+						long start_time = System.nanoTime();
+						cha = ClassHierarchy.make(scope, factory);
+						best = Math.min(best, System.nanoTime() - start_time);
+					}
+					int digest = 1;
+					for (IClass klass : cha) {
+						digest = 31 * digest + klass.getReference().hashCode();
+						digest = 31 * digest + (klass.getSuperclass() == null ? 0 : klass.getSuperclass().getReference().hashCode());
+					}
+					close(cha);
+					System.out.println(t.trim() + "\t" + (map ? "yes" : "no") + "\t" + cha.getNumberOfClasses() + "\t" + best / 1000000
+							+ "\t" + (long) (cha.getNumberOfClasses() / (best / 1e9)) + "\t" + Integer.toHexString(digest));
+				}
+			}
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * unmaps the jar files of the loaders of a class hierarchy
+	 */
+	private static void close(ClassHierarchy cha) {
+		for (IClassLoader loader : cha.getLoaders()) {
+			if(loader instanceof ClassLoaderImpl)
+				((ClassLoaderImpl) loader).close();
+		}
+	}
+
+}
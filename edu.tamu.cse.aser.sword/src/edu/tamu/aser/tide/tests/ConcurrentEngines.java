@@ -0,0 +1,147 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import edu.tamu.aser.tide.akkasys.BugHub;
+import edu.tamu.aser.tide.engine.ITIDEBug;
+import edu.tamu.aser.tide.engine.TIDEDeadlock;
+import edu.tamu.aser.tide.engine.TIDEDeadlockCycle;
+import edu.tamu.aser.tide.engine.TIDEEngine;
+import edu.tamu.aser.tide.engine.TIDERace;
+import edu.tamu.aser.tide.nodes.DLPair;
+import edu.tamu.aser.tide.plugin.handlers.ConvertHandler;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * analyzes programs one after the other, then all at once on a shared thread
+ * pool and actor system, each with its own engine, and checks that every
+ * program gets the same bugs both ways.
+ * exits with 1 if the bugs differ.
+ * args: [scope file] [main class, e.g. demo/Main] ... (at least two programs)
+ */
+public class ConcurrentEngines {
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 4 || args.length % 2 != 0){
+			System.err.println("usage: ConcurrentEngines [scope file] [main class] [scope file] [main class] ...");
+			System.exit(2);
+		}
+		int programs = args.length / 2;
+
+		ActorSystem akkasys = ActorSystem.create();
+		ExecutorService pool = Executors.newFixedThreadPool(programs);
+		int differs = 0;
+		try{
+			//one after the other
+			List<TreeSet<String>> sequential = new ArrayList<>();
+			for (int i = 0; i < programs; i++) {
+				sequential.add(analyze(akkasys, "seq" + i, args[2 * i], args[2 * i + 1]));
+			}
+			//all at once
+			List<Future<TreeSet<String>>> concurrent = new ArrayList<>();
+			for (int i = 0; i < programs; i++) {
+				final int p = i;
+				concurrent.add(pool.submit(() -> analyze(akkasys, "con" + p, args[2 * p], args[2 * p + 1])));
+			}
+			for (int i = 0; i < programs; i++) {
+				TreeSet<String> seq = sequential.get(i);
+				TreeSet<String> con = concurrent.get(i).get();
+				System.out.println(args[2 * i + 1] + ": sequential " + seq.size() + " bugs, concurrent " + con.size() + " bugs");
+				if(!seq.equals(con)){
+					differs++;
+					for (String bug : seq) {
+						if(!con.contains(bug))
+							System.out.println("  only sequential: " + bug);
+					}
+					for (String bug : con) {
+						if(!seq.contains(bug))
+							System.out.println("  only concurrent: " + bug);
+					}
+				}
+			}
+		}finally{
+			pool.shutdown();
+			Await.result(akkasys.terminate(), Duration.create(10, TimeUnit.SECONDS));
+		}
+		if(differs > 0){
+			System.out.println("FAIL");
+			System.exit(1);
+		}
+		System.out.println("OK");
+		System.exit(0);
+	}
+
+	/**
+	 * builds the call graph of a program and detects its bugs with a new engine
+	 * @return the bugs, by their locations
+	 */
+	private static TreeSet<String> analyze(ActorSystem akkasys, String name, String scopeFile, String mainClassName) throws Exception {
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), ConcurrentEngines.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Test.findEntryPoints(cha, mainClassName, false);
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		SSAPropagationCallGraphBuilder builder = Util.makeZeroOneContainerCFABuilder(options, new AnalysisCache(), cha, scope);
+		CallGraph cg = builder.makeCallGraph(options, null);
+
+		ActorRef bughub = akkasys.actorOf(Props.create(BugHub.class, 4), "bughub-" + name);
+		String mainSignature = mainClassName.replace('/', '.') + ".main" + ConvertHandler.DESC_MAIN;
+		TIDEEngine engine = new TIDEEngine(mainSignature, cg, builder.getPropagationSystem().getPropagationGraph(),
+				builder.getPointerAnalysis(), bughub);
+		HashSet<ITIDEBug> bugs = engine.detectBothBugs(System.out);
+		akkasys.stop(bughub);
+
+		TreeSet<String> result = new TreeSet<>();
+		for (ITIDEBug bug : bugs) {
+			result.add(describe(bug));
+		}
+		return result;
+	}
+
+	private static String describe(ITIDEBug bug) {
+		if(bug instanceof TIDERace){
+			TIDERace race = (TIDERace) bug;
+			List<String> nodes = new ArrayList<>();
+			nodes.add(race.node1.getSig() + "@" + race.node1.getLine());
+			nodes.add(race.node2.getSig() + "@" + race.node2.getLine());
+			Collections.sort(nodes);
+			return "race " + race.sig + " " + nodes;
+		}
+		List<DLPair> pairs = new ArrayList<>();
+		if(bug instanceof TIDEDeadlockCycle){
+			pairs.addAll(((TIDEDeadlockCycle) bug).pairs);
+		}else{
+			pairs.add(((TIDEDeadlock) bug).lp1);
+			pairs.add(((TIDEDeadlock) bug).lp2);
+		}
+		List<String> locks = new ArrayList<>();
+		for (DLPair pair : pairs) {
+			locks.add(pair.lock1 + " -> " + pair.lock2);
+		}
+		Collections.sort(locks);
+		return "deadlock " + locks;
+	}
+
+}
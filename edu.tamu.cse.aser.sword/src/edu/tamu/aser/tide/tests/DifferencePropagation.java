@@ -0,0 +1,66 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.HashMap;
+import java.util.TreeSet;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * solves the pointer analysis of a program with full propagation and with
+ * difference propagation, under 0-cfa and 0-1-cfa, and checks both give the
+ * same points-to set for every pointer key. prints the bits each read along
+ * the assignments and filters.
+ * exits with 1 if a set differs.
+ * args: [scope file] [main class, e.g. Lfoo/Main] [exclusions file]
+ */
+public class DifferencePropagation {
+
+	private static final String DIFFERENCE = "com.ibm.wala.propagation.differencePropagation";
+
+	public static void main(String[] args) throws Exception {
+		String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+		String mainClassName = args.length > 1 ? args[1] : "LTsp";
+		String exclusions = args.length > 2 ? args[2] : "data/EclipseDefaultExclusions.txt";
+
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile(exclusions), DifferencePropagation.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClassName);
+
+		boolean same = true;
+		System.out.println("policy\tpointer keys\tfull bits\tdifference bits\tsame sets");
+		for (boolean zeroOne : new boolean[]{false, true}) {
+			System.setProperty(DIFFERENCE, "false");
+			SSAPropagationCallGraphBuilder full = solve(scope, cha, entrypoints, zeroOne);
+			System.setProperty(DIFFERENCE, "true");
+			SSAPropagationCallGraphBuilder difference = solve(scope, cha, entrypoints, zeroOne);
+
+			HashMap<String, TreeSet<String>> expected = PointsToSets.of(full.getPointerAnalysis());
+			HashMap<String, TreeSet<String>> actual = PointsToSets.of(difference.getPointerAnalysis());
+			boolean equal = PointsToSets.printDifferences(expected, "full", actual, "difference") == 0;
+			same &= equal;
+			System.out.println((zeroOne ? "0-1-cfa" : "0-cfa") + "\t" + expected.size()
+					+ "\t" + full.getPropagationSystem().getPropagatedBits()
+					+ "\t" + difference.getPropagationSystem().getPropagatedBits() + "\t" + (equal ? "yes" : "no"));
+		}
+		System.exit(same ? 0 : 1);
+	}
+
+	private static SSAPropagationCallGraphBuilder solve(AnalysisScope scope, ClassHierarchy cha, Iterable<Entrypoint> entrypoints,
+			boolean zeroOne) throws Exception {
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		SSAPropagationCallGraphBuilder builder = zeroOne
+				? Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope)
+				: Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope);
+		builder.makeCallGraph(options, null);
+		return builder;
+	}
+
+}
@@ -0,0 +1,154 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import edu.tamu.aser.tide.akkasys.BugHub;
+import edu.tamu.aser.tide.engine.TIDEEngine;
+import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.INode;
+import edu.tamu.aser.tide.nodes.MemNode;
+import edu.tamu.aser.tide.nodes.WriteNode;
+import edu.tamu.aser.tide.plugin.handlers.ConvertHandler;
+import edu.tamu.aser.tide.shb.HBIndex;
+import edu.tamu.aser.tide.shb.Trace;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * runs the detection on a program, then asks the hb index and the walk over
+ * the shb graph about the same node pairs and checks they give the same
+ * verdicts: the accesses of different threads to a common field with at
+ * least one write, and the locks of different threads. also checks the
+ * verdict between threads whose relation depends on the nodes stays the same
+ * with the node HBIndex.decidedByComper does not read replaced by another
+ * node of its thread, as the race checkers assume.
+ * exits with 1 if a verdict differs.
+ * args: [scope file] [main class, e.g. demo/Main]
+ */
+public class HBIndexCheck {
+
+	//the pairs compared at most
+	private static final long MAX_PAIRS = 2000000;
+
+	public static void main(String[] args) throws Exception {
+		String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+		String mainClassName = args.length > 1 ? args[1] : "Tsp";
+
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), HBIndexCheck.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Test.findEntryPoints(cha, mainClassName, false);
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		SSAPropagationCallGraphBuilder builder = Util.makeZeroOneContainerCFABuilder(options, new AnalysisCache(), cha, scope);
+		CallGraph cg = builder.makeCallGraph(options, null);
+
+		ActorSystem akkasys = ActorSystem.create();
+		TIDEEngine engine;
+		try{
+			ActorRef bughub = akkasys.actorOf(Props.create(BugHub.class, 8), "bughub");
+			String mainSignature = mainClassName.replace('/', '.') + ".main" + ConvertHandler.DESC_MAIN;
+			engine = new TIDEEngine(mainSignature, cg, builder.getPropagationSystem().getPropagationGraph(),
+					builder.getPointerAnalysis(), bughub);
+			engine.detectBothBugs(System.out);
+		}finally{
+			Await.result(akkasys.terminate(), Duration.create(10, TimeUnit.SECONDS));
+		}
+
+		//(tid, node) of each access and lock in the shb graph
+		ArrayList<Integer> tids = new ArrayList<>();
+		ArrayList<INode> nodes = new ArrayList<>();
+		//tid -> a node of the thread, standing for the ones the verdict does not read
+		HashMap<Integer, INode> representatives = new HashMap<>();
+		for (Trace trace : engine.shb.getAllTraces()) {
+			for (INode node : trace.getContent()) {
+				if(node instanceof MemNode || node instanceof DLockNode){
+					for (Integer tid : trace.getTraceTids()) {
+						tids.add(tid);
+						nodes.add(node);
+						if(!representatives.containsKey(tid))
+							representatives.put(tid, node);
+					}
+				}
+			}
+		}
+
+		HBIndex index = engine.hbIndex;
+		long pairs = 0;
+		int differs = 0;
+		compare:
+		for (int i = 0; i < nodes.size(); i++) {
+			for (int j = i + 1; j < nodes.size(); j++) {
+				int tid1 = tids.get(i);
+				int tid2 = tids.get(j);
+				INode node1 = nodes.get(i);
+				INode node2 = nodes.get(j);
+				if(tid1 == tid2 || !related(node1, node2))
+					continue;
+				if(pairs++ >= MAX_PAIRS){
+					System.out.println("stopped after " + MAX_PAIRS + " pairs");
+					break compare;
+				}
+				//both orders: the checkers pass the nodes either way
+				differs += compare(index, tid1, node1, tid2, node2, representatives);
+				differs += compare(index, tid2, node2, tid1, node1, representatives);
+			}
+		}
+		System.out.println("pairs: " + pairs + ", verdicts differing: " + differs);
+		if(differs > 0){
+			System.out.println("FAIL");
+			System.exit(1);
+		}
+		System.out.println("OK");
+		System.exit(0);
+	}
+
+	/**
+	 * whether the checkers would ask about the pair
+	 */
+	private static boolean related(INode node1, INode node2) {
+		if(node1 instanceof DLockNode && node2 instanceof DLockNode)
+			return true;
+		if(node1 instanceof MemNode && node2 instanceof MemNode){
+			if(!(node1 instanceof WriteNode) && !(node2 instanceof WriteNode))
+				return false;
+			return ((MemNode) node1).getObjSig().containsAny(((MemNode) node2).getObjSig());
+		}
+		return false;
+	}
+
+	private static int compare(HBIndex index, int comperTID, INode comper, int compeeTID, INode compee,
+			HashMap<Integer, INode> representatives) {
+		boolean indexed = index.hasHBRelation(comperTID, comper, compeeTID, compee);
+		boolean walked = index.hasHBRelationOnSHB(comperTID, comper, compeeTID, compee);
+		if(indexed != walked){
+			System.out.println("differs: " + comperTID + " " + comper + " / " + compeeTID + " " + compee
+					+ " index: " + indexed + " shb: " + walked);
+			return 1;
+		}
+		if(index.threadRelation(comperTID, compeeTID) != HBIndex.NODE_DEPENDENT)
+			return 0;
+		boolean represented = index.decidedByComper(comperTID, compeeTID)
+				? index.hasHBRelation(comperTID, comper, compeeTID, representatives.get(compeeTID))
+				: index.hasHBRelation(comperTID, representatives.get(comperTID), compeeTID, compee);
+		if(represented == indexed)
+			return 0;
+		System.out.println("depends on both nodes: " + comperTID + " " + comper + " / " + compeeTID + " " + compee);
+		return 1;
+	}
+
+}
@@ -0,0 +1,121 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.HashMap;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRDiff;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * diffs the methods of two versions of a program, e.g. before and after an
+ * edit, and reports for each changed method how many instructions the
+ * incremental pointer analysis would delete and add constraints for: as
+ * matched by their printed form, and as matched by an IRDiff, with the
+ * statements the IRDiff found renumbered.
+ * args: [scope file of the old version] [scope file of the new version]
+ */
+public class IRDiffs {
+
+	public static void main(String[] args) {
+		try{
+			ClassHierarchy oldCha = makeClassHierarchy(args[0]);
+			ClassHierarchy newCha = makeClassHierarchy(args[1]);
+			AnalysisCache oldCache = new AnalysisCache();
+			AnalysisCache newCache = new AnalysisCache();
+
+			System.out.println("method\tinstructions\tprinted -/+\tstructural -/+\trenumbered\tstructural (ms)");
+			int[] printedTotal = new int[2];
+			int[] structuralTotal = new int[2];
+			for (IClass newClass : newCha) {
+				if(!newClass.getClassLoader().getReference().equals(ClassLoaderReference.Application))
+					continue;
+				IClass oldClass = oldCha.lookupClass(newClass.getReference());
+				if(oldClass == null)
+					continue;
+				for (IMethod newMethod : newClass.getDeclaredMethods()) {
+					IMethod oldMethod = oldClass.getMethod(newMethod.getSelector());
+					if(oldMethod == null || oldMethod.isAbstract() || oldMethod.isNative())
+						continue;
+					IR oldIR = oldCache.getIR(oldMethod);
+					IR newIR = newCache.getIR(newMethod);
+
+					int[] printed = printedDiff(oldIR, newIR);
+					long start_time = System.nanoTime();
+					IRDiff diff = new IRDiff(oldIR, newIR);
+					long time = System.nanoTime() - start_time;
+					int deleted = 0;
+					for (SSAInstruction inst : diff.getDeleted()) {
+						if(isDeletable(inst))
+							deleted++;
+					}
+					int added = diff.getAdded().size();
+					if(printed[0] + printed[1] + deleted + added == 0)
+						continue;
+					System.out.println(newMethod.getSignature() + "\t" + newIR.getInstructions().length
+							+ "\t" + printed[0] + "/" + printed[1] + "\t" + deleted + "/" + added
+							+ "\t" + diff.getRenumbered().size() + "\t" + time / 1000000.0);
+					printedTotal[0] += printed[0];
+					printedTotal[1] += printed[1];
+					structuralTotal[0] += deleted;
+					structuralTotal[1] += added;
+				}
+			}
+			System.out.println("total\t\t" + printedTotal[0] + "/" + printedTotal[1]
+					+ "\t" + structuralTotal[0] + "/" + structuralTotal[1]);
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+	}
+
+	private static ClassHierarchy makeClassHierarchy(String scopeFile) throws Exception {
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), IRDiffs.class.getClassLoader());
+		return ClassHierarchy.make(scope);
+	}
+
+	/**
+	 * the instructions whose deletion the pointer analysis propagates
+	 */
+	private static boolean isDeletable(SSAInstruction inst) {
+		return inst instanceof SSAFieldAccessInstruction
+				|| inst instanceof SSAAbstractInvokeInstruction
+				|| inst instanceof SSAArrayReferenceInstruction;
+	}
+
+	/**
+	 * the former diff: instructions matched by their printed form
+	 */
+	private static int[] printedDiff(IR oldIR, IR newIR) {
+		HashMap<String,SSAInstruction> mapOld = new HashMap<String,SSAInstruction>();
+		HashMap<String,SSAInstruction> mapNew = new HashMap<String,SSAInstruction>();
+		for (SSAInstruction inst : oldIR.getInstructions()) {
+			if(inst!=null)
+				mapOld.put(inst.toString(), inst);
+		}
+		for (SSAInstruction inst : newIR.getInstructions()) {
+			if(inst!=null)
+				mapNew.put(inst.toString(), inst);
+		}
+		int[] result = new int[2];
+		for(String s:mapOld.keySet()){
+			if(!mapNew.containsKey(s) && isDeletable(mapOld.get(s)))
+				result[0]++;
+		}
+		for(String s:mapNew.keySet()){
+			if(!mapOld.containsKey(s))
+				result[1]++;
+		}
+		return result;
+	}
+
+}
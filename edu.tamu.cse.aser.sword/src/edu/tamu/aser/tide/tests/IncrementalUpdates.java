@@ -0,0 +1,122 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.MethodChange;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+import edu.tamu.aser.tide.engine.TIDECGModel;
+
+/**
+ * runs a batch update of the incremental pointer analysis, as
+ * TIDECGModel.updateMethods does, and checks its fixed point: deletes the
+ * bodies of the methods of one class loader in the call graph, adds them
+ * back, and checks that the points-to sets are the ones of the whole-program
+ * solve again. prints digests of the points-to sets
+ * after the deletion and after the addition: a run with full and a run with
+ * difference propagation must print the same ones. the rounds of the
+ * deletion visit the variables in identity hash order, so each run needs a
+ * jvm of its own. prints the pointer keys whose sets differ from the ones of
+ * the solve, and exits with 1 if there are any.
+ * args: [scope file] [main class, e.g. Lfoo/Main] [number of methods to change]
+ * [class loader of the methods, Application or Primordial] [full or difference]
+ */
+public class IncrementalUpdates {
+
+	public static void main(String[] args) {
+		boolean same = false;
+		try{
+			String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+			String mainClassName = args.length > 1 ? args[1] : "LTsp";
+			int limit = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+			String loader = args.length > 3 ? args[3] : "Application";
+			boolean difference = args.length > 4 && args[4].equals("difference");
+
+			AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), IncrementalUpdates.class.getClassLoader());
+			ClassHierarchy cha = ClassHierarchy.make(scope);
+			Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClassName);
+
+			System.out.println("propagation\tmethods\tpointer edges\tafter deletion\tafter addition\tdeletion (ms)\taddition (ms)\tdeletion digest\taddition digest\tsame as the solve");
+			same = run(scope, cha, entrypoints, difference, limit, loader);
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+		System.exit(same ? 0 : 1);
+	}
+
+	private static boolean run(AnalysisScope scope, ClassHierarchy cha,
+			Iterable<Entrypoint> entrypoints, boolean difference, int limit, String loader) throws Exception {
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		AnalysisCache cache = new AnalysisCache();
+		SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+		CallGraph cg = builder.makeCallGraph(options, null);
+		PointerAnalysis<InstanceKey> pta = builder.getPointerAnalysis();
+		HashMap<String, TreeSet<String>> original = PointsToSets.of(pta);
+
+		//the new body of every changed method: an empty one
+		IR empty = cache.getIR(cha.getRootClass().getMethod(MethodReference.initSelector));
+		ArrayList<MethodChange> changes = new ArrayList<MethodChange>();
+		for (CGNode node : cg) {
+			if(changes.size() == limit)
+				break;
+			if(!node.getMethod().getDeclaringClass().getClassLoader().getName().toString().equals(loader))
+				continue;
+			//the fake root methods grow their irs during the solve, the ide never changes them
+			if(node.getMethod().isSynthetic())
+				continue;
+			IR ir = node.getIR();
+			if(ir != null)
+				changes.add(new MethodChange(node, ir, empty));
+		}
+
+		//only the deletion differs between the two runs
+		final PropagationSystem system = builder.getPropagationSystem();
+		system.setDifferencePropagation(difference);
+		final HashMap<String, TreeSet<String>> deleted = new HashMap<String, TreeSet<String>>();
+		//the deletion time and the start of the addition
+		final long[] times = new long[2];
+		final long start_time = System.currentTimeMillis();
+		TIDECGModel.updatePointerAnalysis(builder, changes, () -> {
+			times[0] = System.currentTimeMillis() - start_time;
+			system.setDifferencePropagation(false);
+			deleted.putAll(PointsToSets.of(pta));
+			//the nodes keep their ir, so the addition brings back all of it
+			times[1] = System.currentTimeMillis();
+		});
+		long addition = System.currentTimeMillis() - times[1];
+		HashMap<String, TreeSet<String>> added = PointsToSets.of(pta);
+		boolean same = added.equals(original);
+
+		System.out.println((difference ? "difference" : "full") + "\t" + changes.size() + "\t" + edges(original)
+				+ "\t" + edges(deleted) + "\t" + edges(added) + "\t" + times[0] + "\t" + addition
+				+ "\t" + Integer.toHexString(deleted.hashCode()) + "\t" + Integer.toHexString(added.hashCode())
+				+ "\t" + (same ? "yes" : "differs on " + PointsToSets.printDifferences(original, "solve", added, "update") + " pointer keys"));
+		return same;
+	}
+
+	private static int edges(HashMap<String, TreeSet<String>> pointsTo) {
+		int total = 0;
+		for (TreeSet<String> set : pointsTo.values()) {
+			total += set.size();
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,87 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.HashMap;
+import java.util.TreeSet;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * builds the 0-cfa call graph of a program with the whole-program solve on
+ * each number of threads, and prints the time and the speedup over the
+ * sequential solve per thread count: once with every round handed to the pool,
+ * which measures the parallel path itself, and once with the cutover derived
+ * from the thread count, which stays sequential below about 8 threads.
+ * the thread count 1 rows are the sequential solve again, a measure of the
+ * noise. checks every solve gives the points-to sets of the first one.
+ * exits with 1 if one differs.
+ * args: [scope file] [main class, e.g. Lfoo/Main] [thread counts, e.g. 1,2,4,8,16] [runs]
+ * [exclusions file]
+ */
+public class ParallelSolve {
+
+	private static final String THREADS = "com.ibm.wala.propagation.solverThreads";
+	private static final String CUTOVER = "com.ibm.wala.propagation.minParallelAssigns";
+
+	public static void main(String[] args) throws Exception {
+		String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+		String mainClassName = args.length > 1 ? args[1] : "LTsp";
+		String[] counts = (args.length > 2 ? args[2] : "1,2,4,8,16").split(",");
+		int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		String exclusions = args.length > 4 ? args[4] : "data/EclipseDefaultExclusions.txt";
+
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile(exclusions), ParallelSolve.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClassName);
+
+		boolean same = true;
+		//the sequential solve, after one to warm up the jvm
+		System.setProperty(THREADS, "1");
+		HashMap<String, TreeSet<String>> expected = PointsToSets.of(solve(scope, cha, entrypoints));
+		long sequential = Long.MAX_VALUE;
+		for (int run = 0; run < runs; run++) {
+			long start_time = System.currentTimeMillis();
+			PointerAnalysis<InstanceKey> pta = solve(scope, cha, entrypoints);
+			sequential = Math.min(sequential, System.currentTimeMillis() - start_time);
+			same &= PointsToSets.of(pta).equals(expected);
+		}
+
+		System.out.println("cores " + Runtime.getRuntime().availableProcessors() + ", sequential solve " + sequential + " ms");
+		System.out.println("threads\tcutover\tbest(ms)\tspeedup\tsame sets");
+		for (String count : counts) {
+			for (boolean derived : new boolean[]{false, true}) {
+				System.setProperty(THREADS, count.trim());
+				System.setProperty(CUTOVER, derived ? "-1" : "0");
+				long best = Long.MAX_VALUE;
+				boolean equal = true;
+				for (int run = 0; run < runs; run++) {
+					long start_time = System.currentTimeMillis();
+					PointerAnalysis<InstanceKey> pta = solve(scope, cha, entrypoints);
+					best = Math.min(best, System.currentTimeMillis() - start_time);
+					equal &= PointsToSets.of(pta).equals(expected);
+				}
+				same &= equal;
+				System.out.println(count.trim() + "\t" + (derived ? "derived" : "none") + "\t" + best + "\t"
+						+ String.format("%.2f", (double) sequential / best) + "x\t" + (equal ? "yes" : "no"));
+			}
+		}
+		System.exit(same ? 0 : 1);
+	}
+
+	private static PointerAnalysis<InstanceKey> solve(AnalysisScope scope, ClassHierarchy cha, Iterable<Entrypoint> entrypoints) throws Exception {
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope);
+		builder.makeCallGraph(options, null);
+		return builder.getPointerAnalysis();
+	}
+
+}
@@ -0,0 +1,161 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.ibm.wala.demandpa.alg.DemandBackedPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationGraph;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.io.FileProvider;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import edu.tamu.aser.tide.akkasys.BugHub;
+import edu.tamu.aser.tide.engine.TIDEEngine;
+import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.INode;
+import edu.tamu.aser.tide.nodes.MemNode;
+import edu.tamu.aser.tide.plugin.handlers.ConvertHandler;
+import edu.tamu.aser.tide.shb.Trace;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * runs the detection on a program with the threads traversed one by one, then
+ * in parallel, and checks both build the same shb graph: the nodes and tids of
+ * the trace of each method, the start and join nodes and the edges, and the same bugs.
+ * does so over the 0-1-CFA pointer analysis, and over a demand analysis, which
+ * each engine gets empty so that the parallel copies fill it at the same time.
+ * prints the detection times and the threads whose parallel traversal was merged.
+ * exits with 1 if they differ.
+ * args: [scope file] [main class, e.g. demo/Main] [runs] [budget of the demand analysis]
+ */
+public class ParallelThreads {
+
+	public static void main(String[] args) throws Exception {
+		String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+		String mainClassName = args.length > 1 ? args[1] : "Tsp";
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		int budget = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), ParallelThreads.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Test.findEntryPoints(cha, mainClassName, false);
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		SSAPropagationCallGraphBuilder builder = Util.makeZeroOneContainerCFABuilder(options, new AnalysisCache(), cha, scope);
+		CallGraph cg = builder.makeCallGraph(options, null);
+		CallGraph rta = Util.makeRTABuilder(options, new AnalysisCache(), cha, scope).makeCallGraph(options, null);
+		String mainSignature = mainClassName.replace('/', '.') + ".main" + ConvertHandler.DESC_MAIN;
+
+		ActorSystem akkasys = ActorSystem.create();
+		boolean same = true;
+		try{
+			ActorRef bughub = akkasys.actorOf(Props.create(BugHub.class, 8), "bughub");
+			System.out.println("analysis\trun\tone by one(ms)\tparallel(ms)\tthreads merged\tsame");
+			same &= compare("0-1-CFA", mainSignature, cg, builder.getPropagationSystem().getPropagationGraph(),
+					builder::getPointerAnalysis, bughub, runs);
+			//as the command line driver runs it, without a flowgraph
+			same &= compare("demand", mainSignature, rta, null,
+					() -> DemandBackedPointerAnalysis.make(rta, cha, options, budget), bughub, runs);
+		}finally{
+			Await.result(akkasys.terminate(), Duration.create(10, TimeUnit.SECONDS));
+		}
+		System.out.println(same ? "OK" : "FAIL");
+		System.exit(same ? 0 : 1);
+	}
+
+	/**
+	 * runs the detection one by one and in parallel, with a pointer analysis from pta for each engine
+	 * @return true if they built the same shb graph and bugs in every run
+	 */
+	private static boolean compare(String analysis, String mainSignature, CallGraph cg, PropagationGraph flowgraph,
+			Supplier<PointerAnalysis<InstanceKey>> pta, ActorRef bughub, int runs) {
+		boolean same = true;
+		for (int run = 0; run < runs; run++) {
+			TIDEEngine sequential = new TIDEEngine(mainSignature, cg, flowgraph, pta.get(), bughub);
+			sequential.parallelThreads = false;
+			long start_time = System.currentTimeMillis();
+			sequential.detectBothBugs(System.out);
+			long one = System.currentTimeMillis() - start_time;
+
+			TIDEEngine parallel = new TIDEEngine(mainSignature, cg, flowgraph, pta.get(), bughub);
+			start_time = System.currentTimeMillis();
+			parallel.detectBothBugs(System.out);
+			long all = System.currentTimeMillis() - start_time;
+
+			ArrayList<String> one_by_one = describe(sequential);
+			ArrayList<String> merged = describe(parallel);
+			//the bugs by their own equality: the checkers keep either of two equal races
+			boolean equal = one_by_one.equals(merged) && sequential.bugs.equals(parallel.bugs);
+			same &= equal;
+			if(!equal){
+				//the lines only one of them has
+				ArrayList<String> missing = new ArrayList<>(one_by_one);
+				missing.removeAll(merged);
+				merged.removeAll(one_by_one);
+				System.out.println("one by one only: " + missing);
+				System.out.println("parallel only: " + merged);
+				System.out.println("bugs: " + sequential.bugs.size() + " one by one, " + parallel.bugs.size() + " parallel");
+			}
+			System.out.println(analysis + "\t" + run + "\t" + one + "\t" + all + "\t" + parallel.mergedThreads + "\t" + (equal ? "yes" : "no"));
+		}
+		return same;
+	}
+
+	/**
+	 * the shb graph of the engine as sorted lines
+	 */
+	private static ArrayList<String> describe(TIDEEngine engine) {
+		ArrayList<String> lines = new ArrayList<>();
+		for (String method : engine.shb.getId2CGNode().keySet()) {
+			Trace trace = engine.shb.getTrace(method);
+			ArrayList<Integer> tids = new ArrayList<>(trace.getTraceTids());
+			Collections.sort(tids);
+			StringBuilder sb = new StringBuilder(method + " " + tids + ":");
+			for (INode node : trace.getContent()) {
+				sb.append(" ").append(node.getTID()).append(" ").append(node);
+				//the location ids depend on the interning order, their names do not
+				if(node instanceof MemNode){
+					sb.append(names(engine, ((MemNode) node).getObjSig()));
+				}else if(node instanceof DLockNode){
+					sb.append(names(engine, ((DLockNode) node).getLockSig()));
+				}
+			}
+			lines.add(sb.toString());
+		}
+		for (Integer tid : engine.mapOfStartNode.keySet()) {
+			lines.add("start " + tid + " " + engine.mapOfStartNode.get(tid));
+		}
+		for (Integer tid : engine.mapOfJoinNode.keySet()) {
+			lines.add("join " + tid + " " + engine.mapOfJoinNode.get(tid));
+		}
+		lines.add("edges " + engine.shb.getNumOfEdges());
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static ArrayList<String> names(TIDEEngine engine, IntSet sigs) {
+		ArrayList<String> names = new ArrayList<>();
+		for (IntIterator it = sigs.intIterator(); it.hasNext();) {
+			names.add(engine.locations.toString(it.next()));
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+}
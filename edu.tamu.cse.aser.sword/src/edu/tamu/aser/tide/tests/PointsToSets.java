@@ -0,0 +1,58 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+
+/**
+ * the points-to sets of a pointer analysis by the printed pointer and
+ * instance keys, so the harnesses can compare the sets of two builders.
+ */
+public class PointsToSets {
+
+	private PointsToSets() {
+	}
+
+	/**
+	 * the non-empty points-to sets of pta
+	 */
+	public static HashMap<String, TreeSet<String>> of(PointerAnalysis<InstanceKey> pta) {
+		HashMap<String, TreeSet<String>> result = new HashMap<String, TreeSet<String>>();
+		Iterator<PointerKey> iter = pta.getPointerKeys().iterator();
+		while(iter.hasNext()){
+			PointerKey key = iter.next();
+			TreeSet<String> set = new TreeSet<String>();
+			for (InstanceKey ik : pta.getPointsToSet(key)) {
+				set.add(ik.toString());
+			}
+			if(!set.isEmpty())
+				result.put(key.toString(), set);
+		}
+		return result;
+	}
+
+	/**
+	 * prints the pointer keys whose sets differ between a and b, named by
+	 * aName and bName, in key order
+	 * @return the number of those keys
+	 */
+	public static int printDifferences(HashMap<String, TreeSet<String>> a, String aName,
+			HashMap<String, TreeSet<String>> b, String bName) {
+		TreeSet<String> keys = new TreeSet<String>(a.keySet());
+		keys.addAll(b.keySet());
+		int count = 0;
+		for (String key : keys) {
+			TreeSet<String> set = a.get(key);
+			if(set == null ? b.get(key) != null : !set.equals(b.get(key))){
+				count++;
+				System.out.println(key + ": " + aName + " " + set + ", " + bName + " " + b.get(key));
+			}
+		}
+		return count;
+	}
+
+}
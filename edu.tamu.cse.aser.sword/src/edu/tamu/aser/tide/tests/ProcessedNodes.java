@@ -0,0 +1,194 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+import edu.tamu.aser.tide.engine.AstCGNodeEcho;
+
+/**
+ * replays the visit checks of the shb traversal for thousands of thread roots
+ * and compares the visit-count arrays of the engine (processedNodes, a byte per
+ * graph node id, and echoProcessedNodes, a boolean per real node id) with the
+ * linked lists they replaced: the time per detection, and that both skip the
+ * same roots and find the same nodes visited before.
+ * the roots are echo nodes of the call graph nodes, each queued twice as an
+ * unrolled thread is, and plain call graph nodes queued up to three times; each
+ * traversed root enters a few methods of the call graph.
+ * exits with 1 if the decisions differ.
+ * args: [scope file] [main class, e.g. Lfoo/Main] [root counts, e.g. 1000,5000,20000]
+ */
+public class ProcessedNodes {
+
+	//the methods entered by a traversed root
+	private static final int CALLS = 4;
+
+	public static void main(String[] args) throws Exception {
+		String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+		String mainClassName = args.length > 1 ? args[1] : "LTsp";
+		String[] counts = (args.length > 2 ? args[2] : "1000,5000,20000").split(",");
+
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), ProcessedNodes.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClassName);
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		CallGraph cg = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope).makeCallGraph(options, null);
+		ArrayList<CGNode> nodes = new ArrayList<>();
+		cg.forEach(nodes::add);
+
+		//warm up the jvm, not reported
+		measure(cg, nodes, 1000);
+
+		boolean same = true;
+		System.out.println("roots\tcg nodes\tlists(ms)\tarrays(ms)\tspeedup\tsame decisions");
+		for (String count : counts) {
+			same &= measure(cg, nodes, Integer.parseInt(count.trim()));
+		}
+		System.exit(same ? 0 : 1);
+	}
+
+	private static boolean measure(CallGraph cg, ArrayList<CGNode> nodes, int roots) {
+		//the queue of a detection: echo roots get ids past the call graph, as unrolled threads do
+		int maxGraphNodeID = cg.getNumberOfNodes() + 1000;
+		ArrayList<CGNode> queue = new ArrayList<>();
+		for (int i = 0; i < roots; i++) {
+			CGNode real = nodes.get(i % nodes.size());
+			if(i % 2 == 0){
+				AstCGNodeEcho echo = new AstCGNodeEcho(real.getMethod(), real.getContext());
+				echo.setGraphNodeId(++maxGraphNodeID);
+				echo.setCGNode(real);
+				queue.add(echo);
+				queue.add(echo);
+			}else{
+				for (int k = 0; k <= i % 3; k++) {
+					queue.add(real);
+				}
+			}
+		}
+		int[] calls = new int[queue.size() * CALLS];
+		for (int i = 0; i < calls.length; i++) {
+			calls[i] = (int) ((i * 2654435761L) % nodes.size());
+		}
+
+		long start_time = System.nanoTime();
+		long[] lists = lists(queue, nodes, calls);
+		long listTime = System.nanoTime() - start_time;
+		start_time = System.nanoTime();
+		long[] arrays = arrays(queue, nodes, calls, cg.getNumberOfNodes() + 1000);
+		long arrayTime = System.nanoTime() - start_time;
+
+		boolean same = Arrays.equals(lists, arrays);
+		System.out.println(roots + "\t" + nodes.size() + "\t" + String.format("%.2f", listTime / 1e6) + "\t" + String.format("%.2f", arrayTime / 1e6)
+				+ "\t" + Math.round((double) listTime / arrayTime) + "x\t" + (same ? "yes" : "no"));
+		return same;
+	}
+
+	/**
+	 * the checks with the linked lists of the original traversal
+	 * @return the roots skipped and the nodes found visited before
+	 */
+	private static long[] lists(ArrayList<CGNode> queue, ArrayList<CGNode> nodes, int[] calls) {
+		LinkedList<CGNode> alreadyProcessedNodes = new LinkedList<CGNode>();
+		LinkedList<CGNode> twiceProcessedNodes = new LinkedList<CGNode>();
+		LinkedList<CGNode> thirdProcessedNodes = new LinkedList<CGNode>();
+		long skipped = 0, visited = 0;
+		int call = 0;
+		for (CGNode n : queue) {
+			if(n instanceof AstCGNodeEcho){
+				CGNode real = ((AstCGNodeEcho)n).getCGNode();
+				if(thirdProcessedNodes.contains(real)){//already processed once
+					skipped++;
+					continue;
+				}else
+					thirdProcessedNodes.add(real);
+			}else{
+				if(alreadyProcessedNodes.contains(n))
+					if (twiceProcessedNodes.contains(n)){
+						skipped++;
+						continue;
+					}else
+						twiceProcessedNodes.add(n);
+			}
+			//traverseNode of the root and the methods it enters
+			if(alreadyProcessedNodes.contains(n))
+				visited++;
+			alreadyProcessedNodes.add(n);
+			for (int j = 0; j < CALLS; j++) {
+				CGNode callee = nodes.get(calls[call++]);
+				if(alreadyProcessedNodes.contains(callee))
+					visited++;
+				alreadyProcessedNodes.add(callee);
+			}
+		}
+		return new long[]{skipped, visited};
+	}
+
+	/**
+	 * the same checks with the arrays of TIDEEngine
+	 */
+	private static long[] arrays(ArrayList<CGNode> queue, ArrayList<CGNode> nodes, int[] calls, int maxGraphNodeID) {
+		byte[] processedNodes = new byte[maxGraphNodeID + 1];
+		boolean[] echoProcessedNodes = new boolean[maxGraphNodeID + 1];
+		long skipped = 0, visited = 0;
+		int call = 0;
+		for (CGNode n : queue) {
+			if(n instanceof AstCGNodeEcho){
+				CGNode real = ((AstCGNodeEcho)n).getCGNode();
+				int id = real.getGraphNodeId();
+				if(id >= echoProcessedNodes.length)
+					echoProcessedNodes = Arrays.copyOf(echoProcessedNodes, Math.max(id + 1, 2 * echoProcessedNodes.length));
+				if(echoProcessedNodes[id]){//already processed once
+					skipped++;
+					continue;
+				}else
+					echoProcessedNodes[id] = true;
+			}else{
+				int visits = visits(processedNodes, n);
+				if(visits >= 1)
+					if (visits >= 2){
+						skipped++;
+						continue;
+					}else
+						processedNodes = visit(processedNodes, n, 2);
+			}
+			if(visits(processedNodes, n) >= 1)
+				visited++;
+			else
+				processedNodes = visit(processedNodes, n, 1);
+			for (int j = 0; j < CALLS; j++) {
+				CGNode callee = nodes.get(calls[call++]);
+				if(visits(processedNodes, callee) >= 1)
+					visited++;
+				else
+					processedNodes = visit(processedNodes, callee, 1);
+			}
+		}
+		return new long[]{skipped, visited};
+	}
+
+	private static int visits(byte[] processedNodes, CGNode n) {
+		int id = n.getGraphNodeId();
+		return id < processedNodes.length ? processedNodes[id] : 0;
+	}
+
+	private static byte[] visit(byte[] processedNodes, CGNode n, int visits) {
+		int id = n.getGraphNodeId();
+		if(id >= processedNodes.length){//new echo nodes
+			processedNodes = Arrays.copyOf(processedNodes, Math.max(id + 1, 2 * processedNodes.length));
+		}
+		processedNodes[id] = (byte) visits;
+		return processedNodes;
+	}
+
+}
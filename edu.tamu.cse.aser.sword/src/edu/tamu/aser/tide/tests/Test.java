@@ -5,6 +5,7 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import com.ibm.wala.classLoader.IClass;
@@ -37,7 +38,7 @@ import edu.tamu.aser.tide.engine.ITIDEBug;
 import edu.tamu.aser.tide.engine.TIDEDeadlock;
 import edu.tamu.aser.tide.engine.TIDEEngine;
 import edu.tamu.aser.tide.engine.TIDERace;
-import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.DLPair;
 import edu.tamu.aser.tide.nodes.MemNode;
 import edu.tamu.aser.tide.plugin.handlers.ConvertHandler;
 
@@ -208,18 +209,14 @@ public class Test {
 	}
 
 	private static void showUpDeadlocks(TIDEDeadlock deadlock) {
-		DLockNode l11 = deadlock.lp1.lock1;
-		DLockNode l12 = deadlock.lp1.lock2;
-		DLockNode l21 = deadlock.lp2.lock1;
-		DLockNode l22 = deadlock.lp2.lock2;
-
-		String s11 = l11.instSig;
-		String s12 = l12.instSig;
-		String s21 = l21.instSig;
-		String s22 = l22.instSig;
-
-		String deadlockMsg = "Deadlock: ("+s11+","+s12+";"+s21+","+s22+")";
-		print(deadlockMsg,true);
+		List<DLPair> pairs = deadlock.getPairs();
+		StringBuilder deadlockMsg = new StringBuilder("Deadlock: (");
+		for (int i = 0; i < pairs.size(); i++) {
+			if(i > 0)
+				deadlockMsg.append(";");
+			deadlockMsg.append(pairs.get(i).lock1.instSig).append(",").append(pairs.get(i).lock2.instSig);
+		}
+		print(deadlockMsg.append(")").toString(),true);
 	}
 
 	private static void showUpRaces(TIDERace race) {
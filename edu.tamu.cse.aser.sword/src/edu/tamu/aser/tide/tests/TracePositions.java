@@ -0,0 +1,122 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.ArrayList;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+import edu.tamu.aser.tide.nodes.DLockNode;
+import edu.tamu.aser.tide.nodes.DUnlockNode;
+import edu.tamu.aser.tide.nodes.INode;
+import edu.tamu.aser.tide.nodes.MemNode;
+import edu.tamu.aser.tide.nodes.ReadNode;
+import edu.tamu.aser.tide.nodes.WriteNode;
+import edu.tamu.aser.tide.shb.Trace;
+
+/**
+ * builds traces of reads and writes of each size, inserts lock pairs in the
+ * middle as the engine does for synchronized methods, and compares
+ * Trace.positionOf with the list scan it replaces: the time per lookup, and
+ * that both find the same index for the scanned nodes. every fifth access repeats
+ * the one two before it, so equal nodes are looked up too.
+ * exits with 1 if an index differs.
+ * args: [scope file] [main class, e.g. Lfoo/Main] [trace sizes, e.g. 10000,50000]
+ * [lock pairs inserted per trace]
+ */
+public class TracePositions {
+
+	//the nodes looked up by the list scan, which is quadratic over the whole trace
+	private static final int SCANNED = 2000;
+
+	public static void main(String[] args) throws Exception {
+		String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+		String mainClassName = args.length > 1 ? args[1] : "LTsp";
+		String[] sizes = (args.length > 2 ? args[2] : "10000,50000").split(",");
+		int pairs = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+		//the nodes only need a method to belong to
+		AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), TracePositions.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClassName);
+		AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+		CallGraph cg = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope).makeCallGraph(options, null);
+		CGNode method = cg.getEntrypointNodes().iterator().next();
+
+		//warm up the jvm, not reported
+		measure(method, 10000, pairs);
+
+		boolean same = true;
+		System.out.println("nodes\tlock pairs\tappends(ms)\tinserts(ms)\tpositionOf(ns)\tscan(ns)\tspeedup\tsame index");
+		for (String size : sizes) {
+			same &= measure(method, Integer.parseInt(size.trim()), pairs);
+		}
+		System.exit(same ? 0 : 1);
+	}
+
+	private static boolean measure(CGNode method, int size, int pairs) {
+		ArrayList<MemNode> accesses = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int line = i % 5 == 4 ? i - 2 : i;
+			MemNode node = i % 2 == 0
+					? new ReadNode(0, "sig" + line, line, null, "o" + line % 97, method, null, null)
+					: new WriteNode(0, "sig" + line, line, null, "o" + line % 97, method, null, null);
+			node.setLocalSig("f" + line % 13);
+			accesses.add(node);
+		}
+		ArrayList<DLockNode> locks = new ArrayList<>(pairs);
+		ArrayList<DUnlockNode> unlocks = new ArrayList<>(pairs);
+		for (int i = 0; i < pairs; i++) {
+			locks.add(new DLockNode(0, "lock" + i + ":", size + i, null, null, method, null, null));
+			unlocks.add(new DUnlockNode(0, "unlock" + i + ":", size + i, null, null, method, size + i));
+		}
+
+		long start_time = System.nanoTime();
+		Trace trace = new Trace(0);
+		for (MemNode node : accesses) {
+			trace.add(node);
+		}
+		long appends = System.nanoTime() - start_time;
+		start_time = System.nanoTime();
+		for (int i = 0; i < pairs; i++) {
+			int idx = (int) ((long) trace.size() * (i + 1) / (pairs + 1));
+			trace.insert(locks.get(i), unlocks.get(i), idx);
+		}
+		long inserts = System.nanoTime() - start_time;
+
+		ArrayList<INode> nodes = new ArrayList<>(trace.getNodes());
+		start_time = System.nanoTime();
+		long sum = 0;
+		for (INode node : nodes) {
+			sum += trace.positionOf(node);
+		}
+		double indexed = (System.nanoTime() - start_time) / (double) nodes.size();
+
+		//the same number of nodes from the whole trace
+		int step = Math.max(1, nodes.size() / SCANNED);
+		int scanned = 0;
+		int[] scans = new int[nodes.size() / step + 1];
+		start_time = System.nanoTime();
+		for (int i = 0; i < nodes.size(); i += step) {
+			scans[scanned++] = trace.getNodes().indexOf(nodes.get(i));
+		}
+		double scan = (System.nanoTime() - start_time) / (double) scanned;
+		//the sum keeps the lookups from being optimized away
+		boolean same = sum > 0;
+		for (int i = 0; i < scanned; i++) {
+			same &= trace.positionOf(nodes.get(i * step)) == scans[i];
+		}
+
+		System.out.println(trace.size() + "\t" + pairs + "\t" + appends / 1000000 + "\t" + inserts / 1000000 + "\t" + Math.round(indexed)
+				+ "\t" + Math.round(scan) + "\t" + Math.round(scan / indexed) + "x\t" + (same ? "yes" : "no"));
+		return same;
+	}
+
+}
@@ -0,0 +1,66 @@
+package edu.tamu.aser.tide.tests;
+
+import java.util.Iterator;
+
+import com.ibm.wala.fixedpoint.impl.WorklistPolicy;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * builds the call graph of a program once per worklist policy, and reports
+ * the statement evaluations of the pointer analysis solver for each.
+ * args: [scope file] [main class, e.g. demo/Main]
+ */
+public class WorklistPolicies {
+
+	public static void main(String[] args) {
+		try{
+			String scopeFile = args.length > 0 ? args[0] : "data/test2.txt";
+			String mainClassName = args.length > 1 ? args[1] : "Tsp";
+
+			AnalysisScope scope = AnalysisScopeReader.readJavaScope(scopeFile, (new FileProvider()).getFile("data/EclipseDefaultExclusions.txt"), WorklistPolicies.class.getClassLoader());
+			ClassHierarchy cha = ClassHierarchy.make(scope);
+			Iterable<Entrypoint> entrypoints = Test.findEntryPoints(cha, mainClassName, false);
+
+			//warm up the jvm, not reported
+			AnalysisOptions warmup = new AnalysisOptions(scope, entrypoints);
+			Util.makeZeroOneContainerCFABuilder(warmup, new AnalysisCache(), cha, scope).makeCallGraph(warmup, null);
+
+			System.out.println("policy\tevaluations\ttime(ms)\tcg nodes\tpointer edges");
+			for (WorklistPolicy policy : WorklistPolicy.values()) {
+				AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+				options.setWorklistPolicy(policy);
+				SSAPropagationCallGraphBuilder builder = Util.makeZeroOneContainerCFABuilder(options, new AnalysisCache(), cha, scope);
+				long start_time = System.currentTimeMillis();
+				CallGraph cg = builder.makeCallGraph(options, null);
+				long time = System.currentTimeMillis() - start_time;
+				PropagationSystem system = builder.getPropagationSystem();
+
+				//the results must not depend on the policy
+				PointerAnalysis<InstanceKey> pta = builder.getPointerAnalysis();
+				int totalPointerEdge = 0;
+				Iterator<PointerKey> iter = pta.getPointerKeys().iterator();
+				while(iter.hasNext()){
+					totalPointerEdge += pta.getPointsToSet(iter.next()).size();
+				}
+				System.out.println(policy + "\t" + system.getNumberOfWorklistTakes() + "\t" + time
+						+ "\t" + cg.getNumberOfNodes() + "\t" + totalPointerEdge);
+			}
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -2,10 +2,12 @@ package edu.tamu.aser.tide.views;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.eclipse.jface.resource.ImageDescriptor;
 
 import edu.tamu.aser.tide.engine.TIDEDeadlock;
+import edu.tamu.aser.tide.nodes.DLPair;
 import edu.tamu.aser.tide.plugin.Activator;
 
 public class DeadlockNode extends TreeNode{
@@ -46,17 +48,12 @@ public class DeadlockNode extends TreeNode{
 	@SuppressWarnings("unchecked")
 	@Override
 	protected void createChildren(ArrayList<LinkedList<String>> traces, String fix) {
-		LinkedList<String> trace1 = traces.get(0);
-		LinkedList<String> trace2 = traces.get(1);
-		if(this instanceof DeadlockNode){
-			//1st lockpair
-			String name1 = "Trace of " + deadlock.lp1.lock1.getInstSig() + " => " + deadlock.lp1.lock2.getInstSig() + " :";
-			SubTraceNode subtrace1 = new SubTraceNode(this, name1, trace1);
-			//2nd lockpair
-			String name2 = "Trace of " + deadlock.lp2.lock1.getInstSig() + " => " + deadlock.lp2.lock2.getInstSig() + " :";
-			SubTraceNode subtrace2 = new SubTraceNode(this, name2, trace2);
-			super.children.add(subtrace1);
-			super.children.add(subtrace2);
+		//a subtrace per lock pair, two or more for a cycle
+		List<DLPair> pairs = deadlock.getPairs();
+		for (int i = 0; i < pairs.size(); i++) {
+			DLPair pair = pairs.get(i);
+			String title = "Trace of " + pair.lock1.getInstSig() + " => " + pair.lock2.getInstSig() + " :";
+			super.children.add(new SubTraceNode(this, title, traces.get(i)));
 		}
 	}
 